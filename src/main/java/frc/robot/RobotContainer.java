@@ -11,26 +11,43 @@ package frc.robot;
 import java.util.List;
 import java.util.Optional;
 
+import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.XboxController.Button;
 import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
 import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
-import edu.wpi.first.wpilibj2.command.WaitCommand;
 import edu.wpi.first.wpilibj2.command.button.CommandXboxController;
 import edu.wpi.first.wpilibj2.command.button.JoystickButton;
+import edu.wpi.first.wpilibj2.command.button.Trigger;
 import frc.robot.commands.ActivatePart;
 import frc.robot.commands.AltitudeTarget;
+import frc.robot.commands.AscentGuidance;
+import frc.robot.commands.AttitudeHold;
+import frc.robot.commands.DockingAutopilot;
+import frc.robot.commands.LandingBurn;
 import frc.robot.commands.LaunchCommand;
+import frc.robot.commands.ManeuverExecutor;
+import frc.robot.commands.ScheduledSequenceCommand;
 import frc.robot.commands.ThrottleCommand;
 import frc.robot.commands.VelocityTarget;
+import frc.robot.control.AbortChannel;
+import frc.robot.control.AscentOptimizer;
+import frc.robot.control.AscentProfileGenerator;
+import frc.robot.krpc.FleetManager;
 import frc.robot.krpc.KRPCWrapper;
 import frc.robot.krpc.VesselSubsystem;
 import frc.robot.krpc.parts.DecouplerPart;
+import frc.robot.krpc.parts.DockingPortPart;
 import frc.robot.krpc.parts.EnginePart;
 import frc.robot.krpc.parts.FairingPart;
 import frc.robot.krpc.parts.Part;
 import frc.robot.krpc.parts.ProbeCorePart;
+import frc.robot.mission.MissionCommand;
+import frc.robot.mission.MissionParser;
+import frc.robot.mission.PartMissionActions;
+import frc.robot.subsystems.FaultDetectionSubsystem;
 import frc.robot.subsystems.RocketSubsystem;
 import frc.robot.util.KSPPartType;
 import frc.robot.util.PIDHelper;
@@ -40,6 +57,12 @@ public class RobotContainer {
     private final KRPCWrapper krpc = new KRPCWrapper(false);
     private final CommandXboxController controller = new CommandXboxController(0);
     private final VesselSubsystem vesselSubsystem = new VesselSubsystem(krpc);
+    private final FleetManager fleetManager = new FleetManager(krpc);
+    private final RocketSubsystem rocketSubsystem = new RocketSubsystem(krpc);
+    private final AscentProfileGenerator ascentProfiles = new AscentProfileGenerator(krpc);
+    private final AscentOptimizer ascentOptimizer = new AscentOptimizer(krpc, rocketSubsystem.getControlLoop());
+    private final AbortChannel abortChannel = new AbortChannel(krpc, rocketSubsystem.getControlLoop(), vesselSubsystem);
+    private final FaultDetectionSubsystem faultDetection = new FaultDetectionSubsystem(krpc, rocketSubsystem, vesselSubsystem, abortChannel);
     
     // Get core parts
     private ProbeCorePart probeCore;
@@ -47,6 +70,11 @@ public class RobotContainer {
     private EnginePart secondStageEngine;
     private DecouplerPart stageDecoupler;
     private FairingPart payloadFairing;
+    private DockingPortPart dockingPort;
+
+    // Launch mission, compiled from the deploy directory at startup
+    private static final String LAUNCH_MISSION = "missions/launch.mission";
+    private Command launchMission;
 
     public RobotContainer() {
 
@@ -54,6 +82,10 @@ public class RobotContainer {
 		//vesselSubsystem.printVesselParts(true);
 		//System.out.println("=== End vessel parts print ===\n");
 		findAndInitializeParts();
+		configureFaultResponses();
+		configureAbort();
+		fleetManager.trackActiveVessel();
+		launchMission = loadLaunchMission();
 
       configureBindings();
     }
@@ -94,6 +126,13 @@ public class RobotContainer {
                 payloadFairing = fairing;
                 System.out.println("Found payload fairing: " + fairing.getName());
             }
+
+        // Find docking port, optional: only vessels that dock carry one
+        List<Part> dockingPortParts = vesselSubsystem.getPartsByTag("DOCKING_main");
+            if (!dockingPortParts.isEmpty() && dockingPortParts.get(0) instanceof DockingPortPart port) {
+                dockingPort = port;
+                System.out.println("Found docking port: " + port.getName());
+            }
         
         // Verify all parts were found
         boolean allPartsFound = true;
@@ -123,6 +162,23 @@ public class RobotContainer {
         }
     }
 
+    private void configureFaultResponses() {
+        // The launch mission stages by part, so burnout flameouts are only reported. A first
+        // stage engine that fails with fuel left aborts; other engines are only reported
+        faultDetection.setRespondToFlameouts(false);
+        faultDetection.setDefaultResponse(FaultDetectionSubsystem.Response.NONE);
+        if (firstStageEngine != null) {
+            faultDetection.setResponse(firstStageEngine, FaultDetectionSubsystem.Response.ABORT);
+        }
+        faultDetection.enable();
+    }
+
+    private void configureAbort() {
+        abortChannel.setProbeCore(probeCore);
+        abortChannel.setSeparation(List.of(),
+            payloadFairing != null ? List.of(payloadFairing) : List.of());
+    }
+
     private void configureBindings() {
         // Basic probe controls
         controller.rightBumper()
@@ -135,6 +191,9 @@ public class RobotContainer {
         controller.povRight().onTrue(probeCore.holdNormal());
         controller.povLeft().onTrue(probeCore.holdAntiNormal());
 
+        // Closed-loop attitude hold, pointing straight up while held
+        controller.leftBumper().whileTrue(new AttitudeHold(rocketSubsystem, vesselSubsystem, () -> 90.0, () -> 90.0));
+
         // Engine controls
         controller.leftTrigger().whileTrue(Commands.run(() -> 
             firstStageEngine.setThrottle(controller.getLeftTriggerAxis())
@@ -151,92 +210,57 @@ public class RobotContainer {
         // Automated launch sequence
         controller.start().onTrue(createLaunchSequence());
 
-        // Emergency controls
+        // Execute the next maneuver node, toggled so a second press aborts the burn
+        controller.a().toggleOnTrue(new ManeuverExecutor(rocketSubsystem, krpc));
+
+        // Booster landing burn, also toggled
+        controller.b().toggleOnTrue(new LandingBurn(rocketSubsystem, krpc));
+
+        // Dock with the targeted port, toggled so a second press backs off
+        if (dockingPort != null) {
+            controller.rightStick().toggleOnTrue(new DockingAutopilot(rocketSubsystem, krpc, dockingPort));
+        }
+
+        // Emergency controls. Button and fault aborts both go through the abort channel; once it
+        // has triggered, from whichever thread, everything still running is cancelled here.
+        // Bound after the button so a press cancels in the same scheduler pass
         controller.back().onTrue(createAbortSequence());
+        new Trigger(abortChannel::isTriggered)
+            .onTrue(Commands.runOnce(() -> CommandScheduler.getInstance().cancelAll()));
     }
 
     private Command createStageSequence() {
+        // Steps and delays run on the wrapper's timer wheel, interrupting cancels the rest
         return Commands.sequence(
             Commands.print("Starting staging sequence..."),
-            Commands.runOnce(() -> firstStageEngine.shutdown()),
-            new WaitCommand(0.5),
-            Commands.runOnce(() -> stageDecoupler.decouple()),
-            new WaitCommand(0.5),
-            Commands.runOnce(() -> secondStageEngine.activate()),
+            new ScheduledSequenceCommand(krpc.getTimer())
+                .then(() -> firstStageEngine.shutdown())
+                .thenAfter(0.5, () -> vesselSubsystem.decouple(stageDecoupler))
+                .thenAfter(0.5, () -> secondStageEngine.activate()),
             Commands.print("Staging complete")
         );
     }
 
+	private Command loadLaunchMission() {
+		PartMissionActions actions = new PartMissionActions(vesselSubsystem, rocketSubsystem)
+			.withCommand("guidance", new AscentGuidance(rocketSubsystem, ascentProfiles, ascentOptimizer));
+		try {
+			return new MissionCommand(MissionParser.load(LAUNCH_MISSION, actions), rocketSubsystem.getControlLoop());
+		} catch (Exception e) {
+			DriverStation.reportError("Failed to load " + LAUNCH_MISSION + ": " + e.getMessage(), false);
+			return Commands.print("Launch mission unavailable");
+		}
+	}
+
 	private Command createLaunchSequence() {
-		return Commands.sequence(
-			// Pre-launch checks
-			Commands.runOnce(() -> {
-				System.out.println("Beginning launch sequence...");
-				probeCore.setSAS(true);
-				probeCore.setSASMode(ProbeCorePart.SASMode.STABILITY_ASSIST);
-			}),
-			
-			// First stage
-			Commands.runOnce(() -> {
-				System.out.println("Igniting first stage...");
-				firstStageEngine.activate();
-				firstStageEngine.setThrottle(1.0);
-			}),
-			Commands.waitUntil(() -> krpc.getAltitude() > 10000),
-			
-			// Gravity turn
-			Commands.runOnce(() -> {
-				System.out.println("Beginning gravity turn...");
-				probeCore.setSASMode(ProbeCorePart.SASMode.PROGRADE);
-			}),
-			Commands.waitUntil(() -> krpc.getAltitude() > 35000),
-			
-			// Stage separation
-			Commands.runOnce(() -> {
-				System.out.println("Preparing for stage separation...");
-				firstStageEngine.setThrottle(0.0);
-				firstStageEngine.shutdown();
-			}),
-			Commands.waitSeconds(1.0),
-			Commands.runOnce(() -> stageDecoupler.decouple()),
-			Commands.waitSeconds(5.0),
-			
-			// Second stage
-			Commands.runOnce(() -> {
-				System.out.println("Igniting second stage...");
-				secondStageEngine.activate();
-				secondStageEngine.setThrottle(1.0);
-			}),
-			Commands.waitUntil(() -> krpc.getAltitude() > 70000),
-			
-			// Coast phase
-			Commands.runOnce(() -> {
-				System.out.println("Entering coast phase...");
-				secondStageEngine.setThrottle(0.0);
-			}),
-			Commands.waitUntil(() -> krpc.getAltitude() > 100000),
-			
-			// Deploy payload
-			Commands.runOnce(() -> {
-				System.out.println("Deploying payload...");
-				payloadFairing.deploy();
-			}),
-			
-			Commands.runOnce(() -> System.out.println("Launch sequence complete!"))
-		);
+		// Thresholds and actions live in the mission file
+		return launchMission;
 	}
 
     private Command createAbortSequence() {
-        return Commands.sequence(
-            Commands.print("ABORT SEQUENCE INITIATED"),
-            Commands.runOnce(() -> {
-                firstStageEngine.shutdown();
-                secondStageEngine.shutdown();
-                probeCore.emergencyStabilize();
-            }),
-            Commands.runOnce(() -> payloadFairing.deploy()),
-            Commands.print("Abort sequence complete")
-        );
+        // The sequence runs on the abort channel's own thread; the command only records the press
+        return Commands.runOnce(abortChannel::trigger)
+            .andThen(Commands.print("ABORT SEQUENCE INITIATED"));
     }
 
     // Utility methods for telemetry
@@ -9,13 +9,29 @@
 package frc.robot.commands;
 
 import edu.wpi.first.math.controller.PIDController;
-import edu.wpi.first.wpilibj2.command.PIDCommand;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.control.ActuatorChannel;
+import frc.robot.control.ControlLaw;
+import frc.robot.control.TelemetrySnapshot;
 import frc.robot.subsystems.RocketSubsystem;
 import frc.robot.util.PIDHelper;
 
-public class AltitudeTarget extends PIDCommand {
+/**
+ * Holds a target altitude with a PID loop on throttle.
+ *
+ * <p>The PID loop itself runs on the subsystem's high-rate control loop; this command only
+ * arms it in initialize() and disarms it in end(). Cycles follow the server samples, so the
+ * gains are rescaled every cycle to the measured interval.
+ */
+public class AltitudeTarget extends Command {
     private final RocketSubsystem rocketSubsystem;
     private final PIDHelper pidHelper;
+    private final PIDController controller;
+    private final ControlLaw law = this::runControlLaw;
+    private final double kP;
+    private final double kI;
+    private final double kD;
+    private long appliedVersion = -1;
     private static final double DEFAULT_TOLERANCE = 10.0; // meters
     private static final double DEFAULT_VELOCITY_TOLERANCE = 0.5; // meters per second
 
@@ -26,32 +42,23 @@ public class AltitudeTarget extends PIDCommand {
      * @param pidHelper The PIDHelper to use for tuning
      */
     public AltitudeTarget(RocketSubsystem subsystem, PIDHelper pidHelper) {
-        super(
-            new PIDController(
-                pidHelper.getP(),
-                pidHelper.getI(),
-                pidHelper.getD()
-            ),
-            subsystem::getAltitude,
-            pidHelper.getSetpoint(),
-            output -> {
-                double throttle = Math.min(Math.max(output, 0.0), 1.0);
-                subsystem.setThrottle(throttle);
-                // Publish telemetry
-                pidHelper.publishTelemetry(
-                    pidHelper.getSetpoint() - subsystem.getAltitude(),
-                    throttle
-                );
-            },
-            subsystem
-        );
-
         this.rocketSubsystem = subsystem;
         this.pidHelper = pidHelper;
-        getController().setTolerance(
+        this.kP = Double.NaN;
+        this.kI = Double.NaN;
+        this.kD = Double.NaN;
+        this.controller = new PIDController(
+            pidHelper.getP(),
+            pidHelper.getI(),
+            pidHelper.getD(),
+            subsystem.getControlLoop().getPeriod()
+        );
+        controller.setSetpoint(pidHelper.getSetpoint());
+        controller.setTolerance(
             pidHelper.getPositionTolerance(),
             pidHelper.getVelocityTolerance()
         );
+        addRequirements(subsystem);
     }
 
     /**
@@ -63,22 +70,17 @@ public class AltitudeTarget extends PIDCommand {
      * @param kI The integral gain
      * @param kD The derivative gain
      */
-    public AltitudeTarget(double targetAltitude, RocketSubsystem subsystem, 
+    public AltitudeTarget(double targetAltitude, RocketSubsystem subsystem,
                          double kP, double kI, double kD) {
-        super(
-            new PIDController(kP, kI, kD),
-            subsystem::getAltitude,
-            targetAltitude,
-            output -> {
-                double throttle = Math.min(Math.max(output, 0.0), 1.0);
-                subsystem.setThrottle(throttle);
-            },
-            subsystem
-        );
-
         this.rocketSubsystem = subsystem;
         this.pidHelper = null;
-        getController().setTolerance(DEFAULT_TOLERANCE, DEFAULT_VELOCITY_TOLERANCE);
+        this.kP = kP;
+        this.kI = kI;
+        this.kD = kD;
+        this.controller = new PIDController(kP, kI, kD, subsystem.getControlLoop().getPeriod());
+        controller.setSetpoint(targetAltitude);
+        controller.setTolerance(DEFAULT_TOLERANCE, DEFAULT_VELOCITY_TOLERANCE);
+        addRequirements(subsystem);
     }
 
     /**
@@ -96,42 +98,42 @@ public class AltitudeTarget extends PIDCommand {
                          double kP, double kI, double kD,
                          double tolerance, double velocityTolerance) {
         this(targetAltitude, subsystem, kP, kI, kD);
-        getController().setTolerance(tolerance, velocityTolerance);
+        controller.setTolerance(tolerance, velocityTolerance);
     }
 
-    @Override
-    public void initialize() {
-        // Reset the PID controller when we start
+    /**
+     * One control cycle, run on the control loop thread.
+     */
+    private void runControlLaw(TelemetrySnapshot telemetry, ActuatorChannel actuators, double dt) {
         if (pidHelper != null) {
-            // Update PID values before starting if using PIDHelper
-            pidHelper.updateValues();
-            getController().setPID(
-                pidHelper.getP(),
-                pidHelper.getI(),
-                pidHelper.getD()
-            );
-            getController().setSetpoint(pidHelper.getSetpoint());
-            getController().setTolerance(
-                pidHelper.getPositionTolerance(),
-                pidHelper.getVelocityTolerance()
-            );
+            // Tolerances only change after a value was edited on the dashboard
+            if (pidHelper.getVersion() != appliedVersion) {
+                appliedVersion = pidHelper.applyIfChanged(controller, appliedVersion);
+            }
+            controller.setSetpoint(pidHelper.getSetpoint());
+            PIDHelper.setGainsForCycle(controller, pidHelper.getP(), pidHelper.getI(), pidHelper.getD(), dt);
+        } else {
+            PIDHelper.setGainsForCycle(controller, kP, kI, kD, dt);
         }
-        getController().reset();
+        // Act on where the vessel will be when the throttle lands, not where the sample saw it
+        double altitude = telemetry.getProjectedAltitude();
+        double throttle = Math.min(Math.max(controller.calculate(altitude), 0.0), 1.0);
+        actuators.setThrottle(throttle, telemetry.getArrivalNanos());
+        if (pidHelper != null) {
+            pidHelper.publishTelemetry(controller.getSetpoint() - altitude, throttle);
+        }
+    }
+
+    public PIDController getController() {
+        return controller;
     }
 
     @Override
-    public void execute() {
-        if (pidHelper != null) {
-            // Update PID values during execution if using PIDHelper
-            pidHelper.updateValues();
-            getController().setPID(
-                pidHelper.getP(),
-                pidHelper.getI(),
-                pidHelper.getD()
-            );
-            getController().setSetpoint(pidHelper.getSetpoint());
-        }
-        super.execute();
+    public void initialize() {
+        // Reset the PID controller when we start
+        controller.reset();
+        appliedVersion = -1;
+        rocketSubsystem.getControlLoop().arm(law);
     }
 
     @Override
@@ -141,6 +143,7 @@ public class AltitudeTarget extends PIDCommand {
 
     @Override
     public void end(boolean interrupted) {
+        rocketSubsystem.getControlLoop().disarm(law);
         // When the command ends, set throttle to maintain current altitude
         if (!interrupted) {
             // Calculate throttle needed to maintain altitude (you might need to tune this)
@@ -151,4 +154,4 @@ public class AltitudeTarget extends PIDCommand {
             rocketSubsystem.setThrottle(0.0);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,146 @@
+// Copyright (c) 2024 : FRC 2106 : The Junkyard Dogs
+// https://github.com/WindingMotor
+// https://www.team2106.org
+
+// Use of this source code is governed by an MIT-style
+// license that can be found in the LICENSE file at
+// the root directory of this project.
+
+package frc.robot.commands;
+
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.control.ActuatorChannel;
+import frc.robot.control.ActuatorChannel.Actuator;
+import frc.robot.control.AscentOptimizer;
+import frc.robot.control.AscentPlan;
+import frc.robot.control.AscentProfile;
+import frc.robot.control.AscentProfileGenerator;
+import frc.robot.control.ControlLaw;
+import frc.robot.control.TelemetrySnapshot;
+import frc.robot.subsystems.RocketSubsystem;
+
+/**
+ * Flies the ascent along the latest {@link AscentPlan} from an {@link AscentOptimizer}, or along
+ * the active vessel's precomputed {@link AscentProfile} when there is no fresh plan.
+ *
+ * <p>Every control cycle looks up the target pitch and throttle for the sample time in the plan,
+ * or for the projected altitude and current dynamic pressure in the profile, then hands both to
+ * the actuator channel. The autopilot steers to the pitch. Targets are only written when they
+ * move by more than a small step, so a steady plan costs no RPCs. Until either is ready the
+ * vessel climbs straight up at full throttle.
+ */
+public class AscentGuidance extends Command {
+    private static final double PITCH_STEP = 0.1; // degrees
+    private static final double THROTTLE_STEP = 0.005;
+    private static final double MAX_PLAN_AGE = 2.0; // s
+
+    private final RocketSubsystem rocketSubsystem;
+    private final AscentProfileGenerator generator;
+    private final AscentOptimizer optimizer;
+    private final ControlLaw law = this::runControlLaw;
+
+    // Written by the control loop thread
+    private double lastPitch;
+    private double lastThrottle;
+    private volatile double targetPitch;
+    private volatile double targetThrottle;
+    private volatile boolean followingPlan;
+
+    /**
+     * Creates a new AscentGuidance command that follows the profile only.
+     * @param subsystem The rocket subsystem whose control loop runs the guidance
+     * @param generator Supplies the profile for the active vessel
+     */
+    public AscentGuidance(RocketSubsystem subsystem, AscentProfileGenerator generator) {
+        this(subsystem, generator, null);
+    }
+
+    /**
+     * Creates a new AscentGuidance command.
+     * @param subsystem The rocket subsystem whose control loop runs the guidance
+     * @param generator Supplies the fallback profile for the active vessel
+     * @param optimizer Re-plans the ascent while the command runs, or null to follow the profile only
+     */
+    public AscentGuidance(RocketSubsystem subsystem, AscentProfileGenerator generator, AscentOptimizer optimizer) {
+        this.rocketSubsystem = subsystem;
+        this.generator = generator;
+        this.optimizer = optimizer;
+        addRequirements(subsystem);
+    }
+
+    /**
+     * One control cycle, run on the control loop thread.
+     */
+    private void runControlLaw(TelemetrySnapshot telemetry, ActuatorChannel actuators, double dt) {
+        AscentPlan plan = optimizer != null ? optimizer.getPlan() : null;
+        double time = telemetry.getTime();
+        double pitch = 90.0;
+        double throttle = 1.0;
+        boolean fresh = plan != null && time - plan.getStartTime() < MAX_PLAN_AGE;
+        if (fresh) {
+            pitch = plan.pitchAt(time);
+            throttle = plan.throttleAt(time);
+        } else {
+            AscentProfile profile = generator.getProfile();
+            if (profile != null) {
+                pitch = profile.pitchAt(telemetry.getProjectedAltitude());
+                throttle = profile.throttleAt(telemetry.getDynamicPressure());
+            }
+        }
+        followingPlan = fresh;
+        long source = telemetry.getArrivalNanos();
+        if (Math.abs(pitch - lastPitch) >= PITCH_STEP) {
+            actuators.set(Actuator.TARGET_PITCH, pitch, source);
+            lastPitch = pitch;
+        }
+        if (Math.abs(throttle - lastThrottle) >= THROTTLE_STEP) {
+            actuators.setThrottle(throttle, source);
+            lastThrottle = throttle;
+        }
+        targetPitch = pitch;
+        targetThrottle = throttle;
+    }
+
+    @Override
+    public void initialize() {
+        AscentProfile profile = generator.getProfile();
+        double heading = profile != null ? profile.getHeading() : AscentProfileGenerator.DEFAULT_HEADING;
+        ActuatorChannel actuators = rocketSubsystem.getControlLoop().getActuators();
+
+        // Force the first cycle to write both targets
+        lastPitch = Double.POSITIVE_INFINITY;
+        lastThrottle = Double.POSITIVE_INFINITY;
+        actuators.set(Actuator.TARGET_HEADING, heading);
+        actuators.set(Actuator.TARGET_PITCH, 90.0);
+        rocketSubsystem.setAutoPilotEngaged(true);
+        if (optimizer != null) {
+            optimizer.start();
+        }
+        rocketSubsystem.getControlLoop().arm(law);
+    }
+
+    @Override
+    public void execute() {
+        SmartDashboard.putNumber("Guidance Pitch", targetPitch);
+        SmartDashboard.putNumber("Guidance Throttle", targetThrottle);
+        SmartDashboard.putBoolean("Guidance Following Plan", followingPlan);
+        if (optimizer != null) {
+            optimizer.publishTelemetry();
+        }
+    }
+
+    @Override
+    public boolean isFinished() {
+        return false;
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        rocketSubsystem.getControlLoop().disarm(law);
+        if (optimizer != null) {
+            optimizer.stop();
+        }
+        rocketSubsystem.setAutoPilotEngaged(false);
+    }
+}
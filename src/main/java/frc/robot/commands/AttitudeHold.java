@@ -0,0 +1,213 @@
+// Copyright (c) 2024 : FRC 2106 : The Junkyard Dogs
+// https://github.com/WindingMotor
+// https://www.team2106.org
+
+// Use of this source code is governed by an MIT-style
+// license that can be found in the LICENSE file at
+// the root directory of this project.
+
+package frc.robot.commands;
+
+import java.util.List;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.control.ActuatorChannel;
+import frc.robot.control.ActuatorChannel.Actuator;
+import frc.robot.control.ControlLaw;
+import frc.robot.control.TelemetrySnapshot;
+import frc.robot.krpc.VesselSubsystem;
+import frc.robot.krpc.parts.EnginePart;
+import frc.robot.subsystems.RocketSubsystem;
+
+/**
+ * Points the vessel at a pitch and heading by driving the pitch, yaw and roll inputs directly,
+ * instead of switching SAS modes.
+ *
+ * <p>A cascaded controller runs on the subsystem's sample-driven control loop. The outer loop
+ * turns the angle between the vessel's nose and the target direction into a body rate command,
+ * limited to {@link #MAX_RATE}; the inner loop drives the streamed body rates to it, and damps
+ * roll to zero. Both loops work in the vessel's frame from the streamed rotation, so they hold
+ * at any attitude, including straight up where heading is undefined.
+ *
+ * <p>The loop runs once per server sample, which caps it at the stream rate, about 50 Hz at
+ * default settings: the same rate as the scheduler, not faster. What it gains over a command's
+ * execute() is acting as soon as a sample lands, on a snapshot projected over the sample's age
+ * and the write round trip. Running the inner loop faster would only repeat outputs computed
+ * from the same rates, since body rates between samples could only be extrapolated.
+ *
+ * <p>The rate gain is scaled by the gimbal authority of the running engines, taken from the
+ * cached {@link EnginePart} state once per robot tick: an engine limited to half its gimbal
+ * range gets twice the gain, up to {@link #MIN_AUTHORITY}. With every gimbal locked or no
+ * thrust, the gain stays nominal for reaction wheels.
+ */
+public class AttitudeHold extends Command {
+    private static final double ATTITUDE_GAIN = 0.8; // rad/s per rad of error
+    private static final double MAX_RATE = 0.35; // rad/s
+    private static final double RATE_GAIN = 2.0; // input per rad/s of rate error
+    private static final double MIN_AUTHORITY = 0.25;
+    private static final double OUTPUT_STEP = 0.01;
+    // The vessel frame is left-handed: positive inputs turn about the negative axes
+    private static final double INPUT_SIGN = -1.0;
+
+    private final RocketSubsystem rocketSubsystem;
+    private final VesselSubsystem vesselSubsystem;
+    private final DoubleSupplier pitchSupplier;
+    private final DoubleSupplier headingSupplier;
+    private final ControlLaw law = this::runControlLaw;
+
+    private List<EnginePart> engines = List.of();
+    private volatile double targetPitch;
+    private volatile double targetHeading;
+    private volatile double gainScale = 1.0;
+
+    // Written by the control loop thread
+    private double lastPitch;
+    private double lastYaw;
+    private double lastRoll;
+    private volatile double errorDegrees;
+
+    /**
+     * Creates a new AttitudeHold command.
+     * @param subsystem The rocket subsystem whose control loop runs the controller
+     * @param vesselSubsystem Supplies the engines whose gimbal limits scale the gain
+     * @param pitchSupplier Target pitch in degrees above the horizon, read once per robot tick
+     * @param headingSupplier Target heading in degrees from north, read once per robot tick
+     */
+    public AttitudeHold(RocketSubsystem subsystem, VesselSubsystem vesselSubsystem,
+                        DoubleSupplier pitchSupplier, DoubleSupplier headingSupplier) {
+        this.rocketSubsystem = subsystem;
+        this.vesselSubsystem = vesselSubsystem;
+        this.pitchSupplier = pitchSupplier;
+        this.headingSupplier = headingSupplier;
+        addRequirements(subsystem);
+    }
+
+    /**
+     * One control cycle, run on the control loop thread.
+     */
+    private void runControlLaw(TelemetrySnapshot telemetry, ActuatorChannel actuators, double dt) {
+        if (!telemetry.isAttitudeValid()) {
+            return;
+        }
+        double qx = telemetry.getRotationX();
+        double qy = telemetry.getRotationY();
+        double qz = telemetry.getRotationZ();
+        double qw = telemetry.getRotationW();
+
+        // Target direction in the surface frame (x up, y north, z east)
+        double pitch = Math.toRadians(targetPitch);
+        double heading = Math.toRadians(targetHeading);
+        double dx = Math.sin(pitch);
+        double dy = Math.cos(pitch) * Math.cos(heading);
+        double dz = Math.cos(pitch) * Math.sin(heading);
+
+        // Nose direction: the vessel's +y axis rotated into the surface frame
+        double fx = 2.0 * (qx * qy - qw * qz);
+        double fy = 1.0 - 2.0 * (qx * qx + qz * qz);
+        double fz = 2.0 * (qy * qz + qw * qx);
+
+        // Rotation from nose to target: axis f x d, angle from the dot product
+        double ax = fy * dz - fz * dy;
+        double ay = fz * dx - fx * dz;
+        double az = fx * dy - fy * dx;
+        double sine = Math.sqrt(ax * ax + ay * ay + az * az);
+        double angle = Math.atan2(sine, fx * dx + fy * dy + fz * dz);
+        errorDegrees = Math.toDegrees(angle);
+        double scale = sine > 1e-9 ? angle / sine : 0.0;
+        ax *= scale;
+        ay *= scale;
+        az *= scale;
+
+        // Error axis into the vessel frame, by the conjugate rotation
+        double cx = -qy * az + qz * ay;
+        double cy = -qz * ax + qx * az;
+        double cz = -qx * ay + qy * ax;
+        double ex = ax + 2.0 * qw * cx + 2.0 * (-qy * cz + qz * cy);
+        double ez = az + 2.0 * qw * cz + 2.0 * (-qx * cy + qy * cx);
+
+        double pitchRate = clamp(ATTITUDE_GAIN * ex, MAX_RATE);
+        double yawRate = clamp(ATTITUDE_GAIN * ez, MAX_RATE);
+        double gain = RATE_GAIN * gainScale * INPUT_SIGN;
+        long source = telemetry.getArrivalNanos();
+
+        double pitchInput = clamp(gain * (pitchRate - telemetry.getPitchRate()), 1.0);
+        double yawInput = clamp(gain * (yawRate - telemetry.getYawRate()), 1.0);
+        double rollInput = clamp(gain * -telemetry.getRollRate(), 1.0);
+        if (Math.abs(pitchInput - lastPitch) >= OUTPUT_STEP) {
+            actuators.set(Actuator.PITCH, pitchInput, source);
+            lastPitch = pitchInput;
+        }
+        if (Math.abs(yawInput - lastYaw) >= OUTPUT_STEP) {
+            actuators.set(Actuator.YAW, yawInput, source);
+            lastYaw = yawInput;
+        }
+        if (Math.abs(rollInput - lastRoll) >= OUTPUT_STEP) {
+            actuators.set(Actuator.ROLL, rollInput, source);
+            lastRoll = rollInput;
+        }
+    }
+
+    private static double clamp(double value, double limit) {
+        return Math.min(Math.max(value, -limit), limit);
+    }
+
+    /**
+     * Scales the rate gain by the fraction of full gimbal authority the running engines have.
+     */
+    private void updateGainScale() {
+        double full = 0.0;
+        double allowed = 0.0;
+        for (EnginePart engine : engines) {
+            double range = engine.getGimbalRange();
+            if (!engine.isActive() || range <= 0.0) {
+                continue;
+            }
+            double thrust = engine.getThrust();
+            full += thrust * Math.sin(Math.toRadians(range));
+            allowed += thrust * Math.sin(Math.toRadians(engine.getGimbalAuthority()));
+        }
+        gainScale = full > 0.0 && allowed > 0.0 ? 1.0 / Math.max(allowed / full, MIN_AUTHORITY) : 1.0;
+    }
+
+    @Override
+    public void initialize() {
+        engines = vesselSubsystem.getPartsOfType(EnginePart.class);
+        targetPitch = pitchSupplier.getAsDouble();
+        targetHeading = headingSupplier.getAsDouble();
+        updateGainScale();
+        // Force the first cycle to write every input
+        lastPitch = Double.POSITIVE_INFINITY;
+        lastYaw = Double.POSITIVE_INFINITY;
+        lastRoll = Double.POSITIVE_INFINITY;
+        // SAS would fight the inputs
+        rocketSubsystem.setSASEnabled(false);
+        rocketSubsystem.getControlLoop().arm(law);
+    }
+
+    @Override
+    public void execute() {
+        targetPitch = pitchSupplier.getAsDouble();
+        targetHeading = headingSupplier.getAsDouble();
+        updateGainScale();
+        SmartDashboard.putNumber("Attitude Error", errorDegrees);
+        SmartDashboard.putNumber("Attitude Gain Scale", gainScale);
+    }
+
+    @Override
+    public boolean isFinished() {
+        return false;
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        rocketSubsystem.getControlLoop().disarm(law);
+        ActuatorChannel actuators = rocketSubsystem.getControlLoop().getActuators();
+        actuators.set(Actuator.PITCH, 0.0);
+        actuators.set(Actuator.YAW, 0.0);
+        actuators.set(Actuator.ROLL, 0.0);
+        // Hand the attitude back to SAS rather than leaving the vessel free
+        rocketSubsystem.setSASEnabled(true);
+    }
+}
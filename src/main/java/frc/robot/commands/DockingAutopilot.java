@@ -0,0 +1,228 @@
+// Copyright (c) 2024 : FRC 2106 : The Junkyard Dogs
+// https://github.com/WindingMotor
+// https://www.team2106.org
+
+// Use of this source code is governed by an MIT-style
+// license that can be found in the LICENSE file at
+// the root directory of this project.
+
+package frc.robot.commands;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.control.ActuatorChannel;
+import frc.robot.control.ActuatorChannel.Actuator;
+import frc.robot.control.ControlLaw;
+import frc.robot.control.TelemetrySnapshot;
+import frc.robot.krpc.KRPCWrapper;
+import frc.robot.krpc.parts.DockingPortPart;
+import frc.robot.subsystems.RocketSubsystem;
+import krpc.client.Stream;
+import krpc.client.services.SpaceCenter;
+import krpc.client.services.SpaceCenter.Vessel;
+
+import org.javatuples.Triplet;
+
+/**
+ * Flies one of our docking ports onto the targeted docking port with RCS translation.
+ *
+ * <p>Arming registers two streams, the target port's position and the target vessel's velocity,
+ * both in our port's reference frame (y out along the docking axis). They are removed again
+ * when the command ends, so docking costs no stream bandwidth the rest of the time. The
+ * controller runs as a control law on the sample-driven control loop, once per server sample
+ * (about 50 Hz, the same rate as the scheduler but without waiting for its tick), and writes
+ * FORWARD, UP and RIGHT through the coalescing actuator channel.
+ *
+ * <p>Lateral offset is nulled first: until the target is inside a cone around the docking
+ * axis, the vessel holds {@link #STANDOFF} meters out. Once aligned it closes at a speed
+ * proportional to distance, never slower than {@link #FINAL_SPEED}. Attitude is left to SAS,
+ * as set by {@code ProbeCorePart.prepareForDocking()}.
+ */
+public class DockingAutopilot extends Command {
+    private static final double STANDOFF = 10.0; // m
+    private static final double ALIGN_TOLERANCE = 0.5; // m of lateral offset at contact
+    private static final double ALIGN_SLOPE = 0.1; // extra tolerance per m of distance
+    private static final double POSITION_GAIN = 0.1; // m/s per m
+    private static final double MAX_SPEED = 2.0; // m/s
+    private static final double FINAL_SPEED = 0.2; // m/s
+    private static final double VELOCITY_GAIN = 2.0; // input per m/s
+    private static final double OUTPUT_STEP = 0.02;
+
+    private final RocketSubsystem rocketSubsystem;
+    private final KRPCWrapper krpc;
+    private final DockingPortPart port;
+    private final ControlLaw law = this::runControlLaw;
+
+    private Stream<Triplet<Double, Double, Double>> positionStream;
+    private Stream<Triplet<Double, Double, Double>> velocityStream;
+    // Port frame to vessel frame, row major, fixed while armed
+    private final double[] portToVessel = new double[9];
+    private volatile boolean armed;
+
+    // Written by the control loop thread
+    private double lastForward;
+    private double lastUp;
+    private double lastRight;
+    private volatile double distance;
+    private volatile double lateral;
+    private volatile boolean aligned;
+
+    /**
+     * Creates a new DockingAutopilot command.
+     * @param subsystem The rocket subsystem whose control loop runs the controller
+     * @param krpc The wrapper used to find the target and open the streams
+     * @param port Our docking port
+     */
+    public DockingAutopilot(RocketSubsystem subsystem, KRPCWrapper krpc, DockingPortPart port) {
+        this.rocketSubsystem = subsystem;
+        this.krpc = krpc;
+        this.port = port;
+        addRequirements(subsystem);
+    }
+
+    @Override
+    public void initialize() {
+        armed = false;
+        Vessel vessel = krpc.getActiveVessel();
+        SpaceCenter.ReferenceFrame portFrame = port != null ? port.getReferenceFrame() : null;
+        if (vessel == null || portFrame == null) {
+            DriverStation.reportWarning("No docking port to dock with", false);
+            return;
+        }
+        try {
+            SpaceCenter.DockingPort target = krpc.getSpaceCenter().getTargetDockingPort();
+            if (target == null) {
+                System.out.println("No target docking port set");
+                return;
+            }
+            // Port axes in vessel axes, so port-frame commands map onto the RCS inputs
+            SpaceCenter.ReferenceFrame vesselFrame = vessel.getReferenceFrame();
+            for (int axis = 0; axis < 3; axis++) {
+                Triplet<Double, Double, Double> direction = krpc.getSpaceCenter().transformDirection(
+                    new Triplet<>(axis == 0 ? 1.0 : 0.0, axis == 1 ? 1.0 : 0.0, axis == 2 ? 1.0 : 0.0),
+                    portFrame, vesselFrame);
+                portToVessel[axis] = direction.getValue0();
+                portToVessel[3 + axis] = direction.getValue1();
+                portToVessel[6 + axis] = direction.getValue2();
+            }
+
+            positionStream = krpc.getConnection().addStream(target, "position", portFrame);
+            velocityStream = krpc.getConnection().addStream(target.getPart().getVessel(), "velocity", portFrame);
+            positionStream.start();
+            velocityStream.start();
+            vessel.getControl().setRCS(true);
+        } catch (Exception e) {
+            DriverStation.reportError("Failed to arm docking: " + e.getMessage(), e.getStackTrace());
+            removeStreams();
+            return;
+        }
+
+        lastForward = Double.POSITIVE_INFINITY;
+        lastUp = Double.POSITIVE_INFINITY;
+        lastRight = Double.POSITIVE_INFINITY;
+        armed = true;
+        System.out.println("Docking armed on " + port.getName());
+        rocketSubsystem.getControlLoop().arm(law);
+    }
+
+    /**
+     * One control cycle, run on the control loop thread.
+     */
+    private void runControlLaw(TelemetrySnapshot telemetry, ActuatorChannel actuators, double dt) {
+        double px, py, pz, vx, vy, vz;
+        try {
+            Triplet<Double, Double, Double> position = positionStream.get();
+            Triplet<Double, Double, Double> velocity = velocityStream.get();
+            px = position.getValue0();
+            py = position.getValue1();
+            pz = position.getValue2();
+            vx = velocity.getValue0();
+            vy = velocity.getValue1();
+            vz = velocity.getValue2();
+        } catch (Exception e) {
+            // Streams end when the vessels merge
+            return;
+        }
+        double offset = Math.hypot(px, pz);
+        boolean inCone = offset <= ALIGN_TOLERANCE + ALIGN_SLOPE * Math.max(py, 0.0);
+        distance = py;
+        lateral = offset;
+        aligned = inCone;
+
+        // Desired rate of change of the target's position, which is its velocity in our frame
+        double wantX = clamp(-POSITION_GAIN * px, MAX_SPEED);
+        double wantZ = clamp(-POSITION_GAIN * pz, MAX_SPEED);
+        double wantY = inCone
+            ? -Math.max(FINAL_SPEED, Math.min(MAX_SPEED, POSITION_GAIN * py))
+            : clamp(-POSITION_GAIN * (py - STANDOFF), MAX_SPEED);
+
+        // Pushing ourselves along an axis moves the target the other way in our frame
+        double cx = -VELOCITY_GAIN * (wantX - vx);
+        double cy = -VELOCITY_GAIN * (wantY - vy);
+        double cz = -VELOCITY_GAIN * (wantZ - vz);
+
+        // Vessel frame is x right, y forward, z down
+        double right = portToVessel[0] * cx + portToVessel[1] * cy + portToVessel[2] * cz;
+        double forward = portToVessel[3] * cx + portToVessel[4] * cy + portToVessel[5] * cz;
+        double down = portToVessel[6] * cx + portToVessel[7] * cy + portToVessel[8] * cz;
+        long source = telemetry.getArrivalNanos();
+
+        forward = clamp(forward, 1.0);
+        double up = clamp(-down, 1.0);
+        right = clamp(right, 1.0);
+        if (Math.abs(forward - lastForward) >= OUTPUT_STEP) {
+            actuators.set(Actuator.FORWARD, forward, source);
+            lastForward = forward;
+        }
+        if (Math.abs(up - lastUp) >= OUTPUT_STEP) {
+            actuators.set(Actuator.UP, up, source);
+            lastUp = up;
+        }
+        if (Math.abs(right - lastRight) >= OUTPUT_STEP) {
+            actuators.set(Actuator.RIGHT, right, source);
+            lastRight = right;
+        }
+    }
+
+    private static double clamp(double value, double limit) {
+        return Math.min(Math.max(value, -limit), limit);
+    }
+
+    private void removeStreams() {
+        try {
+            if (positionStream != null) positionStream.remove();
+            if (velocityStream != null) velocityStream.remove();
+        } catch (Exception e) {
+            // Streams already gone with the target vessel
+        }
+        positionStream = null;
+        velocityStream = null;
+    }
+
+    @Override
+    public void execute() {
+        SmartDashboard.putNumber("Docking Distance", distance);
+        SmartDashboard.putNumber("Docking Lateral Offset", lateral);
+        SmartDashboard.putBoolean("Docking Aligned", aligned);
+    }
+
+    @Override
+    public boolean isFinished() {
+        return !armed || port.isDocked();
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        rocketSubsystem.getControlLoop().disarm(law);
+        if (armed) {
+            ActuatorChannel actuators = rocketSubsystem.getControlLoop().getActuators();
+            actuators.set(Actuator.FORWARD, 0.0);
+            actuators.set(Actuator.UP, 0.0);
+            actuators.set(Actuator.RIGHT, 0.0);
+            System.out.println(port.isDocked() ? "Docked" : "Docking aborted");
+        }
+        armed = false;
+        removeStreams();
+    }
+}
@@ -0,0 +1,259 @@
+// Copyright (c) 2024 : FRC 2106 : The Junkyard Dogs
+// https://github.com/WindingMotor
+// https://www.team2106.org
+
+// Use of this source code is governed by an MIT-style
+// license that can be found in the LICENSE file at
+// the root directory of this project.
+
+package frc.robot.commands;
+
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.control.ActuatorChannel;
+import frc.robot.control.ActuatorChannel.Actuator;
+import frc.robot.control.ControlLaw;
+import frc.robot.control.TelemetrySnapshot;
+import frc.robot.krpc.KRPCWrapper;
+import frc.robot.subsystems.RocketSubsystem;
+import krpc.client.services.SpaceCenter.Vessel;
+
+/**
+ * Lands a descending booster with a single full-thrust "suicide" burn.
+ *
+ * <p>The burn runs as a control law on the subsystem's sample-driven control loop, so ignition
+ * is decided on every stream sample instead of on a 20 ms robot tick. Each sample solves for
+ * the ignition altitude: the stopping distance at {@link #PLAN_THROTTLE} of the available
+ * thrust, plus the distance fallen in one measured stream sample interval, since the next
+ * chance to ignite is a sample later. The delay from sense to actuate is compensated once,
+ * in the height itself: the snapshot projects it forward by the sample's age plus the write
+ * round trip. The latency budget is the sum of both, so the controller accounts for exactly
+ * the delays it can observe, each in one place.
+ *
+ * <p>Once lit, the throttle is set every sample to the deceleration that brings the vessel to
+ * {@link #TOUCHDOWN_SPEED} at the surface. The landing gear is deployed through the actuator
+ * channel when the time to touchdown at the current speed falls below {@link #GEAR_SECONDS}.
+ * The latency budget is published under "Landing/Latency" and printed at ignition.
+ */
+public class LandingBurn extends Command {
+    private static final double PLAN_THROTTLE = 0.9; // Headroom for the closed-loop burn
+    private static final double TOUCHDOWN_SPEED = 2.0; // m/s
+    private static final double SPEED_GAIN = 1.0; // 1/s, once slower than touchdown speed
+    private static final double GEAR_SECONDS = 4.0;
+    private static final double LANDED_ALTITUDE = 0.5; // m above touchdown
+    private static final double DEFAULT_TOUCHDOWN_OFFSET = 3.0; // m from the vessel's center to its feet
+
+    private enum Phase {
+        FALLING,
+        BURNING,
+        LANDED
+    }
+
+    private final RocketSubsystem rocketSubsystem;
+    private final KRPCWrapper krpc;
+    private final double touchdownOffset;
+    private final ControlLaw law = this::runControlLaw;
+
+    private double surfaceGravity;
+
+    // Written by the control loop thread
+    private volatile Phase phase = Phase.LANDED;
+    private double lastTime = Double.NaN;
+    private double sampleInterval;
+    private double lastThrottle;
+    private boolean gearDeployed;
+    private volatile double ignitionAltitude;
+    private volatile double gearAltitude;
+    private volatile double height;
+
+    // Latency budget, written by the control loop thread
+    private volatile double budgetSampleInterval;
+    private volatile double budgetSenseToActuate;
+    private volatile double budgetRoundTrip;
+    private volatile double budgetHorizon;
+    private volatile double budgetTotal;
+    private volatile double budgetAltitude;
+
+    private final DoublePublisher sampleIntervalPublisher;
+    private final DoublePublisher senseToActuatePublisher;
+    private final DoublePublisher roundTripPublisher;
+    private final DoublePublisher horizonPublisher;
+    private final DoublePublisher totalPublisher;
+    private final DoublePublisher altitudePublisher;
+
+    /**
+     * Creates a new LandingBurn command.
+     * @param subsystem The rocket subsystem whose control loop runs the burn
+     * @param krpc The wrapper used to read the body's surface gravity
+     * @param touchdownOffset Surface altitude of the vessel when standing on its gear, in m
+     */
+    public LandingBurn(RocketSubsystem subsystem, KRPCWrapper krpc, double touchdownOffset) {
+        this.rocketSubsystem = subsystem;
+        this.krpc = krpc;
+        this.touchdownOffset = touchdownOffset;
+
+        NetworkTable table = NetworkTableInstance.getDefault().getTable("Landing/Latency");
+        sampleIntervalPublisher = table.getDoubleTopic("Sample Interval ms").publish();
+        senseToActuatePublisher = table.getDoubleTopic("Sense To Actuate ms").publish();
+        roundTripPublisher = table.getDoubleTopic("Round Trip ms").publish();
+        horizonPublisher = table.getDoubleTopic("Projection ms").publish();
+        totalPublisher = table.getDoubleTopic("Budget ms").publish();
+        altitudePublisher = table.getDoubleTopic("Budget Altitude m").publish();
+        addRequirements(subsystem);
+    }
+
+    public LandingBurn(RocketSubsystem subsystem, KRPCWrapper krpc) {
+        this(subsystem, krpc, DEFAULT_TOUCHDOWN_OFFSET);
+    }
+
+    @Override
+    public void initialize() {
+        phase = Phase.LANDED;
+        Vessel vessel = krpc.getActiveVessel();
+        if (vessel == null) {
+            DriverStation.reportWarning("No active vessel to land", false);
+            return;
+        }
+        try {
+            surfaceGravity = vessel.getOrbit().getBody().getSurfaceGravity();
+        } catch (Exception e) {
+            DriverStation.reportError("Failed to read surface gravity: " + e.getMessage(), e.getStackTrace());
+            return;
+        }
+        lastTime = Double.NaN;
+        sampleInterval = rocketSubsystem.getControlLoop().getPeriod();
+        lastThrottle = Double.POSITIVE_INFINITY;
+        gearDeployed = false;
+        phase = Phase.FALLING;
+        rocketSubsystem.getControlLoop().arm(law);
+    }
+
+    /**
+     * One control cycle, run on the control loop thread.
+     */
+    private void runControlLaw(TelemetrySnapshot telemetry, ActuatorChannel actuators, double dt) {
+        double time = telemetry.getTime();
+        if (time > lastTime) {
+            sampleInterval += (time - lastTime - sampleInterval) * 0.2;
+        }
+        lastTime = time;
+
+        double v = telemetry.isEstimateValid()
+            ? telemetry.getEstimatedVerticalVelocity()
+            : telemetry.getVerticalVelocity();
+        // Height of the feet above the terrain, moved forward to when this cycle's write lands
+        double h = telemetry.getSurfaceAltitude() - touchdownOffset + v * telemetry.getHorizon();
+        double mass = telemetry.getMass();
+        double thrust = telemetry.getAvailableThrust();
+        double maxAcceleration = mass > 0.0 ? thrust / mass : 0.0;
+        double speed = -v;
+        long source = telemetry.getArrivalNanos();
+        height = h;
+
+        updateLatencyBudget(actuators, Math.max(speed, 0.0), telemetry.getHorizon());
+
+        // Time to touchdown at the mean of the current and touchdown speeds
+        gearAltitude = GEAR_SECONDS * (Math.max(speed, 0.0) + TOUCHDOWN_SPEED) / 2.0;
+        if (!gearDeployed && h <= gearAltitude) {
+            actuators.set(Actuator.GEAR, 1.0, source);
+            gearDeployed = true;
+            System.out.println("Landing gear deployed at " + String.format("%.1f", h) + " m");
+        }
+
+        switch (phase) {
+            case FALLING: {
+                double deceleration = PLAN_THROTTLE * maxAcceleration - surfaceGravity;
+                ignitionAltitude = deceleration > 0.0
+                    ? speed * speed / (2.0 * deceleration) + speed * budgetSampleInterval
+                    : Double.POSITIVE_INFINITY;
+                if (speed > 0.0 && h <= ignitionAltitude) {
+                    phase = Phase.BURNING;
+                    System.out.println("Landing burn ignition at " + String.format("%.1f", h) + " m, "
+                        + String.format("%.1f", speed) + " m/s; latency budget "
+                        + String.format("%.1f", budgetTotal * 1000.0) + " ms (sample interval "
+                        + String.format("%.1f", budgetSampleInterval * 1000.0) + " ms, projection "
+                        + String.format("%.1f", budgetHorizon * 1000.0) + " ms) = "
+                        + String.format("%.1f", budgetAltitude) + " m");
+                } else {
+                    writeThrottle(actuators, 0.0, source);
+                    break;
+                }
+            }
+            // fall through
+            case BURNING: {
+                if (h <= LANDED_ALTITUDE && speed < TOUCHDOWN_SPEED * 1.5) {
+                    writeThrottle(actuators, 0.0, source);
+                    phase = Phase.LANDED;
+                    System.out.println("Landed at " + String.format("%.2f", speed) + " m/s");
+                    break;
+                }
+                double required;
+                if (speed > TOUCHDOWN_SPEED) {
+                    // Constant deceleration that reaches touchdown speed at the surface
+                    required = surfaceGravity
+                        + (speed * speed - TOUCHDOWN_SPEED * TOUCHDOWN_SPEED) / (2.0 * Math.max(h, 0.1));
+                } else {
+                    required = surfaceGravity + (speed - TOUCHDOWN_SPEED) * SPEED_GAIN;
+                }
+                writeThrottle(actuators, maxAcceleration > 0.0 ? required / maxAcceleration : 1.0, source);
+                break;
+            }
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Records the delays compensated this cycle. Sense to actuate is measured for comparison
+     * with the projection horizon only; it is already covered by the projected height.
+     */
+    private void updateLatencyBudget(ActuatorChannel actuators, double speed, double horizon) {
+        budgetSampleInterval = sampleInterval;
+        budgetSenseToActuate = actuators.getSenseToActuateSeconds();
+        budgetRoundTrip = actuators.getRoundTripSeconds();
+        budgetHorizon = horizon;
+        budgetTotal = sampleInterval + horizon;
+        budgetAltitude = speed * budgetTotal;
+    }
+
+    private void writeThrottle(ActuatorChannel actuators, double throttle, long source) {
+        double clamped = Math.min(Math.max(throttle, 0.0), 1.0);
+        if (clamped != lastThrottle) {
+            actuators.setThrottle(clamped, source);
+            lastThrottle = clamped;
+        }
+    }
+
+    @Override
+    public void execute() {
+        SmartDashboard.putString("Landing Phase", phase.name());
+        SmartDashboard.putNumber("Landing Height", height);
+        SmartDashboard.putNumber("Landing Ignition Altitude", ignitionAltitude);
+        SmartDashboard.putNumber("Landing Gear Altitude", gearAltitude);
+        sampleIntervalPublisher.set(budgetSampleInterval * 1000.0);
+        senseToActuatePublisher.set(budgetSenseToActuate * 1000.0);
+        roundTripPublisher.set(budgetRoundTrip * 1000.0);
+        horizonPublisher.set(budgetHorizon * 1000.0);
+        totalPublisher.set(budgetTotal * 1000.0);
+        altitudePublisher.set(budgetAltitude);
+    }
+
+    @Override
+    public boolean isFinished() {
+        return phase == Phase.LANDED;
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        rocketSubsystem.getControlLoop().disarm(law);
+        rocketSubsystem.getControlLoop().getActuators().setThrottle(0.0);
+        if (interrupted && phase != Phase.LANDED) {
+            System.out.println("Landing interrupted in " + phase.name());
+        }
+        phase = Phase.LANDED;
+    }
+}
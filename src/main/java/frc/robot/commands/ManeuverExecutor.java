@@ -0,0 +1,284 @@
+// Copyright (c) 2024 : FRC 2106 : The Junkyard Dogs
+// https://github.com/WindingMotor
+// https://www.team2106.org
+
+// Use of this source code is governed by an MIT-style
+// license that can be found in the LICENSE file at
+// the root directory of this project.
+
+package frc.robot.commands;
+
+import java.util.List;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.control.ActuatorChannel;
+import frc.robot.control.ControlLaw;
+import frc.robot.control.TelemetrySnapshot;
+import frc.robot.krpc.KRPCWrapper;
+import frc.robot.subsystems.RocketSubsystem;
+import krpc.client.Stream;
+import krpc.client.services.SpaceCenter;
+import krpc.client.services.SpaceCenter.Vessel;
+
+/**
+ * Executes the next maneuver node.
+ *
+ * <p>The node's remaining delta-v and time to node are streamed, and the burn runs as a control
+ * law on the subsystem's sample-driven control loop, so every decision is made on a fresh
+ * stream sample rather than on a scheduler tick. The burn is centered on the node, so half its
+ * delta-v is spent before it: the full-thrust part comes from the rocket equation using the
+ * mass and thrust cached in the telemetry snapshot and the specific impulse read once at the
+ * start, and the tapered tail is timed from the throttle schedule below. The command ends at
+ * once if no engine is active when it starts, or if thrust is lost during the burn.
+ *
+ * <p>Over the last {@link #TAPER_SECONDS} of full-thrust burn time the throttle is scaled down
+ * with the remaining delta-v. Cutoff is commanded on the sample where cutting now leaves a
+ * smaller error than waiting for the next one, allowing for the delta-v gained while the write
+ * lands. A few samples after cutoff the remaining delta-v is read back and logged as the
+ * cutoff error.
+ */
+public class ManeuverExecutor extends Command {
+    private static final double STANDARD_GRAVITY = 9.80665;
+    private static final double TAPER_SECONDS = 2.0;
+    private static final double MIN_THROTTLE = 0.05;
+    private static final double SETTLE_SECONDS = 0.5;
+
+    private enum Phase {
+        WAITING,
+        BURNING,
+        SETTLING,
+        DONE
+    }
+
+    private final RocketSubsystem rocketSubsystem;
+    private final KRPCWrapper krpc;
+    private final ControlLaw law = this::runControlLaw;
+
+    private Stream<Double> remainingDeltaVStream;
+    private Stream<Double> timeToStream;
+    private double specificImpulse;
+
+    // Written by the control loop thread
+    private volatile Phase phase = Phase.DONE;
+    private double lastTime = Double.NaN;
+    private double sampleInterval;
+    private double lastThrottle;
+    private double cutoffTime;
+    private double cutoffPredicted;
+    private volatile double burnTime;
+    private volatile double remainingDeltaV;
+    private volatile double cutoffError = Double.NaN;
+
+    /**
+     * Creates a new ManeuverExecutor command.
+     * @param subsystem The rocket subsystem whose control loop runs the burn
+     * @param krpc The wrapper used to find the node and open its streams
+     */
+    public ManeuverExecutor(RocketSubsystem subsystem, KRPCWrapper krpc) {
+        this.rocketSubsystem = subsystem;
+        this.krpc = krpc;
+        addRequirements(subsystem);
+    }
+
+    @Override
+    public void initialize() {
+        phase = Phase.DONE;
+        cutoffError = Double.NaN;
+        Vessel vessel = krpc.getActiveVessel();
+        if (vessel == null) {
+            DriverStation.reportWarning("No active vessel for maneuver", false);
+            return;
+        }
+        try {
+            List<SpaceCenter.Node> nodes = vessel.getControl().getNodes();
+            if (nodes.isEmpty()) {
+                System.out.println("No maneuver node to execute");
+                return;
+            }
+            SpaceCenter.Node node = nodes.get(0);
+            float isp = vessel.getSpecificImpulse();
+            specificImpulse = isp > 0.0f ? isp : vessel.getVacuumSpecificImpulse();
+            // Both are zero with no engine active: the burn could be neither timed nor flown
+            if (specificImpulse <= 0.0 || vessel.getAvailableThrust() <= 0.0f) {
+                DriverStation.reportWarning("No active engine for maneuver, activate one first", false);
+                return;
+            }
+
+            remainingDeltaVStream = krpc.getConnection().addStream(node, "getRemainingDeltaV");
+            timeToStream = krpc.getConnection().addStream(node, "getTimeTo");
+            remainingDeltaVStream.start();
+            timeToStream.start();
+
+            // Point along the burn vector while waiting for the node
+            vessel.getControl().setSAS(true);
+            vessel.getControl().setSASMode(SpaceCenter.SASMode.MANEUVER);
+            System.out.println("Executing maneuver: " + String.format("%.1f", node.getDeltaV())
+                + " m/s in " + String.format("%.1f", node.getTimeTo()) + " s");
+        } catch (Exception e) {
+            DriverStation.reportError("Failed to start maneuver: " + e.getMessage(), e.getStackTrace());
+            removeStreams();
+            return;
+        }
+
+        lastTime = Double.NaN;
+        sampleInterval = rocketSubsystem.getControlLoop().getPeriod();
+        lastThrottle = Double.POSITIVE_INFINITY;
+        phase = Phase.WAITING;
+        rocketSubsystem.getControlLoop().arm(law);
+    }
+
+    /**
+     * One control cycle, run on the control loop thread.
+     */
+    private void runControlLaw(TelemetrySnapshot telemetry, ActuatorChannel actuators, double dt) {
+        double time = telemetry.getTime();
+        if (time > lastTime) {
+            // Smoothed spacing of stream samples, the resolution cutoff can be timed to
+            sampleInterval += (time - lastTime - sampleInterval) * 0.2;
+        }
+        lastTime = time;
+
+        double remaining;
+        double timeTo;
+        try {
+            remaining = remainingDeltaVStream.get();
+            timeTo = timeToStream.get();
+        } catch (Exception e) {
+            return;
+        }
+        remainingDeltaV = remaining;
+
+        double mass = telemetry.getMass();
+        double thrust = telemetry.getAvailableThrust();
+        double maxAcceleration = mass > 0.0 ? thrust / mass : 0.0;
+        long source = telemetry.getArrivalNanos();
+
+        switch (phase) {
+            case WAITING: {
+                burnTime = burnDuration(remaining, 0.0, mass, thrust);
+                // Start when half the delta-v is left to the node, early by the write's round trip
+                double lead = burnDuration(remaining, remaining / 2.0, mass, thrust);
+                if (timeTo - lead <= actuators.getRoundTripSeconds()) {
+                    System.out.println("Maneuver burn started, estimated " + String.format("%.2f", burnTime) + " s");
+                    phase = Phase.BURNING;
+                } else {
+                    writeThrottle(actuators, 0.0, source);
+                    break;
+                }
+            }
+            // fall through
+            case BURNING: {
+                if (maxAcceleration <= 0.0) {
+                    writeThrottle(actuators, 0.0, source);
+                    DriverStation.reportWarning("Maneuver stopped: no thrust, "
+                        + String.format("%.1f", remaining) + " m/s left", false);
+                    phase = Phase.DONE;
+                    break;
+                }
+                double throttle = Math.min(1.0, Math.max(MIN_THROTTLE, remaining / (maxAcceleration * TAPER_SECONDS)));
+                // Delta-v still gained while a cutoff write lands, and gained per sample
+                double acceleration = maxAcceleration * throttle;
+                double inFlight = actuators.getRoundTripSeconds() * acceleration;
+                // Cut on this sample if waiting for the next would leave a larger error
+                if (remaining <= inFlight + sampleInterval * acceleration / 2.0) {
+                    writeThrottle(actuators, 0.0, source);
+                    cutoffTime = time;
+                    cutoffPredicted = remaining - inFlight;
+                    phase = Phase.SETTLING;
+                } else {
+                    writeThrottle(actuators, throttle, source);
+                }
+                break;
+            }
+            case SETTLING:
+                if (time - cutoffTime >= SETTLE_SECONDS) {
+                    cutoffError = remaining;
+                    System.out.println("Maneuver cutoff error: " + String.format("%.3f", remaining)
+                        + " m/s (predicted " + String.format("%.3f", cutoffPredicted) + " m/s, sample interval "
+                        + String.format("%.1f", sampleInterval * 1000.0) + " ms)");
+                    phase = Phase.DONE;
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void writeThrottle(ActuatorChannel actuators, double throttle, long source) {
+        if (throttle != lastThrottle) {
+            actuators.setThrottle(throttle, source);
+            lastThrottle = throttle;
+        }
+    }
+
+    /**
+     * Estimates the time to burn from one remaining delta-v down to another under the throttle
+     * schedule: full thrust, then the taper, where the remaining delta-v decays with time
+     * constant {@link #TAPER_SECONDS}, then {@link #MIN_THROTTLE}. Mass loss is only counted in
+     * the full-thrust part.
+     */
+    private double burnDuration(double from, double to, double mass, double thrust) {
+        if (thrust <= 0.0 || mass <= 0.0 || specificImpulse <= 0.0 || from <= to) {
+            return 0.0;
+        }
+        double acceleration = thrust / mass;
+        double taperStart = acceleration * TAPER_SECONDS;
+        double taperEnd = taperStart * MIN_THROTTLE;
+        double duration = 0.0;
+
+        double full = from - Math.max(to, taperStart);
+        if (full > 0.0) {
+            double exhaustVelocity = specificImpulse * STANDARD_GRAVITY;
+            double finalMass = mass / Math.exp(full / exhaustVelocity);
+            duration += (mass - finalMass) * exhaustVelocity / thrust;
+        }
+        double high = Math.min(from, taperStart);
+        double low = Math.max(to, taperEnd);
+        if (high > low) {
+            duration += TAPER_SECONDS * Math.log(high / low);
+        }
+        high = Math.min(from, taperEnd);
+        low = Math.max(to, 0.0);
+        if (high > low) {
+            duration += (high - low) / (MIN_THROTTLE * acceleration);
+        }
+        return duration;
+    }
+
+    private void removeStreams() {
+        try {
+            if (remainingDeltaVStream != null) remainingDeltaVStream.remove();
+            if (timeToStream != null) timeToStream.remove();
+        } catch (Exception e) {
+            DriverStation.reportError("Failed to remove maneuver streams: " + e.getMessage(), e.getStackTrace());
+        }
+        remainingDeltaVStream = null;
+        timeToStream = null;
+    }
+
+    @Override
+    public void execute() {
+        SmartDashboard.putString("Maneuver Phase", phase.name());
+        SmartDashboard.putNumber("Maneuver Remaining dV", remainingDeltaV);
+        SmartDashboard.putNumber("Maneuver Burn Time", burnTime);
+        SmartDashboard.putNumber("Maneuver Cutoff Error", cutoffError);
+    }
+
+    @Override
+    public boolean isFinished() {
+        return phase == Phase.DONE;
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        rocketSubsystem.getControlLoop().disarm(law);
+        if (interrupted && phase != Phase.DONE) {
+            rocketSubsystem.getControlLoop().getActuators().setThrottle(0.0);
+            System.out.println("Maneuver interrupted in " + phase.name());
+        }
+        phase = Phase.DONE;
+        removeStreams();
+    }
+}
@@ -0,0 +1,118 @@
+// Copyright (c) 2024 : FRC 2106 : The Junkyard Dogs
+// https://github.com/WindingMotor
+// https://www.team2106.org
+
+// Use of this source code is governed by an MIT-style
+// license that can be found in the LICENSE file at
+// the root directory of this project.
+
+package frc.robot.commands;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.Subsystem;
+import frc.robot.krpc.TimerWheel;
+
+/**
+ * Runs a list of actions with fixed delays between them on a {@link TimerWheel}.
+ *
+ * <p>Each step is scheduled when the previous one has finished, so the delay is measured from
+ * the end of the previous remote call. The actions run on the wheel's thread, not in the robot
+ * loop. Interrupting the command cancels the step that is waiting. Each run has its own
+ * generation number, captured by its steps, so a step still running when the command is
+ * interrupted and scheduled again ends its own chain instead of continuing beside the new one.
+ */
+public class ScheduledSequenceCommand extends Command {
+    private final TimerWheel timer;
+    private final List<Runnable> actions = new ArrayList<>();
+    private final List<Long> delaysMs = new ArrayList<>();
+
+    private volatile TimerWheel.Timeout pendingStep;
+    // Bumped on the scheduler thread when a run starts or is interrupted
+    private volatile int generation;
+    private volatile boolean finished;
+
+    /**
+     * Creates an empty sequence.
+     * @param timer The timer wheel that runs the steps
+     * @param requirements Subsystems required while the sequence runs
+     */
+    public ScheduledSequenceCommand(TimerWheel timer, Subsystem... requirements) {
+        this.timer = timer;
+        addRequirements(requirements);
+    }
+
+    /**
+     * Adds a step that runs right after the previous one.
+     * @param action The step
+     * @return This sequence
+     */
+    public ScheduledSequenceCommand then(Runnable action) {
+        return thenAfter(0.0, action);
+    }
+
+    /**
+     * Adds a step that runs a delay after the previous one finished.
+     * @param seconds Delay in seconds
+     * @param action The step
+     * @return This sequence
+     */
+    public ScheduledSequenceCommand thenAfter(double seconds, Runnable action) {
+        actions.add(action);
+        delaysMs.add(Math.round(seconds * 1000.0));
+        return this;
+    }
+
+    @Override
+    public void initialize() {
+        int run = ++generation;
+        finished = actions.isEmpty();
+        if (!finished) {
+            pendingStep = timer.schedule(() -> runStep(run, 0), delaysMs.get(0));
+        }
+    }
+
+    private void runStep(int run, int index) {
+        if (run != generation) {
+            return;
+        }
+        try {
+            actions.get(index).run();
+        } catch (Exception e) {
+            DriverStation.reportError("Sequence step " + index + " failed: " + e.getMessage(), e.getStackTrace());
+            if (run == generation) {
+                finished = true;
+            }
+            return;
+        }
+        // Interrupted while the step ran: leave the next run's state alone
+        if (run != generation) {
+            return;
+        }
+        int next = index + 1;
+        if (next < actions.size()) {
+            pendingStep = timer.schedule(() -> runStep(run, next), delaysMs.get(next));
+        } else {
+            finished = true;
+        }
+    }
+
+    @Override
+    public boolean isFinished() {
+        return finished;
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        if (interrupted) {
+            generation++;
+            TimerWheel.Timeout step = pendingStep;
+            if (step != null) {
+                step.cancel();
+            }
+        }
+    }
+}
@@ -9,6 +9,7 @@
 package frc.robot.commands;
 
 import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.control.ControlLaw;
 import frc.robot.subsystems.RocketSubsystem;
 import java.util.function.DoubleSupplier;
 import java.util.function.BooleanSupplier; 
@@ -19,6 +20,9 @@ public class ThrottleCommand extends Command {
     private final BooleanSupplier cancelSupplier;
     private boolean wasManualCancelled = false;
 
+    // Reads the supplier and writes the throttle on the high-rate control loop
+    private final ControlLaw law;
+
     /**
      * Creates a new ThrottleCommand that continuously updates the rocket's throttle.
      *
@@ -33,20 +37,20 @@ public class ThrottleCommand extends Command {
         this.rocketSubsystem = subsystem;
         this.throttleSupplier = throttleSupplier;
         this.cancelSupplier = cancelSupplier;
+        this.law = (telemetry, actuators, dt) ->
+            // Clamped between 0 and 1 by the actuator channel
+            actuators.setThrottle(throttleSupplier.getAsDouble(), telemetry.getArrivalNanos());
         addRequirements(subsystem);
     }
 
     @Override
     public void initialize() {
         wasManualCancelled = false;
+        rocketSubsystem.getControlLoop().arm(law);
     }
 
     @Override
     public void execute() {
-        // Get the current throttle value from the supplier and clamp it between 0 and 1
-        double throttle = Math.min(Math.max(throttleSupplier.getAsDouble(), 0.0), 1.0);
-        rocketSubsystem.setThrottle(throttle);
-
         // Check for manual cancellation
         if (cancelSupplier.getAsBoolean()) {
             wasManualCancelled = true;
@@ -60,6 +64,7 @@ public class ThrottleCommand extends Command {
 
     @Override
     public void end(boolean interrupted) {
+        rocketSubsystem.getControlLoop().disarm(law);
         // If the command was manually cancelled or interrupted, set throttle to 0
         if (wasManualCancelled || interrupted) {
             rocketSubsystem.setThrottle(0.0);
@@ -3,111 +3,132 @@ package frc.robot.commands;
 import java.util.function.DoubleSupplier;
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
-import edu.wpi.first.wpilibj2.command.PIDCommand;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.control.ActuatorChannel;
+import frc.robot.control.AirbrakeChannel;
+import frc.robot.control.ControlLaw;
+import frc.robot.control.TelemetrySnapshot;
+import frc.robot.krpc.VesselSubsystem;
+import frc.robot.krpc.parts.AirbrakePart;
 import frc.robot.subsystems.RocketSubsystem;
 import frc.robot.util.PIDHelper;
 
-public class VelocityTarget extends PIDCommand {
+public class VelocityTarget extends Command {
     private final RocketSubsystem rocketSubsystem;
     private final DoubleSupplier setpointSupplier;
     private final PIDHelper pidHelper;
+    private final PIDController controller;
+    private final ControlLaw law = this::runControlLaw;
+    private final VesselSubsystem vesselSubsystem;
+    private final AirbrakeChannel airbrakes;
     private double lastSetpoint;
-    private static final String AIRBRAKE_TAG = "airbrake";
-    
-    public VelocityTarget(RocketSubsystem subsystem, DoubleSupplier setpointSupplier, 
+    private long appliedVersion = -1;
+
+    /**
+     * Creates a command that holds a vertical velocity. The PID loop runs on the subsystem's
+     * high-rate control loop; the command only arms and disarms it.
+     */
+    public VelocityTarget(RocketSubsystem subsystem, DoubleSupplier setpointSupplier,
                          PIDHelper pidHelper) {
-        super(
-            new PIDController(
-                pidHelper.getP(),
-                pidHelper.getI(),
-                pidHelper.getD()
-            ),
-            // Measurement supplier
-            () -> subsystem.getZVelocity(),
-            // Use setpoint supplier
-            setpointSupplier,
-            // Output consumer with proper clamping
-            output -> {
-                // Calculate current velocity for error
-                double currentVelocity = subsystem.getZVelocity();
-                
-                double error = setpointSupplier.getAsDouble() - currentVelocity;
-                
-                // Determine if we need to slow down or speed up
-                if (error < 0) { // Going too fast, need to slow down
-                    // Calculate and apply airbrake deployment
-                    subsystem.setThrottle(0.0); // Cut throttle when braking
-                   // subsystem.activatePartWithTag(AIRBRAKE_TAG);
-                } else { // Going too slow, need to speed up
-                    // Calculate and clamp throttle (0 to 1)
-                    double throttle = Math.min(Math.max(output, 0.0), 1.0);
-                    subsystem.setThrottle(throttle);
-                  //  subsystem.deactivatePartWithTag(AIRBRAKE_TAG);
-                }
-                
-                // Publish telemetry
-                pidHelper.publishTelemetry(error, output);
-            },
-            subsystem
-        );
+        this(subsystem, setpointSupplier, pidHelper, null, null);
+    }
 
+    /**
+     * Creates a command that holds a vertical velocity with throttle and airbrakes. One PID
+     * output is split between them: positive output is throttle, negative output deploys the
+     * airbrakes proportionally, so the vessel can brake instead of only cutting throttle.
+     * @param vesselSubsystem Supplies the vessel's airbrake parts when the command starts
+     * @param airbrakes Writes the airbrake deployment without blocking the control loop
+     */
+    public VelocityTarget(RocketSubsystem subsystem, DoubleSupplier setpointSupplier,
+                         PIDHelper pidHelper, VesselSubsystem vesselSubsystem, AirbrakeChannel airbrakes) {
         this.rocketSubsystem = subsystem;
+        this.vesselSubsystem = vesselSubsystem;
+        this.airbrakes = airbrakes;
         this.setpointSupplier = setpointSupplier;
         this.pidHelper = pidHelper;
         this.lastSetpoint = setpointSupplier.getAsDouble();
 
         // Configure PID controller
-        PIDController controller = getController();
+        controller = new PIDController(
+            pidHelper.getP(),
+            pidHelper.getI(),
+            pidHelper.getD(),
+            subsystem.getControlLoop().getPeriod()
+        );
         controller.setTolerance(
             pidHelper.getPositionTolerance(),
             pidHelper.getVelocityTolerance()
         );
-        
+
         // Set output constraints
         controller.setIntegratorRange(-1.0, 1.0);
+        addRequirements(subsystem);
+    }
+
+    /**
+     * One control cycle, run on the control loop thread.
+     */
+    private void runControlLaw(TelemetrySnapshot telemetry, ActuatorChannel actuators, double dt) {
+        // Get new setpoint from supplier
+        double newSetpoint = setpointSupplier.getAsDouble();
+
+        // If setpoint changed significantly, reset the controller
+        if (Math.abs(newSetpoint - lastSetpoint) > 0.1) {
+            controller.reset();
+            lastSetpoint = newSetpoint;
+        }
+
+        // Update tolerances only after an edit
+        if (pidHelper.getVersion() != appliedVersion) {
+            appliedVersion = pidHelper.applyIfChanged(controller, appliedVersion);
+        }
+        // Cycles follow the server samples, not the controller's nominal period
+        PIDHelper.setGainsForCycle(controller, pidHelper.getP(), pidHelper.getI(), pidHelper.getD(), dt);
+
+        // Velocity projected to when the output reaches the vessel
+        double currentVelocity = telemetry.getProjectedVerticalVelocity();
+        double output = controller.calculate(currentVelocity, newSetpoint);
+        double error = newSetpoint - currentVelocity;
+
+        if (airbrakes != null) {
+            // Blend: one output drives throttle above zero and airbrakes below
+            actuators.setThrottle(output, telemetry.getArrivalNanos());
+            airbrakes.set(-output);
+        } else if (error < 0) { // Going too fast, need to slow down
+            actuators.setThrottle(0.0, telemetry.getArrivalNanos()); // Cut throttle when braking
+        } else { // Going too slow, need to speed up
+            // Calculate and clamp throttle (0 to 1)
+            actuators.setThrottle(output, telemetry.getArrivalNanos());
+        }
+
+        // Publish telemetry
+        pidHelper.publishTelemetry(error, output);
+    }
+
+    public PIDController getController() {
+        return controller;
     }
 
     @Override
     public void initialize() {
-        if (pidHelper != null) {
-            pidHelper.updateValues();
-            PIDController controller = getController();
-            controller.setPID(
-                pidHelper.getP(),
-                pidHelper.getI(),
-                pidHelper.getD()
-            );
-            lastSetpoint = setpointSupplier.getAsDouble();
-            controller.setSetpoint(lastSetpoint);
-            controller.reset();
+        lastSetpoint = setpointSupplier.getAsDouble();
+        controller.setSetpoint(lastSetpoint);
+        controller.reset();
+        appliedVersion = -1;
+        if (airbrakes != null) {
+            airbrakes.setParts(vesselSubsystem.getPartsOfType(AirbrakePart.class));
+            airbrakes.set(0.0);
         }
+        rocketSubsystem.getControlLoop().arm(law);
     }
 
     @Override
     public void execute() {
-        if (pidHelper != null) {
-            pidHelper.updateValues();
-            PIDController controller = getController();
-            
-            // Get new setpoint from supplier
-            double newSetpoint = setpointSupplier.getAsDouble();
-            SmartDashboard.putNumber("Velocity Target Setpoint", newSetpoint);
-            
-            // If setpoint changed significantly, reset the controller
-            if (Math.abs(newSetpoint - lastSetpoint) > 0.1) {
-                controller.reset();
-                lastSetpoint = newSetpoint;
-            }
-            
-            // Update PID parameters
-            controller.setPID(
-                pidHelper.getP(),
-                pidHelper.getI(),
-                pidHelper.getD()
-            );
-            controller.setSetpoint(newSetpoint);
+        SmartDashboard.putNumber("Velocity Target Setpoint", lastSetpoint);
+        if (airbrakes != null) {
+            airbrakes.publishTelemetry();
         }
-        super.execute();
     }
 
     @Override
@@ -117,7 +138,10 @@ public class VelocityTarget extends PIDCommand {
 
     @Override
     public void end(boolean interrupted) {
+        rocketSubsystem.getControlLoop().disarm(law);
         rocketSubsystem.setThrottle(0.0);
-       // rocketSubsystem.deactivatePartWithTag(AIRBRAKE_TAG);
+        if (airbrakes != null) {
+            airbrakes.set(0.0);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,242 @@
+// Copyright (c) 2024 : FRC 2106 : The Junkyard Dogs
+// https://github.com/WindingMotor
+// https://www.team2106.org
+
+// Use of this source code is governed by an MIT-style
+// license that can be found in the LICENSE file at
+// the root directory of this project.
+
+package frc.robot.control;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import edu.wpi.first.networktables.BooleanPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.DriverStation;
+import frc.robot.krpc.KRPCWrapper;
+import frc.robot.krpc.VesselStreams;
+import frc.robot.krpc.VesselSubsystem;
+import frc.robot.krpc.parts.DecouplerPart;
+import frc.robot.krpc.parts.EnginePart;
+import frc.robot.krpc.parts.FairingPart;
+import frc.robot.krpc.parts.ProbeCorePart;
+import krpc.client.services.SpaceCenter;
+
+/**
+ * Dedicated, preempting path for the abort sequence.
+ *
+ * <p>{@link #trigger()} returns immediately: it disarms every control law and preempts the
+ * {@link ActuatorChannel}, so no queued control write goes out ahead of the abort, and wakes
+ * a maximum-priority thread that does nothing else. Laws that must outlive an abort, such as
+ * fault detection, re-arm themselves. The thread sends the whole sequence back to back with
+ * no scheduler tick between steps: the abort action group first, then throttle to zero,
+ * engine shutdowns, SAS in stability assist, and the configured decouplers and fairings. The
+ * kRPC client sends one call per request, so the sequence cannot go out as a single message;
+ * putting the abort action group first means anything staged in it in the editor fires with
+ * the first acknowledgment.
+ *
+ * <p>{@link #isTriggered()} stays true from the trigger until {@link #reset()}, so the robot can
+ * cancel its commands on the main thread whichever thread triggered the abort.
+ *
+ * <p>Latency is measured from the press, as recorded by {@link #trigger()}, to the server
+ * acknowledging the abort action group, and to the last step of the sequence.
+ */
+public class AbortChannel implements AutoCloseable {
+    private final KRPCWrapper krpc;
+    private final ControlLoopExecutor controlLoop;
+    private final ActuatorChannel actuators;
+    private final VesselSubsystem vesselSubsystem;
+    private final Thread thread;
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private volatile boolean running = true;
+
+    // Captured on the main thread by trigger(), read by the abort thread
+    private volatile List<EnginePart> engines = List.of();
+    private volatile List<DecouplerPart> decouplers = List.of();
+    private volatile List<FairingPart> fairings = List.of();
+    private volatile ProbeCorePart probeCore;
+    private volatile long pressNanos;
+
+    private volatile boolean triggered;
+    private volatile boolean aborted;
+    private volatile double pressToAck = Double.NaN;
+    private volatile double pressToComplete = Double.NaN;
+    private volatile int failures;
+
+    private final BooleanPublisher abortedPublisher;
+    private final DoublePublisher pressToAckPublisher;
+    private final DoublePublisher pressToCompletePublisher;
+
+    /**
+     * Creates the channel and starts its thread, which parks until triggered.
+     * @param krpc The wrapper whose vessel control the sequence writes to
+     * @param controlLoop The loop whose laws are disarmed and whose actuator channel is
+     *                    preempted by an abort
+     * @param vesselSubsystem Supplies the engines to shut down and fires the decouplers
+     */
+    public AbortChannel(KRPCWrapper krpc, ControlLoopExecutor controlLoop, VesselSubsystem vesselSubsystem) {
+        this.krpc = krpc;
+        this.controlLoop = controlLoop;
+        this.actuators = controlLoop.getActuators();
+        this.vesselSubsystem = vesselSubsystem;
+
+        NetworkTable table = NetworkTableInstance.getDefault().getTable("Abort");
+        abortedPublisher = table.getBooleanTopic("Aborted").publish();
+        pressToAckPublisher = table.getDoubleTopic("Press To Ack ms").publish();
+        pressToCompletePublisher = table.getDoubleTopic("Press To Complete ms").publish();
+        publishTelemetry();
+
+        thread = new Thread(this::run, "KRPC-Abort");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Sets the parts separated on abort.
+     * @param decouplers Fired after the engines are shut down
+     * @param fairings Deployed after the decouplers
+     */
+    public void setSeparation(List<DecouplerPart> decouplers, List<FairingPart> fairings) {
+        this.decouplers = List.copyOf(decouplers);
+        this.fairings = List.copyOf(fairings);
+    }
+
+    /**
+     * Sets the probe core woken from hibernation before SAS is engaged.
+     * @param probeCore The probe core, or null
+     */
+    public void setProbeCore(ProbeCorePart probeCore) {
+        this.probeCore = probeCore;
+    }
+
+    /**
+     * Starts the abort sequence. Call from the main thread: the engines are captured here,
+     * since the part list is not thread safe. Returns without waiting on an RPC; a second
+     * trigger while the sequence runs is ignored. Commands that actuate parts directly are not
+     * stopped here; the caller cancels them.
+     */
+    public void trigger() {
+        trigger(vesselSubsystem.getPartsOfType(EnginePart.class));
+    }
+
+    /**
+     * Starts the abort sequence from any thread, shutting down the given engines.
+     * @param engines The engines to shut down, captured by the caller
+     */
+    public void trigger(List<EnginePart> engines) {
+        long press = System.nanoTime();
+        actuators.preempt();
+        controlLoop.disarmAll();
+        triggered = true;
+        if (pending.getAndSet(true)) {
+            return;
+        }
+        pressNanos = press;
+        this.engines = List.copyOf(engines);
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Lets the actuator channel write again after an abort, e.g. to fly the capsule down. Laws
+     * disarmed by the abort stay disarmed until their commands run again.
+     */
+    public void reset() {
+        triggered = false;
+        aborted = false;
+        actuators.resume();
+        publishTelemetry();
+    }
+
+    private void run() {
+        while (running) {
+            if (!pending.get()) {
+                LockSupport.park(this);
+                continue;
+            }
+            long press = pressNanos;
+            failures = 0;
+            pressToAck = Double.NaN;
+            VesselStreams streams = krpc.getVesselStreams();
+            SpaceCenter.Control control = streams != null ? streams.getControl() : null;
+            if (control == null) {
+                DriverStation.reportError("ABORT: no vessel control bound", false);
+            } else {
+                runSequence(control, press);
+            }
+            pressToComplete = (System.nanoTime() - press) / 1e9;
+            aborted = true;
+            pending.set(false);
+            publishTelemetry();
+            DriverStation.reportWarning(String.format("ABORT complete: ack %.1f ms, done %.1f ms, %d failed steps",
+                pressToAck * 1000.0, pressToComplete * 1000.0, failures), false);
+        }
+    }
+
+    private void runSequence(SpaceCenter.Control control, long press) {
+        try {
+            control.setAbort(true);
+            pressToAck = (System.nanoTime() - press) / 1e9;
+            control.setThrottle(0.0f);
+        } catch (Exception e) {
+            failures++;
+            DriverStation.reportError("ABORT: action group or throttle failed: " + e.getMessage(), false);
+        }
+        for (EnginePart engine : engines) {
+            if (!engine.shutdown()) {
+                failures++;
+            }
+        }
+        try {
+            ProbeCorePart probe = probeCore;
+            if (probe != null && probe.isHibernating()) {
+                probe.setHibernation(false);
+            }
+            control.setSAS(true);
+            control.setSASMode(SpaceCenter.SASMode.STABILITY_ASSIST);
+        } catch (Exception e) {
+            failures++;
+            DriverStation.reportError("ABORT: SAS failed: " + e.getMessage(), false);
+        }
+        for (DecouplerPart decoupler : decouplers) {
+            if (!vesselSubsystem.decouple(decoupler)) {
+                failures++;
+            }
+        }
+        for (FairingPart fairing : fairings) {
+            if (!fairing.deploy()) {
+                failures++;
+            }
+        }
+    }
+
+    /**
+     * Publishes the abort state and latency. They only change when a sequence ends or on reset.
+     */
+    private void publishTelemetry() {
+        abortedPublisher.set(aborted);
+        pressToAckPublisher.set(pressToAck * 1000.0);
+        pressToCompletePublisher.set(pressToComplete * 1000.0);
+    }
+
+    /** @return True from a trigger until {@link #reset()}, before the sequence completes too */
+    public boolean isTriggered() { return triggered; }
+    public boolean isAborted() { return aborted; }
+    /** @return Seconds from the press to the abort action group's acknowledgment, NaN before an abort */
+    public double getPressToAck() { return pressToAck; }
+    /** @return Seconds from the press to the end of the sequence, NaN before an abort */
+    public double getPressToComplete() { return pressToComplete; }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(thread);
+        abortedPublisher.close();
+        pressToAckPublisher.close();
+        pressToCompletePublisher.close();
+    }
+}
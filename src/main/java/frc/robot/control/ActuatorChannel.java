@@ -0,0 +1,322 @@
+// Copyright (c) 2024 : FRC 2106 : The Junkyard Dogs
+// https://github.com/WindingMotor
+// https://www.team2106.org
+
+// Use of this source code is governed by an MIT-style
+// license that can be found in the LICENSE file at
+// the root directory of this project.
+
+package frc.robot.control;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.DriverStation;
+import krpc.client.services.SpaceCenter;
+
+/**
+ * Non-blocking, coalescing writer for vessel control inputs.
+ *
+ * <p>Callers only store the newest value of an actuator and wake the writer thread; they never
+ * wait for an RPC. The writer sends the latest value of every actuator that changed since its
+ * last pass, so if producers run faster than the connection, intermediate values are dropped
+ * instead of queueing up.
+ *
+ * <p>A value may carry the arrival time of the telemetry sample it was computed from. When its
+ * write is acknowledged, the channel reports the sense-to-actuate delay: the time from sample
+ * arrival to acknowledgment, plus half a round trip for the request to have reached the server.
+ *
+ * <p>Besides the raw control inputs, the channel writes the targets of the vessel's autopilot
+ * and the landing gear, so guidance can steer and land without waiting on RPCs either.
+ *
+ * <p>The {@link AbortChannel} can preempt the channel: pending values are dropped, a pass in
+ * progress stops before its next write, and nothing is written again until {@link #resume()}.
+ */
+public class ActuatorChannel implements AutoCloseable {
+    /**
+     * The control inputs the channel can write.
+     */
+    public enum Actuator {
+        THROTTLE,
+        PITCH,
+        YAW,
+        ROLL,
+        FORWARD,
+        UP,
+        RIGHT,
+        /** Autopilot target pitch in degrees above the horizon */
+        TARGET_PITCH,
+        /** Autopilot target heading in degrees from north */
+        TARGET_HEADING,
+        /** Landing gear, deployed above 0.5 and retracted below */
+        GEAR
+    }
+
+    private static final Actuator[] ACTUATORS = Actuator.values();
+    private static final long NO_CONTROL_RETRY_NANOS = 10_000_000L;
+    private static final int AUTOPILOT_MASK =
+        (1 << Actuator.TARGET_PITCH.ordinal()) | (1 << Actuator.TARGET_HEADING.ordinal());
+
+    private final Supplier<SpaceCenter.Control> controlSupplier;
+    private final Supplier<SpaceCenter.AutoPilot> autoPilotSupplier;
+    private final AtomicLongArray values = new AtomicLongArray(ACTUATORS.length);
+    private final AtomicLongArray sourceNanos = new AtomicLongArray(ACTUATORS.length);
+    private final AtomicInteger dirty = new AtomicInteger();
+    private final Thread writer;
+    private volatile boolean running = true;
+    private volatile boolean preempted;
+
+    private final AtomicLong coalesced = new AtomicLong();
+    private volatile long writes;
+    private volatile long failures;
+    private volatile double lastWriteSeconds;
+
+    // Latency, smoothed over writes
+    private static final double LATENCY_SMOOTHING = 0.1;
+    private volatile double roundTripSeconds;
+    private volatile double senseToActuateSeconds;
+    private volatile double lastSenseToActuateSeconds;
+
+    private final IntegerPublisher writesPublisher;
+    private final IntegerPublisher coalescedPublisher;
+    private final IntegerPublisher failuresPublisher;
+    private final DoublePublisher writeTimePublisher;
+    private final DoublePublisher roundTripPublisher;
+    private final DoublePublisher senseToActuatePublisher;
+    private final DoublePublisher lastSenseToActuatePublisher;
+
+    /**
+     * Creates a channel and starts its writer thread.
+     * @param controlSupplier Supplies the active vessel's Control, looked up on every pass so
+     *                        writes follow vessel changes; may return null
+     */
+    public ActuatorChannel(Supplier<SpaceCenter.Control> controlSupplier) {
+        this(controlSupplier, () -> null);
+    }
+
+    /**
+     * Creates a channel that can also write autopilot targets and starts its writer thread.
+     * @param controlSupplier Supplies the active vessel's Control; may return null
+     * @param autoPilotSupplier Supplies the active vessel's AutoPilot; may return null
+     */
+    public ActuatorChannel(Supplier<SpaceCenter.Control> controlSupplier,
+                           Supplier<SpaceCenter.AutoPilot> autoPilotSupplier) {
+        this.controlSupplier = controlSupplier;
+        this.autoPilotSupplier = autoPilotSupplier;
+
+        NetworkTable table = NetworkTableInstance.getDefault().getTable("ControlLoop/Actuators");
+        writesPublisher = table.getIntegerTopic("Writes").publish();
+        coalescedPublisher = table.getIntegerTopic("Coalesced").publish();
+        failuresPublisher = table.getIntegerTopic("Failures").publish();
+        writeTimePublisher = table.getDoubleTopic("Last Write ms").publish();
+        roundTripPublisher = table.getDoubleTopic("Round Trip ms").publish();
+        senseToActuatePublisher = table.getDoubleTopic("Sense To Actuate ms").publish();
+        lastSenseToActuatePublisher = table.getDoubleTopic("Last Sense To Actuate ms").publish();
+
+        writer = new Thread(this::run, "KRPC-Actuators");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Stores a new value for an actuator. Returns immediately.
+     * @param actuator The actuator
+     * @param value The value; throttle is 0 to 1, autopilot targets are degrees, the others
+     *              -1 to 1
+     */
+    public void set(Actuator actuator, double value) {
+        set(actuator, value, 0L);
+    }
+
+    /**
+     * Stores a new value for an actuator computed from a telemetry sample. Returns immediately.
+     * @param actuator The actuator
+     * @param value The value; throttle is 0 to 1, autopilot targets are degrees, the others
+     *              -1 to 1
+     * @param sampleNanos Arrival time of the sample the value was computed from, or 0 if none
+     */
+    public void set(Actuator actuator, double value, long sampleNanos) {
+        int index = actuator.ordinal();
+        sourceNanos.set(index, sampleNanos);
+        values.set(index, Double.doubleToRawLongBits(value));
+        int bit = 1 << index;
+        int previous;
+        do {
+            previous = dirty.get();
+        } while (!dirty.compareAndSet(previous, previous | bit));
+        if ((previous & bit) != 0) {
+            // The previous value was never sent
+            coalesced.incrementAndGet();
+        }
+        LockSupport.unpark(writer);
+    }
+
+    /**
+     * Stores a new throttle value, clamped between 0 and 1.
+     */
+    public void setThrottle(double throttle) {
+        setThrottle(throttle, 0L);
+    }
+
+    /**
+     * Stores a new throttle value computed from a telemetry sample, clamped between 0 and 1.
+     * @param sampleNanos Arrival time of the sample the value was computed from, or 0 if none
+     */
+    public void setThrottle(double throttle, long sampleNanos) {
+        set(Actuator.THROTTLE, Math.min(Math.max(throttle, 0.0), 1.0), sampleNanos);
+    }
+
+    /**
+     * Drops every pending value and stops writing until {@link #resume()}. Values stored in the
+     * meantime are kept but not sent. Returns immediately; a write already on the wire completes.
+     */
+    public void preempt() {
+        preempted = true;
+        coalesced.addAndGet(Integer.bitCount(dirty.getAndSet(0)));
+    }
+
+    /**
+     * Lets the writer send again, starting with the values stored while preempted.
+     */
+    public void resume() {
+        preempted = false;
+        LockSupport.unpark(writer);
+    }
+
+    public boolean isPreempted() {
+        return preempted;
+    }
+
+    /**
+     * Gets the last value stored for an actuator, whether or not it has been sent yet.
+     */
+    public double get(Actuator actuator) {
+        return Double.longBitsToDouble(values.get(actuator.ordinal()));
+    }
+
+    private void run() {
+        while (running) {
+            if (preempted) {
+                LockSupport.park(this);
+                continue;
+            }
+            if (dirty.get() == 0) {
+                LockSupport.park(this);
+                continue;
+            }
+            SpaceCenter.Control control = controlSupplier.get();
+            if (control == null) {
+                // No vessel bound, e.g. mid rebind: keep the values pending and retry
+                LockSupport.parkNanos(this, NO_CONTROL_RETRY_NANOS);
+                continue;
+            }
+            int pending = dirty.getAndSet(0);
+            if (pending == 0) {
+                continue;
+            }
+            SpaceCenter.AutoPilot autoPilot = null;
+            if ((pending & AUTOPILOT_MASK) != 0) {
+                autoPilot = autoPilotSupplier.get();
+            }
+            for (int i = 0; i < ACTUATORS.length && !preempted; i++) {
+                if ((pending & (1 << i)) != 0) {
+                    long source = sourceNanos.get(i);
+                    write(control, autoPilot, ACTUATORS[i], (float) Double.longBitsToDouble(values.get(i)), source);
+                }
+            }
+        }
+    }
+
+    private void write(SpaceCenter.Control control, SpaceCenter.AutoPilot autoPilot,
+                       Actuator actuator, float value, long source) {
+        if ((AUTOPILOT_MASK & (1 << actuator.ordinal())) != 0 && autoPilot == null) {
+            // No autopilot bound; the target is dropped like any other coalesced value
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            switch (actuator) {
+                case THROTTLE: control.setThrottle(value); break;
+                case PITCH: control.setPitch(value); break;
+                case YAW: control.setYaw(value); break;
+                case ROLL: control.setRoll(value); break;
+                case FORWARD: control.setForward(value); break;
+                case UP: control.setUp(value); break;
+                case RIGHT: control.setRight(value); break;
+                case TARGET_PITCH: autoPilot.setTargetPitch(value); break;
+                case GEAR: control.setGear(value > 0.5f); break;
+                default: autoPilot.setTargetHeading(value); break;
+            }
+            long ack = System.nanoTime();
+            double roundTrip = (ack - start) / 1e9;
+            roundTripSeconds = roundTripSeconds == 0.0
+                ? roundTrip
+                : roundTripSeconds + (roundTrip - roundTripSeconds) * LATENCY_SMOOTHING;
+            if (source != 0L) {
+                double delay = (ack - source) / 1e9 - roundTrip / 2.0;
+                lastSenseToActuateSeconds = delay;
+                senseToActuateSeconds = senseToActuateSeconds == 0.0
+                    ? delay
+                    : senseToActuateSeconds + (delay - senseToActuateSeconds) * LATENCY_SMOOTHING;
+            }
+            writes++;
+        } catch (Exception e) {
+            failures++;
+            DriverStation.reportError("Failed to write " + actuator + ": " + e.getMessage(), false);
+        }
+        lastWriteSeconds = (System.nanoTime() - start) / 1e9;
+    }
+
+    /**
+     * Gets the smoothed round trip of a control write.
+     * @return Seconds, or 0 before the first write
+     */
+    public double getRoundTripSeconds() {
+        return roundTripSeconds;
+    }
+
+    /**
+     * Gets the smoothed delay from a sample's arrival to the vessel applying a value computed
+     * from it.
+     * @return Seconds, or 0 before the first tagged write
+     */
+    public double getSenseToActuateSeconds() {
+        return senseToActuateSeconds;
+    }
+
+    /**
+     * Publishes write statistics. Intended to be called from a subsystem's periodic().
+     */
+    public void publishTelemetry() {
+        writesPublisher.set(writes);
+        coalescedPublisher.set(coalesced.get());
+        failuresPublisher.set(failures);
+        writeTimePublisher.set(lastWriteSeconds * 1000.0);
+        roundTripPublisher.set(roundTripSeconds * 1000.0);
+        senseToActuatePublisher.set(senseToActuateSeconds * 1000.0);
+        lastSenseToActuatePublisher.set(lastSenseToActuateSeconds * 1000.0);
+    }
+
+    /**
+     * Stops the writer thread. Values not yet sent are dropped.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        writesPublisher.close();
+        coalescedPublisher.close();
+        failuresPublisher.close();
+        writeTimePublisher.close();
+        roundTripPublisher.close();
+        senseToActuatePublisher.close();
+        lastSenseToActuatePublisher.close();
+    }
+}
@@ -0,0 +1,146 @@
+// Copyright (c) 2024 : FRC 2106 : The Junkyard Dogs
+// https://github.com/WindingMotor
+// https://www.team2106.org
+
+// Use of this source code is governed by an MIT-style
+// license that can be found in the LICENSE file at
+// the root directory of this project.
+
+package frc.robot.control;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import frc.robot.krpc.parts.AirbrakePart;
+
+/**
+ * Non-blocking, coalescing and rate-limited writer for airbrake deployment.
+ *
+ * <p>Works like the {@link ActuatorChannel}: callers store the newest deployment and return.
+ * Airbrakes are written through part module fields, two RPCs per part, so the writer also
+ * limits itself to one pass every {@link #MIN_WRITE_INTERVAL_NANOS} and skips changes smaller
+ * than {@link #DEADBAND}. Retracting fully is always written, so the brakes never stay out on
+ * a value that fell inside the deadband.
+ */
+public class AirbrakeChannel implements AutoCloseable {
+    private static final long MIN_WRITE_INTERVAL_NANOS = 100_000_000L;
+    private static final double DEADBAND = 0.02;
+
+    private final AtomicLong value = new AtomicLong(Double.doubleToRawLongBits(0.0));
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final Thread writer;
+    private volatile boolean running = true;
+    private volatile List<AirbrakePart> parts = Collections.emptyList();
+
+    private final AtomicLong coalesced = new AtomicLong();
+    private volatile long writes;
+    private volatile double written;
+    private long lastWriteNanos;
+
+    private final IntegerPublisher writesPublisher;
+    private final IntegerPublisher coalescedPublisher;
+    private final IntegerPublisher partsPublisher;
+    private final DoublePublisher deploymentPublisher;
+
+    /**
+     * Creates a channel and starts its writer thread. It writes nothing until parts are set.
+     */
+    public AirbrakeChannel() {
+        NetworkTable table = NetworkTableInstance.getDefault().getTable("ControlLoop/Airbrakes");
+        writesPublisher = table.getIntegerTopic("Writes").publish();
+        coalescedPublisher = table.getIntegerTopic("Coalesced").publish();
+        partsPublisher = table.getIntegerTopic("Parts").publish();
+        deploymentPublisher = table.getDoubleTopic("Deployment").publish();
+
+        lastWriteNanos = System.nanoTime() - MIN_WRITE_INTERVAL_NANOS;
+        writer = new Thread(this::run, "KRPC-Airbrakes");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Sets the airbrakes the channel drives and rewrites the current deployment to them.
+     * @param airbrakes The parts, copied; empty to detach
+     */
+    public void setParts(List<AirbrakePart> airbrakes) {
+        parts = List.copyOf(airbrakes);
+        written = Double.NaN;
+        dirty.set(true);
+        LockSupport.unpark(writer);
+    }
+
+    /**
+     * Stores a new deployment. Returns immediately.
+     * @param deployment Between 0.0 (retracted) and 1.0 (full authority)
+     */
+    public void set(double deployment) {
+        double clamped = Math.min(Math.max(deployment, 0.0), 1.0);
+        value.set(Double.doubleToRawLongBits(clamped));
+        if (dirty.getAndSet(true)) {
+            coalesced.incrementAndGet();
+        }
+        LockSupport.unpark(writer);
+    }
+
+    /**
+     * Gets the last deployment stored, whether or not it has been written yet.
+     */
+    public double get() {
+        return Double.longBitsToDouble(value.get());
+    }
+
+    private void run() {
+        while (running) {
+            if (!dirty.get()) {
+                LockSupport.park(this);
+                continue;
+            }
+            long wait = lastWriteNanos + MIN_WRITE_INTERVAL_NANOS - System.nanoTime();
+            if (wait > 0) {
+                // Later values replace this one while waiting
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+            dirty.set(false);
+            double deployment = Double.longBitsToDouble(value.get());
+            double previous = written;
+            boolean retract = deployment == 0.0 && previous != 0.0;
+            if (!retract && Math.abs(deployment - previous) < DEADBAND) {
+                continue;
+            }
+            for (AirbrakePart part : parts) {
+                part.setDeployment(deployment);
+            }
+            written = deployment;
+            writes++;
+            lastWriteNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Publishes write statistics. Intended to be called from a command's execute().
+     */
+    public void publishTelemetry() {
+        writesPublisher.set(writes);
+        coalescedPublisher.set(coalesced.get());
+        partsPublisher.set(parts.size());
+        deploymentPublisher.set(written);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        writesPublisher.close();
+        coalescedPublisher.close();
+        partsPublisher.close();
+        deploymentPublisher.close();
+    }
+}
@@ -0,0 +1,420 @@
+// Copyright (c) 2024 : FRC 2106 : The Junkyard Dogs
+// https://github.com/WindingMotor
+// https://www.team2106.org
+
+// Use of this source code is governed by an MIT-style
+// license that can be found in the LICENSE file at
+// the root directory of this project.
+
+package frc.robot.control;
+
+import java.util.concurrent.locks.LockSupport;
+
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.DriverStation;
+import frc.robot.krpc.KRPCWrapper;
+import krpc.client.services.SpaceCenter;
+import krpc.client.services.SpaceCenter.Vessel;
+
+/**
+ * Model-predictive ascent planner. While started, it re-solves a short-horizon pitch and
+ * throttle schedule from the latest telemetry on its own thread and publishes each solution as
+ * an {@link AscentPlan}.
+ *
+ * <p>The model is a point mass over a spherical body: thrust along the planned pitch, gravity
+ * less centrifugal relief, mass flow from the specific impulse and an exponential atmosphere
+ * whose sea-level density is calibrated online from the dynamic pressure stream. Drag is not
+ * modeled; dynamic pressure only enters as a penalty above {@link #MAX_Q}. The cost rewards
+ * horizontal speed and penalizes missing the target apoapsis, overshooting it, exceeding max Q,
+ * falling inside the atmosphere, fuel use and pitch changes.
+ *
+ * <p>The solver is projected gradient descent with forward-difference gradients and a
+ * backtracking step, over one pitch and one throttle per knot. Each solve is warm-started from
+ * the previous plan shifted to the new start time and stops after {@link #MAX_ITERATIONS} or
+ * {@link #SOLVE_BUDGET_NANOS}, whichever comes first. All working storage is preallocated
+ * primitive arrays; only the published plan is allocated, once per solve.
+ */
+public class AscentOptimizer implements AutoCloseable {
+    /** Default target apoapsis in meters. */
+    public static final double DEFAULT_TARGET_APOAPSIS = 80000.0;
+    /** Dynamic pressure above which the plan is penalized, in Pa. */
+    public static final double MAX_Q = 25000.0;
+
+    private static final int KNOTS = 21;
+    private static final double KNOT_SPACING = 3.0; // s
+    private static final int SUBSTEPS = 6;
+    private static final int MAX_ITERATIONS = 40;
+    private static final long SOLVE_BUDGET_NANOS = 10_000_000L;
+    private static final long REPLAN_PERIOD_NANOS = 200_000_000L;
+    private static final double STANDARD_GRAVITY = 9.80665;
+    private static final double DEFAULT_SPECIFIC_IMPULSE = 300.0;
+    private static final double DIFFERENCE_STEP = 1e-3;
+    private static final double MAX_STEP = 0.5;
+    private static final int MAX_BACKTRACKS = 10;
+
+    // Cost weights
+    private static final double W_SPEED = 20.0; // per 100 m/s of final horizontal speed
+    private static final double W_APOAPSIS = 1.0; // per km^2 of apoapsis shortfall
+    private static final double W_APOAPSIS_PATH = 0.002; // per km^2 s of shortfall along the way
+    private static final double W_OVERSHOOT = 1.0; // per km^2 of apoapsis overshoot
+    private static final double W_Q = 0.5; // per kPa^2 s above max Q
+    private static final double W_FALL = 1.0; // per (10 m/s)^2 s of descent in the atmosphere
+    private static final double W_FUEL = 0.5; // per horizon at full throttle
+    private static final double W_SMOOTH = 0.1; // per (10 degrees)^2 of pitch change per knot
+
+    private final KRPCWrapper krpc;
+    private final ControlLoopExecutor controlLoop;
+    private final double targetApoapsis;
+    private final Thread thread;
+    private final TelemetrySnapshot snapshot = new TelemetrySnapshot();
+    private volatile boolean running = true;
+    private volatile boolean enabled;
+    private volatile AscentPlan plan;
+
+    // Decision vector scaled to 0..1: pitch / 90 at [0, KNOTS), throttle at [KNOTS, 2 * KNOTS)
+    private final double[] x = new double[2 * KNOTS];
+    private final double[] gradient = new double[2 * KNOTS];
+    private final double[] trial = new double[2 * KNOTS];
+    private double lastStep = 0.05;
+
+    // Body and engine parameters, refreshed on start and on staging
+    private boolean parametersLoaded;
+    private int parameterStage = Integer.MIN_VALUE;
+    private double surfaceGravity = STANDARD_GRAVITY;
+    private double radius = 600000.0;
+    private double atmosphereDepth = 70000.0;
+    private double scaleHeight = 5600.0;
+    private double specificImpulse = DEFAULT_SPECIFIC_IMPULSE;
+    private double seaLevelDensity = 1.225;
+
+    // Initial state of the current solve
+    private double h0, vy0, vx0, surfaceOffset, m0, thrust;
+
+    private final DoublePublisher solveTimePublisher;
+    private final DoublePublisher costPublisher;
+    private final DoublePublisher planPitchPublisher;
+    private final DoublePublisher planThrottlePublisher;
+    private final IntegerPublisher iterationsPublisher;
+    private final IntegerPublisher solvesPublisher;
+    private volatile long solves;
+
+    /**
+     * Creates an optimizer. It idles until {@link #start()}.
+     * @param krpc The wrapper used to read body and engine parameters
+     * @param controlLoop Supplies the telemetry snapshot each solve starts from
+     * @param targetApoapsis Apoapsis altitude the ascent aims for, in m
+     */
+    public AscentOptimizer(KRPCWrapper krpc, ControlLoopExecutor controlLoop, double targetApoapsis) {
+        this.krpc = krpc;
+        this.controlLoop = controlLoop;
+        this.targetApoapsis = targetApoapsis;
+
+        NetworkTable table = NetworkTableInstance.getDefault().getTable("AscentOptimizer");
+        solveTimePublisher = table.getDoubleTopic("Solve ms").publish();
+        costPublisher = table.getDoubleTopic("Cost").publish();
+        planPitchPublisher = table.getDoubleTopic("Plan Pitch").publish();
+        planThrottlePublisher = table.getDoubleTopic("Plan Throttle").publish();
+        iterationsPublisher = table.getIntegerTopic("Iterations").publish();
+        solvesPublisher = table.getIntegerTopic("Solves").publish();
+
+        thread = new Thread(this::run, "Ascent-Optimizer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public AscentOptimizer(KRPCWrapper krpc, ControlLoopExecutor controlLoop) {
+        this(krpc, controlLoop, DEFAULT_TARGET_APOAPSIS);
+    }
+
+    /**
+     * Starts re-planning. The first plan is solved cold.
+     */
+    public void start() {
+        plan = null;
+        parametersLoaded = false;
+        enabled = true;
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Stops re-planning and withdraws the current plan.
+     */
+    public void stop() {
+        enabled = false;
+        plan = null;
+    }
+
+    /**
+     * Gets the latest plan.
+     * @return The plan, or null if none is current
+     */
+    public AscentPlan getPlan() {
+        return plan;
+    }
+
+    private void run() {
+        while (running) {
+            if (!enabled) {
+                LockSupport.park(this);
+                continue;
+            }
+            long start = System.nanoTime();
+            try {
+                replan(start);
+            } catch (Exception e) {
+                DriverStation.reportError("Ascent optimizer failed: " + e.getMessage(), e.getStackTrace());
+            }
+            long wait = start + REPLAN_PERIOD_NANOS - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+            }
+        }
+    }
+
+    private void replan(long start) {
+        if (!controlLoop.sample(snapshot)) {
+            return;
+        }
+        if (!parametersLoaded || snapshot.getStage() != parameterStage) {
+            loadParameters();
+            parameterStage = snapshot.getStage();
+        }
+
+        double vertical = snapshot.isEstimateValid()
+            ? snapshot.getEstimatedVerticalVelocity()
+            : snapshot.getVerticalVelocity();
+        double altitude = snapshot.isEstimateValid() ? snapshot.getEstimatedAltitude() : snapshot.getAltitude();
+        double orbital = snapshot.getOrbitalSpeed();
+        double surface = snapshot.getSurfaceSpeed();
+        double horizontal = Math.sqrt(Math.max(orbital * orbital - vertical * vertical, 0.0));
+        double surfaceHorizontal = Math.sqrt(Math.max(surface * surface - vertical * vertical, 0.0));
+        if (snapshot.getMass() <= 0.0) {
+            return;
+        }
+        calibrateDensity(altitude, surface, snapshot.getDynamicPressure());
+
+        AscentPlan solved = solve(snapshot.getTime(), altitude, vertical, horizontal,
+            horizontal - surfaceHorizontal, snapshot.getMass(), snapshot.getAvailableThrust(),
+            start + SOLVE_BUDGET_NANOS, plan);
+        if (enabled) {
+            plan = solved;
+            solves++;
+        }
+    }
+
+    private void loadParameters() {
+        Vessel vessel = krpc.getActiveVessel();
+        if (vessel == null) {
+            return;
+        }
+        try {
+            SpaceCenter.CelestialBody body = vessel.getOrbit().getBody();
+            surfaceGravity = body.getSurfaceGravity();
+            radius = body.getEquatorialRadius();
+            atmosphereDepth = body.getHasAtmosphere() ? body.getAtmosphereDepth() : 0.0;
+            // Scale height that puts the atmosphere's edge about 12.5 e-foldings up, as on Kerbin
+            scaleHeight = atmosphereDepth > 0.0 ? atmosphereDepth / 12.5 : 1.0;
+            double isp = vessel.getSpecificImpulse();
+            specificImpulse = isp > 0.0 ? isp : DEFAULT_SPECIFIC_IMPULSE;
+            parametersLoaded = true;
+        } catch (Exception e) {
+            DriverStation.reportError("Failed to read ascent model parameters: " + e.getMessage(), e.getStackTrace());
+        }
+    }
+
+    private void calibrateDensity(double altitude, double surfaceSpeed, double dynamicPressure) {
+        if (atmosphereDepth <= 0.0 || altitude >= atmosphereDepth || surfaceSpeed < 50.0 || dynamicPressure <= 0.0) {
+            return;
+        }
+        double measured = 2.0 * dynamicPressure / (surfaceSpeed * surfaceSpeed) / Math.exp(-altitude / scaleHeight);
+        seaLevelDensity += (measured - seaLevelDensity) * 0.2;
+    }
+
+    /**
+     * Solves one plan from an initial state.
+     * @param time Start time of the plan
+     * @param altitude Altitude in m
+     * @param vertical Vertical speed in m/s
+     * @param horizontal Orbital horizontal speed in m/s
+     * @param offset Orbital minus surface horizontal speed, from the body's rotation
+     * @param mass Mass in kg
+     * @param availableThrust Thrust at full throttle in N
+     * @param deadline Local time after which the solve stops, from {@link System#nanoTime()}
+     * @param previous Plan to warm start from, or null for a cold start
+     * @return The plan
+     */
+    AscentPlan solve(double time, double altitude, double vertical, double horizontal, double offset,
+                     double mass, double availableThrust, long deadline, AscentPlan previous) {
+        long start = System.nanoTime();
+        h0 = altitude;
+        vy0 = vertical;
+        vx0 = horizontal;
+        surfaceOffset = offset;
+        m0 = mass;
+        thrust = availableThrust;
+
+        if (previous != null) {
+            // Shift the previous plan to the new start time
+            for (int k = 0; k < KNOTS; k++) {
+                double t = time + k * KNOT_SPACING;
+                x[k] = previous.pitchAt(t) / 90.0;
+                x[KNOTS + k] = previous.throttleAt(t);
+            }
+        } else {
+            // Cold start: hold the current flight path angle, straight up near the pad
+            double angle = vertical < 10.0 && horizontal - offset < 10.0
+                ? 90.0
+                : Math.toDegrees(Math.atan2(vertical, Math.max(horizontal - offset, 1e-3)));
+            for (int k = 0; k < KNOTS; k++) {
+                x[k] = clamp(angle / 90.0);
+                x[KNOTS + k] = 1.0;
+            }
+            lastStep = 0.05;
+        }
+
+        double cost = simulate(x);
+        int iterations = 0;
+        long iterationNanos = 0;
+        long now = System.nanoTime();
+        // Stop before an iteration that would likely overrun the deadline
+        while (iterations < MAX_ITERATIONS && now + iterationNanos < deadline) {
+            iterations++;
+            for (int i = 0; i < x.length; i++) {
+                double saved = x[i];
+                // Step inward at the bounds so the difference stays feasible
+                double step = saved + DIFFERENCE_STEP > 1.0 ? -DIFFERENCE_STEP : DIFFERENCE_STEP;
+                x[i] = saved + step;
+                gradient[i] = (simulate(x) - cost) / step;
+                x[i] = saved;
+            }
+
+            double step = Math.min(lastStep * 2.0, MAX_STEP);
+            boolean improved = false;
+            for (int b = 0; b < MAX_BACKTRACKS; b++) {
+                for (int i = 0; i < x.length; i++) {
+                    trial[i] = clamp(x[i] - step * gradient[i]);
+                }
+                double trialCost = simulate(trial);
+                if (trialCost < cost) {
+                    System.arraycopy(trial, 0, x, 0, x.length);
+                    cost = trialCost;
+                    improved = true;
+                    break;
+                }
+                step *= 0.5;
+            }
+            lastStep = step;
+            if (!improved) {
+                break;
+            }
+            long end = System.nanoTime();
+            iterationNanos = Math.max(iterationNanos, end - now);
+            now = end;
+        }
+
+        double[] pitch = new double[KNOTS];
+        double[] throttle = new double[KNOTS];
+        for (int k = 0; k < KNOTS; k++) {
+            pitch[k] = x[k] * 90.0;
+            throttle[k] = x[KNOTS + k];
+        }
+        return new AscentPlan(time, KNOT_SPACING, pitch, throttle, cost, iterations, System.nanoTime() - start);
+    }
+
+    /**
+     * Flies the model along a decision vector and returns its cost.
+     */
+    private double simulate(double[] v) {
+        double mu = surfaceGravity * radius * radius;
+        double flow = thrust / (specificImpulse * STANDARD_GRAVITY);
+        double minMass = m0 * 0.05;
+        double dt = KNOT_SPACING / SUBSTEPS;
+        double horizon = KNOT_SPACING * (KNOTS - 1);
+        double h = h0;
+        double vy = vy0;
+        double vx = vx0;
+        double m = m0;
+        double cost = 0.0;
+
+        for (int k = 0; k < KNOTS - 1; k++) {
+            for (int s = 0; s < SUBSTEPS; s++) {
+                double f = (s + 0.5) / SUBSTEPS;
+                double pitch = Math.toRadians(90.0 * (v[k] + (v[k + 1] - v[k]) * f));
+                double u = v[KNOTS + k] + (v[KNOTS + k + 1] - v[KNOTS + k]) * f;
+                double r = radius + h;
+                double down = mu / (r * r) - vx * vx / r;
+                double a = u * thrust / m;
+                vx += a * Math.cos(pitch) * dt;
+                vy += (a * Math.sin(pitch) - down) * dt;
+                h += vy * dt;
+                m = Math.max(m - u * flow * dt, minMass);
+
+                if (h < atmosphereDepth) {
+                    double vs = vx - surfaceOffset;
+                    double q = 0.5 * seaLevelDensity * Math.exp(-Math.max(h, 0.0) / scaleHeight) * (vs * vs + vy * vy);
+                    if (q > MAX_Q) {
+                        double over = (q - MAX_Q) / 1000.0;
+                        cost += W_Q * over * over * dt;
+                    }
+                    if (vy < 0.0) {
+                        double fall = vy / 10.0;
+                        cost += W_FALL * fall * fall * dt;
+                    }
+                }
+                // Charging the shortfall along the path keeps the receding horizon from deferring
+                // the climb to its last knots forever
+                double pathDown = mu / (r * r) - vx * vx / r;
+                double pathApoapsis = vy > 0.0 && pathDown > 0.0 ? h + vy * vy / (2.0 * pathDown) : h;
+                double pathShortfall = Math.max(targetApoapsis - pathApoapsis, 0.0) / 1000.0;
+                cost += W_APOAPSIS_PATH * pathShortfall * pathShortfall * dt;
+                cost += W_FUEL * u * dt / horizon;
+            }
+            double turn = (v[k + 1] - v[k]) * 9.0;
+            cost += W_SMOOTH * turn * turn;
+        }
+
+        double r = radius + h;
+        double down = mu / (r * r) - vx * vx / r;
+        double apoapsis = vy > 0.0 && down > 0.0 ? h + vy * vy / (2.0 * down) : h;
+        double shortfall = Math.max(targetApoapsis - apoapsis, 0.0) / 1000.0;
+        double overshoot = Math.max(apoapsis - targetApoapsis, 0.0) / 1000.0;
+        cost += W_APOAPSIS * shortfall * shortfall + W_OVERSHOOT * overshoot * overshoot;
+        cost -= W_SPEED * vx / 100.0;
+        return cost;
+    }
+
+    private static double clamp(double value) {
+        return Math.min(Math.max(value, 0.0), 1.0);
+    }
+
+    /**
+     * Publishes solver statistics and the current plan's first knot.
+     */
+    public void publishTelemetry() {
+        AscentPlan current = plan;
+        solvesPublisher.set(solves);
+        if (current != null) {
+            solveTimePublisher.set(current.getSolveNanos() / 1e6);
+            costPublisher.set(current.getCost());
+            iterationsPublisher.set(current.getIterations());
+            planPitchPublisher.set(current.pitchAt(current.getStartTime()));
+            planThrottlePublisher.set(current.throttleAt(current.getStartTime()));
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        enabled = false;
+        LockSupport.unpark(thread);
+        solveTimePublisher.close();
+        costPublisher.close();
+        planPitchPublisher.close();
+        planThrottlePublisher.close();
+        iterationsPublisher.close();
+        solvesPublisher.close();
+    }
+}
@@ -0,0 +1,76 @@
+// Copyright (c) 2024 : FRC 2106 : The Junkyard Dogs
+// https://github.com/WindingMotor
+// https://www.team2106.org
+
+// Use of this source code is governed by an MIT-style
+// license that can be found in the LICENSE file at
+// the root directory of this project.
+
+package frc.robot.control;
+
+/**
+ * One solution of the {@link AscentOptimizer}: pitch and throttle at uniformly spaced knots
+ * from the time of the snapshot it was solved from.
+ *
+ * <p>Immutable once published, so the control loop can follow it while the next solve runs.
+ * Lookups interpolate linearly between knots and hold the last knot past the horizon.
+ */
+public final class AscentPlan {
+    private final double startTime;
+    private final double knotSpacing;
+    private final double[] pitch;
+    private final double[] throttle;
+    private final double cost;
+    private final int iterations;
+    private final long solveNanos;
+
+    AscentPlan(double startTime, double knotSpacing, double[] pitch, double[] throttle,
+               double cost, int iterations, long solveNanos) {
+        this.startTime = startTime;
+        this.knotSpacing = knotSpacing;
+        this.pitch = pitch;
+        this.throttle = throttle;
+        this.cost = cost;
+        this.iterations = iterations;
+        this.solveNanos = solveNanos;
+    }
+
+    private double interpolate(double[] values, double time) {
+        double position = (time - startTime) / knotSpacing;
+        if (!(position > 0.0)) {
+            return values[0];
+        }
+        int last = values.length - 1;
+        if (position >= last) {
+            return values[last];
+        }
+        int index = (int) position;
+        return values[index] + (values[index + 1] - values[index]) * (position - index);
+    }
+
+    /**
+     * Gets the planned pitch.
+     * @param time Time in the base of {@link TelemetrySnapshot#getTime()}
+     * @return Pitch in degrees above the horizon
+     */
+    public double pitchAt(double time) {
+        return interpolate(pitch, time);
+    }
+
+    /**
+     * Gets the planned throttle.
+     * @param time Time in the base of {@link TelemetrySnapshot#getTime()}
+     * @return Throttle between 0.0 and 1.0
+     */
+    public double throttleAt(double time) {
+        return interpolate(throttle, time);
+    }
+
+    /** @return Time of the snapshot the plan was solved from */
+    public double getStartTime() { return startTime; }
+    /** @return Seconds covered by the plan */
+    public double getHorizon() { return knotSpacing * (pitch.length - 1); }
+    public double getCost() { return cost; }
+    public int getIterations() { return iterations; }
+    public long getSolveNanos() { return solveNanos; }
+}
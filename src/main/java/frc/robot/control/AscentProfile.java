@@ -0,0 +1,210 @@
+// Copyright (c) 2024 : FRC 2106 : The Junkyard Dogs
+// https://github.com/WindingMotor
+// https://www.team2106.org
+
+// Use of this source code is governed by an MIT-style
+// license that can be found in the LICENSE file at
+// the root directory of this project.
+
+package frc.robot.control;
+
+/**
+ * Precomputed ascent guidance for one vessel: target pitch versus altitude and throttle versus
+ * dynamic pressure.
+ *
+ * <p>Both curves are sampled at a uniform spacing into primitive arrays, so a lookup is one
+ * multiply, one array index and one linear interpolation, with no allocation or search.
+ * Instances are immutable and safe to share between the generator and the control loop.
+ *
+ * <p>The pitch curve is a gravity turn: straight up until the vessel is moving fast enough to
+ * turn, then {@code 90 * (1 - x^shape)} down to a final pitch at the end of the turn, where x is
+ * the fraction of the turn altitude covered. The shape is chosen by simulating the ascent so the
+ * flight path angle at the end of the turn matches a target. The throttle curve holds full
+ * throttle up to a soft dynamic pressure limit, then ramps down to the throttle that gives a
+ * thrust-to-weight ratio of about 1.3 at the hard limit.
+ */
+public final class AscentProfile {
+    private static final int SAMPLES = 256;
+
+    // Pitch schedule
+    private static final double TURN_START_SPEED = 60.0; // m/s
+    private static final double FINAL_PITCH = 5.0; // degrees
+    private static final double TARGET_FLIGHT_PATH_ANGLE = 20.0; // degrees, at the end of the turn
+    private static final double TURN_END_FRACTION = 0.65; // of the atmosphere depth
+    private static final double VACUUM_TURN_END = 10000.0; // m
+    private static final double MIN_SHAPE = 0.2;
+    private static final double MAX_SHAPE = 2.0;
+    private static final int SHAPE_ITERATIONS = 24;
+    private static final double SIM_STEP = 0.1; // s
+    private static final double SIM_LIMIT = 900.0; // s
+
+    // Throttle schedule
+    private static final double MAX_Q = 25000.0; // Pa
+    private static final double SOFT_Q_FRACTION = 0.8;
+    private static final double TARGET_TWR_AT_MAX_Q = 1.3;
+    private static final double MIN_THROTTLE = 0.3;
+
+    private final double thrustToWeight;
+    private final double turnStart;
+    private final double turnEnd;
+    private final double shape;
+    private final double heading;
+
+    private final double[] pitchTable = new double[SAMPLES + 1];
+    private final double pitchScale;
+    private final double[] throttleTable = new double[SAMPLES + 1];
+    private final double throttleScale;
+
+    private AscentProfile(double thrustToWeight, double turnStart, double turnEnd,
+                          double shape, double heading, boolean atmosphere) {
+        this.thrustToWeight = thrustToWeight;
+        this.turnStart = turnStart;
+        this.turnEnd = turnEnd;
+        this.shape = shape;
+        this.heading = heading;
+
+        pitchScale = SAMPLES / turnEnd;
+        for (int i = 0; i <= SAMPLES; i++) {
+            pitchTable[i] = schedule(i / pitchScale, turnStart, turnEnd, shape);
+        }
+
+        double qRange = MAX_Q / SOFT_Q_FRACTION * 1.5;
+        throttleScale = SAMPLES / qRange;
+        double floor = thrustToWeight > 0.0
+            ? Math.min(Math.max(TARGET_TWR_AT_MAX_Q / thrustToWeight, MIN_THROTTLE), 1.0)
+            : 1.0;
+        double softQ = MAX_Q * SOFT_Q_FRACTION;
+        for (int i = 0; i <= SAMPLES; i++) {
+            double q = i / throttleScale;
+            if (!atmosphere || q <= softQ) {
+                throttleTable[i] = 1.0;
+            } else if (q >= MAX_Q) {
+                throttleTable[i] = floor;
+            } else {
+                throttleTable[i] = 1.0 - (1.0 - floor) * (q - softQ) / (MAX_Q - softQ);
+            }
+        }
+    }
+
+    /**
+     * Computes a profile for a vessel. Runs a few dozen short simulations, so call it off the
+     * control loop.
+     * @param thrustToWeight Available thrust over weight at the surface
+     * @param surfaceGravity Surface gravity of the body in m/s^2
+     * @param radius Equatorial radius of the body in m
+     * @param atmosphereDepth Atmosphere depth in m, or 0 for an airless body
+     * @param heading Launch heading in degrees from north
+     * @return The profile
+     */
+    public static AscentProfile generate(double thrustToWeight, double surfaceGravity, double radius,
+                                         double atmosphereDepth, double heading) {
+        boolean atmosphere = atmosphereDepth > 0.0;
+        double turnEnd = atmosphere ? atmosphereDepth * TURN_END_FRACTION : VACUUM_TURN_END;
+
+        // Altitude at which vertical speed reaches the turn start speed
+        double turnStart = 0.1 * turnEnd;
+        double excess = surfaceGravity * (thrustToWeight - 1.0);
+        if (excess > 0.0) {
+            turnStart = Math.min(TURN_START_SPEED * TURN_START_SPEED / (2.0 * excess), 0.1 * turnEnd);
+        }
+
+        // Flight path angle at the end of the turn grows with the shape, so bisect on it
+        double low = MIN_SHAPE;
+        double high = MAX_SHAPE;
+        if (excess > 0.0) {
+            for (int i = 0; i < SHAPE_ITERATIONS; i++) {
+                double mid = 0.5 * (low + high);
+                double angle = simulate(thrustToWeight, surfaceGravity, radius, turnStart, turnEnd, mid);
+                if (angle < TARGET_FLIGHT_PATH_ANGLE) {
+                    low = mid;
+                } else {
+                    high = mid;
+                }
+            }
+        }
+        return new AscentProfile(thrustToWeight, turnStart, turnEnd, 0.5 * (low + high), heading, atmosphere);
+    }
+
+    /**
+     * Flies a point mass at full thrust along a pitch schedule, without drag or mass loss.
+     * @return Flight path angle in degrees when the turn ends, or -90 if the vessel fell back
+     */
+    private static double simulate(double thrustToWeight, double surfaceGravity, double radius,
+                                   double turnStart, double turnEnd, double shape) {
+        double thrust = thrustToWeight * surfaceGravity;
+        double mu = surfaceGravity * radius * radius;
+        double horizontal = 0.0;
+        double vertical = 0.0;
+        double altitude = 0.0;
+        for (double t = 0.0; t < SIM_LIMIT; t += SIM_STEP) {
+            double pitch = Math.toRadians(schedule(altitude, turnStart, turnEnd, shape));
+            double r = radius + altitude;
+            // Gravity less the centrifugal relief from horizontal speed
+            double down = mu / (r * r) - horizontal * horizontal / r;
+            horizontal += thrust * Math.cos(pitch) * SIM_STEP;
+            vertical += (thrust * Math.sin(pitch) - down) * SIM_STEP;
+            altitude += vertical * SIM_STEP;
+            if (altitude >= turnEnd) {
+                return Math.toDegrees(Math.atan2(vertical, horizontal));
+            }
+            if (altitude < 0.0) {
+                return -90.0;
+            }
+        }
+        return -90.0;
+    }
+
+    private static double schedule(double altitude, double turnStart, double turnEnd, double shape) {
+        if (altitude <= turnStart) {
+            return 90.0;
+        }
+        if (altitude >= turnEnd) {
+            return FINAL_PITCH;
+        }
+        double x = (altitude - turnStart) / (turnEnd - turnStart);
+        return Math.max(90.0 * (1.0 - Math.pow(x, shape)), FINAL_PITCH);
+    }
+
+    private static double lookup(double[] table, double scale, double x) {
+        double position = x * scale;
+        if (!(position > 0.0)) {
+            return table[0];
+        }
+        if (position >= SAMPLES) {
+            return table[SAMPLES];
+        }
+        int index = (int) position;
+        double fraction = position - index;
+        return table[index] + (table[index + 1] - table[index]) * fraction;
+    }
+
+    /**
+     * Gets the target pitch for an altitude.
+     * @param altitude Altitude in meters
+     * @return Pitch in degrees above the horizon
+     */
+    public double pitchAt(double altitude) {
+        return lookup(pitchTable, pitchScale, altitude);
+    }
+
+    /**
+     * Gets the throttle for a dynamic pressure.
+     * @param dynamicPressure Dynamic pressure in Pa
+     * @return Throttle between 0.0 and 1.0
+     */
+    public double throttleAt(double dynamicPressure) {
+        return lookup(throttleTable, throttleScale, dynamicPressure);
+    }
+
+    public double getThrustToWeight() { return thrustToWeight; }
+    public double getTurnStart() { return turnStart; }
+    public double getTurnEnd() { return turnEnd; }
+    public double getShape() { return shape; }
+    public double getHeading() { return heading; }
+
+    @Override
+    public String toString() {
+        return String.format("AscentProfile[TWR %.2f, turn %.0f - %.0f m, shape %.2f, heading %.0f]",
+            thrustToWeight, turnStart, turnEnd, shape, heading);
+    }
+}
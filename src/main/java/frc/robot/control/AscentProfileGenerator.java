@@ -0,0 +1,132 @@
+// Copyright (c) 2024 : FRC 2106 : The Junkyard Dogs
+// https://github.com/WindingMotor
+// https://www.team2106.org
+
+// Use of this source code is governed by an MIT-style
+// license that can be found in the LICENSE file at
+// the root directory of this project.
+
+package frc.robot.control;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import frc.robot.krpc.KRPCWrapper;
+import krpc.client.services.SpaceCenter;
+import krpc.client.services.SpaceCenter.Vessel;
+
+/**
+ * Builds an {@link AscentProfile} for the active vessel on a background thread.
+ *
+ * <p>A profile is generated at startup and again whenever the wrapper rebinds to a new active
+ * vessel. The vessel's mass, thrust and body are read with a handful of RPCs on the generator
+ * thread; the control loop only ever reads the finished profile through a volatile reference.
+ * Thrust is that of the engines staged to fire first, so a vessel still on the pad gets its
+ * real thrust-to-weight ratio. A request that is superseded before it starts is skipped.
+ */
+public class AscentProfileGenerator implements AutoCloseable {
+    /** Default launch heading, due east. */
+    public static final double DEFAULT_HEADING = 90.0;
+
+    private final KRPCWrapper krpc;
+    private final double heading;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Ascent-Profile");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong latestRequest = new AtomicLong();
+    private volatile AscentProfile profile;
+
+    /**
+     * Creates a generator and queues a profile for the current active vessel.
+     * @param krpc The wrapper to read vessels from
+     * @param heading Launch heading in degrees from north
+     */
+    public AscentProfileGenerator(KRPCWrapper krpc, double heading) {
+        this.krpc = krpc;
+        this.heading = heading;
+        krpc.addVesselChangeListener(this::request);
+        Vessel vessel = krpc.getActiveVessel();
+        if (vessel != null) {
+            request(vessel);
+        }
+    }
+
+    public AscentProfileGenerator(KRPCWrapper krpc) {
+        this(krpc, DEFAULT_HEADING);
+    }
+
+    /**
+     * Queues a profile for a vessel, replacing any request that has not started yet.
+     * @param vessel The vessel to generate for
+     */
+    public void request(Vessel vessel) {
+        long id = latestRequest.incrementAndGet();
+        executor.execute(() -> {
+            if (id == latestRequest.get()) {
+                generate(vessel);
+            }
+        });
+    }
+
+    private void generate(Vessel vessel) {
+        try {
+            SpaceCenter.CelestialBody body = vessel.getOrbit().getBody();
+            double gravity = body.getSurfaceGravity();
+            double radius = body.getEquatorialRadius();
+            double atmosphere = body.getHasAtmosphere() ? body.getAtmosphereDepth() : 0.0;
+            double mass = vessel.getMass();
+            double thrust = launchThrust(vessel);
+            double thrustToWeight = mass > 0.0 && gravity > 0.0 ? thrust / (mass * gravity) : 0.0;
+
+            long start = System.nanoTime();
+            AscentProfile generated = AscentProfile.generate(thrustToWeight, gravity, radius, atmosphere, heading);
+            profile = generated;
+            DriverStation.reportWarning("Generated " + generated + " for " + vessel.getName()
+                + " in " + (System.nanoTime() - start) / 1000000 + " ms", false);
+        } catch (Exception e) {
+            DriverStation.reportError("Failed to generate ascent profile: " + e.getMessage(), e.getStackTrace());
+        }
+    }
+
+    /**
+     * Gets the thrust the vessel lifts off with. On the pad no engine is active yet, so the
+     * available thrust is zero; the engines of the first stage to fire are summed instead.
+     * @return Thrust in N at the current pressure
+     */
+    private static double launchThrust(Vessel vessel) throws Exception {
+        double available = vessel.getAvailableThrust();
+        if (available > 0.0) {
+            return available;
+        }
+        int firstStage = Integer.MIN_VALUE;
+        double thrust = 0.0;
+        for (SpaceCenter.Engine engine : vessel.getParts().getEngines()) {
+            int stage = engine.getPart().getStage();
+            double maxThrust = engine.getMaxThrust();
+            if (stage > firstStage) {
+                firstStage = stage;
+                thrust = maxThrust;
+            } else if (stage == firstStage) {
+                thrust += maxThrust;
+            }
+        }
+        return thrust;
+    }
+
+    /**
+     * Gets the latest profile.
+     * @return The profile, or null if none has been generated yet
+     */
+    public AscentProfile getProfile() {
+        return profile;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
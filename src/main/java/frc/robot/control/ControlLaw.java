@@ -0,0 +1,31 @@
+// Copyright (c) 2024 : FRC 2106 : The Junkyard Dogs
+// https://github.com/WindingMotor
+// https://www.team2106.org
+
+// Use of this source code is governed by an MIT-style
+// license that can be found in the LICENSE file at
+// the root directory of this project.
+
+package frc.robot.control;
+
+/**
+ * A control law run by the {@link ControlLoopExecutor} on its own thread.
+ *
+ * <p>Implementations read the snapshot, compute their output and hand it to the actuator
+ * channel, which never blocks. They must not issue RPCs or allocate on every cycle.
+ */
+@FunctionalInterface
+public interface ControlLaw {
+    /**
+     * Runs one cycle.
+     * @param telemetry The latest telemetry, valid for this call only
+     * @param actuators Non-blocking output channel
+     * @param dt Time since the previous cycle in seconds
+     */
+    void update(TelemetrySnapshot telemetry, ActuatorChannel actuators, double dt);
+
+    /**
+     * Called on the arming thread before the law's first cycle, e.g. to reset integrators.
+     */
+    default void onArmed() {}
+}
@@ -0,0 +1,370 @@
+// Copyright (c) 2024 : FRC 2106 : The Junkyard Dogs
+// https://github.com/WindingMotor
+// https://www.team2106.org
+
+// Use of this source code is governed by an MIT-style
+// license that can be found in the LICENSE file at
+// the root directory of this project.
+
+package frc.robot.control;
+
+import java.util.concurrent.locks.LockSupport;
+
+import edu.wpi.first.networktables.BooleanPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.DriverStation;
+import frc.robot.krpc.KRPCWrapper;
+import frc.robot.krpc.VesselStreams;
+
+/**
+ * Runs armed {@link ControlLaw}s on a dedicated thread, independent of the 20 ms TimedRobot
+ * period.
+ *
+ * <p>Cycles are driven by telemetry: the wrapper's sample clock wakes the loop when a new
+ * server sample arrives, and one cycle runs per sample, so a law never computes twice from the
+ * same data or waits a timer tick for new data. Without a sample clock the loop falls back to a
+ * fixed period. Every cycle refills one {@link TelemetrySnapshot}, projected forward by the
+ * sample's age plus the measured write round trip, runs each armed law against it and leaves
+ * the outputs in the {@link ActuatorChannel}, so a cycle never waits on an RPC. The thread
+ * parks while no law is armed. Commands arm their law in initialize() and disarm it in end().
+ *
+ * <p>One cycle per sample caps the loop at the server's sample rate, about 50 Hz at the default
+ * physics and stream rates, so it is no faster than the scheduler; what it gains is running
+ * as soon as a sample lands rather than on the next 20 ms tick. The measured rate is
+ * published as "Cycle Rate Hz".
+ *
+ * <p>The executor measures its own timing. When sample driven, jitter is the dispatch delay from
+ * a sample's arrival to the start of its cycle, and a cycle counts as an overrun if samples were
+ * skipped since the previous one. In periodic mode, jitter is the difference between the actual
+ * and the nominal period, and a cycle counts as an overrun if it started more than half a period
+ * late. In both modes a cycle that took longer than a period to run is an overrun.
+ */
+public class ControlLoopExecutor implements AutoCloseable {
+    /** Default period, 200 Hz. */
+    public static final double DEFAULT_PERIOD = 0.005;
+    private static final double MIN_PERIOD = 0.002;
+    private static final double MAX_PERIOD = 0.01;
+    private static final double JITTER_SMOOTHING = 0.05;
+    private static final double RATE_SMOOTHING = 0.05;
+    // Wake up at least this often while waiting for a sample, to notice a lost clock
+    private static final long SAMPLE_TIMEOUT_NANOS = 100_000_000L;
+    private static final long MIN_SPACING_NANOS = Math.round(MIN_PERIOD * 1e9);
+
+    private final KRPCWrapper krpc;
+    private final ActuatorChannel actuators;
+    private final VerticalStateEstimator estimator;
+    private final double period;
+    private final long periodNanos;
+    private final Thread thread;
+    private final Runnable sampleListener;
+    private final TelemetrySnapshot snapshot = new TelemetrySnapshot();
+    private volatile boolean running = true;
+
+    // Guards arming and the cycle itself, so disarm() returns only after the law's last cycle
+    private final Object lock = new Object();
+    private volatile ControlLaw[] laws = new ControlLaw[0];
+
+    // Timing, written by the loop thread only
+    private long lastStartNanos;
+    private long lastSequence;
+    private volatile boolean sampleDriven;
+    private volatile double meanJitter;
+    private volatile double maxJitter;
+    private volatile double cycleRate;
+    private volatile double lastCycleSeconds;
+    private volatile double lastHorizon;
+    private volatile long overruns;
+    private volatile long cycles;
+
+    private final DoublePublisher meanJitterPublisher;
+    private final DoublePublisher maxJitterPublisher;
+    private final DoublePublisher cycleTimePublisher;
+    private final DoublePublisher cycleRatePublisher;
+    private final DoublePublisher horizonPublisher;
+    private final IntegerPublisher overrunsPublisher;
+    private final IntegerPublisher cyclesPublisher;
+    private final IntegerPublisher armedPublisher;
+    private final BooleanPublisher sampleDrivenPublisher;
+
+    /**
+     * Creates a new executor. Nothing runs until a law is armed.
+     * @param krpc The wrapper whose vessel streams and sample clock feed the snapshot
+     * @param actuators The channel laws write their outputs to
+     * @param estimator The estimator whose filtered state seeds the projection; may be null
+     * @param period Fallback period in seconds when no sample clock is available, clamped to
+     *               100 - 500 Hz
+     */
+    public ControlLoopExecutor(KRPCWrapper krpc, ActuatorChannel actuators,
+                               VerticalStateEstimator estimator, double period) {
+        this.krpc = krpc;
+        this.actuators = actuators;
+        this.estimator = estimator;
+        this.period = Math.min(Math.max(period, MIN_PERIOD), MAX_PERIOD);
+        this.periodNanos = Math.round(this.period * 1e9);
+
+        NetworkTable table = NetworkTableInstance.getDefault().getTable("ControlLoop");
+        meanJitterPublisher = table.getDoubleTopic("Jitter Mean ms").publish();
+        maxJitterPublisher = table.getDoubleTopic("Jitter Max ms").publish();
+        cycleTimePublisher = table.getDoubleTopic("Cycle Time ms").publish();
+        cycleRatePublisher = table.getDoubleTopic("Cycle Rate Hz").publish();
+        horizonPublisher = table.getDoubleTopic("Projection Horizon ms").publish();
+        overrunsPublisher = table.getIntegerTopic("Overruns").publish();
+        cyclesPublisher = table.getIntegerTopic("Cycles").publish();
+        armedPublisher = table.getIntegerTopic("Armed Laws").publish();
+        sampleDrivenPublisher = table.getBooleanTopic("Sample Driven").publish();
+
+        thread = new Thread(this::run, "ControlLoop");
+        thread.setDaemon(true);
+        thread.start();
+        sampleListener = () -> LockSupport.unpark(thread);
+        krpc.addSampleListener(sampleListener);
+    }
+
+    /**
+     * Adds a law to the loop and wakes the loop if it was idle.
+     * @param law The law to run
+     */
+    public void arm(ControlLaw law) {
+        synchronized (lock) {
+            for (ControlLaw armed : laws) {
+                if (armed == law) {
+                    return;
+                }
+            }
+            law.onArmed();
+            ControlLaw[] next = new ControlLaw[laws.length + 1];
+            System.arraycopy(laws, 0, next, 0, laws.length);
+            next[laws.length] = law;
+            laws = next;
+        }
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Removes a law from the loop. Waits for a cycle in progress, so the law produces no output
+     * after this returns. The loop parks when no law is left.
+     * @param law The law to remove
+     */
+    public void disarm(ControlLaw law) {
+        synchronized (lock) {
+            int index = -1;
+            for (int i = 0; i < laws.length; i++) {
+                if (laws[i] == law) {
+                    index = i;
+                    break;
+                }
+            }
+            if (index < 0) {
+                return;
+            }
+            ControlLaw[] next = new ControlLaw[laws.length - 1];
+            System.arraycopy(laws, 0, next, 0, index);
+            System.arraycopy(laws, index + 1, next, index, laws.length - index - 1);
+            laws = next;
+        }
+    }
+
+    /**
+     * Removes every armed law, e.g. on abort. Waits for a cycle in progress like
+     * {@link #disarm(ControlLaw)}.
+     */
+    public void disarmAll() {
+        synchronized (lock) {
+            laws = new ControlLaw[0];
+        }
+    }
+
+    /**
+     * Checks whether a law is currently armed.
+     */
+    public boolean isArmed(ControlLaw law) {
+        for (ControlLaw armed : laws) {
+            if (armed == law) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void run() {
+        while (running) {
+            if (laws.length == 0) {
+                lastStartNanos = 0;
+                lastSequence = 0;
+                LockSupport.park(this);
+                continue;
+            }
+
+            long now = System.nanoTime();
+            if (krpc.hasSampleClock()) {
+                sampleDriven = true;
+                long sequence = krpc.getSampleSequence();
+                if (sequence == lastSequence) {
+                    LockSupport.parkNanos(this, SAMPLE_TIMEOUT_NANOS);
+                    continue;
+                }
+                // Bound the rate if the server floods samples
+                long wait = lastStartNanos + MIN_SPACING_NANOS - now;
+                if (lastStartNanos != 0 && wait > 0) {
+                    LockSupport.parkNanos(this, wait);
+                    continue;
+                }
+                cycle(sequence);
+            } else {
+                sampleDriven = false;
+                long wait = lastStartNanos + periodNanos - now;
+                if (lastStartNanos != 0 && wait > 0) {
+                    LockSupport.parkNanos(this, wait);
+                    continue;
+                }
+                cycle(-1);
+            }
+        }
+    }
+
+    /**
+     * Runs one cycle.
+     * @param sequence The sample sequence number driving the cycle, or -1 in periodic mode
+     */
+    private void cycle(long sequence) {
+        synchronized (lock) {
+            long start = System.nanoTime();
+            boolean overrun = false;
+            double dt = period;
+            double sampleUT = Double.NaN;
+            long arrival = start;
+
+            if (sequence >= 0) {
+                sampleUT = krpc.getSampleUT();
+                arrival = krpc.getSampleArrivalNanos();
+                double jitter = Math.max(start - arrival, 0L) / 1e9;
+                updateJitter(jitter);
+                overrun = lastSequence != 0 && sequence - lastSequence > 1;
+                lastSequence = sequence;
+            }
+            if (lastStartNanos != 0) {
+                long actual = start - lastStartNanos;
+                dt = actual / 1e9;
+                double rate = 1.0 / dt;
+                cycleRate = cycleRate == 0.0 ? rate : cycleRate + (rate - cycleRate) * RATE_SMOOTHING;
+                if (sequence < 0) {
+                    updateJitter(Math.abs(actual - periodNanos) / 1e9);
+                    overrun = actual > periodNanos + periodNanos / 2;
+                }
+            }
+            lastStartNanos = start;
+
+            VesselStreams streams = krpc.getVesselStreams();
+            if (streams != null) {
+                if (sequence < 0 && estimator != null) {
+                    // No sample clock to step the estimator, so step it here on local time
+                    estimator.update(streams, start / 1e9);
+                }
+                snapshot.update(streams, start, sampleUT, arrival, actuators.getRoundTripSeconds(), estimator);
+                lastHorizon = snapshot.getHorizon();
+                ControlLaw[] armed = laws;
+                for (int i = 0; i < armed.length; i++) {
+                    try {
+                        armed[i].update(snapshot, actuators, dt);
+                    } catch (Exception e) {
+                        DriverStation.reportError("Control law failed: " + e.getMessage(), e.getStackTrace());
+                    }
+                }
+            }
+
+            long elapsed = System.nanoTime() - start;
+            lastCycleSeconds = elapsed / 1e9;
+            if (overrun || elapsed > periodNanos) {
+                overruns++;
+            }
+            cycles++;
+        }
+    }
+
+    /**
+     * Fills a snapshot from the latest stream values, for code that reads telemetry off the
+     * loop thread. The snapshot must be owned by the caller, never the loop's own.
+     * @param out The snapshot to fill
+     * @return False if no vessel is bound and the snapshot was left unchanged
+     */
+    public boolean sample(TelemetrySnapshot out) {
+        VesselStreams streams = krpc.getVesselStreams();
+        if (streams == null) {
+            return false;
+        }
+        long now = System.nanoTime();
+        boolean clock = krpc.hasSampleClock();
+        out.update(streams, now,
+            clock ? krpc.getSampleUT() : Double.NaN,
+            clock ? krpc.getSampleArrivalNanos() : now,
+            actuators.getRoundTripSeconds(), estimator);
+        return true;
+    }
+
+    private void updateJitter(double jitter) {
+        meanJitter += (jitter - meanJitter) * JITTER_SMOOTHING;
+        if (jitter > maxJitter) {
+            maxJitter = jitter;
+        }
+    }
+
+    /**
+     * Publishes loop timing. Intended to be called from a subsystem's periodic().
+     */
+    public void publishTelemetry() {
+        meanJitterPublisher.set(meanJitter * 1000.0);
+        maxJitterPublisher.set(maxJitter * 1000.0);
+        cycleTimePublisher.set(lastCycleSeconds * 1000.0);
+        cycleRatePublisher.set(cycleRate);
+        horizonPublisher.set(lastHorizon * 1000.0);
+        overrunsPublisher.set(overruns);
+        cyclesPublisher.set(cycles);
+        armedPublisher.set(laws.length);
+        sampleDrivenPublisher.set(sampleDriven);
+    }
+
+    /**
+     * Clears the jitter, rate and overrun statistics.
+     */
+    public void resetStatistics() {
+        synchronized (lock) {
+            meanJitter = 0.0;
+            maxJitter = 0.0;
+            cycleRate = 0.0;
+            overruns = 0;
+            cycles = 0;
+        }
+    }
+
+    public double getPeriod() { return period; }
+    public ActuatorChannel getActuators() { return actuators; }
+    public boolean isSampleDriven() { return sampleDriven; }
+    public double getMeanJitter() { return meanJitter; }
+    public double getMaxJitter() { return maxJitter; }
+    /** @return Smoothed cycles per second while a law is armed, 0 before the second cycle */
+    public double getCycleRate() { return cycleRate; }
+    public long getOverruns() { return overruns; }
+    public long getCycles() { return cycles; }
+
+    @Override
+    public void close() {
+        krpc.removeSampleListener(sampleListener);
+        synchronized (lock) {
+            running = false;
+            laws = new ControlLaw[0];
+        }
+        LockSupport.unpark(thread);
+        meanJitterPublisher.close();
+        maxJitterPublisher.close();
+        cycleTimePublisher.close();
+        cycleRatePublisher.close();
+        horizonPublisher.close();
+        overrunsPublisher.close();
+        cyclesPublisher.close();
+        armedPublisher.close();
+        sampleDrivenPublisher.close();
+    }
+}
@@ -0,0 +1,197 @@
+// Copyright (c) 2024 : FRC 2106 : The Junkyard Dogs
+// https://github.com/WindingMotor
+// https://www.team2106.org
+
+// Use of this source code is governed by an MIT-style
+// license that can be found in the LICENSE file at
+// the root directory of this project.
+
+package frc.robot.control;
+
+import frc.robot.krpc.VesselStreams;
+
+/**
+ * The telemetry a control law sees in one cycle.
+ *
+ * <p>A single instance is owned by the {@link ControlLoopExecutor} and refilled in place from
+ * the latest stream values at the start of every cycle, so reading it allocates nothing. Laws
+ * must not keep a reference to it beyond the current cycle.
+ *
+ * <p>Each sample is tagged with the server's universal time and its local arrival time. Since a
+ * law's output reaches the vessel only after the sample aged in this process and the write
+ * crossed the connection, the snapshot also projects altitude and vertical velocity forward by
+ * that horizon. The projection starts from the {@link VerticalStateEstimator}'s filtered state
+ * when it is valid, and from the raw sample otherwise.
+ */
+public class TelemetrySnapshot {
+    private long sequence;
+    private long timestampNanos;
+    private double altitude;
+    private double verticalVelocity;
+    private double surfaceSpeed;
+    private double orbitalSpeed;
+    private double dynamicPressure;
+    private double apoapsis;
+    private double surfaceAltitude;
+    private double mass;
+    private double availableThrust;
+    private double throttle;
+    private int stage;
+
+    // Attitude: rotation from the vessel frame to the surface frame, then body rates
+    private final double[] attitude = new double[7];
+    private boolean attitudeValid;
+
+    // Sample tags
+    private double ut;
+    private long arrivalNanos;
+
+    // Filtered state, copied from the estimator
+    private boolean estimateValid;
+    private double estimateTime;
+    private double estimatedAltitude;
+    private double estimatedVerticalVelocity;
+    private double verticalAcceleration;
+    private double altitudeVariance;
+    private double velocityVariance;
+    private double accelerationVariance;
+
+    // Projection
+    private static final double MAX_HORIZON = 0.25;
+    private double horizon;
+    private double projectedAltitude;
+    private double projectedVerticalVelocity;
+
+    /**
+     * Refills the snapshot from the latest stream values and projects it forward.
+     * @param streams The active vessel's streams
+     * @param nowNanos Local time of the read, from {@link System#nanoTime()}
+     * @param sampleUT Server universal time of the sample, or NaN if unknown
+     * @param sampleArrivalNanos Local arrival time of the sample
+     * @param roundTripSeconds Measured write round trip, added to the sample's age
+     * @param estimator The vertical state estimator, or null to project raw values
+     */
+    void update(VesselStreams streams, long nowNanos, double sampleUT,
+                long sampleArrivalNanos, double roundTripSeconds,
+                VerticalStateEstimator estimator) {
+        sequence++;
+        timestampNanos = nowNanos;
+        ut = sampleUT;
+        arrivalNanos = sampleArrivalNanos;
+        altitude = streams.getAltitude();
+        verticalVelocity = streams.getVerticalSpeed();
+        surfaceSpeed = streams.getSurfaceSpeed();
+        orbitalSpeed = streams.getOrbitalSpeed();
+        dynamicPressure = streams.getDynamicPressure();
+        apoapsis = streams.getApoapsisAltitude();
+        surfaceAltitude = streams.getSurfaceAltitude();
+        mass = streams.getMass();
+        availableThrust = streams.getAvailableThrust();
+        throttle = streams.getThrottle();
+        stage = streams.getCurrentStage();
+        attitudeValid = streams.getAttitude(attitude);
+
+        if (estimator != null) {
+            estimator.readInto(this);
+        } else {
+            estimateValid = false;
+        }
+        double h = altitude;
+        double v = verticalVelocity;
+        double a = 0.0;
+        if (estimateValid) {
+            h = estimatedAltitude;
+            v = estimatedVerticalVelocity;
+            a = verticalAcceleration;
+        }
+
+        double age = Math.max(nowNanos - sampleArrivalNanos, 0L) / 1e9;
+        horizon = Math.min(age + roundTripSeconds, MAX_HORIZON);
+        projectedVerticalVelocity = v + a * horizon;
+        projectedAltitude = h + v * horizon + 0.5 * a * horizon * horizon;
+    }
+
+    /**
+     * Stores the estimator's state. Called by {@link VerticalStateEstimator#readInto}.
+     */
+    void setEstimate(boolean valid, double time, double altitude, double verticalVelocity,
+                     double acceleration, double altitudeVariance, double velocityVariance,
+                     double accelerationVariance) {
+        this.estimateValid = valid;
+        this.estimateTime = time;
+        this.estimatedAltitude = altitude;
+        this.estimatedVerticalVelocity = verticalVelocity;
+        this.verticalAcceleration = acceleration;
+        this.altitudeVariance = altitudeVariance;
+        this.velocityVariance = velocityVariance;
+        this.accelerationVariance = accelerationVariance;
+    }
+
+    /** @return Cycle counter, increases by one per refill */
+    public long getSequence() { return sequence; }
+    /** @return Local time of the read, from {@link System#nanoTime()} */
+    public long getTimestampNanos() { return timestampNanos; }
+    /** @return Mean altitude in meters */
+    public double getAltitude() { return altitude; }
+    /** @return Raw vertical velocity in m/s, positive up: surface velocity along local up */
+    public double getVerticalVelocity() { return verticalVelocity; }
+    /** @return Surface speed in m/s */
+    public double getSurfaceSpeed() { return surfaceSpeed; }
+    /** @return Orbital speed in m/s */
+    public double getOrbitalSpeed() { return orbitalSpeed; }
+    /** @return Dynamic pressure in Pa */
+    public double getDynamicPressure() { return dynamicPressure; }
+    /** @return Apoapsis altitude in meters */
+    public double getApoapsis() { return apoapsis; }
+    /** @return Altitude above the terrain in meters */
+    public double getSurfaceAltitude() { return surfaceAltitude; }
+    /** @return Vessel mass in kg */
+    public double getMass() { return mass; }
+    /** @return Thrust of the active engines at full throttle, in N */
+    public double getAvailableThrust() { return availableThrust; }
+    /** @return True if the attitude fields hold a streamed value */
+    public boolean isAttitudeValid() { return attitudeValid; }
+    /** @return Rotation quaternion x, from the vessel frame (x right, y forward, z down) to the surface frame (x up, y north, z east) */
+    public double getRotationX() { return attitude[0]; }
+    public double getRotationY() { return attitude[1]; }
+    public double getRotationZ() { return attitude[2]; }
+    public double getRotationW() { return attitude[3]; }
+    /** @return Rotation rate about the vessel's pitch (right) axis in rad/s */
+    public double getPitchRate() { return attitude[4]; }
+    /** @return Rotation rate about the vessel's roll (forward) axis in rad/s */
+    public double getRollRate() { return attitude[5]; }
+    /** @return Rotation rate about the vessel's yaw (down) axis in rad/s */
+    public double getYawRate() { return attitude[6]; }
+    /** @return Sample time in seconds: server UT when streamed, otherwise local time */
+    public double getTime() { return Double.isNaN(ut) ? timestampNanos / 1e9 : ut; }
+    /** @return Throttle reported by the vessel, between 0.0 and 1.0 */
+    public double getThrottle() { return throttle; }
+    /** @return Current stage, or -1 if unavailable */
+    public int getStage() { return stage; }
+    /** @return Server universal time of the sample, or NaN if the server clock is not streamed */
+    public double getUT() { return ut; }
+    /** @return Local arrival time of the sample, from {@link System#nanoTime()} */
+    public long getArrivalNanos() { return arrivalNanos; }
+    /** @return True if the estimate fields hold a filtered state */
+    public boolean isEstimateValid() { return estimateValid; }
+    /** @return Time of the filtered state in seconds, server UT when available */
+    public double getEstimateTime() { return estimateTime; }
+    /** @return Filtered altitude in meters */
+    public double getEstimatedAltitude() { return estimatedAltitude; }
+    /** @return Filtered vertical velocity in m/s, positive up */
+    public double getEstimatedVerticalVelocity() { return estimatedVerticalVelocity; }
+    /** @return Filtered vertical acceleration in m/s^2, positive up */
+    public double getVerticalAcceleration() { return verticalAcceleration; }
+    /** @return Variance of the filtered altitude in m^2 */
+    public double getAltitudeVariance() { return altitudeVariance; }
+    /** @return Variance of the filtered vertical velocity in (m/s)^2 */
+    public double getVelocityVariance() { return velocityVariance; }
+    /** @return Variance of the filtered acceleration in (m/s^2)^2 */
+    public double getAccelerationVariance() { return accelerationVariance; }
+    /** @return Seconds the projected values lead the sample: its age plus the write round trip */
+    public double getHorizon() { return horizon; }
+    /** @return Altitude projected to when this cycle's output takes effect */
+    public double getProjectedAltitude() { return projectedAltitude; }
+    /** @return Vertical velocity projected to when this cycle's output takes effect */
+    public double getProjectedVerticalVelocity() { return projectedVerticalVelocity; }
+}
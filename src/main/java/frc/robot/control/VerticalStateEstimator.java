@@ -0,0 +1,317 @@
+// Copyright (c) 2024 : FRC 2106 : The Junkyard Dogs
+// https://github.com/WindingMotor
+// https://www.team2106.org
+
+// Use of this source code is governed by an MIT-style
+// license that can be found in the LICENSE file at
+// the root directory of this project.
+
+package frc.robot.control;
+
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import frc.robot.krpc.KRPCWrapper;
+import frc.robot.krpc.VesselStreams;
+
+/**
+ * Kalman filter for the vessel's vertical state: altitude, vertical speed and vertical
+ * acceleration.
+ *
+ * <p>The model is constant acceleration driven by white jerk noise. Throttle enters as a known
+ * input: a change in throttle changes the acceleration by the change in thrust over mass,
+ * times the up component of the thrust axis from the streamed rotation, so a throttle step
+ * during a gravity turn moves the vertical acceleration only by its vertical share. Each
+ * sample is fused as two scalar updates, altitude and then vertical speed, so no matrix is ever
+ * inverted and the covariance lives in six fields. Measurements far outside the predicted
+ * spread are rejected instead of fused.
+ *
+ * <p>The filter steps once per server sample on the stream thread, using server time for the
+ * step, so irregular sample spacing and time warp are handled. Readers get a consistent copy of
+ * the estimate without locking or RPCs. Nothing allocates per step.
+ */
+public class VerticalStateEstimator implements AutoCloseable {
+    // Measurement variances
+    private static final double ALTITUDE_VARIANCE = 4.0; // m^2
+    private static final double VELOCITY_VARIANCE = 0.25; // (m/s)^2
+    // Spectral density of the jerk noise, (m/s^3)^2 / Hz
+    private static final double JERK_DENSITY = 4.0;
+    // Innovations beyond this many standard deviations (squared) are rejected
+    private static final double GATE = 25.0;
+    // Gaps longer than this restart the filter from the next measurement
+    private static final double MAX_STEP = 1.0;
+    private static final double INITIAL_ACCELERATION_VARIANCE = 100.0;
+    // This many steps in a row with a rejection mean the state is wrong, not the measurements
+    private static final int MAX_CONSECUTIVE_REJECTIONS = 5;
+
+    private final KRPCWrapper krpc;
+    private final Runnable sampleListener;
+    private final double[] attitude = new double[7];
+
+    // State and covariance, touched only under the monitor
+    private boolean initialized;
+    private double lastTime = Double.NaN;
+    private double lastThrustAcceleration;
+    private double h, v, a;
+    private double p00, p01, p02, p11, p12, p22;
+    private long rejected;
+    private int consecutiveRejections;
+
+    // Published estimate, guarded by a sequence counter that is odd while a write is in progress
+    private volatile long version;
+    private volatile boolean valid;
+    private volatile double time;
+    private volatile double altitude;
+    private volatile double verticalSpeed;
+    private volatile double acceleration;
+    private volatile double altitudeVariance;
+    private volatile double speedVariance;
+    private volatile double accelerationVariance;
+
+    private final DoublePublisher altitudePublisher;
+    private final DoublePublisher speedPublisher;
+    private final DoublePublisher accelerationPublisher;
+    private final DoublePublisher altitudeSigmaPublisher;
+    private final DoublePublisher speedSigmaPublisher;
+    private final DoublePublisher accelerationSigmaPublisher;
+    private final IntegerPublisher rejectedPublisher;
+
+    /**
+     * Creates an estimator that steps on every sample of the wrapper's sample clock.
+     * @param krpc The wrapper whose vessel streams are fused
+     */
+    public VerticalStateEstimator(KRPCWrapper krpc) {
+        this.krpc = krpc;
+
+        NetworkTable table = NetworkTableInstance.getDefault().getTable("Estimator");
+        altitudePublisher = table.getDoubleTopic("Altitude").publish();
+        speedPublisher = table.getDoubleTopic("Vertical Speed").publish();
+        accelerationPublisher = table.getDoubleTopic("Acceleration").publish();
+        altitudeSigmaPublisher = table.getDoubleTopic("Altitude Sigma").publish();
+        speedSigmaPublisher = table.getDoubleTopic("Vertical Speed Sigma").publish();
+        accelerationSigmaPublisher = table.getDoubleTopic("Acceleration Sigma").publish();
+        rejectedPublisher = table.getIntegerTopic("Rejected").publish();
+
+        sampleListener = () -> {
+            VesselStreams streams = krpc.getVesselStreams();
+            if (streams != null) {
+                update(streams, krpc.getSampleUT());
+            }
+        };
+        krpc.addSampleListener(sampleListener);
+    }
+
+    /**
+     * Steps the filter with the latest stream values.
+     * @param streams The active vessel's streams
+     * @param now Time of the sample in seconds; server UT when available
+     */
+    public synchronized void update(VesselStreams streams, double now) {
+        double measuredAltitude = streams.getAltitude();
+        double measuredSpeed = streams.getVerticalSpeed();
+        double mass = streams.getMass();
+        double thrustAcceleration = mass > 0.0
+            ? streams.getThrottle() * streams.getAvailableThrust() / mass * thrustAxisUp(streams)
+            : 0.0;
+
+        double dt = now - lastTime;
+        if (!initialized || !(dt >= 0.0) || dt > MAX_STEP
+                || consecutiveRejections >= MAX_CONSECUTIVE_REJECTIONS) {
+            // First sample, a revert, a vessel switch or a long pause
+            initialize(measuredAltitude, measuredSpeed);
+        } else if (dt > 0.0) {
+            predict(dt, thrustAcceleration - lastThrustAcceleration);
+            boolean fused = correctAltitude(measuredAltitude);
+            fused &= correctSpeed(measuredSpeed);
+            consecutiveRejections = fused ? 0 : consecutiveRejections + 1;
+        } else {
+            // Same server time: nothing new to fuse
+            return;
+        }
+        lastTime = now;
+        lastThrustAcceleration = thrustAcceleration;
+        publish(now);
+    }
+
+    /**
+     * Gets the up component of the vessel's forward axis, along which the engines push: the
+     * surface frame's x component of the vessel frame's y axis under the streamed rotation.
+     * Without a rotation the vessel is taken to be vertical.
+     */
+    private double thrustAxisUp(VesselStreams streams) {
+        if (!streams.getAttitude(attitude)) {
+            return 1.0;
+        }
+        double qx = attitude[0], qy = attitude[1], qz = attitude[2], qw = attitude[3];
+        return 2.0 * (qx * qy - qz * qw);
+    }
+
+    private void initialize(double measuredAltitude, double measuredSpeed) {
+        h = measuredAltitude;
+        v = measuredSpeed;
+        a = 0.0;
+        p00 = ALTITUDE_VARIANCE;
+        p11 = VELOCITY_VARIANCE;
+        p22 = INITIAL_ACCELERATION_VARIANCE;
+        p01 = 0.0;
+        p02 = 0.0;
+        p12 = 0.0;
+        initialized = true;
+        consecutiveRejections = 0;
+    }
+
+    private void predict(double dt, double inputAcceleration) {
+        double half = 0.5 * dt * dt;
+
+        h += v * dt + a * half;
+        v += a * dt;
+        a += inputAcceleration;
+
+        // P = F P F' + Q, with F = [1 dt dt^2/2; 0 1 dt; 0 0 1]
+        double a00 = p00 + dt * p01 + half * p02;
+        double a01 = p01 + dt * p11 + half * p12;
+        double a02 = p02 + dt * p12 + half * p22;
+        double a11 = p11 + dt * p12;
+        double a12 = p12 + dt * p22;
+
+        double dt2 = dt * dt;
+        double dt3 = dt2 * dt;
+        p00 = a00 + dt * a01 + half * a02 + JERK_DENSITY * dt3 * dt2 / 20.0;
+        p01 = a01 + dt * a02 + JERK_DENSITY * dt2 * dt2 / 8.0;
+        p02 = a02 + JERK_DENSITY * dt3 / 6.0;
+        p11 = a11 + dt * a12 + JERK_DENSITY * dt3 / 3.0;
+        p12 = a12 + JERK_DENSITY * dt2 / 2.0;
+        p22 = p22 + JERK_DENSITY * dt;
+    }
+
+    private boolean correctAltitude(double measured) {
+        double innovation = measured - h;
+        double s = p00 + ALTITUDE_VARIANCE;
+        if (innovation * innovation > GATE * s) {
+            rejected++;
+            return false;
+        }
+        double k0 = p00 / s;
+        double k1 = p01 / s;
+        double k2 = p02 / s;
+        h += k0 * innovation;
+        v += k1 * innovation;
+        a += k2 * innovation;
+
+        // P -= K * (row 0 of P)
+        double r0 = p00, r1 = p01, r2 = p02;
+        p00 -= k0 * r0;
+        p01 -= k0 * r1;
+        p02 -= k0 * r2;
+        p11 -= k1 * r1;
+        p12 -= k1 * r2;
+        p22 -= k2 * r2;
+        return true;
+    }
+
+    private boolean correctSpeed(double measured) {
+        double innovation = measured - v;
+        double s = p11 + VELOCITY_VARIANCE;
+        if (innovation * innovation > GATE * s) {
+            rejected++;
+            return false;
+        }
+        double k0 = p01 / s;
+        double k1 = p11 / s;
+        double k2 = p12 / s;
+        h += k0 * innovation;
+        v += k1 * innovation;
+        a += k2 * innovation;
+
+        // P -= K * (row 1 of P)
+        double r0 = p01, r1 = p11, r2 = p12;
+        p00 -= k0 * r0;
+        p01 -= k0 * r1;
+        p02 -= k0 * r2;
+        p11 -= k1 * r1;
+        p12 -= k1 * r2;
+        p22 -= k2 * r2;
+        return true;
+    }
+
+    private void publish(double now) {
+        version++;
+        time = now;
+        altitude = h;
+        verticalSpeed = v;
+        acceleration = a;
+        altitudeVariance = p00;
+        speedVariance = p11;
+        accelerationVariance = p22;
+        valid = true;
+        version++;
+    }
+
+    /**
+     * Copies a consistent estimate into a snapshot. Spins only while a step is being published.
+     * @param snapshot The snapshot to fill
+     */
+    void readInto(TelemetrySnapshot snapshot) {
+        long before;
+        do {
+            before = version;
+            snapshot.setEstimate(valid, time, altitude, verticalSpeed, acceleration,
+                altitudeVariance, speedVariance, accelerationVariance);
+        } while ((before & 1L) != 0 || before != version);
+    }
+
+    /**
+     * Discards the estimate; the next sample restarts the filter.
+     */
+    public synchronized void reset() {
+        initialized = false;
+        lastTime = Double.NaN;
+        version++;
+        valid = false;
+        version++;
+    }
+
+    /** @return True once the filter has fused at least one sample */
+    public boolean isValid() { return valid; }
+    /** @return Filtered altitude in meters */
+    public double getAltitude() { return altitude; }
+    /** @return Filtered vertical speed in m/s, positive up */
+    public double getVerticalSpeed() { return verticalSpeed; }
+    /** @return Filtered vertical acceleration in m/s^2, positive up */
+    public double getAcceleration() { return acceleration; }
+    /** @return Altitude variance in m^2 */
+    public double getAltitudeVariance() { return altitudeVariance; }
+    /** @return Vertical speed variance in (m/s)^2 */
+    public double getSpeedVariance() { return speedVariance; }
+    /** @return Acceleration variance in (m/s^2)^2 */
+    public double getAccelerationVariance() { return accelerationVariance; }
+    /** @return Number of measurements rejected by the gate */
+    public synchronized long getRejected() { return rejected; }
+
+    /**
+     * Publishes the estimate and its standard deviations. Intended to be called from a
+     * subsystem's periodic().
+     */
+    public void publishTelemetry() {
+        altitudePublisher.set(altitude);
+        speedPublisher.set(verticalSpeed);
+        accelerationPublisher.set(acceleration);
+        altitudeSigmaPublisher.set(Math.sqrt(Math.max(altitudeVariance, 0.0)));
+        speedSigmaPublisher.set(Math.sqrt(Math.max(speedVariance, 0.0)));
+        accelerationSigmaPublisher.set(Math.sqrt(Math.max(accelerationVariance, 0.0)));
+        rejectedPublisher.set(getRejected());
+    }
+
+    @Override
+    public void close() {
+        krpc.removeSampleListener(sampleListener);
+        altitudePublisher.close();
+        speedPublisher.close();
+        accelerationPublisher.close();
+        altitudeSigmaPublisher.close();
+        speedSigmaPublisher.close();
+        accelerationSigmaPublisher.close();
+        rejectedPublisher.close();
+    }
+}
@@ -0,0 +1,163 @@
+// Copyright (c) 2024 : FRC 2106 : The Junkyard Dogs
+// https://github.com/WindingMotor
+// https://www.team2106.org
+
+// Use of this source code is governed by an MIT-style
+// license that can be found in the LICENSE file at
+// the root directory of this project.
+
+package frc.robot.krpc;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import frc.robot.util.KSPPartType;
+import krpc.client.RPCException;
+import krpc.client.services.SpaceCenter;
+
+/**
+ * Maps (part type, tag) groups onto KSP's custom action groups, so a whole group is actuated
+ * with one {@code setActionGroup} or {@code toggleActionGroup} call however many parts it holds.
+ *
+ * <p>kRPC cannot add parts to an action group, so the group has to be assigned in the editor;
+ * {@link #bind} only records which group a tagged set of parts was assigned to. The state of
+ * every bound group is read once when bound and after a vessel change, then kept locally:
+ * setting a group to the state it already has costs no RPC. A group toggled in game from the
+ * keyboard is not seen until {@link #resync} is called.
+ */
+public class ActionGroupBindings {
+    /** Highest custom action group; kRPC numbers them 0 to 9, 0 being the tenth. */
+    public static final int MAX_GROUP = 9;
+
+    private record Key(KSPPartType partType, String tag) {}
+    private record Binding(int group, int partCount) {}
+
+    private final Map<Key, Binding> bindings = new ConcurrentHashMap<>();
+    private final boolean[] states = new boolean[MAX_GROUP + 1];
+
+    /**
+     * Records that the parts of a type carrying a tag were assigned to an action group in the
+     * editor, and reads the group's current state. Setup time only, issues one RPC.
+     * @param control The active vessel's control
+     * @param partType The type of part
+     * @param tag The part tag
+     * @param group Action group number, 0 to 9
+     * @param partCount Number of parts in the group, reported as the activated count
+     * @return true if the group state could be read
+     */
+    public boolean bind(SpaceCenter.Control control, KSPPartType partType, String tag, int group, int partCount) {
+        if (group < 0 || group > MAX_GROUP) {
+            throw new IllegalArgumentException("Action group must be 0 to " + MAX_GROUP + ": " + group);
+        }
+        bindings.put(new Key(partType, tag), new Binding(group, partCount));
+        try {
+            boolean state = control.getActionGroup(group);
+            synchronized (states) {
+                states[group] = state;
+            }
+            return true;
+        } catch (RPCException e) {
+            DriverStation.reportError("Failed to read action group " + group + ": " + e.getMessage(), false);
+            return false;
+        }
+    }
+
+    /**
+     * Gets the action group bound to a part type and tag.
+     * @return The group number, or -1 if the group is not bound
+     */
+    public int getGroup(KSPPartType partType, String tag) {
+        Binding binding = bindings.get(new Key(partType, tag));
+        return binding != null ? binding.group() : -1;
+    }
+
+    /**
+     * Gets the number of parts recorded for a bound group.
+     * @return The part count, or 0 if the group is not bound
+     */
+    public int getPartCount(KSPPartType partType, String tag) {
+        Binding binding = bindings.get(new Key(partType, tag));
+        return binding != null ? binding.partCount() : 0;
+    }
+
+    public boolean isBound(KSPPartType partType, String tag) {
+        return bindings.containsKey(new Key(partType, tag));
+    }
+
+    /**
+     * Sets a bound group on or off. Skips the RPC if the cached state already matches.
+     * @param control The active vessel's control
+     * @param partType The type of part
+     * @param tag The part tag
+     * @param active The state to set
+     * @return true if the group is bound and now has the state
+     * @throws RPCException If the write fails
+     */
+    public boolean set(SpaceCenter.Control control, KSPPartType partType, String tag, boolean active) throws RPCException {
+        int group = getGroup(partType, tag);
+        if (group < 0) {
+            return false;
+        }
+        synchronized (states) {
+            if (states[group] != active) {
+                control.setActionGroup(group, active);
+                states[group] = active;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Toggles a bound group.
+     * @param control The active vessel's control
+     * @param partType The type of part
+     * @param tag The part tag
+     * @return The new state, as cached
+     * @throws RPCException If the write fails
+     * @throws IllegalStateException If the group is not bound
+     */
+    public boolean toggle(SpaceCenter.Control control, KSPPartType partType, String tag) throws RPCException {
+        int group = getGroup(partType, tag);
+        if (group < 0) {
+            throw new IllegalStateException("No action group bound to " + partType + " '" + tag + "'");
+        }
+        synchronized (states) {
+            control.toggleActionGroup(group);
+            states[group] = !states[group];
+            return states[group];
+        }
+    }
+
+    /**
+     * Gets the cached state of a bound group, without an RPC.
+     * @return The state, or false if the group is not bound
+     */
+    public boolean getState(KSPPartType partType, String tag) {
+        int group = getGroup(partType, tag);
+        if (group < 0) {
+            return false;
+        }
+        synchronized (states) {
+            return states[group];
+        }
+    }
+
+    /**
+     * Reads the state of every bound group again, one RPC per group. Called after a vessel
+     * change; call it too if groups may have been toggled in game.
+     * @param control The active vessel's control
+     */
+    public void resync(SpaceCenter.Control control) {
+        for (int group : bindings.values().stream().mapToInt(Binding::group).distinct().toArray()) {
+            try {
+                boolean state = control.getActionGroup(group);
+                synchronized (states) {
+                    states[group] = state;
+                }
+            } catch (RPCException e) {
+                DriverStation.reportError("Failed to read action group " + group + ": " + e.getMessage(), false);
+            }
+        }
+    }
+}
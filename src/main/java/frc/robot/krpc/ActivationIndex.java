@@ -0,0 +1,181 @@
+// Copyright (c) 2024 : FRC 2106 : The Junkyard Dogs
+// https://github.com/WindingMotor
+// https://www.team2106.org
+
+// Use of this source code is governed by an MIT-style
+// license that can be found in the LICENSE file at
+// the root directory of this project.
+
+package frc.robot.krpc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import frc.robot.util.KSPPartType;
+import krpc.client.RPCException;
+import krpc.client.services.SpaceCenter;
+
+/**
+ * Local index of (part type, tag) to the resolved module handles and action field names.
+ *
+ * <p>The first lookup of a key issues the discovery RPCs ({@code withTag}, {@code getModules},
+ * {@code getName}, {@code getFields}); every later lookup is a map hit, so activating a tagged
+ * group only costs the field writes themselves. The index is cleared when the vessel changes
+ * or the current stage changes, since staging is when parts leave the vessel, and a single key
+ * can be dropped when one of its handles goes stale.
+ */
+public class ActivationIndex {
+    private record Key(KSPPartType partType, String tag) {}
+
+    /**
+     * The modules of one (part type, tag) group and the field that activates each of them.
+     */
+    public static final class Binding {
+        private final int taggedPartCount;
+        private final List<SpaceCenter.Module> modules;
+        private final List<String> actionFields;
+
+        private Binding(int taggedPartCount, List<SpaceCenter.Module> modules, List<String> actionFields) {
+            this.taggedPartCount = taggedPartCount;
+            this.modules = Collections.unmodifiableList(modules);
+            this.actionFields = Collections.unmodifiableList(actionFields);
+        }
+
+        /** @return Number of parts carrying the tag, whether or not they matched the type */
+        public int getTaggedPartCount() { return taggedPartCount; }
+        /** @return Number of resolved modules */
+        public int size() { return modules.size(); }
+        public SpaceCenter.Module getModule(int i) { return modules.get(i); }
+        public String getActionField(int i) { return actionFields.get(i); }
+    }
+
+    private final Map<Key, Binding> bindings = new ConcurrentHashMap<>();
+    private volatile int indexedStage = Integer.MIN_VALUE;
+
+    /**
+     * Gets the binding for a part type and tag, resolving it on the first call.
+     * @param vessel The active vessel
+     * @param partType The type of part
+     * @param tag The part tag
+     * @param debug If true, reports available modules and fields while resolving
+     * @return The resolved binding
+     * @throws RPCException If the tagged parts cannot be listed
+     */
+    public Binding resolve(SpaceCenter.Vessel vessel, KSPPartType partType, String tag, boolean debug) throws RPCException {
+        Key key = new Key(partType, tag);
+        Binding binding = bindings.get(key);
+        if (binding == null) {
+            binding = build(vessel, partType, tag, debug);
+            bindings.put(key, binding);
+        }
+        return binding;
+    }
+
+    private static Binding build(SpaceCenter.Vessel vessel, KSPPartType partType, String tag, boolean debug) throws RPCException {
+        List<SpaceCenter.Part> parts = vessel.getParts().withTag(tag);
+        List<SpaceCenter.Module> modules = new ArrayList<>();
+        List<String> actionFields = new ArrayList<>();
+
+        for (SpaceCenter.Part part : parts) {
+            try {
+                List<SpaceCenter.Module> partModules = part.getModules();
+                if (debug) {
+                    DriverStation.reportWarning(
+                        String.format("Processing part '%s' with %d modules",
+                        part.getName(), partModules.size()), false);
+                }
+
+                // Find the first matching module
+                SpaceCenter.Module targetModule = null;
+                for (SpaceCenter.Module module : partModules) {
+                    if (module.getName().equals(partType.getModuleName())) {
+                        targetModule = module;
+                        break;
+                    }
+                }
+                if (targetModule == null) {
+                    if (debug) {
+                        StringBuilder moduleList = new StringBuilder("Available modules: ");
+                        for (SpaceCenter.Module module : partModules) {
+                            moduleList.append(module.getName()).append(", ");
+                        }
+                        DriverStation.reportWarning(moduleList.toString(), false);
+                    }
+                    continue;
+                }
+
+                Map<String, String> fields = targetModule.getFields();
+                if (debug) {
+                    DriverStation.reportWarning("Available fields: " + String.join(", ", fields.keySet()), false);
+                }
+
+                String actionField = findActionField(partType, fields);
+                if (actionField != null) {
+                    modules.add(targetModule);
+                    actionFields.add(actionField);
+                } else if (partType == KSPPartType.FAIRING) {
+                    DriverStation.reportWarning("Could not find valid deploy/jettison field for fairing", false);
+                } else {
+                    DriverStation.reportWarning(
+                        String.format("Action field '%s' not found in available fields",
+                        partType.getActionField()), false);
+                }
+            } catch (Exception e) {
+                DriverStation.reportError("Failed to process part: " + e.getMessage(), false);
+            }
+        }
+        return new Binding(parts.size(), modules, actionFields);
+    }
+
+    private static String findActionField(KSPPartType partType, Map<String, String> fields) {
+        if (partType == KSPPartType.FAIRING) {
+            // Fairing field names differ between fairing modules, match them loosely
+            for (String fieldName : fields.keySet()) {
+                String fieldLower = fieldName.toLowerCase();
+                if (fieldLower.contains("deploy") || fieldLower.contains("jettison")) {
+                    return fieldName;
+                }
+            }
+            return null;
+        }
+        return fields.containsKey(partType.getActionField()) ? partType.getActionField() : null;
+    }
+
+    /**
+     * Clears the index if the vessel has staged since it was built.
+     * @param currentStage The vessel's current stage
+     */
+    public void onStageChanged(int currentStage) {
+        if (currentStage != indexedStage) {
+            bindings.clear();
+            indexedStage = currentStage;
+        }
+    }
+
+    /**
+     * Drops the binding of one part type and tag, e.g. after one of its handles went stale.
+     */
+    public void invalidate(KSPPartType partType, String tag) {
+        bindings.remove(new Key(partType, tag));
+    }
+
+    /**
+     * Drops every binding. Called when the active vessel changes.
+     */
+    public void invalidate() {
+        bindings.clear();
+        indexedStage = Integer.MIN_VALUE;
+    }
+
+    /**
+     * Gets the number of indexed (part type, tag) groups.
+     * @return Number of bindings
+     */
+    public int size() {
+        return bindings.size();
+    }
+}
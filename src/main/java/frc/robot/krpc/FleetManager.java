@@ -0,0 +1,258 @@
+// Copyright (c) 2024 : FRC 2106 : The Junkyard Dogs
+// https://github.com/WindingMotor
+// https://www.team2106.org
+
+// Use of this source code is governed by an MIT-style
+// license that can be found in the LICENSE file at
+// the root directory of this project.
+
+package frc.robot.krpc;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import krpc.client.Connection;
+import krpc.client.services.SpaceCenter;
+
+/**
+ * Tracks several vessels over the wrapper's single kRPC connection.
+ *
+ * <p>Every tracked vessel gets its own {@link VesselStreams}, {@link PartTree} and a
+ * single-threaded executor; the active vessel shares the wrapper's streams instead of opening a
+ * second set, and gets its own once the wrapper rebinds elsewhere. A vessel whose streams fail,
+ * because it was destroyed, is untracked on the first failed refresh. The executor refreshes
+ * the vessel's {@link VesselSnapshot} and runs the control loops registered for that vessel,
+ * so independent vessels are controlled in parallel. The latest snapshot of every vessel is kept in a global id to state map that
+ * {@link #periodic()} publishes to the dashboard.
+ */
+public class FleetManager extends SubsystemBase implements AutoCloseable {
+    private static final long SNAPSHOT_PERIOD_MS = 20;
+
+    private final KRPCWrapper krpc;
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final Map<Integer, Member> members = new ConcurrentHashMap<>();
+    private final Map<Integer, VesselSnapshot> snapshots = new ConcurrentHashMap<>();
+
+    /**
+     * One tracked vessel and everything bound to it.
+     */
+    public static final class Member {
+        private final int id;
+        private final String name;
+        private final SpaceCenter.Vessel vessel;
+        private volatile VesselStreams streams;
+        // Shared streams belong to the wrapper and are never closed here
+        private volatile boolean sharedStreams;
+        private final PartTree partTree;
+        private final ScheduledExecutorService executor;
+        private volatile VesselSnapshot snapshot;
+
+        private Member(int id, String name, SpaceCenter.Vessel vessel, VesselStreams streams,
+                       boolean sharedStreams, PartTree partTree) {
+            this.id = id;
+            this.name = name;
+            this.vessel = vessel;
+            this.streams = streams;
+            this.sharedStreams = sharedStreams;
+            this.partTree = partTree;
+            this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Fleet-" + id + "-" + name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        /**
+         * Refreshes the snapshot from the streams.
+         * @return False if the streams failed and the vessel is gone
+         */
+        private boolean refreshSnapshot(Connection connection) {
+            if (!streams.isAlive()) {
+                if (!sharedStreams) {
+                    return false;
+                }
+                // The wrapper rebound to another vessel and closed the shared set
+                try {
+                    streams = VesselStreams.open(connection, vessel, false);
+                    sharedStreams = false;
+                } catch (Exception e) {
+                    return false;
+                }
+            }
+            snapshot = new VesselSnapshot(
+                id,
+                name,
+                streams.getAltitude(),
+                streams.getSurfaceSpeed(),
+                streams.getOrbitalSpeed(),
+                streams.getThrottle(),
+                streams.getCurrentStage(),
+                streams.getMass(),
+                Timer.getFPGATimestamp()
+            );
+            return true;
+        }
+
+        public int getId() { return id; }
+        public String getName() { return name; }
+        public VesselStreams getStreams() { return streams; }
+        public PartTree getPartTree() { return partTree; }
+        public VesselSnapshot getSnapshot() { return snapshot; }
+    }
+
+    /**
+     * Creates a new fleet manager sharing the wrapper's connection.
+     * @param krpc The connected wrapper
+     */
+    public FleetManager(KRPCWrapper krpc) {
+        this.krpc = krpc;
+    }
+
+    /**
+     * Starts tracking a vessel: opens its streams, reads its part tree and starts its executor.
+     * @param vessel The vessel to track
+     * @return The fleet id of the vessel, or -1 if it could not be tracked
+     */
+    public int track(SpaceCenter.Vessel vessel) {
+        return track(vessel, null);
+    }
+
+    /**
+     * Starts tracking a vessel.
+     * @param vessel The vessel to track
+     * @param shared Streams the wrapper already keeps open for the vessel, or null to open a set
+     * @return The fleet id of the vessel, or -1 if it could not be tracked
+     */
+    private int track(SpaceCenter.Vessel vessel, VesselStreams shared) {
+        try {
+            String name = vessel.getName();
+            VesselStreams streams = shared != null ? shared : VesselStreams.open(krpc.getConnection(), vessel, false);
+            PartTree partTree = null;
+            try {
+                partTree = PartTree.build(vessel);
+            } catch (Exception e) {
+                DriverStation.reportWarning("Failed to build part tree for " + name + ": " + e.getMessage(), false);
+            }
+
+            int id = nextId.getAndIncrement();
+            Member member = new Member(id, name, vessel, streams, shared != null, partTree);
+            members.put(id, member);
+            member.executor.scheduleAtFixedRate(() -> {
+                if (!member.refreshSnapshot(krpc.getConnection())) {
+                    DriverStation.reportWarning("Lost vessel " + member.name + ", untracking it", false);
+                    untrack(member.id);
+                    return;
+                }
+                VesselSnapshot snapshot = member.snapshot;
+                snapshots.put(member.id, snapshot);
+                // untrack() does not wait for a refresh in flight; drop what it put back
+                if (members.get(member.id) != member) {
+                    snapshots.remove(member.id, snapshot);
+                }
+            }, 0, SNAPSHOT_PERIOD_MS, TimeUnit.MILLISECONDS);
+            return id;
+        } catch (Exception e) {
+            DriverStation.reportError("Failed to track vessel: " + e.getMessage(), e.getStackTrace());
+            return -1;
+        }
+    }
+
+    /**
+     * Starts tracking the wrapper's current active vessel, sharing the wrapper's streams.
+     * @return The fleet id of the vessel, or -1 if it could not be tracked
+     */
+    public int trackActiveVessel() {
+        VesselStreams streams = krpc.getVesselStreams();
+        return streams != null ? track(streams.getVessel(), streams) : -1;
+    }
+
+    /**
+     * Stops tracking a vessel, cancelling its control loops and removing its streams. Does not
+     * wait for a refresh in flight; the refresh removes its own snapshot once it sees the
+     * vessel untracked.
+     * @param id Fleet id of the vessel
+     */
+    public void untrack(int id) {
+        Member member = members.remove(id);
+        if (member == null) {
+            return;
+        }
+        member.executor.shutdownNow();
+        if (!member.sharedStreams) {
+            member.streams.close();
+        }
+        snapshots.remove(id);
+    }
+
+    /**
+     * Runs a control loop for one vessel on that vessel's own executor.
+     * @param id Fleet id of the vessel
+     * @param loop The control loop, called with the vessel's member
+     * @param periodMs Loop period in milliseconds
+     * @return Handle used to cancel the loop, or null if the vessel is not tracked
+     */
+    public ScheduledFuture<?> addControlLoop(int id, Consumer<Member> loop, long periodMs) {
+        Member member = members.get(id);
+        if (member == null) {
+            DriverStation.reportError("Cannot add control loop: vessel " + id + " is not tracked.", false);
+            return null;
+        }
+        return member.executor.scheduleAtFixedRate(() -> {
+            try {
+                loop.accept(member);
+            } catch (Exception e) {
+                DriverStation.reportError("Control loop for " + member.name + " failed: " + e.getMessage(), e.getStackTrace());
+            }
+        }, 0, periodMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gets a tracked vessel.
+     * @param id Fleet id of the vessel
+     * @return The member, or null if the vessel is not tracked
+     */
+    public Member getMember(int id) {
+        return members.get(id);
+    }
+
+    /**
+     * Gets the latest snapshot of every tracked vessel.
+     * @return Read-only view of fleet id to snapshot
+     */
+    public Map<Integer, VesselSnapshot> getSnapshots() {
+        return Collections.unmodifiableMap(snapshots);
+    }
+
+    @Override
+    public void periodic() {
+        SmartDashboard.putNumber("Fleet/Count", snapshots.size());
+        for (VesselSnapshot snapshot : snapshots.values()) {
+            String prefix = "Fleet/" + snapshot.id() + "/";
+            SmartDashboard.putString(prefix + "Name", snapshot.name());
+            SmartDashboard.putNumber(prefix + "Altitude", snapshot.altitude());
+            SmartDashboard.putNumber(prefix + "Surface Speed", snapshot.surfaceSpeed());
+            SmartDashboard.putNumber(prefix + "Orbital Speed", snapshot.orbitalSpeed());
+            SmartDashboard.putNumber(prefix + "Throttle", snapshot.throttle());
+            SmartDashboard.putNumber(prefix + "Stage", snapshot.stage());
+            SmartDashboard.putNumber(prefix + "Mass", snapshot.mass());
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Integer id : members.keySet()) {
+            untrack(id);
+        }
+    }
+}
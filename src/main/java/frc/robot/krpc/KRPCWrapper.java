@@ -14,35 +14,53 @@ import frc.robot.util.KSPPartType;
 import krpc.client.Connection;
 import krpc.client.RPCException;
 import krpc.client.services.SpaceCenter;
-import krpc.client.services.SpaceCenter.Flight;
 import krpc.client.services.SpaceCenter.Vessel;
 import krpc.client.Stream;
-import krpc.client.StreamException;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
-import org.javatuples.Triplet;
 import org.opencv.core.Mat.Tuple3;
 
 public class KRPCWrapper implements AutoCloseable {
     private Connection connection;
     private SpaceCenter spaceCenter;
-    private Vessel activeVessel;
-    private Flight flight;
-    private SpaceCenter.ReferenceFrame surfaceVelocityFrame;
-    private SpaceCenter.ReferenceFrame orbitalVelocityFrame;
-    
-    // Streams for telemetry
-    private Stream<Double> altitudeStream;
-    private Stream<Float> throttleStream;
 
-    private Stream<Double> surfaceSpeedStream;
-    private Stream<Double> orbitalSpeedStream;
-    private Stream<Triplet<Double, Double, Double>> velocityVectorStream;
+    // Handles and streams for the active vessel, swapped as a whole on vessel change
+    private volatile VesselStreams vesselStreams;
+
+    // Detects active vessel changes and rebinds off the main loop
+    private Stream<Vessel> activeVesselStream;
+    private final ExecutorService rebindExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "KRPC-Rebind");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final List<Consumer<Vessel>> vesselChangeListeners = new CopyOnWriteArrayList<>();
+
+    // Server clock: every UT update marks a new telemetry sample
+    private Stream<Double> utStream;
+    private volatile double sampleUT;
+    private volatile long sampleArrivalNanos;
+    private final AtomicLong sampleSequence = new AtomicLong();
+    private final List<Runnable> sampleListeners = new CopyOnWriteArrayList<>();
+
+    // Resolved module handles for activatePartWithTypeAndTag, cleared on vessel or stage change
+    private final ActivationIndex activationIndex = new ActivationIndex();
+    // Tagged part groups assigned to action groups in the editor, actuated with one RPC
+    private final ActionGroupBindings actionGroups = new ActionGroupBindings();
+
+    // Delayed and recurring remote actions, run off the robot loop
+    private final TimerWheel timer = new TimerWheel("KRPC-Timer");
+    private static final long FAIRING_WARP_MS = 100;
 
     // Debugging flag
     private final boolean kDebugging;
@@ -60,13 +78,8 @@ public class KRPCWrapper implements AutoCloseable {
             connection = Connection.newInstance("FRC Robot Controller");
             spaceCenter = SpaceCenter.newInstance(connection);
             initializeVessel();
-            setupStreams();
-            try {
-                initializeReferenceFrames();
-                setupVelocityStreams();
-            } catch (Exception e) {
-                DriverStation.reportError("Failed to initialize velocity streams: " + e.getMessage(), e.getStackTrace());
-            }
+            setupVesselChangeStream();
+            setupSampleClock();
             if (kDebugging) {
                 DriverStation.reportWarning("KRPC connection initialized successfully.", false);
             }
@@ -80,105 +93,142 @@ public class KRPCWrapper implements AutoCloseable {
      */
     private void initializeVessel() {
         try {
-            activeVessel = spaceCenter.getActiveVessel();
-            if (activeVessel == null) {
-                throw new NullPointerException("Active vessel is null.");
-            }
-            flight = activeVessel.flight(null);
-            if (kDebugging) {
-                DriverStation.reportWarning("Active vessel and flight data initialized.", false);
-            }
+            vesselStreams = VesselStreams.open(connection, spaceCenter.getActiveVessel(), kDebugging);
         } catch (Exception e) {
             DriverStation.reportError("Failed to initialize vessel: " + e.getMessage(), e.getStackTrace());
         }
     }
 
-    private void initializeReferenceFrames() throws RPCException {
-        if (activeVessel == null) {
-            throw new NullPointerException("Active vessel is not initialized");
+    /**
+     * Streams the active vessel so a switch (decoupling, docking, vessel change) is noticed
+     * without polling. The callback only queues the rebind; all RPCs run on the rebind thread.
+     */
+    private void setupVesselChangeStream() {
+        try {
+            activeVesselStream = connection.addStream(SpaceCenter.class, "getActiveVessel");
+            activeVesselStream.addCallback(vessel -> {
+                VesselStreams current = vesselStreams;
+                if (vessel != null && (current == null || !vessel.equals(current.getVessel()))) {
+                    rebindExecutor.execute(() -> rebind(vessel));
+                }
+            });
+            activeVesselStream.start();
+        } catch (Exception e) {
+            DriverStation.reportError("Failed to setup active vessel stream: " + e.getMessage(), e.getStackTrace());
         }
-        
-        // Get reference frame for surface-relative velocity
-        // Use the body's reference frame instead of surface velocity frame
-        surfaceVelocityFrame = activeVessel.getOrbit().getBody().getReferenceFrame();
-        
-        // Get reference frame for orbital velocity
-        orbitalVelocityFrame = activeVessel.getOrbit().getBody().getNonRotatingReferenceFrame();
     }
 
-    private void setupVelocityStreams() throws RPCException {
-        Flight surfaceFlight = activeVessel.flight(surfaceVelocityFrame);
-        Flight orbitalFlight = activeVessel.flight(orbitalVelocityFrame);
-        
+    /**
+     * Streams the server's universal time. Stream values arrive in one update per server tick,
+     * so each UT change tags a new sample with its server time and local arrival time.
+     */
+    private void setupSampleClock() {
         try {
-            // Stream for surface-relative speed
-            surfaceSpeedStream = connection.addStream(
-                surfaceFlight,
-                "getSpeed"
-            );
-            
-            // Stream for orbital speed
-            orbitalSpeedStream = connection.addStream(
-                orbitalFlight,
-                "getSpeed"
-            );
-            
-            // Stream for velocity vector - use the surface reference frame
-            velocityVectorStream = connection.addStream(
-                surfaceFlight,
-                "getVelocity"
-            );
-            
-            // Start all streams
-            surfaceSpeedStream.start();
-            orbitalSpeedStream.start();
-            velocityVectorStream.start();
-            
-        } catch (StreamException e) {
-            DriverStation.reportError("Failed to setup velocity streams: " + e.getMessage(), e.getStackTrace());
+            utStream = connection.addStream(SpaceCenter.class, "getUT");
+            utStream.addCallback(ut -> {
+                long now = System.nanoTime();
+                if (ut == null) {
+                    return;
+                }
+                sampleUT = ut;
+                sampleArrivalNanos = now;
+                sampleSequence.incrementAndGet();
+                for (Runnable listener : sampleListeners) {
+                    listener.run();
+                }
+            });
+            utStream.start();
+        } catch (Exception e) {
+            DriverStation.reportError("Failed to setup UT stream: " + e.getMessage(), e.getStackTrace());
+            utStream = null;
         }
     }
 
     /**
-     * Sets up telemetry streams for real-time data.
+     * Registers a listener called on the stream thread whenever a new sample arrives.
+     * Listeners must return immediately, e.g. by waking another thread.
      */
-    private void setupStreams() {
-        try {
-            if (activeVessel == null) {
-                throw new NullPointerException("Active vessel is not initialized.");
-            }
+    public void addSampleListener(Runnable listener) {
+        sampleListeners.add(listener);
+    }
 
-            altitudeStream = connection.addStream(flight, "getMeanAltitude");
-            // Specify Float as the type for throttle
-            throttleStream = connection.addStream(activeVessel.getControl(), "getThrottle");
-            
-            // Start all streams
-            altitudeStream.start();
-            throttleStream.start();
+    public void removeSampleListener(Runnable listener) {
+        sampleListeners.remove(listener);
+    }
 
-            if (kDebugging) {
-                DriverStation.reportWarning("Telemetry streams set up successfully.", false);
+    /**
+     * Checks whether samples are tagged with server time.
+     * @return true if the UT stream is running
+     */
+    public boolean hasSampleClock() {
+        return utStream != null && sampleSequence.get() > 0;
+    }
+
+    /** @return Number of samples received so far */
+    public long getSampleSequence() { return sampleSequence.get(); }
+    /** @return Server universal time of the latest sample, in seconds */
+    public double getSampleUT() { return sampleUT; }
+    /** @return Local arrival time of the latest sample, from {@link System#nanoTime()} */
+    public long getSampleArrivalNanos() { return sampleArrivalNanos; }
+
+    /**
+     * Rebuilds the flight handles and streams for a new active vessel and swaps them in.
+     * Getters keep reading the old set until the new one is complete.
+     */
+    private void rebind(Vessel vessel) {
+        VesselStreams old = vesselStreams;
+        if (old != null && vessel.equals(old.getVessel())) {
+            return;
+        }
+        try {
+            VesselStreams rebound = VesselStreams.open(connection, vessel, kDebugging);
+            vesselStreams = rebound;
+            activationIndex.invalidate();
+            actionGroups.resync(rebound.getControl());
+            if (old != null) {
+                old.close();
+            }
+            DriverStation.reportWarning("Active vessel changed, rebound to " + vessel.getName(), false);
+            for (Consumer<Vessel> listener : vesselChangeListeners) {
+                listener.accept(vessel);
             }
         } catch (Exception e) {
-            DriverStation.reportError("Failed to setup streams: " + e.getMessage(), e.getStackTrace());
-            altitudeStream = null;
-            throttleStream = null;
+            DriverStation.reportError("Failed to rebind to new active vessel: " + e.getMessage(), e.getStackTrace());
         }
     }
 
+    /**
+     * Runs a task on the background rebind thread, after any rebind already queued. For
+     * releasing a previous vessel's streams without stalling the robot loop.
+     * @param task The task, may issue RPCs
+     */
+    public void runOnRebindThread(Runnable task) {
+        rebindExecutor.execute(task);
+    }
+
+    /**
+     * Registers a listener that is called after the wrapper has rebound to a new active vessel.
+     * Listeners run on the background rebind thread and may issue setup RPCs there.
+     * @param listener Receives the new active vessel
+     */
+    public void addVesselChangeListener(Consumer<Vessel> listener) {
+        vesselChangeListeners.add(listener);
+    }
+
     /**
      * Sets the throttle of the vessel.
      * @param throttle Value between 0.0 and 1.0
      */
     public void setThrottle(double throttle) {
-        if (activeVessel == null) {
+        VesselStreams streams = vesselStreams;
+        if (streams == null) {
             DriverStation.reportError("Cannot set throttle: Active vessel is null.", null);
             return;
         }
         try {
             // Convert double to float for kRPC
             float clampedThrottle = (float) Math.min(Math.max(throttle, 0.0), 1.0);
-            activeVessel.getControl().setThrottle(clampedThrottle);
+            streams.getControl().setThrottle(clampedThrottle);
             if (kDebugging) {
                 DriverStation.reportWarning("Throttle set to: " + clampedThrottle, false);
             }
@@ -191,12 +241,13 @@ public class KRPCWrapper implements AutoCloseable {
      * Activates the next stage of the vessel.
      */
     public void activateNextStage() {
-        if (activeVessel == null) {
+        VesselStreams streams = vesselStreams;
+        if (streams == null) {
             DriverStation.reportError("Cannot activate next stage: Active vessel is null.", null);
             return;
         }
         try {
-            activeVessel.getControl().activateNextStage();
+            streams.getControl().activateNextStage();
             if (kDebugging) {
                 DriverStation.reportWarning("Activated next stage.", false);
             }
@@ -210,20 +261,8 @@ public class KRPCWrapper implements AutoCloseable {
      * @return Current altitude in meters, or 0.0 if unavailable
      */
     public double getAltitude() {
-        if (altitudeStream == null) {
-            DriverStation.reportError("Altitude stream is null.", null);
-            return 0.0;
-        }
-        try {
-            double altitude = altitudeStream.get();
-            if (kDebugging) {
-                DriverStation.reportWarning("Altitude: " + altitude + " m", false);
-            }
-            return altitude;
-        } catch (Exception e) {
-            DriverStation.reportError("Failed to get altitude: " + e.getMessage(), e.getStackTrace());
-            return 0.0;
-        }
+        VesselStreams streams = vesselStreams;
+        return streams != null ? streams.getAltitude() : 0.0;
     }
 
     /**
@@ -231,16 +270,8 @@ public class KRPCWrapper implements AutoCloseable {
      * @return Surface speed in m/s, or 0.0 if unavailable
      */
     public double getSurfaceSpeed() {
-        if (surfaceSpeedStream == null) {
-            DriverStation.reportError("Surface speed stream is null.", null);
-            return 0.0;
-        }
-        try {
-            return surfaceSpeedStream.get();
-        } catch (Exception e) {
-            DriverStation.reportError("Failed to get surface speed: " + e.getMessage(), e.getStackTrace());
-            return 0.0;
-        }
+        VesselStreams streams = vesselStreams;
+        return streams != null ? streams.getSurfaceSpeed() : 0.0;
     }
 
     /**
@@ -248,180 +279,79 @@ public class KRPCWrapper implements AutoCloseable {
      * @return Orbital speed in m/s, or 0.0 if unavailable
      */
     public double getOrbitalSpeed() {
-        if (orbitalSpeedStream == null) {
-            DriverStation.reportError("Orbital speed stream is null.", null);
-            return 0.0;
-        }
-        try {
-            return orbitalSpeedStream.get();
-        } catch (Exception e) {
-            DriverStation.reportError("Failed to get orbital speed: " + e.getMessage(), e.getStackTrace());
-            return 0.0;
-        }
+        VesselStreams streams = vesselStreams;
+        return streams != null ? streams.getOrbitalSpeed() : 0.0;
     }
 
-/**
- * Gets the vessel's velocity vector relative to the surface.
- * @return Velocity vector as Translation3d containing (x, y, z) components in m/s
- */
-public Translation3d getVelocityVector() {
-    if (velocityVectorStream == null) {
-        DriverStation.reportError("Velocity vector stream is null.", null);
-        return new Translation3d(0, 0, 0);
-    }
-    try {
-        // Use Triplet<Double, Double, Double> for the velocity vector
-        Triplet<Double, Double, Double> velocity = velocityVectorStream.get();
-        return new Translation3d(
-            velocity.getValue0(),
-            velocity.getValue1(),
-            velocity.getValue2()
-        );
-    } catch (Exception e) {
-        DriverStation.reportError("Failed to get velocity vector: " + e.getMessage(), e.getStackTrace());
-        return new Translation3d(0, 0, 0);
+    /**
+     * Gets the vessel's velocity vector relative to the surface.
+     * @return Velocity vector as Translation3d containing (x, y, z) components in m/s
+     */
+    public Translation3d getVelocityVector() {
+        VesselStreams streams = vesselStreams;
+        return streams != null ? streams.getVelocityVector() : new Translation3d(0, 0, 0);
     }
-}
 
-      /**
+    /**
      * Gets the current throttle setting.
      * @return Current throttle value between 0.0 and 1.0, or 0.0 if unavailable
      */
     public double getThrottle() {
-        if (throttleStream == null) {
-            DriverStation.reportError("Throttle stream is null.", null);
-            return 0.0;
-        }
-        try {
-            // Convert Float to double explicitly
-            float throttleValue = throttleStream.get();
-            double throttle = (double) throttleValue;
-            if (kDebugging) {
-                DriverStation.reportWarning("Throttle: " + throttle, false);
-            }
-            return throttle;
-        } catch (Exception e) {
-            DriverStation.reportError("Failed to get throttle: " + e.getMessage(), e.getStackTrace());
-            return 0.0;
-        }
+        VesselStreams streams = vesselStreams;
+        return streams != null ? streams.getThrottle() : 0.0;
     }
+
+    /**
+     * Gets the vessel's current stage number.
+     * @return Current stage, or -1 if unavailable
+     */
+    public int getCurrentStage() {
+        VesselStreams streams = vesselStreams;
+        return streams != null ? streams.getCurrentStage() : -1;
+    }
+
     public int activatePartWithTypeAndTag(KSPPartType partType, String tag, boolean debug) {
+        Vessel activeVessel = getActiveVessel();
         if (activeVessel == null) {
             DriverStation.reportError("Cannot activate parts: Active vessel is null.", null);
             return 0;
         }
         
         try {
-            int activatedCount = 0;
-            SpaceCenter.Parts partsCollection = activeVessel.getParts();
-            java.util.List<SpaceCenter.Part> parts = partsCollection.withTag(tag);
+            if (actionGroups.isBound(partType, tag)) {
+                // One action group write, however many parts carry the tag
+                actionGroups.set(vesselStreams.getControl(), partType, tag, true);
+                if (partType == KSPPartType.FAIRING) {
+                    applyFairingWarpWorkaround(debug);
+                }
+                return actionGroups.getPartCount(partType, tag);
+            }
+
+            activationIndex.onStageChanged(getCurrentStage());
+            ActivationIndex.Binding binding = activationIndex.resolve(activeVessel, partType, tag, debug);
             
-            if (parts.isEmpty()) {
+            if (binding.getTaggedPartCount() == 0) {
                 DriverStation.reportError(
                     String.format("No parts found with tag '%s'", tag), null);
                 return 0;
             }
     
-            for (SpaceCenter.Part part : parts) {
+            int activatedCount = 0;
+            for (int i = 0; i < binding.size(); i++) {
                 try {
-                    java.util.List<SpaceCenter.Module> modules = part.getModules();
-                    
-                    if (debug) {
-                        DriverStation.reportWarning(
-                            String.format("Processing part '%s' with %d modules", 
-                            part.getName(), modules.size()), false);
-                    }
-    
-                    // Find the first matching module
-                    SpaceCenter.Module targetModule = null;
-                    for (SpaceCenter.Module module : modules) {
-                        if (module.getName().equals(partType.getModuleName())) {
-                            targetModule = module;
-                            break;
-                        }
-                    }
-    
-                    if (targetModule == null) {
-                        if (debug) {
-                            StringBuilder moduleList = new StringBuilder("Available modules: ");
-                            for (SpaceCenter.Module module : modules) {
-                                moduleList.append(module.getName()).append(", ");
-                            }
-                            DriverStation.reportWarning(moduleList.toString(), false);
-                        }
-                        continue;
-                    }
-    
-                    // Get available fields first
-                    Map<String, String> fields = targetModule.getFields();
-                    if (debug) {
-                        StringBuilder fieldList = new StringBuilder("Available fields: ");
-                        for (String fieldName : fields.keySet()) {
-                            fieldList.append(fieldName).append(", ");
-                        }
-                        DriverStation.reportWarning(fieldList.toString(), false);
-                    }
-
-                    // Special handling for fairings
-                    if (partType == KSPPartType.FAIRING) {
-                        boolean success = false;
-                        
-                        // Try to find the correct field name from available fields
-                        for (String fieldName : fields.keySet()) {
-                            String fieldLower = fieldName.toLowerCase();
-                            if (fieldLower.contains("deploy") || fieldLower.contains("jettison")) {
-                                try {
-                                    targetModule.setFieldBool(fieldName, true);
-                                    success = true;
-                                    activatedCount++;
-                                    
-                                    // Add time warp workaround for fairings using the correct API
-                                    try {
-                                        // Set physical time warp factor to 1 (lowest setting)
-                                        spaceCenter.setPhysicsWarpFactor(1);
-                                        Thread.sleep(100); // Brief pause
-                                        spaceCenter.setPhysicsWarpFactor(0); // Return to normal time
-                                    } catch (Exception warpEx) {
-                                        if (debug) {
-                                            DriverStation.reportWarning(
-                                                "Failed to apply time warp workaround: " + warpEx.getMessage(), 
-                                                false);
-                                        }
-                                    }
-                                    
-                                    break;
-                                } catch (Exception e) {
-                                    if (debug) {
-                                        DriverStation.reportWarning(
-                                            String.format("Failed to set field '%s': %s", 
-                                            fieldName, e.getMessage()), false);
-                                    }
-                                }
-                            }
-                        }
-
-                        if (!success) {
-                            DriverStation.reportWarning(
-                                "Could not find valid deploy/jettison field for fairing", false);
-                        }
-                    } else {
-                        // Handle non-fairing parts
-                        String actionField = partType.getActionField();
-                        if (fields.containsKey(actionField)) {
-                            targetModule.setFieldBool(actionField, true);
-                            activatedCount++;
-                        } else {
-                            DriverStation.reportWarning(
-                                String.format("Action field '%s' not found in available fields", 
-                                actionField), false);
-                        }
-                    }
-    
+                    binding.getModule(i).setFieldBool(binding.getActionField(i), true);
+                    activatedCount++;
                 } catch (Exception e) {
+                    // Handle went stale, resolve the group again on the next call
+                    activationIndex.invalidate(partType, tag);
                     DriverStation.reportError("Failed to process part: " + e.getMessage(), false);
                 }
             }
             
+            if (partType == KSPPartType.FAIRING && activatedCount > 0) {
+                applyFairingWarpWorkaround(debug);
+            }
+            
             return activatedCount;
     
         } catch (Exception e) {
@@ -431,6 +361,28 @@ public Translation3d getVelocityVector() {
             return 0;
         }
     }
+
+    /**
+     * Nudges physics warp so KSP processes a fairing jettison. Both warp changes run on the
+     * timer thread, so the caller returns immediately.
+     */
+    private void applyFairingWarpWorkaround(boolean debug) {
+        // Set physical time warp factor to 1 (lowest setting), then return to normal time
+        timer.schedule(() -> setPhysicsWarpFactor(1, debug), 0);
+        timer.schedule(() -> setPhysicsWarpFactor(0, debug), FAIRING_WARP_MS);
+    }
+
+    private void setPhysicsWarpFactor(int factor, boolean debug) {
+        try {
+            spaceCenter.setPhysicsWarpFactor(factor);
+        } catch (Exception warpEx) {
+            if (debug) {
+                DriverStation.reportWarning(
+                    "Failed to apply time warp workaround: " + warpEx.getMessage(), 
+                    false);
+            }
+        }
+    }
     
     // Overloaded method to maintain backward compatibility
     public int activatePartWithTypeAndTag(KSPPartType partType, String tag) {
@@ -444,41 +396,45 @@ public Translation3d getVelocityVector() {
  * @return The number of parts deactivated
  */
 public int deactivatePartWithTypeAndTag(KSPPartType partType, String tag) {
+    Vessel activeVessel = getActiveVessel();
     if (activeVessel == null) {
         DriverStation.reportError("Cannot deactivate parts: Active vessel is null.", null);
         return 0;
     }
     
+    // Skip deactivation for one-way actions
+    if (partType == KSPPartType.FAIRING || 
+        partType == KSPPartType.DECOUPLER || 
+        partType == KSPPartType.ANCHORED_DECOUPLER ||
+        partType == KSPPartType.DOCKING_PORT) {
+        DriverStation.reportWarning(
+            "Skipping deactivation of " + partType.name() + 
+            " as it's a one-way action", false);
+        return 0;
+    }
+    
     try {
-        int deactivatedCount = 0;
-        SpaceCenter.Parts partsCollection = activeVessel.getParts();
-        java.util.List<SpaceCenter.Part> parts = partsCollection.withTag(tag);
+        if (actionGroups.isBound(partType, tag)) {
+            actionGroups.set(vesselStreams.getControl(), partType, tag, false);
+            return actionGroups.getPartCount(partType, tag);
+        }
+
+        activationIndex.onStageChanged(getCurrentStage());
+        ActivationIndex.Binding binding = activationIndex.resolve(activeVessel, partType, tag, false);
         
-        for (SpaceCenter.Part part : parts) {
-            java.util.List<SpaceCenter.Module> modules = part.getModules();
-            
-            for (SpaceCenter.Module module : modules) {
-                if (module.getName().equals(partType.getModuleName())) {
-                    // Skip deactivation for one-way actions
-                    if (partType == KSPPartType.FAIRING || 
-                        partType == KSPPartType.DECOUPLER || 
-                        partType == KSPPartType.ANCHORED_DECOUPLER ||
-                        partType == KSPPartType.DOCKING_PORT) {
-                        DriverStation.reportWarning(
-                            "Skipping deactivation of " + partType.name() + 
-                            " as it's a one-way action", false);
-                        continue;
-                    }
-                    
-                    module.setFieldBool(partType.getActionField(), false);
-                    deactivatedCount++;
-                    if (kDebugging) {
-                        DriverStation.reportWarning("Deactivated " + partType.name() + " with tag: " + tag, false);
-                    }
-                    break;
-                }
+        int deactivatedCount = 0;
+        for (int i = 0; i < binding.size(); i++) {
+            try {
+                binding.getModule(i).setFieldBool(binding.getActionField(i), false);
+                deactivatedCount++;
+            } catch (Exception e) {
+                activationIndex.invalidate(partType, tag);
+                DriverStation.reportError("Failed to deactivate part: " + e.getMessage(), false);
             }
         }
+        if (kDebugging && deactivatedCount > 0) {
+            DriverStation.reportWarning("Deactivated " + partType.name() + " with tag: " + tag, false);
+        }
         
         return deactivatedCount;
     } catch (Exception e) {
@@ -489,7 +445,79 @@ public int deactivatePartWithTypeAndTag(KSPPartType partType, String tag) {
 
 // Get active vessel
 public SpaceCenter.Vessel getActiveVessel() {
-    return activeVessel;
+    VesselStreams streams = vesselStreams;
+    return streams != null ? streams.getVessel() : null;
+}
+
+/**
+ * Records that the parts of a type carrying a tag were assigned to an action group in the
+ * editor. Afterwards activating or deactivating the group is a single action group write.
+ * Issues the discovery RPCs once, so call it at setup time.
+ * @param partType The type of part
+ * @param tag The part tag
+ * @param group Action group number, 0 to 9
+ * @return The number of tagged parts, or 0 if the group could not be bound
+ */
+public int bindActionGroup(KSPPartType partType, String tag, int group) {
+    Vessel activeVessel = getActiveVessel();
+    VesselStreams streams = vesselStreams;
+    if (activeVessel == null || streams == null) {
+        DriverStation.reportError("Cannot bind action group: Active vessel is null.", null);
+        return 0;
+    }
+    try {
+        int partCount = activeVessel.getParts().withTag(tag).size();
+        if (partCount == 0) {
+            DriverStation.reportWarning(String.format("No parts found with tag '%s' for action group %d", tag, group), false);
+        }
+        return actionGroups.bind(streams.getControl(), partType, tag, group, partCount) ? partCount : 0;
+    } catch (Exception e) {
+        DriverStation.reportError("Failed to bind action group " + group + ": " + e.getMessage(), false);
+        return 0;
+    }
+}
+
+/**
+ * Toggles the action group bound to a part type and tag.
+ * @return The new state, as cached, or false if the group is unbound or the write failed
+ */
+public boolean toggleActionGroup(KSPPartType partType, String tag) {
+    VesselStreams streams = vesselStreams;
+    if (streams == null || !actionGroups.isBound(partType, tag)) {
+        DriverStation.reportError("No action group bound to " + partType + " '" + tag + "'", false);
+        return false;
+    }
+    try {
+        return actionGroups.toggle(streams.getControl(), partType, tag);
+    } catch (Exception e) {
+        DriverStation.reportError("Failed to toggle action group: " + e.getMessage(), false);
+        return false;
+    }
+}
+
+// Get the action group bindings and their cached state
+public ActionGroupBindings getActionGroups() {
+    return actionGroups;
+}
+
+// Get the handles and streams currently bound to the active vessel
+public VesselStreams getVesselStreams() {
+    return vesselStreams;
+}
+
+// Get the SpaceCenter service
+public SpaceCenter getSpaceCenter() {
+    return spaceCenter;
+}
+
+// Get the timer wheel for delayed and recurring remote actions
+public TimerWheel getTimer() {
+    return timer;
+}
+
+// Get the underlying connection, used to open additional streams
+public Connection getConnection() {
+    return connection;
 }
 
 /**
@@ -497,6 +525,7 @@ public SpaceCenter.Vessel getActiveVessel() {
  * @param debug If true, prints additional debugging information
  */
 public void printVesselParts(boolean debug) {
+    Vessel activeVessel = getActiveVessel();
     if (activeVessel == null) {
         DriverStation.reportError("Cannot list parts: Active vessel is null.", null);
         return;
@@ -565,26 +594,19 @@ public void printVesselParts(boolean debug) {
 
     @Override
     public void close() {
+        rebindExecutor.shutdownNow();
+        timer.close();
         try {
-            if (surfaceSpeedStream != null) surfaceSpeedStream.remove();
-            if (orbitalSpeedStream != null) orbitalSpeedStream.remove();
-            if (velocityVectorStream != null) velocityVectorStream.remove();
+            if (activeVesselStream != null) activeVesselStream.remove();
+            if (utStream != null) utStream.remove();
         } catch (Exception e) {
             DriverStation.reportError("Failed to close streams: " + e.getMessage(), e.getStackTrace());
         }
+        VesselStreams streams = vesselStreams;
+        if (streams != null) {
+            streams.close();
+        }
         try {
-            if (altitudeStream != null) {
-                altitudeStream.remove();
-                if (kDebugging) {
-                    DriverStation.reportWarning("Altitude stream removed.", false);
-                }
-            }
-            if (throttleStream != null) {
-                throttleStream.remove();
-                if (kDebugging) {
-                    DriverStation.reportWarning("Throttle stream removed.", false);
-                }
-            }
             if (connection != null) {
                 connection.close();
                 if (kDebugging) {
@@ -595,4 +617,4 @@ public void printVesselParts(boolean debug) {
             DriverStation.reportError("Failed to close KRPC connection: " + e.getMessage(), e.getStackTrace());
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,396 @@
+// Copyright (c) 2024 : FRC 2106 : The Junkyard Dogs
+// https://github.com/WindingMotor
+// https://www.team2106.org
+
+// Use of this source code is governed by an MIT-style
+// license that can be found in the LICENSE file at
+// the root directory of this project.
+
+package frc.robot.krpc;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import krpc.client.RPCException;
+import krpc.client.services.SpaceCenter;
+
+/**
+ * Locally cached copy of the vessel's part tree.
+ *
+ * <p>The tree is read from the server once by {@link #build(SpaceCenter.Vessel)} and is then
+ * kept up to date locally as stages fire and decouplers separate. Every node is stored in
+ * parallel primitive arrays indexed by a dense part index, so structural queries such as
+ * "parts dropped by the next stage" or "engines in stage N" never touch the network.
+ */
+public class PartTree {
+    /** Index value used for "no part" (e.g. the parent of the root). */
+    public static final int NONE = -1;
+
+    /**
+     * Receives incremental changes to the cached tree.
+     */
+    public interface Listener {
+        /**
+         * Called after a part has been detached from the vessel.
+         * @param index Part index
+         */
+        void partDetached(int index);
+
+        /**
+         * Called after a part's cached mass changed.
+         * @param index Part index
+         * @param oldMass Previous wet mass in kg
+         * @param oldDryMass Previous dry mass in kg
+         */
+        void massChanged(int index, double oldMass, double oldDryMass);
+
+        /**
+         * Called after an engine's cached thrust or specific impulse changed.
+         * @param index Part index of the engine
+         */
+        void engineChanged(int index);
+    }
+
+    private final int size;
+    private final SpaceCenter.Part[] handles;
+    private final String[] names;
+    private final String[] tags;
+    private final int[] parent;
+    private final int[] firstChild;
+    private final int[] nextSibling;
+    private final int[] stage;
+    private final int[] decoupleStage;
+    private final double[] mass;
+    private final double[] dryMass;
+    private final boolean[] engine;
+    // Vacuum thrust and Isp fix an engine's mass flow; current Isp scales its thrust
+    private final double[] engineThrust;
+    private final double[] engineIsp;
+    private final double[] engineCurrentIsp;
+    private final boolean[] decoupler;
+    private final boolean[] attached;
+    private final Map<SpaceCenter.Part, Integer> indexByPart;
+    private final List<Listener> listeners = new ArrayList<>();
+
+    private int root = NONE;
+    private int attachedCount;
+    private int currentStage;
+
+    private PartTree(int size) {
+        this.size = size;
+        this.handles = new SpaceCenter.Part[size];
+        this.names = new String[size];
+        this.tags = new String[size];
+        this.parent = new int[size];
+        this.firstChild = new int[size];
+        this.nextSibling = new int[size];
+        this.stage = new int[size];
+        this.decoupleStage = new int[size];
+        this.mass = new double[size];
+        this.dryMass = new double[size];
+        this.engine = new boolean[size];
+        this.engineThrust = new double[size];
+        this.engineIsp = new double[size];
+        this.engineCurrentIsp = new double[size];
+        this.decoupler = new boolean[size];
+        this.attached = new boolean[size];
+        this.indexByPart = new HashMap<>(size * 2);
+    }
+
+    /**
+     * Reads the full part tree of a vessel from the server.
+     *
+     * <p>Stage membership is resolved with one {@code inStage}/{@code inDecoupleStage} list call
+     * per stage instead of two property reads per part, and engines/decouplers are resolved from
+     * the typed part lists rather than by scanning every part's modules.
+     *
+     * @param vessel The vessel to read
+     * @return The cached tree
+     * @throws RPCException If any of the setup calls fail
+     */
+    public static PartTree build(SpaceCenter.Vessel vessel) throws RPCException {
+        SpaceCenter.Parts parts = vessel.getParts();
+        List<SpaceCenter.Part> all = parts.getAll();
+        PartTree tree = new PartTree(all.size());
+
+        for (int i = 0; i < tree.size; i++) {
+            SpaceCenter.Part part = all.get(i);
+            tree.handles[i] = part;
+            tree.indexByPart.put(part, i);
+            tree.parent[i] = NONE;
+            tree.firstChild[i] = NONE;
+            tree.nextSibling[i] = NONE;
+            tree.stage[i] = NONE;
+            tree.decoupleStage[i] = NONE;
+            tree.attached[i] = true;
+        }
+        tree.attachedCount = tree.size;
+
+        // Per-part properties
+        for (int i = 0; i < tree.size; i++) {
+            SpaceCenter.Part part = tree.handles[i];
+            tree.names[i] = part.getName();
+            tree.tags[i] = part.getTag();
+            tree.mass[i] = part.getMass();
+            tree.dryMass[i] = part.getDryMass();
+            SpaceCenter.Part parentPart = part.getParent();
+            if (parentPart != null) {
+                tree.parent[i] = tree.indexOf(parentPart);
+            }
+        }
+
+        // Parent/child links
+        for (int i = tree.size - 1; i >= 0; i--) {
+            int p = tree.parent[i];
+            if (p != NONE) {
+                tree.nextSibling[i] = tree.firstChild[p];
+                tree.firstChild[p] = i;
+            } else if (tree.root == NONE) {
+                tree.root = i;
+            }
+        }
+
+        // Stage metadata, one list call per stage
+        tree.currentStage = vessel.getControl().getCurrentStage();
+        for (int s = NONE; s <= tree.currentStage; s++) {
+            for (SpaceCenter.Part part : parts.inStage(s)) {
+                int index = tree.indexOf(part);
+                if (index != NONE) {
+                    tree.stage[index] = s;
+                }
+            }
+            for (SpaceCenter.Part part : parts.inDecoupleStage(s)) {
+                int index = tree.indexOf(part);
+                if (index != NONE) {
+                    tree.decoupleStage[index] = s;
+                }
+            }
+        }
+
+        for (SpaceCenter.Engine kspEngine : parts.getEngines()) {
+            int index = tree.indexOf(kspEngine.getPart());
+            if (index != NONE) {
+                tree.engine[index] = true;
+                tree.engineThrust[index] = kspEngine.getMaxVacuumThrust();
+                tree.engineIsp[index] = kspEngine.getVacuumSpecificImpulse();
+                tree.engineCurrentIsp[index] = tree.engineIsp[index];
+            }
+        }
+        for (SpaceCenter.Decoupler kspDecoupler : parts.getDecouplers()) {
+            int index = tree.indexOf(kspDecoupler.getPart());
+            if (index != NONE) {
+                tree.decoupler[index] = true;
+            }
+        }
+
+        return tree;
+    }
+
+    /**
+     * Updates the tree after the vessel moved to a new stage. Every part that is decoupled in
+     * that stage (or an earlier one) is marked as detached.
+     * @param newStage The vessel's current stage after staging
+     */
+    public void onStageActivated(int newStage) {
+        currentStage = newStage;
+        for (int i = 0; i < size; i++) {
+            if (attached[i] && decoupleStage[i] != NONE && decoupleStage[i] >= newStage) {
+                detach(i);
+            }
+        }
+    }
+
+    /**
+     * Updates the tree after a single decoupler was fired manually. Everything below the
+     * decoupler is detached, and the decoupler itself is detached if it falls away with the
+     * stage it belongs to.
+     * @param decouplerIndex Part index of the fired decoupler
+     */
+    public void onDecouplerFired(int decouplerIndex) {
+        if (decouplerIndex < 0 || decouplerIndex >= size || !attached[decouplerIndex]) {
+            return;
+        }
+        detachChildren(decouplerIndex);
+        if (decoupleStage[decouplerIndex] != NONE && decoupleStage[decouplerIndex] == stage[decouplerIndex]) {
+            detach(decouplerIndex);
+        }
+    }
+
+    private void detachChildren(int index) {
+        for (int child = firstChild[index]; child != NONE; child = nextSibling[child]) {
+            if (attached[child]) {
+                detachChildren(child);
+                detach(child);
+            }
+        }
+    }
+
+    private void detach(int index) {
+        attached[index] = false;
+        attachedCount--;
+        for (Listener listener : listeners) {
+            listener.partDetached(index);
+        }
+    }
+
+    /**
+     * Updates the cached mass of a part, e.g. from streamed resource amounts.
+     * @param index Part index
+     * @param wetMass New wet mass in kg
+     * @param newDryMass New dry mass in kg
+     */
+    public void setMass(int index, double wetMass, double newDryMass) {
+        double oldMass = mass[index];
+        double oldDryMass = dryMass[index];
+        if (oldMass == wetMass && oldDryMass == newDryMass) {
+            return;
+        }
+        mass[index] = wetMass;
+        dryMass[index] = newDryMass;
+        for (Listener listener : listeners) {
+            listener.massChanged(index, oldMass, oldDryMass);
+        }
+    }
+
+    /**
+     * Updates the current specific impulse of an engine, e.g. from its parsed module fields.
+     * The vacuum thrust and Isp cached at build time are kept, since together they give the
+     * engine's mass flow, which does not change with the atmosphere.
+     * @param index Part index of the engine
+     * @param isp Current specific impulse in s
+     */
+    public void setEngineIsp(int index, double isp) {
+        if (!engine[index] || engineCurrentIsp[index] == isp) {
+            return;
+        }
+        engineCurrentIsp[index] = isp;
+        for (Listener listener : listeners) {
+            listener.engineChanged(index);
+        }
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Collects the attached parts that will be dropped when the next stage is activated.
+     * @param out Buffer receiving part indices; must hold at least {@link #size()} entries
+     * @return Number of indices written
+     */
+    public int partsDroppedByNextStage(int[] out) {
+        return partsInDecoupleStage(currentStage - 1, out);
+    }
+
+    /**
+     * Collects the attached parts that are decoupled in the given stage.
+     * @param decoupleStageNumber The decouple stage to search
+     * @param out Buffer receiving part indices
+     * @return Number of indices written
+     */
+    public int partsInDecoupleStage(int decoupleStageNumber, int[] out) {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (attached[i] && decoupleStage[i] == decoupleStageNumber) {
+                out[count++] = i;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Collects the attached engines that are activated in the given stage.
+     * @param stageNumber The activation stage to search
+     * @param out Buffer receiving part indices
+     * @return Number of indices written
+     */
+    public int enginesInStage(int stageNumber, int[] out) {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (attached[i] && engine[i] && stage[i] == stageNumber) {
+                out[count++] = i;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Sums the cached mass of all attached parts.
+     * @return Vessel mass in kg according to the cache
+     */
+    public double getAttachedMass() {
+        double total = 0.0;
+        for (int i = 0; i < size; i++) {
+            if (attached[i]) {
+                total += mass[i];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Converts a list of part indices back to kRPC part handles.
+     * @param indices Part indices, as filled in by one of the query methods
+     * @param count Number of valid entries in {@code indices}
+     * @return The matching kRPC parts
+     */
+    public List<SpaceCenter.Part> toParts(int[] indices, int count) {
+        List<SpaceCenter.Part> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(handles[indices[i]]);
+        }
+        return result;
+    }
+
+    /**
+     * Looks up the dense index of a kRPC part.
+     * @param part The kRPC part
+     * @return The part index, or {@link #NONE} if the part is not in the tree
+     */
+    public int indexOf(SpaceCenter.Part part) {
+        Integer index = indexByPart.get(part);
+        return index == null ? NONE : index;
+    }
+
+    // Getters
+    public int size() { return size; }
+    public int getRoot() { return root; }
+    public int getAttachedCount() { return attachedCount; }
+    public int getCurrentStage() { return currentStage; }
+    public SpaceCenter.Part getPart(int index) { return handles[index]; }
+    public String getName(int index) { return names[index]; }
+    public String getTag(int index) { return tags[index]; }
+    public int getParent(int index) { return parent[index]; }
+    public int getFirstChild(int index) { return firstChild[index]; }
+    public int getNextSibling(int index) { return nextSibling[index]; }
+    public int getStage(int index) { return stage[index]; }
+    public int getDecoupleStage(int index) { return decoupleStage[index]; }
+    public double getMass(int index) { return mass[index]; }
+    public double getDryMass(int index) { return dryMass[index]; }
+    public boolean isEngine(int index) { return engine[index]; }
+    /** @return Maximum vacuum thrust in N */
+    public double getEngineThrust(int index) { return engineThrust[index]; }
+    /** @return Vacuum specific impulse in s */
+    public double getEngineIsp(int index) { return engineIsp[index]; }
+    /** @return Specific impulse in s at the current pressure, vacuum until first updated */
+    public double getEngineCurrentIsp(int index) { return engineCurrentIsp[index]; }
+
+    /**
+     * Gets an engine's maximum thrust at the current pressure: its vacuum mass flow times its
+     * current specific impulse.
+     * @return Thrust in N
+     */
+    public double getEngineCurrentThrust(int index) {
+        return engineIsp[index] > 0.0
+            ? engineThrust[index] * engineCurrentIsp[index] / engineIsp[index]
+            : 0.0;
+    }
+    public boolean isDecoupler(int index) { return decoupler[index]; }
+    public boolean isAttached(int index) { return attached[index]; }
+}
@@ -0,0 +1,384 @@
+// Copyright (c) 2024 : FRC 2106 : The Junkyard Dogs
+// https://github.com/WindingMotor
+// https://www.team2106.org
+
+// Use of this source code is governed by an MIT-style
+// license that can be found in the LICENSE file at
+// the root directory of this project.
+
+package frc.robot.krpc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import frc.robot.util.KSPResource;
+import frc.robot.util.SlidingWindowRate;
+import krpc.client.Connection;
+import krpc.client.RPCException;
+import krpc.client.Stream;
+import krpc.client.StreamException;
+import krpc.client.services.SpaceCenter;
+
+/**
+ * Streamed per-tank and per-stage resource accounting.
+ *
+ * <p>Every resource container on the vessel gets one amount stream at setup. {@link #update(double)}
+ * only reads the latest streamed values, sums them per part and per decouple stage, tracks the
+ * consumption rate over a sliding window and pushes the resulting part masses into the
+ * {@link PartTree}. No Resources RPC is issued after setup; the streams of tanks dropped at
+ * staging are removed on the executor passed to {@link #create}. Dropping tanks takes their
+ * contents out of the vessel and stage totals in one step, which is not consumption, so the
+ * affected rate windows start over.
+ *
+ * <p>Resources outside {@link KSPResource}, such as solid fuel, ore, xenon or ablator, are
+ * not streamed. Their mass is taken from the part's mass at setup and kept as a constant on
+ * top of the tracked resources, so it is not dropped from the part tree.
+ */
+public class ResourceMonitor {
+    private static final double RATE_WINDOW_SECONDS = 2.0;
+    private static final int RATE_WINDOW_SAMPLES = 128;
+
+    private static final KSPResource[] RESOURCES = KSPResource.values();
+
+    private final PartTree tree;
+    private final Executor releaser;
+
+    // One entry per (part, resource) container
+    private final int entryCount;
+    private final int[] entryPart;
+    private final int[] entryResource;
+    private final double[] entryDensity;
+    private final double[] entryMax;
+    private final double[] entryAmount;
+    private final List<Stream<Float>> entryStreams;
+    private final SlidingWindowRate[] entryRates;
+
+    // Per-part resource mass, indexed by part index
+    private final double[] partResourceMass;
+    // Mass of untracked resources per part, fixed at setup
+    private final double[] partUntrackedMass;
+
+    // Per decouple stage (indexed by decoupleStage + 1) and resource
+    private final int bucketCount;
+    private final double[][] stageAmount;
+    private final SlidingWindowRate[][] stageRates;
+
+    private final double[] totalAmount;
+    private final SlidingWindowRate[] totalRates;
+
+    private ResourceMonitor(PartTree tree, Executor releaser, int entryCount) {
+        this.tree = tree;
+        this.releaser = releaser;
+        this.entryCount = entryCount;
+        this.entryPart = new int[entryCount];
+        this.entryResource = new int[entryCount];
+        this.entryDensity = new double[entryCount];
+        this.entryMax = new double[entryCount];
+        this.entryAmount = new double[entryCount];
+        this.entryStreams = new ArrayList<>(entryCount);
+        this.entryRates = new SlidingWindowRate[entryCount];
+        this.partResourceMass = new double[tree.size()];
+        this.partUntrackedMass = new double[tree.size()];
+
+        this.bucketCount = Math.max(tree.getCurrentStage() + 2, 1);
+        this.stageAmount = new double[bucketCount][RESOURCES.length];
+        this.stageRates = new SlidingWindowRate[bucketCount][RESOURCES.length];
+        for (int b = 0; b < bucketCount; b++) {
+            for (int r = 0; r < RESOURCES.length; r++) {
+                stageRates[b][r] = new SlidingWindowRate(RATE_WINDOW_SECONDS, RATE_WINDOW_SAMPLES);
+            }
+        }
+        this.totalAmount = new double[RESOURCES.length];
+        this.totalRates = new SlidingWindowRate[RESOURCES.length];
+        for (int r = 0; r < RESOURCES.length; r++) {
+            totalRates[r] = new SlidingWindowRate(RATE_WINDOW_SECONDS, RATE_WINDOW_SAMPLES);
+        }
+    }
+
+    /**
+     * Discovers every tracked resource container on the vessel and opens an amount stream for it.
+     * Uses one {@code withResource} call per resource type instead of querying every part.
+     * @param connection The kRPC connection used to open streams
+     * @param vessel The vessel to monitor
+     * @param tree The vessel's cached part tree
+     * @param releaser Removes the streams of detached tanks, off the robot loop
+     * @return The monitor
+     * @throws RPCException If a setup call fails
+     * @throws StreamException If a stream cannot be opened
+     */
+    public static ResourceMonitor create(Connection connection, SpaceCenter.Vessel vessel, PartTree tree,
+                                         Executor releaser) throws RPCException, StreamException {
+        SpaceCenter.Resources vesselResources = vessel.getResources();
+        List<List<SpaceCenter.Resource>> byType = new ArrayList<>(RESOURCES.length);
+        int entries = 0;
+        for (KSPResource resource : RESOURCES) {
+            List<SpaceCenter.Resource> containers = vesselResources.withResource(resource.getResourceName());
+            byType.add(containers);
+            entries += containers.size();
+        }
+
+        ResourceMonitor monitor = new ResourceMonitor(tree, releaser, entries);
+        int e = 0;
+        for (int r = 0; r < RESOURCES.length; r++) {
+            for (SpaceCenter.Resource container : byType.get(r)) {
+                monitor.entryPart[e] = tree.indexOf(container.getPart());
+                monitor.entryResource[e] = r;
+                monitor.entryDensity[e] = container.getDensity();
+                monitor.entryMax[e] = container.getMax();
+                monitor.entryAmount[e] = container.getAmount();
+                monitor.entryRates[e] = new SlidingWindowRate(RATE_WINDOW_SECONDS, RATE_WINDOW_SAMPLES);
+                Stream<Float> stream = connection.addStream(container, "getAmount");
+                stream.start();
+                monitor.entryStreams.add(stream);
+                e++;
+            }
+        }
+
+        // Whatever the part weighs beyond its dry mass and the tracked resources
+        for (e = 0; e < entries; e++) {
+            int part = monitor.entryPart[e];
+            if (part != PartTree.NONE) {
+                monitor.partResourceMass[part] += monitor.entryAmount[e] * monitor.entryDensity[e];
+            }
+        }
+        for (e = 0; e < entries; e++) {
+            int part = monitor.entryPart[e];
+            if (part != PartTree.NONE) {
+                double untracked = tree.getMass(part) - tree.getDryMass(part) - monitor.partResourceMass[part];
+                monitor.partUntrackedMass[part] = Math.max(untracked, 0.0);
+            }
+        }
+        return monitor;
+    }
+
+    /**
+     * Reads the latest streamed amounts and refreshes all per-tank, per-stage and vessel totals.
+     * @param time Current time in seconds
+     */
+    public void update(double time) {
+        for (int b = 0; b < bucketCount; b++) {
+            for (int r = 0; r < RESOURCES.length; r++) {
+                stageAmount[b][r] = 0.0;
+            }
+        }
+        for (int r = 0; r < RESOURCES.length; r++) {
+            totalAmount[r] = 0.0;
+        }
+
+        for (int e = 0; e < entryCount; e++) {
+            int part = entryPart[e];
+            if (part == PartTree.NONE) {
+                continue;
+            }
+            if (!tree.isAttached(part)) {
+                if (entryStreams.get(e) != null) {
+                    detach(e);
+                }
+                continue;
+            }
+            partResourceMass[part] = 0.0;
+        }
+
+        for (int e = 0; e < entryCount; e++) {
+            int part = entryPart[e];
+            if (part == PartTree.NONE || !tree.isAttached(part)) {
+                continue;
+            }
+            Stream<Float> stream = entryStreams.get(e);
+            try {
+                entryAmount[e] = stream.get();
+            } catch (Exception ex) {
+                // Keep the previous amount
+            }
+            int r = entryResource[e];
+            entryRates[e].add(time, entryAmount[e]);
+            partResourceMass[part] += entryAmount[e] * entryDensity[e];
+
+            int bucket = bucketOf(part);
+            stageAmount[bucket][r] += entryAmount[e];
+            totalAmount[r] += entryAmount[e];
+        }
+
+        // Cached part masses follow the propellant actually left in the tanks
+        for (int e = 0; e < entryCount; e++) {
+            int part = entryPart[e];
+            if (part != PartTree.NONE && tree.isAttached(part)) {
+                double dry = tree.getDryMass(part);
+                tree.setMass(part, dry + partUntrackedMass[part] + partResourceMass[part], dry);
+            }
+        }
+
+        for (int b = 0; b < bucketCount; b++) {
+            for (int r = 0; r < RESOURCES.length; r++) {
+                stageRates[b][r].add(time, stageAmount[b][r]);
+            }
+        }
+        for (int r = 0; r < RESOURCES.length; r++) {
+            totalRates[r].add(time, totalAmount[r]);
+        }
+    }
+
+    private int bucketOf(int part) {
+        int bucket = tree.getDecoupleStage(part) + 1;
+        return Math.min(Math.max(bucket, 0), bucketCount - 1);
+    }
+
+    /**
+     * Drops a tank that separated: its stream is removed on the releaser, and the rate windows
+     * that would read its loss as consumption start over.
+     */
+    private void detach(int entry) {
+        Stream<Float> stream = entryStreams.set(entry, null);
+        int r = entryResource[entry];
+        stageRates[bucketOf(entryPart[entry])][r].reset();
+        totalRates[r].reset();
+        releaser.execute(() -> {
+            try {
+                stream.remove();
+            } catch (Exception e) {
+                DriverStation.reportWarning("Failed to remove resource stream: " + e.getMessage(), false);
+            }
+        });
+    }
+
+    private void removeStream(int entry) {
+        Stream<Float> stream = entryStreams.get(entry);
+        if (stream == null) {
+            return;
+        }
+        entryStreams.set(entry, null);
+        try {
+            stream.remove();
+        } catch (Exception e) {
+            DriverStation.reportWarning("Failed to remove resource stream: " + e.getMessage(), false);
+        }
+    }
+
+    /**
+     * Removes all resource streams.
+     */
+    public void close() {
+        for (int e = 0; e < entryCount; e++) {
+            removeStream(e);
+        }
+    }
+
+    /**
+     * Gets the streamed amount of a resource held by one part.
+     * @param partIndex Part index in the part tree
+     * @param resource The resource
+     * @return Amount in resource units
+     */
+    public double getPartAmount(int partIndex, KSPResource resource) {
+        double amount = 0.0;
+        for (int e = 0; e < entryCount; e++) {
+            if (entryPart[e] == partIndex && entryResource[e] == resource.ordinal()) {
+                amount += entryAmount[e];
+            }
+        }
+        return amount;
+    }
+
+    /**
+     * Gets the capacity of a resource in one part.
+     * @param partIndex Part index in the part tree
+     * @param resource The resource
+     * @return Capacity in resource units
+     */
+    public double getPartMax(int partIndex, KSPResource resource) {
+        double max = 0.0;
+        for (int e = 0; e < entryCount; e++) {
+            if (entryPart[e] == partIndex && entryResource[e] == resource.ordinal()) {
+                max += entryMax[e];
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Gets the consumption rate of a resource in one part over the sliding window.
+     * @param partIndex Part index in the part tree
+     * @param resource The resource
+     * @return Consumption in units per second (positive while draining)
+     */
+    public double getPartConsumptionRate(int partIndex, KSPResource resource) {
+        double rate = 0.0;
+        for (int e = 0; e < entryCount; e++) {
+            if (entryPart[e] == partIndex && entryResource[e] == resource.ordinal()) {
+                rate -= entryRates[e].getRate();
+            }
+        }
+        return rate;
+    }
+
+    /**
+     * Gets the amount of a resource in the parts decoupled in a given stage.
+     * @param decoupleStage The decouple stage (-1 for parts that are never decoupled)
+     * @param resource The resource
+     * @return Amount in resource units
+     */
+    public double getStageAmount(int decoupleStage, KSPResource resource) {
+        int bucket = decoupleStage + 1;
+        if (bucket < 0 || bucket >= bucketCount) {
+            return 0.0;
+        }
+        return stageAmount[bucket][resource.ordinal()];
+    }
+
+    /**
+     * Gets the consumption rate of a resource in a decouple stage over the sliding window.
+     * @param decoupleStage The decouple stage
+     * @param resource The resource
+     * @return Consumption in units per second (positive while draining)
+     */
+    public double getStageConsumptionRate(int decoupleStage, KSPResource resource) {
+        int bucket = decoupleStage + 1;
+        if (bucket < 0 || bucket >= bucketCount) {
+            return 0.0;
+        }
+        return -stageRates[bucket][resource.ordinal()].getRate();
+    }
+
+    /**
+     * Estimates when a resource in a decouple stage runs out at the current consumption rate.
+     * @param decoupleStage The decouple stage
+     * @param resource The resource
+     * @return Time in seconds, or positive infinity if the resource is not being consumed
+     */
+    public double getStageTimeToDepletion(int decoupleStage, KSPResource resource) {
+        int bucket = decoupleStage + 1;
+        if (bucket < 0 || bucket >= bucketCount) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return stageRates[bucket][resource.ordinal()].getTimeToDepletion(stageAmount[bucket][resource.ordinal()]);
+    }
+
+    /**
+     * Gets the amount of a resource on the whole vessel.
+     * @param resource The resource
+     * @return Amount in resource units
+     */
+    public double getTotalAmount(KSPResource resource) {
+        return totalAmount[resource.ordinal()];
+    }
+
+    /**
+     * Gets the vessel-wide consumption rate of a resource.
+     * @param resource The resource
+     * @return Consumption in units per second (positive while draining)
+     */
+    public double getTotalConsumptionRate(KSPResource resource) {
+        return -totalRates[resource.ordinal()].getRate();
+    }
+
+    /**
+     * Estimates when a resource on the whole vessel runs out at the current consumption rate.
+     * @param resource The resource
+     * @return Time in seconds, or positive infinity if the resource is not being consumed
+     */
+    public double getTotalTimeToDepletion(KSPResource resource) {
+        return totalRates[resource.ordinal()].getTimeToDepletion(totalAmount[resource.ordinal()]);
+    }
+}
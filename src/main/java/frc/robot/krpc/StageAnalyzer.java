@@ -0,0 +1,288 @@
+// Copyright (c) 2024 : FRC 2106 : The Junkyard Dogs
+// https://github.com/WindingMotor
+// https://www.team2106.org
+
+// Use of this source code is governed by an MIT-style
+// license that can be found in the LICENSE file at
+// the root directory of this project.
+
+package frc.robot.krpc;
+
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+
+/**
+ * Per-stage delta-v, TWR and burn-time calculator.
+ *
+ * <p>Works entirely from the masses and engine data cached in a {@link PartTree}. Part masses
+ * are summed per decouple stage and kept up to date incrementally through the tree's listener,
+ * so a change only marks the stages it can affect as dirty. {@link #update()} recomputes just
+ * those stages and publishes the results to NetworkTables.
+ *
+ * <p>Stage {@code s} is the burn that happens while the vessel's current stage is {@code s}:
+ * it starts with every part decoupled after {@code s}, burns the propellant in the parts
+ * dropped by the following stage, and is driven by the engines activated at or before
+ * {@code s} that are still attached.
+ *
+ * <p>An engine's mass flow is taken from its vacuum thrust and Isp, which fixes burn time;
+ * thrust, and so TWR and delta-v, use its current Isp, so they are lower on the pad.
+ */
+public class StageAnalyzer implements PartTree.Listener {
+    private static final double G0 = 9.80665;
+    private static final double THROTTLE_EPSILON = 1e-3;
+
+    private final PartTree tree;
+    private final int stageCount;
+    private final double surfaceGravity;
+
+    // Mass sums per decouple stage, indexed by decoupleStage + 1
+    private final double[] bucketWetMass;
+    private final double[] bucketDryMass;
+
+    // Results per stage, indexed by stage number
+    private final double[] startMass;
+    private final double[] endMass;
+    private final double[] thrust;
+    private final double[] massFlow;
+    private final double[] deltaV;
+    private final double[] twr;
+    private final double[] burnTime;
+    private final boolean[] dirty;
+
+    private final int[] engineIndices;
+    private final int engineCount;
+
+    private double throttle = 1.0;
+    private double currentStageBurnTime;
+    private boolean published;
+
+    private final DoubleArrayPublisher wetMassPublisher;
+    private final DoubleArrayPublisher dryMassPublisher;
+    private final DoubleArrayPublisher deltaVPublisher;
+    private final DoubleArrayPublisher twrPublisher;
+    private final DoubleArrayPublisher burnTimePublisher;
+    private final DoublePublisher totalDeltaVPublisher;
+    private final DoublePublisher currentBurnTimePublisher;
+
+    /**
+     * Creates a new analyzer over a cached part tree and registers it as a tree listener.
+     * @param tree The cached part tree
+     * @param surfaceGravity Surface gravity of the current body in m/s^2, used for TWR
+     */
+    public StageAnalyzer(PartTree tree, double surfaceGravity) {
+        this.tree = tree;
+        this.stageCount = Math.max(tree.getCurrentStage() + 1, 1);
+        this.surfaceGravity = surfaceGravity;
+
+        bucketWetMass = new double[stageCount + 1];
+        bucketDryMass = new double[stageCount + 1];
+        startMass = new double[stageCount];
+        endMass = new double[stageCount];
+        thrust = new double[stageCount];
+        massFlow = new double[stageCount];
+        deltaV = new double[stageCount];
+        twr = new double[stageCount];
+        burnTime = new double[stageCount];
+        dirty = new boolean[stageCount];
+
+        int engines = 0;
+        int[] indices = new int[tree.size()];
+        for (int i = 0; i < tree.size(); i++) {
+            if (tree.isAttached(i)) {
+                int bucket = bucketOf(i);
+                bucketWetMass[bucket] += tree.getMass(i);
+                bucketDryMass[bucket] += tree.getDryMass(i);
+            }
+            if (tree.isEngine(i)) {
+                indices[engines++] = i;
+            }
+        }
+        engineIndices = indices;
+        engineCount = engines;
+
+        NetworkTable table = NetworkTableInstance.getDefault().getTable("StageAnalysis");
+        wetMassPublisher = table.getDoubleArrayTopic("WetMass").publish();
+        dryMassPublisher = table.getDoubleArrayTopic("DryMass").publish();
+        deltaVPublisher = table.getDoubleArrayTopic("DeltaV").publish();
+        twrPublisher = table.getDoubleArrayTopic("TWR").publish();
+        burnTimePublisher = table.getDoubleArrayTopic("BurnTime").publish();
+        totalDeltaVPublisher = table.getDoubleTopic("TotalDeltaV").publish();
+        currentBurnTimePublisher = table.getDoubleTopic("CurrentStageBurnTime").publish();
+
+        markDirtyFrom(0);
+        tree.addListener(this);
+    }
+
+    private int bucketOf(int partIndex) {
+        int bucket = tree.getDecoupleStage(partIndex) + 1;
+        return Math.min(Math.max(bucket, 0), stageCount);
+    }
+
+    private void markDirtyFrom(int firstStage) {
+        for (int s = Math.max(firstStage, 0); s < stageCount; s++) {
+            dirty[s] = true;
+        }
+    }
+
+    @Override
+    public void partDetached(int index) {
+        int bucket = bucketOf(index);
+        bucketWetMass[bucket] -= tree.getMass(index);
+        bucketDryMass[bucket] -= tree.getDryMass(index);
+        // Bucket d feeds the start mass of every stage above d
+        markDirtyFrom(bucket);
+        if (tree.isEngine(index)) {
+            engineChanged(index);
+        }
+    }
+
+    @Override
+    public void massChanged(int index, double oldMass, double oldDryMass) {
+        if (!tree.isAttached(index)) {
+            return;
+        }
+        int bucket = bucketOf(index);
+        bucketWetMass[bucket] += tree.getMass(index) - oldMass;
+        bucketDryMass[bucket] += tree.getDryMass(index) - oldDryMass;
+        markDirtyFrom(bucket);
+    }
+
+    @Override
+    public void engineChanged(int index) {
+        // An engine contributes to stages (decoupleStage, stage]
+        int first = Math.max(tree.getDecoupleStage(index) + 1, 0);
+        int last = Math.min(tree.getStage(index), stageCount - 1);
+        for (int s = first; s <= last; s++) {
+            dirty[s] = true;
+        }
+    }
+
+    /**
+     * Sets the current throttle used for the current stage's burn time.
+     * Only the current stage is recomputed when the throttle changes.
+     * @param value Throttle between 0.0 and 1.0
+     */
+    public void setThrottle(double value) {
+        if (Math.abs(value - throttle) > THROTTLE_EPSILON) {
+            throttle = value;
+            int current = tree.getCurrentStage();
+            if (current >= 0 && current < stageCount) {
+                dirty[current] = true;
+            }
+        }
+    }
+
+    /**
+     * Recomputes the dirty stages and publishes the results. Intended to be called every loop.
+     */
+    public void update() {
+        boolean changed = false;
+        for (int s = 0; s < stageCount; s++) {
+            if (dirty[s]) {
+                computeStage(s);
+                dirty[s] = false;
+                changed = true;
+            }
+        }
+
+        int current = tree.getCurrentStage();
+        if (changed) {
+            currentStageBurnTime = current >= 0 && current < stageCount && throttle > 0.0
+                ? burnTime[current] / throttle
+                : Double.POSITIVE_INFINITY;
+        }
+        if (changed || !published) {
+            publish();
+        }
+    }
+
+    private void computeStage(int s) {
+        // Start mass: every part still attached while stage s burns
+        double start = 0.0;
+        for (int bucket = 0; bucket <= s && bucket <= stageCount; bucket++) {
+            start += bucketWetMass[bucket];
+        }
+        // Propellant: the parts dropped when the next stage fires
+        double propellant = bucketWetMass[s] - bucketDryMass[s];
+
+        double stageThrust = 0.0;
+        double stageFlow = 0.0;
+        for (int e = 0; e < engineCount; e++) {
+            int index = engineIndices[e];
+            if (tree.isAttached(index)
+                    && tree.getStage(index) >= s
+                    && tree.getDecoupleStage(index) < s
+                    && tree.getEngineIsp(index) > 0.0) {
+                // Flow from vacuum figures, thrust from the current Isp at that flow
+                stageThrust += tree.getEngineCurrentThrust(index);
+                stageFlow += tree.getEngineThrust(index) / (tree.getEngineIsp(index) * G0);
+            }
+        }
+
+        if (stageFlow <= 0.0 || propellant <= 0.0) {
+            propellant = 0.0;
+        }
+        double end = start - propellant;
+
+        startMass[s] = start;
+        endMass[s] = end;
+        thrust[s] = stageThrust;
+        massFlow[s] = stageFlow;
+        deltaV[s] = propellant > 0.0 && end > 0.0
+            ? (stageThrust / stageFlow) * Math.log(start / end)
+            : 0.0;
+        twr[s] = start > 0.0 ? stageThrust / (start * surfaceGravity) : 0.0;
+        burnTime[s] = stageFlow > 0.0 ? propellant / stageFlow : 0.0;
+    }
+
+    private void publish() {
+        wetMassPublisher.set(startMass);
+        dryMassPublisher.set(endMass);
+        deltaVPublisher.set(deltaV);
+        twrPublisher.set(twr);
+        burnTimePublisher.set(burnTime);
+        totalDeltaVPublisher.set(getTotalDeltaV());
+        currentBurnTimePublisher.set(currentStageBurnTime);
+        published = true;
+    }
+
+    /**
+     * Gets the sum of delta-v over all remaining stages.
+     * @return Total delta-v in m/s
+     */
+    public double getTotalDeltaV() {
+        double total = 0.0;
+        int current = Math.min(tree.getCurrentStage(), stageCount - 1);
+        for (int s = 0; s <= current; s++) {
+            total += deltaV[s];
+        }
+        return total;
+    }
+
+    /**
+     * Unregisters the analyzer from its part tree and closes its publishers.
+     */
+    public void close() {
+        tree.removeListener(this);
+        wetMassPublisher.close();
+        dryMassPublisher.close();
+        deltaVPublisher.close();
+        twrPublisher.close();
+        burnTimePublisher.close();
+        totalDeltaVPublisher.close();
+        currentBurnTimePublisher.close();
+    }
+
+    // Getters, all indexed by stage number
+    public int getStageCount() { return stageCount; }
+    public double getWetMass(int stage) { return startMass[stage]; }
+    public double getDryMass(int stage) { return endMass[stage]; }
+    public double getThrust(int stage) { return thrust[stage]; }
+    public double getMassFlow(int stage) { return massFlow[stage]; }
+    public double getDeltaV(int stage) { return deltaV[stage]; }
+    public double getTWR(int stage) { return twr[stage]; }
+    public double getBurnTime(int stage) { return burnTime[stage]; }
+    public double getCurrentStageBurnTime() { return currentStageBurnTime; }
+}
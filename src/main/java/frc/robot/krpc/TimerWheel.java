@@ -0,0 +1,206 @@
+// Copyright (c) 2024 : FRC 2106 : The Junkyard Dogs
+// https://github.com/WindingMotor
+// https://www.team2106.org
+
+// Use of this source code is governed by an MIT-style
+// license that can be found in the LICENSE file at
+// the root directory of this project.
+
+package frc.robot.krpc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * Hashed timer wheel for delayed and recurring remote actions.
+ *
+ * <p>A single daemon thread advances the wheel one bucket per tick and runs the actions that
+ * are due, so RPCs scheduled here never block the robot loop. Scheduling and cancelling are
+ * O(1) from any thread: new timeouts go through a lock-free queue and are placed in their
+ * bucket by the worker, and cancelled timeouts are dropped the next time their bucket comes
+ * round. Actions due in the same tick run in the order they were scheduled.
+ *
+ * <p>Actions run on the wheel's thread one after another and should be short remote calls;
+ * anything long delays every later timeout by the same amount.
+ */
+public class TimerWheel implements AutoCloseable {
+    private static final long DEFAULT_TICK_MS = 10;
+    private static final int DEFAULT_WHEEL_SIZE = 256;
+
+    private final long tickNanos;
+    private final int mask;
+    private final List<Timeout>[] buckets;
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final Thread worker;
+    private final long startNanos;
+    private volatile boolean running = true;
+    private long tick;
+
+    /**
+     * A scheduled action. Returned by the schedule methods and used to cancel it.
+     */
+    public static final class Timeout {
+        private final Runnable action;
+        private final long periodNanos;
+        private long deadlineNanos;
+        private long remainingRounds;
+        private volatile boolean cancelled;
+        private volatile boolean done;
+
+        private Timeout(Runnable action, long deadlineNanos, long periodNanos) {
+            this.action = action;
+            this.deadlineNanos = deadlineNanos;
+            this.periodNanos = periodNanos;
+        }
+
+        /**
+         * Cancels the action. A one-shot action that has already run is not affected.
+         * @return true if the action will not run (again)
+         */
+        public boolean cancel() {
+            if (done) {
+                return false;
+            }
+            cancelled = true;
+            return true;
+        }
+
+        public boolean isCancelled() { return cancelled; }
+        /** @return true once a one-shot action has run */
+        public boolean isDone() { return done; }
+    }
+
+    /**
+     * Creates a timer wheel with a 10 ms tick and 256 buckets.
+     * @param name Name of the worker thread
+     */
+    public TimerWheel(String name) {
+        this(name, DEFAULT_TICK_MS, DEFAULT_WHEEL_SIZE);
+    }
+
+    /**
+     * Creates a timer wheel.
+     * @param name Name of the worker thread
+     * @param tickMs Resolution of the wheel in milliseconds
+     * @param wheelSize Number of buckets, rounded up to a power of two
+     */
+    @SuppressWarnings("unchecked")
+    public TimerWheel(String name, long tickMs, int wheelSize) {
+        int size = Integer.highestOneBit(Math.max(wheelSize, 2) - 1) << 1;
+        this.tickNanos = Math.max(tickMs, 1) * 1_000_000L;
+        this.mask = size - 1;
+        this.buckets = new List[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ArrayList<>();
+        }
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Runs an action once after a delay.
+     * @param action The action
+     * @param delayMs Delay in milliseconds; 0 runs it on the next tick
+     * @return Handle used to cancel the action
+     */
+    public Timeout schedule(Runnable action, long delayMs) {
+        Timeout timeout = new Timeout(action, System.nanoTime() + Math.max(delayMs, 0) * 1_000_000L, 0);
+        pending.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Runs an action repeatedly until cancelled.
+     * @param action The action
+     * @param initialDelayMs Delay before the first run in milliseconds
+     * @param periodMs Period in milliseconds, measured between scheduled start times
+     * @return Handle used to cancel the action
+     */
+    public Timeout scheduleAtFixedRate(Runnable action, long initialDelayMs, long periodMs) {
+        long periodNanos = Math.max(periodMs, 1) * 1_000_000L;
+        Timeout timeout = new Timeout(action, System.nanoTime() + Math.max(initialDelayMs, 0) * 1_000_000L, periodNanos);
+        pending.add(timeout);
+        return timeout;
+    }
+
+    private void run() {
+        while (running) {
+            waitForNextTick();
+            transferPending();
+            expire(buckets[(int) (tick & mask)]);
+            tick++;
+        }
+    }
+
+    private void waitForNextTick() {
+        long deadline = startNanos + (tick + 1) * tickNanos;
+        long remaining;
+        while (running && (remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    private void transferPending() {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            if (timeout.cancelled) {
+                continue;
+            }
+            // Anything already overdue goes in the current bucket
+            long dueTick = Math.max((timeout.deadlineNanos - startNanos) / tickNanos, tick);
+            timeout.remainingRounds = (dueTick - tick) / buckets.length;
+            buckets[(int) (dueTick & mask)].add(timeout);
+        }
+    }
+
+    private void expire(List<Timeout> bucket) {
+        // Compact in place so the remaining timeouts keep their scheduling order
+        int kept = 0;
+        int size = bucket.size();
+        for (int i = 0; i < size; i++) {
+            Timeout timeout = bucket.get(i);
+            if (timeout.cancelled) {
+                continue;
+            }
+            if (timeout.remainingRounds > 0) {
+                timeout.remainingRounds--;
+                bucket.set(kept++, timeout);
+                continue;
+            }
+            runAction(timeout);
+            if (timeout.periodNanos > 0) {
+                if (!timeout.cancelled) {
+                    timeout.deadlineNanos += timeout.periodNanos;
+                    pending.add(timeout);
+                }
+            } else {
+                timeout.done = true;
+            }
+        }
+        bucket.subList(kept, size).clear();
+    }
+
+    private static void runAction(Timeout timeout) {
+        try {
+            timeout.action.run();
+        } catch (Exception e) {
+            DriverStation.reportError("Scheduled action failed: " + e.getMessage(), e.getStackTrace());
+        }
+    }
+
+    /**
+     * Stops the worker thread. Pending actions are discarded.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(worker);
+    }
+}
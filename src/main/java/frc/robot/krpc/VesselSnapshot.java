@@ -0,0 +1,34 @@
+// Copyright (c) 2024 : FRC 2106 : The Junkyard Dogs
+// https://github.com/WindingMotor
+// https://www.team2106.org
+
+// Use of this source code is governed by an MIT-style
+// license that can be found in the LICENSE file at
+// the root directory of this project.
+
+package frc.robot.krpc;
+
+/**
+ * Immutable point-in-time telemetry of one tracked vessel.
+ *
+ * @param id Fleet id assigned by {@link FleetManager}
+ * @param name Vessel name
+ * @param altitude Mean altitude in meters
+ * @param surfaceSpeed Surface-relative speed in m/s
+ * @param orbitalSpeed Orbital speed in m/s
+ * @param throttle Throttle between 0.0 and 1.0
+ * @param stage Current stage number
+ * @param mass Streamed vessel mass, in kg
+ * @param timestamp Local time the snapshot was taken, in seconds
+ */
+public record VesselSnapshot(
+    int id,
+    String name,
+    double altitude,
+    double surfaceSpeed,
+    double orbitalSpeed,
+    double throttle,
+    int stage,
+    double mass,
+    double timestamp
+) {}
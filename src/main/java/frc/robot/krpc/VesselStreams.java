@@ -0,0 +1,534 @@
+// Copyright (c) 2024 : FRC 2106 : The Junkyard Dogs
+// https://github.com/WindingMotor
+// https://www.team2106.org
+
+// Use of this source code is governed by an MIT-style
+// license that can be found in the LICENSE file at
+// the root directory of this project.
+
+package frc.robot.krpc;
+
+import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.wpilibj.DriverStation;
+import krpc.client.Connection;
+import krpc.client.RPCException;
+import krpc.client.Stream;
+import krpc.client.StreamException;
+import krpc.client.services.SpaceCenter;
+import krpc.client.services.SpaceCenter.Flight;
+import krpc.client.services.SpaceCenter.Vessel;
+
+import org.javatuples.Quartet;
+import org.javatuples.Triplet;
+
+/**
+ * The flight handles and telemetry streams bound to one vessel.
+ *
+ * <p>Instances are built completely before they are used and never rebound, so a caller can
+ * swap a whole set atomically when the vessel changes.
+ */
+public class VesselStreams implements AutoCloseable {
+    private final Vessel vessel;
+    private final SpaceCenter.Control control;
+    private final Flight flight;
+    private final SpaceCenter.AutoPilot autoPilot;
+    private final boolean kDebugging;
+
+    private SpaceCenter.ReferenceFrame surfaceVelocityFrame;
+    private SpaceCenter.ReferenceFrame orbitalVelocityFrame;
+    private SpaceCenter.ReferenceFrame attitudeFrame;
+
+    // Streams for telemetry
+    private Stream<Double> altitudeStream;
+    private volatile boolean closed;
+    private Stream<Float> throttleStream;
+    private Stream<Integer> currentStageStream;
+
+    private Stream<Double> surfaceSpeedStream;
+    private Stream<Double> orbitalSpeedStream;
+    private Stream<Triplet<Double, Double, Double>> velocityVectorStream;
+    private Stream<Triplet<Double, Double, Double>> positionStream;
+
+    // Streams for attitude control
+    private Stream<Quartet<Double, Double, Double, Double>> rotationStream;
+    private Stream<Triplet<Double, Double, Double>> angularVelocityStream;
+
+    // Streams for the thrust model
+    private Stream<Float> massStream;
+    private Stream<Float> availableThrustStream;
+    private Stream<Float> dynamicPressureStream;
+    private Stream<Double> apoapsisStream;
+    private Stream<Double> surfaceAltitudeStream;
+
+    private VesselStreams(Vessel vessel, SpaceCenter.Control control, Flight flight,
+                          SpaceCenter.AutoPilot autoPilot, boolean enableDebug) {
+        this.vessel = vessel;
+        this.control = control;
+        this.flight = flight;
+        this.autoPilot = autoPilot;
+        this.kDebugging = enableDebug;
+    }
+
+    /**
+     * Resolves the flight handles of a vessel and opens all telemetry streams for it.
+     * @param connection The kRPC connection
+     * @param vessel The vessel to bind to
+     * @param enableDebug If true, enables verbose logging
+     * @return The opened stream set
+     * @throws RPCException If the vessel's flight handles cannot be resolved
+     */
+    public static VesselStreams open(Connection connection, Vessel vessel, boolean enableDebug) throws RPCException {
+        if (vessel == null) {
+            throw new NullPointerException("Vessel is null.");
+        }
+        VesselStreams streams = new VesselStreams(vessel, vessel.getControl(), vessel.flight(null),
+            vessel.getAutoPilot(), enableDebug);
+        if (enableDebug) {
+            DriverStation.reportWarning("Active vessel and flight data initialized.", false);
+        }
+        streams.setupStreams(connection);
+        try {
+            streams.initializeReferenceFrames();
+            streams.setupVelocityStreams(connection);
+        } catch (Exception e) {
+            DriverStation.reportError("Failed to initialize velocity streams: " + e.getMessage(), e.getStackTrace());
+        }
+        return streams;
+    }
+
+    private void initializeReferenceFrames() throws RPCException {
+        // Get reference frame for surface-relative velocity
+        // Use the body's reference frame instead of surface velocity frame
+        surfaceVelocityFrame = vessel.getOrbit().getBody().getReferenceFrame();
+
+        // Get reference frame for orbital velocity
+        orbitalVelocityFrame = vessel.getOrbit().getBody().getNonRotatingReferenceFrame();
+
+        // Attitude is measured against local up, north and east
+        attitudeFrame = vessel.getSurfaceReferenceFrame();
+    }
+
+    private void setupVelocityStreams(Connection connection) throws RPCException {
+        Flight surfaceFlight = vessel.flight(surfaceVelocityFrame);
+        Flight orbitalFlight = vessel.flight(orbitalVelocityFrame);
+
+        try {
+            // Stream for surface-relative speed
+            surfaceSpeedStream = connection.addStream(surfaceFlight, "getSpeed");
+
+            // Stream for orbital speed
+            orbitalSpeedStream = connection.addStream(orbitalFlight, "getSpeed");
+
+            // Stream for velocity vector - use the surface reference frame
+            velocityVectorStream = connection.addStream(surfaceFlight, "getVelocity");
+
+            // Position in the same frame, so it points along local up from the body's center
+            positionStream = connection.addStream(vessel, "position", surfaceVelocityFrame);
+
+            // Orientation and rotation rate, for attitude control
+            rotationStream = connection.addStream(vessel, "rotation", attitudeFrame);
+            angularVelocityStream = connection.addStream(vessel, "angularVelocity", attitudeFrame);
+
+            // Start all streams
+            surfaceSpeedStream.start();
+            orbitalSpeedStream.start();
+            velocityVectorStream.start();
+            positionStream.start();
+            rotationStream.start();
+            angularVelocityStream.start();
+        } catch (StreamException e) {
+            DriverStation.reportError("Failed to setup velocity streams: " + e.getMessage(), e.getStackTrace());
+        }
+    }
+
+    private void setupStreams(Connection connection) {
+        try {
+            altitudeStream = connection.addStream(flight, "getMeanAltitude");
+            // Specify Float as the type for throttle
+            throttleStream = connection.addStream(control, "getThrottle");
+            currentStageStream = connection.addStream(control, "getCurrentStage");
+            massStream = connection.addStream(vessel, "getMass");
+            availableThrustStream = connection.addStream(vessel, "getAvailableThrust");
+            dynamicPressureStream = connection.addStream(flight, "getDynamicPressure");
+            apoapsisStream = connection.addStream(vessel.getOrbit(), "getApoapsisAltitude");
+            surfaceAltitudeStream = connection.addStream(flight, "getSurfaceAltitude");
+
+            // Start all streams
+            altitudeStream.start();
+            throttleStream.start();
+            currentStageStream.start();
+            massStream.start();
+            availableThrustStream.start();
+            dynamicPressureStream.start();
+            apoapsisStream.start();
+            surfaceAltitudeStream.start();
+
+            if (kDebugging) {
+                DriverStation.reportWarning("Telemetry streams set up successfully.", false);
+            }
+        } catch (Exception e) {
+            DriverStation.reportError("Failed to setup streams: " + e.getMessage(), e.getStackTrace());
+            altitudeStream = null;
+            throttleStream = null;
+            currentStageStream = null;
+            massStream = null;
+            availableThrustStream = null;
+            dynamicPressureStream = null;
+            apoapsisStream = null;
+            surfaceAltitudeStream = null;
+        }
+    }
+
+    public Vessel getVessel() {
+        return vessel;
+    }
+
+    public SpaceCenter.Control getControl() {
+        return control;
+    }
+
+    public Flight getFlight() {
+        return flight;
+    }
+
+    public SpaceCenter.AutoPilot getAutoPilot() {
+        return autoPilot;
+    }
+
+    /**
+     * Gets the current altitude in meters.
+     * @return Current altitude in meters, or 0.0 if unavailable
+     */
+    public double getAltitude() {
+        if (altitudeStream == null) {
+            DriverStation.reportError("Altitude stream is null.", null);
+            return 0.0;
+        }
+        try {
+            double altitude = altitudeStream.get();
+            if (kDebugging) {
+                DriverStation.reportWarning("Altitude: " + altitude + " m", false);
+            }
+            return altitude;
+        } catch (Exception e) {
+            DriverStation.reportError("Failed to get altitude: " + e.getMessage(), e.getStackTrace());
+            return 0.0;
+        }
+    }
+
+    /**
+     * Gets the vessel's surface-relative speed in meters per second.
+     * @return Surface speed in m/s, or 0.0 if unavailable
+     */
+    public double getSurfaceSpeed() {
+        if (surfaceSpeedStream == null) {
+            DriverStation.reportError("Surface speed stream is null.", null);
+            return 0.0;
+        }
+        try {
+            return surfaceSpeedStream.get();
+        } catch (Exception e) {
+            DriverStation.reportError("Failed to get surface speed: " + e.getMessage(), e.getStackTrace());
+            return 0.0;
+        }
+    }
+
+    /**
+     * Gets the vessel's orbital speed in meters per second.
+     * @return Orbital speed in m/s, or 0.0 if unavailable
+     */
+    public double getOrbitalSpeed() {
+        if (orbitalSpeedStream == null) {
+            DriverStation.reportError("Orbital speed stream is null.", null);
+            return 0.0;
+        }
+        try {
+            return orbitalSpeedStream.get();
+        } catch (Exception e) {
+            DriverStation.reportError("Failed to get orbital speed: " + e.getMessage(), e.getStackTrace());
+            return 0.0;
+        }
+    }
+
+    /**
+     * Gets the vessel's velocity vector relative to the surface.
+     * @return Velocity vector as Translation3d containing (x, y, z) components in m/s
+     */
+    public Translation3d getVelocityVector() {
+        if (velocityVectorStream == null) {
+            DriverStation.reportError("Velocity vector stream is null.", null);
+            return new Translation3d(0, 0, 0);
+        }
+        try {
+            Triplet<Double, Double, Double> velocity = velocityVectorStream.get();
+            return new Translation3d(
+                velocity.getValue0(),
+                velocity.getValue1(),
+                velocity.getValue2()
+            );
+        } catch (Exception e) {
+            DriverStation.reportError("Failed to get velocity vector: " + e.getMessage(), e.getStackTrace());
+            return new Translation3d(0, 0, 0);
+        }
+    }
+
+    /**
+     * Gets one component of the surface velocity vector without building a Translation3d.
+     * @param axis 0 for x, 1 for y, 2 for z
+     * @return Velocity component in m/s, or 0.0 if unavailable
+     */
+    public double getVelocityComponent(int axis) {
+        if (velocityVectorStream == null) {
+            return 0.0;
+        }
+        try {
+            Triplet<Double, Double, Double> velocity = velocityVectorStream.get();
+            switch (axis) {
+                case 0: return velocity.getValue0();
+                case 1: return velocity.getValue1();
+                default: return velocity.getValue2();
+            }
+        } catch (Exception e) {
+            DriverStation.reportError("Failed to get velocity vector: " + e.getMessage(), e.getStackTrace());
+            return 0.0;
+        }
+    }
+
+    /**
+     * Gets the vertical speed: the surface velocity projected on the local up direction, which
+     * is the vessel's position from the body's center in the same frame.
+     * @return Vertical speed in m/s, positive up, or 0.0 if unavailable
+     */
+    public double getVerticalSpeed() {
+        if (velocityVectorStream == null || positionStream == null) {
+            return 0.0;
+        }
+        try {
+            Triplet<Double, Double, Double> velocity = velocityVectorStream.get();
+            Triplet<Double, Double, Double> position = positionStream.get();
+            double px = position.getValue0();
+            double py = position.getValue1();
+            double pz = position.getValue2();
+            double radius = Math.sqrt(px * px + py * py + pz * pz);
+            if (radius == 0.0) {
+                return 0.0;
+            }
+            return (velocity.getValue0() * px + velocity.getValue1() * py + velocity.getValue2() * pz) / radius;
+        } catch (Exception e) {
+            DriverStation.reportError("Failed to get vertical speed: " + e.getMessage(), e.getStackTrace());
+            return 0.0;
+        }
+    }
+
+    /**
+     * Reads the vessel's attitude without an RPC.
+     *
+     * <p>The rotation takes vectors from the vessel's frame (x right, y forward, z down) to the
+     * surface frame (x up, y north, z east). The angular velocity is rotated into the vessel's
+     * frame, so its components are the rates about the pitch (x), roll (y) and yaw (z) axes.
+     * @param out Filled with qx, qy, qz, qw, then the x, y and z body rates in rad/s
+     * @return false if the streams are unavailable, leaving {@code out} unchanged
+     */
+    public boolean getAttitude(double[] out) {
+        if (rotationStream == null || angularVelocityStream == null) {
+            return false;
+        }
+        try {
+            Quartet<Double, Double, Double, Double> rotation = rotationStream.get();
+            Triplet<Double, Double, Double> rate = angularVelocityStream.get();
+            double qx = rotation.getValue0();
+            double qy = rotation.getValue1();
+            double qz = rotation.getValue2();
+            double qw = rotation.getValue3();
+            double wx = rate.getValue0();
+            double wy = rate.getValue1();
+            double wz = rate.getValue2();
+
+            // Rotate the rate by the conjugate: v + 2w(u x v) + 2u x (u x v), with u = -q.xyz
+            double cx = -qy * wz + qz * wy;
+            double cy = -qz * wx + qx * wz;
+            double cz = -qx * wy + qy * wx;
+            out[0] = qx;
+            out[1] = qy;
+            out[2] = qz;
+            out[3] = qw;
+            out[4] = wx + 2.0 * qw * cx + 2.0 * (-qy * cz + qz * cy);
+            out[5] = wy + 2.0 * qw * cy + 2.0 * (-qz * cx + qx * cz);
+            out[6] = wz + 2.0 * qw * cz + 2.0 * (-qx * cy + qy * cx);
+            return true;
+        } catch (Exception e) {
+            DriverStation.reportError("Failed to get attitude: " + e.getMessage(), e.getStackTrace());
+            return false;
+        }
+    }
+
+    /**
+     * Gets the vessel's total mass.
+     * @return Mass in kg, or 0.0 if unavailable
+     */
+    public double getMass() {
+        if (massStream == null) {
+            return 0.0;
+        }
+        try {
+            return massStream.get();
+        } catch (Exception e) {
+            DriverStation.reportError("Failed to get mass: " + e.getMessage(), e.getStackTrace());
+            return 0.0;
+        }
+    }
+
+    /**
+     * Gets the thrust the active engines produce at full throttle.
+     * @return Available thrust in N, or 0.0 if unavailable
+     */
+    public double getAvailableThrust() {
+        if (availableThrustStream == null) {
+            return 0.0;
+        }
+        try {
+            return availableThrustStream.get();
+        } catch (Exception e) {
+            DriverStation.reportError("Failed to get available thrust: " + e.getMessage(), e.getStackTrace());
+            return 0.0;
+        }
+    }
+
+    /**
+     * Gets the dynamic pressure on the vessel.
+     * @return Dynamic pressure in Pa, or 0.0 if unavailable
+     */
+    public double getDynamicPressure() {
+        if (dynamicPressureStream == null) {
+            return 0.0;
+        }
+        try {
+            return dynamicPressureStream.get();
+        } catch (Exception e) {
+            DriverStation.reportError("Failed to get dynamic pressure: " + e.getMessage(), e.getStackTrace());
+            return 0.0;
+        }
+    }
+
+    /**
+     * Gets the apoapsis altitude above sea level.
+     * @return Apoapsis altitude in m, or 0.0 if unavailable
+     */
+    public double getApoapsisAltitude() {
+        if (apoapsisStream == null) {
+            return 0.0;
+        }
+        try {
+            return apoapsisStream.get();
+        } catch (Exception e) {
+            DriverStation.reportError("Failed to get apoapsis: " + e.getMessage(), e.getStackTrace());
+            return 0.0;
+        }
+    }
+
+    /**
+     * Gets the altitude above the terrain, or above the sea floor over water.
+     * @return Surface altitude in m, or 0.0 if unavailable
+     */
+    public double getSurfaceAltitude() {
+        if (surfaceAltitudeStream == null) {
+            return 0.0;
+        }
+        try {
+            return surfaceAltitudeStream.get();
+        } catch (Exception e) {
+            DriverStation.reportError("Failed to get surface altitude: " + e.getMessage(), e.getStackTrace());
+            return 0.0;
+        }
+    }
+
+    /**
+     * Gets the current throttle setting.
+     * @return Current throttle value between 0.0 and 1.0, or 0.0 if unavailable
+     */
+    public double getThrottle() {
+        if (throttleStream == null) {
+            DriverStation.reportError("Throttle stream is null.", null);
+            return 0.0;
+        }
+        try {
+            double throttle = throttleStream.get();
+            if (kDebugging) {
+                DriverStation.reportWarning("Throttle: " + throttle, false);
+            }
+            return throttle;
+        } catch (Exception e) {
+            DriverStation.reportError("Failed to get throttle: " + e.getMessage(), e.getStackTrace());
+            return 0.0;
+        }
+    }
+
+    /**
+     * Gets the vessel's current stage number.
+     * @return Current stage, or -1 if unavailable
+     */
+    public int getCurrentStage() {
+        if (currentStageStream == null) {
+            return -1;
+        }
+        try {
+            return currentStageStream.get();
+        } catch (Exception e) {
+            DriverStation.reportError("Failed to get current stage: " + e.getMessage(), e.getStackTrace());
+            return -1;
+        }
+    }
+
+    /**
+     * Checks whether the streams still deliver values, without reporting an error. Streams of a
+     * vessel that was destroyed, or that were closed, fail on read.
+     * @return True if the altitude stream can be read
+     */
+    public boolean isAlive() {
+        if (closed || altitudeStream == null) {
+            return false;
+        }
+        try {
+            altitudeStream.get();
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Removes all streams owned by this set.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            if (surfaceSpeedStream != null) surfaceSpeedStream.remove();
+            if (orbitalSpeedStream != null) orbitalSpeedStream.remove();
+            if (velocityVectorStream != null) velocityVectorStream.remove();
+            if (positionStream != null) positionStream.remove();
+            if (rotationStream != null) rotationStream.remove();
+            if (angularVelocityStream != null) angularVelocityStream.remove();
+            if (massStream != null) massStream.remove();
+            if (availableThrustStream != null) availableThrustStream.remove();
+            if (dynamicPressureStream != null) dynamicPressureStream.remove();
+            if (apoapsisStream != null) apoapsisStream.remove();
+            if (surfaceAltitudeStream != null) surfaceAltitudeStream.remove();
+            if (currentStageStream != null) currentStageStream.remove();
+            if (altitudeStream != null) {
+                altitudeStream.remove();
+                if (kDebugging) {
+                    DriverStation.reportWarning("Altitude stream removed.", false);
+                }
+            }
+            if (throttleStream != null) {
+                throttleStream.remove();
+                if (kDebugging) {
+                    DriverStation.reportWarning("Throttle stream removed.", false);
+                }
+            }
+        } catch (Exception e) {
+            DriverStation.reportError("Failed to close streams: " + e.getMessage(), e.getStackTrace());
+        }
+    }
+}
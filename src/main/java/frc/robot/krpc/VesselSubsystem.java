@@ -1,40 +1,106 @@
 package frc.robot.krpc;
 
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.robot.krpc.KRPCWrapper;
 import frc.robot.krpc.parts.*;
+import frc.robot.util.KSPResource;
 import krpc.client.RPCException;
 import krpc.client.services.SpaceCenter;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 
 public class VesselSubsystem extends SubsystemBase {
     private final KRPCWrapper krpc;
-    private final Map<String, Part> parts = new HashMap<>();
+    private final PartBackend partBackend;
+    private SpaceCenter.Vessel vessel;
+    private Map<String, Part> parts = new HashMap<>();
+    // Read by decouple() from the timer thread
+    private volatile PartTree partTree;
+    private StageAnalyzer stageAnalyzer;
+    private ResourceMonitor resourceMonitor;
+    private final AtomicReference<VesselState> pendingState = new AtomicReference<>();
+    // Part tree updates requested from other threads, applied in periodic()
+    private final Queue<Runnable> pendingTreeUpdates = new ConcurrentLinkedQueue<>();
     private long lastUpdateTime = 0;
     private static final long UPDATE_INTERVAL_MS = 100; // Update every 100ms
 
+    /**
+     * Everything the subsystem knows about one vessel, built off the main loop and
+     * installed in a single step.
+     */
+    private static final class VesselState {
+        private final SpaceCenter.Vessel vessel;
+        private final Map<String, Part> parts;
+        private final PartTree partTree;
+        private final StageAnalyzer stageAnalyzer;
+        private final ResourceMonitor resourceMonitor;
+
+        private VesselState(SpaceCenter.Vessel vessel, Map<String, Part> parts, PartTree partTree,
+                            StageAnalyzer stageAnalyzer, ResourceMonitor resourceMonitor) {
+            this.vessel = vessel;
+            this.parts = parts;
+            this.partTree = partTree;
+            this.stageAnalyzer = stageAnalyzer;
+            this.resourceMonitor = resourceMonitor;
+        }
+    }
+
     public VesselSubsystem(KRPCWrapper krpc) {
+        this(krpc, PartBackend.TYPED);
+    }
+
+    /**
+     * Creates a new vessel subsystem.
+     * @param krpc The connected wrapper
+     * @param partBackend How parts read and control KSP; parts without typed objects use module fields
+     */
+    public VesselSubsystem(KRPCWrapper krpc, PartBackend partBackend) {
         this.krpc = krpc;
-        updatePartsList();
+        this.partBackend = partBackend;
+        installVesselState(buildVesselState(krpc.getActiveVessel()));
+        // Rebuilt on the wrapper's rebind thread, installed on the next periodic()
+        krpc.addVesselChangeListener(newVessel -> pendingState.set(buildVesselState(newVessel)));
     }
 
     @Override
     public void periodic() {
+        VesselState pending = pendingState.getAndSet(null);
+        if (pending != null) {
+            installVesselState(pending);
+        }
+        Runnable treeUpdate;
+        while ((treeUpdate = pendingTreeUpdates.poll()) != null) {
+            treeUpdate.run();
+        }
+
+        updatePartTreeStage();
+
         long currentTime = System.currentTimeMillis();
         if (currentTime - lastUpdateTime > UPDATE_INTERVAL_MS) {
             updatePartsList();
             updatePartsState();
+            updateEngineData();
             displayPartsOnDashboard();
             lastUpdateTime = currentTime;
         }
+
+        if (resourceMonitor != null) {
+            resourceMonitor.update(Timer.getFPGATimestamp());
+        }
+        if (stageAnalyzer != null) {
+            stageAnalyzer.setThrottle(krpc.getThrottle());
+            stageAnalyzer.update();
+        }
     }
 
     private void updatePartsList() {
         try {
-            SpaceCenter.Parts partsCollection = krpc.getActiveVessel().getParts();
+            SpaceCenter.Parts partsCollection = vessel.getParts();
             List<SpaceCenter.Part> kspParts = partsCollection.getAll();
 
             // Track new parts
@@ -43,18 +109,187 @@ public class VesselSubsystem extends SubsystemBase {
                 if (!parts.containsKey(partName)) {
                     Part part = createPartInstance(partName, kspPart);
                     if (part != null) {
+                        part.useBackend(partBackend, krpc.getConnection());
+                        bindPartResources(part, partTree, resourceMonitor);
                         parts.put(partName, part);
                     }
                 }
             }
 
             // Remove parts that no longer exist
-            parts.entrySet().removeIf(entry -> !kspPartExists(entry.getKey(), kspParts));
+            parts.entrySet().removeIf(entry -> {
+                if (kspPartExists(entry.getKey(), kspParts)) {
+                    return false;
+                }
+                entry.getValue().unbindStreams();
+                return true;
+            });
         } catch (Exception e) {
             SmartDashboard.putString("VesselSubsystem/Error", "Failed to update parts list: " + e.getMessage());
         }
     }
 
+    /**
+     * Reads the part set, part tree and resource streams of a vessel. Issues all setup RPCs,
+     * so it is called from the constructor and from the wrapper's rebind thread only.
+     */
+    private VesselState buildVesselState(SpaceCenter.Vessel newVessel) {
+        Map<String, Part> newParts = new HashMap<>();
+        PartTree newTree = null;
+        StageAnalyzer newAnalyzer = null;
+        ResourceMonitor newMonitor = null;
+        if (newVessel == null) {
+            return new VesselState(null, newParts, null, null, null);
+        }
+        try {
+            for (SpaceCenter.Part kspPart : newVessel.getParts().getAll()) {
+                String partName = kspPart.getName();
+                if (!newParts.containsKey(partName)) {
+                    Part part = createPartInstance(partName, kspPart);
+                    if (part != null) {
+                        part.useBackend(partBackend, krpc.getConnection());
+                        newParts.put(partName, part);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            SmartDashboard.putString("VesselSubsystem/Error", "Failed to update parts list: " + e.getMessage());
+        }
+        try {
+            newTree = PartTree.build(newVessel);
+            newAnalyzer = new StageAnalyzer(newTree, newVessel.getOrbit().getBody().getSurfaceGravity());
+            newMonitor = ResourceMonitor.create(krpc.getConnection(), newVessel, newTree, krpc::runOnRebindThread);
+            for (Part part : newParts.values()) {
+                bindPartResources(part, newTree, newMonitor);
+            }
+        } catch (Exception e) {
+            SmartDashboard.putString("VesselSubsystem/Error", "Failed to build part tree: " + e.getMessage());
+        }
+        return new VesselState(newVessel, newParts, newTree, newAnalyzer, newMonitor);
+    }
+
+    /**
+     * Swaps in a fully built vessel state. The previous one is released on the rebind thread,
+     * since removing its streams takes one RPC per stream.
+     */
+    private void installVesselState(VesselState state) {
+        VesselState old = new VesselState(vessel, parts, partTree, stageAnalyzer, resourceMonitor);
+        vessel = state.vessel;
+        parts = state.parts;
+        partTree = state.partTree;
+        stageAnalyzer = state.stageAnalyzer;
+        resourceMonitor = state.resourceMonitor;
+        lastUpdateTime = 0;
+        krpc.runOnRebindThread(() -> closeVesselState(old));
+    }
+
+    /**
+     * Removes the streams of a vessel state that is no longer installed.
+     */
+    private static void closeVesselState(VesselState state) {
+        if (state.stageAnalyzer != null) {
+            state.stageAnalyzer.close();
+        }
+        if (state.resourceMonitor != null) {
+            state.resourceMonitor.close();
+        }
+        for (Part part : state.parts.values()) {
+            part.unbindStreams();
+        }
+    }
+
+    /**
+     * Connects tanks and batteries to the streamed resource monitor.
+     */
+    private static void bindPartResources(Part part, PartTree tree, ResourceMonitor monitor) {
+        if (monitor == null || tree == null) {
+            return;
+        }
+        if (part instanceof FuelTankPart fuelTank) {
+            fuelTank.bindResources(monitor, tree.indexOf(part.getKspPart()));
+        } else if (part instanceof BatteryPart battery) {
+            battery.bindResources(monitor, tree.indexOf(part.getKspPart()));
+        }
+    }
+
+    /**
+     * Prunes the cached part tree when the vessel's stage changes. Reads the streamed stage only.
+     */
+    private void updatePartTreeStage() {
+        if (partTree == null) {
+            return;
+        }
+        int stage = krpc.getCurrentStage();
+        if (stage >= 0 && stage != partTree.getCurrentStage()) {
+            partTree.onStageActivated(stage);
+        }
+        SmartDashboard.putNumber("PartTree/CurrentStage", partTree.getCurrentStage());
+        SmartDashboard.putNumber("PartTree/AttachedParts", partTree.getAttachedCount());
+    }
+
+    /**
+     * Feeds the specific impulse parsed by each EnginePart into the cached part tree so the
+     * stage analysis follows the engine's current (atmospheric) thrust. Mass flow stays the
+     * vacuum one.
+     */
+    private void updateEngineData() {
+        if (partTree == null) {
+            return;
+        }
+        for (Part part : parts.values()) {
+            if (part instanceof EnginePart enginePart && enginePart.getSpecificImpulse() > 0.0) {
+                int index = partTree.indexOf(enginePart.getKspPart());
+                if (index != PartTree.NONE) {
+                    partTree.setEngineIsp(index, enginePart.getSpecificImpulse());
+                }
+            }
+        }
+    }
+
+    /**
+     * Fires a decoupler and prunes the separated parts from the cached part tree.
+     * Safe to call from scheduled actions; the tree itself is pruned in the next periodic().
+     * @param decoupler The decoupler to fire
+     * @return true if decoupling was successful
+     */
+    public boolean decouple(DecouplerPart decoupler) {
+        boolean decoupled = decoupler.decouple();
+        PartTree tree = partTree;
+        if (decoupled && tree != null) {
+            int index = tree.indexOf(decoupler.getKspPart());
+            pendingTreeUpdates.add(() -> {
+                if (tree == partTree) {
+                    tree.onDecouplerFired(index);
+                }
+            });
+        }
+        return decoupled;
+    }
+
+    /**
+     * Gets the locally cached part tree.
+     * @return The part tree, or null if it could not be built
+     */
+    public PartTree getPartTree() {
+        return partTree;
+    }
+
+    /**
+     * Gets the per-stage delta-v calculator.
+     * @return The stage analyzer, or null if the part tree could not be built
+     */
+    public StageAnalyzer getStageAnalyzer() {
+        return stageAnalyzer;
+    }
+
+    /**
+     * Gets the streamed resource monitor.
+     * @return The resource monitor, or null if it could not be created
+     */
+    public ResourceMonitor getResourceMonitor() {
+        return resourceMonitor;
+    }
+
     private Part createPartInstance(String name, SpaceCenter.Part kspPart) {
         try {
             String tag = kspPart.getTag();
@@ -104,6 +339,16 @@ public class VesselSubsystem extends SubsystemBase {
                 if (tag.startsWith("SOLAR_")) {
                     return new SolarPanelPart(name, kspPart);
                 }
+                
+                // Airbrake parts
+                if (tag.startsWith("AIRBRAKE_")) {
+                    return new AirbrakePart(name, kspPart);
+                }
+                
+                // Docking port parts
+                if (tag.startsWith("DOCKING_")) {
+                    return new DockingPortPart(name, kspPart);
+                }
             
             // If no matching tag is found, return null
             return null;
@@ -158,6 +403,7 @@ public class VesselSubsystem extends SubsystemBase {
             
             // Add basic part information
             SmartDashboard.putBoolean(prefix + "Active", part.isActive());
+            SmartDashboard.putString(prefix + "Backend", part.getBackend().name());
             
             // Add type-specific information
             if (part instanceof EnginePart enginePart) {
@@ -186,6 +432,8 @@ public class VesselSubsystem extends SubsystemBase {
             } else if (part instanceof FuelTankPart fuelTank) {
                 SmartDashboard.putNumber(prefix + "FuelLevel", fuelTank.getFuelLevel());
                 SmartDashboard.putNumber(prefix + "Oxidizer", fuelTank.getOxidizer());
+                SmartDashboard.putNumber(prefix + "MonoPropellant", fuelTank.getMonoPropellant());
+                SmartDashboard.putNumber(prefix + "TimeToDepletion", fuelTank.getTimeToDepletion());
             } else if (part instanceof DecouplerPart decoupler) {
                 SmartDashboard.putBoolean(prefix + "Staged", decoupler.isStaged());
             } else if (part instanceof FairingPart fairing) {
@@ -208,6 +456,18 @@ public class VesselSubsystem extends SubsystemBase {
             String prefix = part.getClass().getSimpleName() + "/" + part.getName() + "/";
             SmartDashboard.putString(prefix + "Tag", String.join(", ", part.getTag()));
         }
+
+        // Resources left in the tanks dropped by the next stage
+        if (resourceMonitor != null && partTree != null) {
+            int dropStage = partTree.getCurrentStage() - 1;
+            for (KSPResource resource : KSPResource.values()) {
+                String prefix = "Resources/" + resource.getResourceName() + "/";
+                SmartDashboard.putNumber(prefix + "Total", resourceMonitor.getTotalAmount(resource));
+                SmartDashboard.putNumber(prefix + "Stage", resourceMonitor.getStageAmount(dropStage, resource));
+                SmartDashboard.putNumber(prefix + "StageRate", resourceMonitor.getStageConsumptionRate(dropStage, resource));
+                SmartDashboard.putNumber(prefix + "StageTimeToDepletion", resourceMonitor.getStageTimeToDepletion(dropStage, resource));
+            }
+        }
     }
 
     /**
@@ -228,6 +488,21 @@ public class VesselSubsystem extends SubsystemBase {
         return getPartsByTag(tag).get(0);
     }
 
+    /**
+     * Gets all wrapped parts of one kind.
+     * @param type The part class, e.g. AirbrakePart.class
+     * @return A new list of the matching parts
+     */
+    public <T extends Part> List<T> getPartsOfType(Class<T> type) {
+        List<T> matches = new ArrayList<>();
+        for (Part part : parts.values()) {
+            if (type.isInstance(part)) {
+                matches.add(type.cast(part));
+            }
+        }
+        return matches;
+    }
+
     public void printVesselParts(boolean debug) {
         try {
             SpaceCenter.Parts partsCollection = krpc.getActiveVessel().getParts();
@@ -0,0 +1,123 @@
+package frc.robot.krpc.parts;
+
+import frc.robot.util.KSPPartType;
+import krpc.client.Connection;
+import krpc.client.RPCException;
+import krpc.client.Stream;
+import krpc.client.StreamException;
+import krpc.client.services.SpaceCenter;
+
+public class AirbrakePart extends Part {
+    // Stock airbrakes are aero surfaces; older parts expose the module named by the part type
+    private static final String AERO_SURFACE_MODULE = "ModuleAeroSurface";
+    private static final String DEPLOY_FIELD = "Deploy";
+    private static final String AUTHORITY_FIELD = "Authority Limiter";
+    private static final double MAX_AUTHORITY = 100.0; // percent
+
+    private static final FieldSchema<AirbrakePart> AIRBRAKE_FIELDS = FieldSchema.<AirbrakePart>builder()
+        .bool(DEPLOY_FIELD, false, (part, value) -> part.isDeployed = value)
+        .number(AUTHORITY_FIELD, MAX_AUTHORITY, (part, value) -> part.authority = value)
+        .build();
+
+    private boolean isDeployed;
+    private double authority = MAX_AUTHORITY;
+
+    // Resolved once, every write goes straight to it
+    private final SpaceCenter.Module airbrakeModule;
+    private boolean writtenDeploy;
+    private double writtenAuthority = Double.NaN;
+
+    // Typed backend: kRPC has no airbrake object, so the module's fields are streamed instead
+    private Stream<String> deployStream;
+    private Stream<String> authorityStream;
+
+    public AirbrakePart(String name, SpaceCenter.Part kspPart) {
+        super(name, kspPart);
+        SpaceCenter.Module module = modules.get(AERO_SURFACE_MODULE);
+        airbrakeModule = module != null ? module : modules.get(KSPPartType.AIRBRAKE.getModuleName());
+    }
+
+    @Override
+    protected boolean bindTypedStreams(Connection connection) throws RPCException, StreamException {
+        if (airbrakeModule == null) {
+            return false;
+        }
+        deployStream = openStream(connection, airbrakeModule, "getField", DEPLOY_FIELD);
+        authorityStream = openStream(connection, airbrakeModule, "getField", AUTHORITY_FIELD);
+        return true;
+    }
+
+    /**
+     * Deploys the airbrake at full authority.
+     * @return true if the write succeeded
+     */
+    public boolean deploy() {
+        return setDeployment(1.0);
+    }
+
+    /**
+     * Retracts the airbrake.
+     * @return true if the write succeeded
+     */
+    public boolean retract() {
+        return setDeployment(0.0);
+    }
+
+    /**
+     * Sets how far the airbrake deploys, through its authority limiter. Only fields that differ
+     * from the last value written are sent. Blocks on the RPCs, so control loops should go
+     * through {@link frc.robot.control.AirbrakeChannel} instead.
+     * @param fraction Deployment between 0.0 (retracted) and 1.0 (full authority)
+     * @return true if the write succeeded
+     */
+    public boolean setDeployment(double fraction) {
+        if (airbrakeModule == null) {
+            System.out.println("ERROR: No airbrake module on " + name);
+            return false;
+        }
+        double clamped = Math.min(Math.max(fraction, 0.0), 1.0);
+        boolean deploy = clamped > 0.0;
+        try {
+            if (deploy) {
+                double percent = clamped * MAX_AUTHORITY;
+                if (percent != writtenAuthority) {
+                    airbrakeModule.setFieldFloat(AUTHORITY_FIELD, (float) percent);
+                    writtenAuthority = percent;
+                }
+            }
+            if (deploy != writtenDeploy) {
+                airbrakeModule.setFieldBool(DEPLOY_FIELD, deploy);
+                writtenDeploy = deploy;
+            }
+            isActive = deploy;
+            return true;
+        } catch (Exception e) {
+            System.out.println("Error setting airbrake deployment: " + e.getMessage());
+            // Force a full write next time
+            writtenAuthority = Double.NaN;
+            writtenDeploy = !deploy;
+            return false;
+        }
+    }
+
+    @Override
+    public void updateState() {
+        try {
+            if (backend == PartBackend.TYPED) {
+                isDeployed = FieldParser.parseBoolean(readValue(deployStream, ""), isDeployed);
+                authority = FieldParser.parseNumber(readValue(authorityStream, ""), authority);
+            } else if (airbrakeModule != null) {
+                AIRBRAKE_FIELDS.apply(this, airbrakeModule.getFields());
+            }
+            isActive = isDeployed;
+        } catch (Exception e) {
+            System.out.println("Error updating airbrake state: " + e.getMessage());
+        }
+    }
+
+    public boolean isDeployed() { return isDeployed; }
+    /** @return Authority limiter in percent */
+    public double getAuthority() { return authority; }
+    /** @return Deployment between 0.0 and 1.0, as last read */
+    public double getDeployment() { return isDeployed ? authority / MAX_AUTHORITY : 0.0; }
+}
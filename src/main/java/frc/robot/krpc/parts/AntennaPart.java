@@ -1,19 +1,45 @@
 package frc.robot.krpc.parts;
 
-import java.util.Map;
+import krpc.client.Connection;
+import krpc.client.RPCException;
+import krpc.client.Stream;
+import krpc.client.StreamException;
 import krpc.client.services.SpaceCenter;
 
 public class AntennaPart extends Part {
     private static final String DEPLOYABLE_MODULE = "ModuleDeployableAntenna";
     private static final String TRANSMITTER_MODULE = "ModuleDataTransmitter";
-    
+
+    private static final FieldSchema<AntennaPart> ANTENNA_FIELDS = FieldSchema.<AntennaPart>builder()
+        .text("Status", "Unknown", (part, value) -> part.status = value)
+        .build();
+
+    private static final FieldSchema<AntennaPart> TRANSMITTER_FIELDS = FieldSchema.<AntennaPart>builder()
+        .si("Antenna Rating", 0.0, (part, value) -> part.antennaRating = value)
+        .build();
     private String status;
     private double antennaRating;
 
+    // Typed backend
+    private SpaceCenter.Antenna antenna;
+    private Stream<SpaceCenter.AntennaState> stateStream;
+    private Stream<Double> powerStream;
+
     public AntennaPart(String name, SpaceCenter.Part kspPart) {
         super(name, kspPart);
     }
 
+    @Override
+    protected boolean bindTypedStreams(Connection connection) throws RPCException, StreamException {
+        antenna = kspPart.getAntenna();
+        if (antenna == null) {
+            return false;
+        }
+        stateStream = openStream(connection, antenna, "getState");
+        powerStream = openStream(connection, antenna, "getPower");
+        return true;
+    }
+
     /**
      * Deploys the antenna.
      * @return true if deployment was successful, false otherwise
@@ -21,6 +47,12 @@ public class AntennaPart extends Part {
     public boolean deploy() {
         try {
             System.out.println("Attempting to deploy antenna: " + name);
+
+            if (backend == PartBackend.TYPED) {
+                antenna.setDeployed(true);
+                isActive = true;
+                return true;
+            }
             
             SpaceCenter.Module antennaModule = modules.get(DEPLOYABLE_MODULE);
             if (antennaModule == null) {
@@ -50,6 +82,12 @@ public class AntennaPart extends Part {
      */
     public boolean retract() {
         try {
+            if (backend == PartBackend.TYPED) {
+                antenna.setDeployed(false);
+                isActive = false;
+                return true;
+            }
+
             SpaceCenter.Module antennaModule = modules.get(DEPLOYABLE_MODULE);
             if (antennaModule == null) {
                 return false;
@@ -67,15 +105,21 @@ public class AntennaPart extends Part {
     @Override
     public void updateState() {
         try {
+            if (backend == PartBackend.TYPED) {
+                SpaceCenter.AntennaState state = readValue(stateStream, null);
+                status = state == SpaceCenter.AntennaState.DEPLOYED ? "Extended"
+                    : state != null ? state.name() : "Unknown";
+                antennaRating = readNumber(powerStream, antennaRating);
+                isActive = state == SpaceCenter.AntennaState.DEPLOYED;
+                return;
+            }
+
             SpaceCenter.Module antennaModule = modules.get(DEPLOYABLE_MODULE);
             SpaceCenter.Module transmitterModule = modules.get(TRANSMITTER_MODULE);
             
             if (antennaModule != null && transmitterModule != null) {
-                Map<String, String> antennaFields = antennaModule.getFields();
-                Map<String, String> transmitterFields = transmitterModule.getFields();
-                
-                status = antennaFields.getOrDefault("Status", "Unknown");
-                antennaRating = parseDoubleOrZero(transmitterFields.get("Antenna Rating"));
+                ANTENNA_FIELDS.apply(this, antennaModule.getFields());
+                TRANSMITTER_FIELDS.apply(this, transmitterModule.getFields());
                 isActive = "Extended".equals(status);
 
                 if (isActive) {
@@ -1,5 +1,8 @@
 package frc.robot.krpc.parts;
 
+import frc.robot.krpc.PartTree;
+import frc.robot.krpc.ResourceMonitor;
+import frc.robot.util.KSPResource;
 import krpc.client.services.SpaceCenter;
 
 public class BatteryPart extends Part {
@@ -7,15 +10,30 @@ public class BatteryPart extends Part {
     
     private double chargeLevel;
 
+    private ResourceMonitor resourceMonitor;
+    private int partIndex = PartTree.NONE;
+
     public BatteryPart(String name, SpaceCenter.Part kspPart) {
         super(name, kspPart);
     }
 
+    /**
+     * Binds this battery to the streamed resource monitor.
+     * @param monitor The vessel's resource monitor
+     * @param partIndex This part's index in the cached part tree
+     */
+    public void bindResources(ResourceMonitor monitor, int partIndex) {
+        this.resourceMonitor = monitor;
+        this.partIndex = partIndex;
+    }
+
     @Override
     public void updateState() {
         try {
-            // Battery state might need to be accessed through vessel resources
             isActive = true; // Batteries are always "active"
+            if (resourceMonitor != null && partIndex != PartTree.NONE) {
+                chargeLevel = resourceMonitor.getPartAmount(partIndex, KSPResource.ELECTRIC_CHARGE);
+            }
         } catch (Exception e) {
             // Log error
         }
@@ -1,24 +1,52 @@
 package frc.robot.krpc.parts;
 
-import java.util.Map;
+import krpc.client.Connection;
+import krpc.client.RPCException;
+import krpc.client.Stream;
+import krpc.client.StreamException;
 import krpc.client.services.SpaceCenter;
 
 public class DecouplerPart extends Part {
     private static final String DECOUPLE_MODULE = "ModuleDecouple";
     private static final String ANCHORED_DECOUPLE_MODULE = "ModuleAnchoredDecoupler";
     private static final String CROSSFEED_MODULE = "ModuleToggleCrossfeed";
+
+    private static final FieldSchema<DecouplerPart> DECOUPLER_FIELDS = FieldSchema.<DecouplerPart>builder()
+        .bool("staged", (part, value) -> part.isStaged = value)
+        .build();
+
     private boolean isStaged;
 
+    // Typed backend
+    private SpaceCenter.Decoupler decoupler;
+    private Stream<Boolean> decoupledStream;
+
     public DecouplerPart(String name, SpaceCenter.Part kspPart) {
         super(name, kspPart);
     }
 
+    @Override
+    protected boolean bindTypedStreams(Connection connection) throws RPCException, StreamException {
+        decoupler = kspPart.getDecoupler();
+        if (decoupler == null) {
+            return false;
+        }
+        decoupledStream = openStream(connection, decoupler, "getDecoupled");
+        return true;
+    }
+
     /**
      * Attempts to activate the decoupler.
      * @return true if decoupling was successful, false otherwise
      */
     public boolean decouple() {
         try {
+            if (backend == PartBackend.TYPED) {
+                decoupler.decouple();
+                isStaged = true;
+                return true;
+            }
+
             SpaceCenter.Module decoupleModule = modules.get(DECOUPLE_MODULE);
             if (decoupleModule != null) {
                 decoupleModule.triggerEvent("Decouple");
@@ -35,6 +63,12 @@ public class DecouplerPart extends Part {
     @Override
     public void updateState() {
         try {
+            if (backend == PartBackend.TYPED) {
+                isStaged = readBoolean(decoupledStream, isStaged);
+                isActive = !isStaged;
+                return;
+            }
+
             // Check both regular and anchored decoupler modules
             SpaceCenter.Module decouplerModule = modules.get(DECOUPLE_MODULE);
             if (decouplerModule == null) {
@@ -43,17 +77,8 @@ public class DecouplerPart extends Part {
 
             if (decouplerModule != null) {
                 try {
-                    Map<String, String> fields = decouplerModule.getFields();
-                    //System.out.println("\nCurrent decoupler fields:");
-                    for (Map.Entry<String, String> entry : fields.entrySet()) {
-                        System.out.println("- " + entry.getKey() + " = " + entry.getValue());
-                    }
-
                     // Try to determine if it's been staged
-                    String staged = fields.get("staged");
-                    if (staged != null) {
-                        isStaged = Boolean.parseBoolean(staged);
-                    }
+                    DECOUPLER_FIELDS.apply(this, decouplerModule.getFields());
                 } catch (Exception e) {
                     System.out.println("Error getting fields: " + e.getMessage());
                 }
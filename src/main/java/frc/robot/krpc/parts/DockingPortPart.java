@@ -0,0 +1,113 @@
+package frc.robot.krpc.parts;
+
+import frc.robot.util.KSPPartType;
+import krpc.client.Connection;
+import krpc.client.RPCException;
+import krpc.client.Stream;
+import krpc.client.StreamException;
+import krpc.client.services.SpaceCenter;
+
+public class DockingPortPart extends Part {
+    private static final String DOCKING_MODULE = KSPPartType.DOCKING_PORT.getModuleName();
+
+    private static final FieldSchema<DockingPortPart> DOCKING_FIELDS = FieldSchema.<DockingPortPart>builder()
+        .text("State", "Unknown", (part, value) -> part.state = value)
+        .build();
+
+    private String state = "Unknown";
+
+    // Resolved once; the port's frame is what the docking autopilot measures in
+    private SpaceCenter.DockingPort dockingPort;
+    private SpaceCenter.ReferenceFrame referenceFrame;
+
+    // Typed backend
+    private Stream<SpaceCenter.DockingPortState> stateStream;
+
+    public DockingPortPart(String name, SpaceCenter.Part kspPart) {
+        super(name, kspPart);
+    }
+
+    @Override
+    protected boolean bindTypedStreams(Connection connection) throws RPCException, StreamException {
+        if (getDockingPort() == null) {
+            return false;
+        }
+        stateStream = openStream(connection, dockingPort, "getState");
+        return true;
+    }
+
+    /**
+     * Gets the typed docking port, resolving it on first use.
+     * @return The docking port, or null if the part has none
+     */
+    public SpaceCenter.DockingPort getDockingPort() {
+        if (dockingPort == null) {
+            try {
+                dockingPort = kspPart.getDockingPort();
+            } catch (Exception e) {
+                System.out.println("Error resolving docking port: " + e.getMessage());
+            }
+        }
+        return dockingPort;
+    }
+
+    /**
+     * Gets the port's reference frame: origin at the port, y out along the docking axis.
+     * @return The frame, or null if the part has no docking port
+     */
+    public SpaceCenter.ReferenceFrame getReferenceFrame() {
+        if (referenceFrame == null && getDockingPort() != null) {
+            try {
+                referenceFrame = dockingPort.getReferenceFrame();
+            } catch (Exception e) {
+                System.out.println("Error resolving docking port frame: " + e.getMessage());
+            }
+        }
+        return referenceFrame;
+    }
+
+    /**
+     * Undocks the vessel at this port.
+     * @return true if undocking was successful, false otherwise
+     */
+    public boolean undock() {
+        try {
+            if (getDockingPort() != null) {
+                dockingPort.undock();
+                return true;
+            }
+            SpaceCenter.Module dockingModule = modules.get(DOCKING_MODULE);
+            if (dockingModule == null) {
+                System.out.println("ERROR: Could not find docking module!");
+                return false;
+            }
+            dockingModule.triggerEvent("Undock");
+            return true;
+        } catch (Exception e) {
+            System.out.println("Error undocking: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public void updateState() {
+        try {
+            if (backend == PartBackend.TYPED) {
+                SpaceCenter.DockingPortState portState = readValue(stateStream, null);
+                state = portState != null ? portState.name() : "Unknown";
+            } else {
+                SpaceCenter.Module dockingModule = modules.get(DOCKING_MODULE);
+                if (dockingModule != null) {
+                    DOCKING_FIELDS.apply(this, dockingModule.getFields());
+                }
+            }
+            isActive = isDocked();
+        } catch (Exception e) {
+            System.out.println("Error updating docking port state: " + e.getMessage());
+        }
+    }
+
+    public String getState() { return state; }
+    public boolean isDocked() { return "DOCKED".equalsIgnoreCase(state) || state.startsWith("Docked"); }
+    public boolean isReady() { return "READY".equalsIgnoreCase(state); }
+}
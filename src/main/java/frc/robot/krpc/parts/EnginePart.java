@@ -1,12 +1,30 @@
 package frc.robot.krpc.parts;
 
-import java.util.Map;
+import krpc.client.Connection;
+import krpc.client.RPCException;
+import krpc.client.Stream;
+import krpc.client.StreamException;
 import krpc.client.services.SpaceCenter;
 
 public class EnginePart extends Part {
     private static final String ENGINE_MODULE = "ModuleEngines";
     private static final String ENGINE_FX_MODULE = "ModuleEnginesFX";
     private static final String GIMBAL_MODULE = "ModuleGimbal";
+    private static final double G0 = 9.80665;
+
+    private static final FieldSchema<EnginePart> ENGINE_FIELDS = FieldSchema.<EnginePart>builder()
+        .text("Status", "Unknown", (part, value) -> part.status = value)
+        .number("Specific Impulse", 0.0, (part, value) -> part.specificImpulse = value)
+        .number("Fuel Flow", 0.0, (part, value) -> part.fuelFlow = value)
+        .si("Thrust", 0.0, (part, value) -> part.thrust = value)
+        .bool("Throttle", false, (part, value) -> part.throttleEnabled = value)
+        .percent("Thrust Limiter", (part, value) -> part.thrustLimiter = value)
+        .build();
+
+    private static final FieldSchema<EnginePart> GIMBAL_FIELDS = FieldSchema.<EnginePart>builder()
+        .bool("Gimbal", false, (part, value) -> part.gimbalEnabled = value)
+        .number("Gimbal Limit", 0.0, (part, value) -> part.gimbalLimit = value)
+        .build();
     
     private double thrust;
     private double fuelFlow;
@@ -17,11 +35,44 @@ public class EnginePart extends Part {
     private double gimbalLimit;
     private boolean throttleEnabled;
     private double specificImpulse;
+    private double gimbalRange;
+
+    // Typed backend
+    private SpaceCenter.Engine engine;
+    private Stream<Boolean> activeStream;
+    private Stream<Boolean> hasFuelStream;
+    private Stream<Float> thrustStream;
+    private Stream<Float> maxThrustStream;
+    private Stream<Float> specificImpulseStream;
+    private Stream<Float> thrustLimitStream;
+    private Stream<Boolean> gimbalLockedStream;
+    private Stream<Float> gimbalLimitStream;
 
     public EnginePart(String name, SpaceCenter.Part kspPart) {
         super(name, kspPart);
     }
 
+    @Override
+    protected boolean bindTypedStreams(Connection connection) throws RPCException, StreamException {
+        engine = kspPart.getEngine();
+        if (engine == null) {
+            return false;
+        }
+        activeStream = openStream(connection, engine, "getActive");
+        hasFuelStream = openStream(connection, engine, "getHasFuel");
+        thrustStream = openStream(connection, engine, "getThrust");
+        maxThrustStream = openStream(connection, engine, "getMaxThrust");
+        specificImpulseStream = openStream(connection, engine, "getSpecificImpulse");
+        thrustLimitStream = openStream(connection, engine, "getThrustLimit");
+        if (engine.getGimballed()) {
+            // Fixed for the part, read once
+            gimbalRange = engine.getGimbalRange();
+            gimbalLockedStream = openStream(connection, engine, "getGimbalLocked");
+            gimbalLimitStream = openStream(connection, engine, "getGimbalLimit");
+        }
+        return true;
+    }
+
     /**
      * Activates the engine.
      * @return true if activation was successful, false otherwise
@@ -29,6 +80,12 @@ public class EnginePart extends Part {
     public boolean activate() {
         try {
             System.out.println("Attempting to activate engine: " + name);
+
+            if (backend == PartBackend.TYPED) {
+                engine.setActive(true);
+                isActive = true;
+                return true;
+            }
             
             SpaceCenter.Module engineModule = getEngineModule();
             if (engineModule == null) {
@@ -62,6 +119,12 @@ public class EnginePart extends Part {
      */
     public boolean shutdown() {
         try {
+            if (backend == PartBackend.TYPED) {
+                engine.setActive(false);
+                isActive = false;
+                return true;
+            }
+
             SpaceCenter.Module engineModule = getEngineModule();
             if (engineModule == null) {
                 return false;
@@ -84,13 +147,19 @@ public class EnginePart extends Part {
      */
     public boolean setThrustLimiter(double limit) {
         try {
+            // Clamp the value between 0 and 1
+            double clampedLimit = Math.min(Math.max(limit, 0.0), 1.0);
+
+            if (backend == PartBackend.TYPED) {
+                engine.setThrustLimit((float) clampedLimit);
+                thrustLimiter = clampedLimit;
+                return true;
+            }
+
             SpaceCenter.Module engineModule = getEngineModule();
             if (engineModule == null) {
                 return false;
             }
-
-            // Clamp the value between 0 and 1
-            double clampedLimit = Math.min(Math.max(limit, 0.0), 1.0);
             
             // Scale from 0-1 to 0-100
             float scaledLimit = (float)(clampedLimit * 100.0);
@@ -139,6 +208,11 @@ public class EnginePart extends Part {
     @Override
     public void updateState() {
         try {
+            if (backend == PartBackend.TYPED) {
+                updateTypedState();
+                return;
+            }
+
             // Get the appropriate engine module
             SpaceCenter.Module engineModule = modules.get(ENGINE_MODULE);
             if (engineModule == null) {
@@ -146,21 +220,13 @@ public class EnginePart extends Part {
             }
             
             if (engineModule != null) {
-                Map<String, String> fields = engineModule.getFields();
-                status = fields.getOrDefault("Status", "Unknown");
-                specificImpulse = parseDoubleOrZero(fields.get("Specific Impulse"));
-                fuelFlow = parseDoubleOrZero(fields.get("Fuel Flow"));
-                thrust = parseDoubleOrZero(fields.get("Thrust"));
-                throttleEnabled = Boolean.parseBoolean(fields.getOrDefault("Throttle", "False"));
-                thrustLimiter = parseDoubleOrZero(fields.get("Thrust Limiter"));
+                ENGINE_FIELDS.apply(this, engineModule.getFields());
             }
 
             // Update gimbal state
             SpaceCenter.Module gimbalModule = modules.get(GIMBAL_MODULE);
             if (gimbalModule != null) {
-                Map<String, String> fields = gimbalModule.getFields();
-                gimbalEnabled = Boolean.parseBoolean(fields.getOrDefault("Gimbal", "False"));
-                gimbalLimit = parseDoubleOrZero(fields.get("Gimbal Limit"));
+                GIMBAL_FIELDS.apply(this, gimbalModule.getFields());
             }
 
             isActive = "Nominal".equals(status) || "Running".equals(status);
@@ -169,6 +235,60 @@ public class EnginePart extends Part {
         }
     }
 
+    /**
+     * Reads the engine's streams. Fuel flow is derived from thrust and specific impulse.
+     */
+    private void updateTypedState() {
+        boolean running = readBoolean(activeStream, false);
+        thrust = readNumber(thrustStream, 0.0);
+        specificImpulse = readNumber(specificImpulseStream, 0.0);
+        thrustLimiter = readNumber(thrustLimitStream, thrustLimiter);
+        fuelFlow = specificImpulse > 0.0 ? thrust / (specificImpulse * G0) : 0.0;
+        gimbalEnabled = gimbalLockedStream != null && !readBoolean(gimbalLockedStream, true);
+        gimbalLimit = readNumber(gimbalLimitStream, 0.0);
+
+        if (!running) {
+            status = "Off";
+        } else {
+            status = readBoolean(hasFuelStream, true) ? "Running" : "Flameout";
+        }
+        isActive = running;
+    }
+
+    /**
+     * Reads the thrust stream directly, instead of the state cached by {@link #updateState()}.
+     * Only reads the stream's local value, so it is safe on the control loop thread.
+     * @return Thrust in N, or NaN on the module field backend or if the stream failed
+     */
+    public double readThrust() {
+        return backend == PartBackend.TYPED ? readNumber(thrustStream, Double.NaN) : Double.NaN;
+    }
+
+    /**
+     * Reads the thrust at full throttle under the current thrust limiter, from the streams.
+     * @return Thrust in N, or NaN on the module field backend or if a stream failed
+     */
+    public double readFullThrust() {
+        if (backend != PartBackend.TYPED) {
+            return Double.NaN;
+        }
+        return readNumber(maxThrustStream, Double.NaN) * readNumber(thrustLimitStream, Double.NaN);
+    }
+
+    /**
+     * Reads whether the engine is activated, from the stream. A flamed out engine is still active.
+     */
+    public boolean readActive() {
+        return backend == PartBackend.TYPED && readBoolean(activeStream, false);
+    }
+
+    /**
+     * Reads whether the engine has fuel, from the stream.
+     */
+    public boolean readHasFuel() {
+        return backend != PartBackend.TYPED || readBoolean(hasFuelStream, true);
+    }
+
     public double getThrust() { return thrust; }
     public double getFuelFlow() { return fuelFlow; }
     public String getStatus() { return status; }
@@ -176,6 +296,21 @@ public class EnginePart extends Part {
     public double getThrustLimiter() { return thrustLimiter; }
     public boolean isGimbalEnabled() { return gimbalEnabled; }
     public double getGimbalLimit() { return gimbalLimit; }
+    /** @return Full gimbal range in degrees, or 0 if unknown (module field backend) */
+    public double getGimbalRange() { return gimbalRange; }
+
+    /**
+     * Gets the gimbal deflection currently allowed, from the cached state.
+     * @return Degrees, or 0 if the gimbal is locked or its range is unknown
+     */
+    public double getGimbalAuthority() {
+        if (!gimbalEnabled) {
+            return 0.0;
+        }
+        // The typed backend reports the limit as 0 to 1, the module field as a percentage
+        double limit = backend == PartBackend.TYPED ? gimbalLimit : gimbalLimit / 100.0;
+        return gimbalRange * limit;
+    }
     public boolean isThrottleEnabled() { return throttleEnabled; }
     public double getSpecificImpulse() { return specificImpulse; }
     
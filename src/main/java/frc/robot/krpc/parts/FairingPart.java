@@ -2,6 +2,10 @@ package frc.robot.krpc.parts;
 
 import java.util.Map;
 
+import krpc.client.Connection;
+import krpc.client.RPCException;
+import krpc.client.Stream;
+import krpc.client.StreamException;
 import krpc.client.services.SpaceCenter;
 
 public class FairingPart extends Part {
@@ -9,16 +13,36 @@ public class FairingPart extends Part {
     private static final String CARGO_BAY_MODULE = "ModuleCargoBay";
     private boolean isDeployed;
 
+    // Typed backend
+    private SpaceCenter.Fairing fairing;
+    private Stream<Boolean> jettisonedStream;
+
     public FairingPart(String name, SpaceCenter.Part kspPart) {
         super(name, kspPart);
     }
 
+    @Override
+    protected boolean bindTypedStreams(Connection connection) throws RPCException, StreamException {
+        fairing = kspPart.getFairing();
+        if (fairing == null) {
+            return false;
+        }
+        jettisonedStream = openStream(connection, fairing, "getJettisoned");
+        return true;
+    }
+
     /**
      * Attempts to deploy the fairing.
      * @return true if deployment was successful, false otherwise
      */
     public boolean deploy() {
         try {
+            if (backend == PartBackend.TYPED) {
+                fairing.jettison();
+                isDeployed = true;
+                return true;
+            }
+
             SpaceCenter.Module fairingModule = modules.get(FAIRING_MODULE);
             if (fairingModule != null) {
                 fairingModule.triggerEvent("Deploy");
@@ -35,6 +59,11 @@ public class FairingPart extends Part {
     @Override
     public void updateState() {
         try {
+            if (backend == PartBackend.TYPED) {
+                isDeployed = readBoolean(jettisonedStream, isDeployed);
+                return;
+            }
+
             SpaceCenter.Module fairingModule = modules.get(FAIRING_MODULE);
             if (fairingModule != null) {
                 // Try to get the deployment state
@@ -0,0 +1,217 @@
+package frc.robot.krpc.parts;
+
+/**
+ * Allocation-free parsers for the display strings kRPC returns from {@code Module.getFields()}.
+ *
+ * <p>Numbers may carry an exponent ("1.5E+3") and any unit suffix, which is ignored. SI
+ * multipliers ("215.0kN", "500k", "2.1M") are applied only by {@link #parseSi}, since a
+ * leading 'k' or 'G' is part of the unit in readouts such as "kg" or "G" force. Percentages
+ * are read by {@link #parsePercent} as a fraction whether or not the '%' sign is shown. A
+ * ',' in the number is rejected rather than read as a decimal point, so a grouped "1,500"
+ * returns the fallback instead of 1.5. Nothing here creates substrings or boxes values.
+ */
+public final class FieldParser {
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final int MAX_MANTISSA_DIGITS = 18;
+
+    private static final int PLAIN = 0;
+    private static final int SI = 1;
+    private static final int PERCENT = 2;
+
+    private FieldParser() {}
+
+    /**
+     * Parses a number with optional exponent and unit suffix. The unit, including any SI
+     * prefix or '%', is ignored.
+     * @param text The field text, may be null
+     * @param fallback Value returned when the text holds no number
+     * @return The parsed value, or {@code fallback}
+     */
+    public static double parseNumber(CharSequence text, double fallback) {
+        return parse(text, fallback, PLAIN);
+    }
+
+    /**
+     * Parses a number whose unit may start with an SI multiplier: k, M or G.
+     * @param text The field text, may be null
+     * @param fallback Value returned when the text holds no number
+     * @return The parsed value in base units, or {@code fallback}
+     */
+    public static double parseSi(CharSequence text, double fallback) {
+        return parse(text, fallback, SI);
+    }
+
+    /**
+     * Parses a percentage as a fraction: "85%" and "85" both read as 0.85.
+     * @param text The field text, may be null
+     * @param fallback Value returned when the text holds no number
+     * @return The parsed fraction, or {@code fallback}
+     */
+    public static double parsePercent(CharSequence text, double fallback) {
+        return parse(text, fallback, PERCENT);
+    }
+
+    private static double parse(CharSequence text, double fallback, int mode) {
+        if (text == null) {
+            return fallback;
+        }
+        int length = text.length();
+        int i = skipWhitespace(text, 0, length);
+
+        boolean negative = false;
+        if (i < length && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean anyDigit = false;
+
+        while (i < length && isDigit(text.charAt(i))) {
+            if (digits < MAX_MANTISSA_DIGITS) {
+                mantissa = mantissa * 10 + (text.charAt(i) - '0');
+                if (mantissa != 0) {
+                    digits++;
+                }
+            } else {
+                exponent++;
+            }
+            anyDigit = true;
+            i++;
+        }
+        if (i < length && text.charAt(i) == '.' && i + 1 < length && isDigit(text.charAt(i + 1))) {
+            i++;
+            while (i < length && isDigit(text.charAt(i))) {
+                if (digits < MAX_MANTISSA_DIGITS) {
+                    mantissa = mantissa * 10 + (text.charAt(i) - '0');
+                    if (mantissa != 0) {
+                        digits++;
+                    }
+                    exponent--;
+                }
+                anyDigit = true;
+                i++;
+            }
+        }
+        // Grouping or a locale decimal comma: either way the digits read so far are not the value
+        if (!anyDigit || (i < length && text.charAt(i) == ',')) {
+            return fallback;
+        }
+
+        // Exponent, only if it is really followed by digits ("1.5E+3", not "5 Ec")
+        if (i < length && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+            int j = i + 1;
+            boolean negativeExponent = false;
+            if (j < length && (text.charAt(j) == '-' || text.charAt(j) == '+')) {
+                negativeExponent = text.charAt(j) == '-';
+                j++;
+            }
+            if (j < length && isDigit(text.charAt(j))) {
+                int value = 0;
+                while (j < length && isDigit(text.charAt(j))) {
+                    if (value < 10000) {
+                        value = value * 10 + (text.charAt(j) - '0');
+                    }
+                    j++;
+                }
+                exponent += negativeExponent ? -value : value;
+                i = j;
+            }
+        }
+
+        double result = scale(mantissa, exponent);
+
+        if (mode == PERCENT) {
+            result /= 100.0;
+        } else if (mode == SI) {
+            i = skipWhitespace(text, i, length);
+            if (i < length) {
+                char prefix = text.charAt(i);
+                if (prefix == 'k') {
+                    result *= 1e3;
+                } else if (prefix == 'M') {
+                    result *= 1e6;
+                } else if (prefix == 'G') {
+                    result *= 1e9;
+                }
+            }
+        }
+
+        return negative ? -result : result;
+    }
+
+    /**
+     * Parses a boolean written as True/False, On/Off, Yes/No, Enabled/Disabled or Active/Inactive.
+     * @param text The field text, may be null
+     * @param fallback Value returned when the text is not recognized
+     * @return The parsed value, or {@code fallback}
+     */
+    public static boolean parseBoolean(CharSequence text, boolean fallback) {
+        if (text == null) {
+            return fallback;
+        }
+        int length = text.length();
+        int start = skipWhitespace(text, 0, length);
+        int end = length;
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        if (equalsIgnoreCase(text, start, end, "true")
+                || equalsIgnoreCase(text, start, end, "on")
+                || equalsIgnoreCase(text, start, end, "yes")
+                || equalsIgnoreCase(text, start, end, "enabled")
+                || equalsIgnoreCase(text, start, end, "active")) {
+            return true;
+        }
+        if (equalsIgnoreCase(text, start, end, "false")
+                || equalsIgnoreCase(text, start, end, "off")
+                || equalsIgnoreCase(text, start, end, "no")
+                || equalsIgnoreCase(text, start, end, "disabled")
+                || equalsIgnoreCase(text, start, end, "inactive")) {
+            return false;
+        }
+        return fallback;
+    }
+
+    private static double scale(long mantissa, int exponent) {
+        if (exponent == 0) {
+            return mantissa;
+        }
+        if (exponent > 0) {
+            return exponent < POWERS_OF_TEN.length
+                ? mantissa * POWERS_OF_TEN[exponent]
+                : mantissa * Math.pow(10, exponent);
+        }
+        return -exponent < POWERS_OF_TEN.length
+            ? mantissa / POWERS_OF_TEN[-exponent]
+            : mantissa / Math.pow(10, -exponent);
+    }
+
+    private static boolean equalsIgnoreCase(CharSequence text, int start, int end, String word) {
+        if (end - start != word.length()) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (Character.toLowerCase(text.charAt(start + i)) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int skipWhitespace(CharSequence text, int i, int length) {
+        while (i < length && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
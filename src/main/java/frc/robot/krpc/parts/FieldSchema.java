@@ -0,0 +1,211 @@
+package frc.robot.krpc.parts;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compiled list of the module fields one Part subclass reads, and where each value goes.
+ *
+ * <p>Declared once per subclass as a static constant. Every entry pairs a field name with a
+ * precompiled parser ({@link FieldParser}) and a setter that writes straight into a primitive
+ * field of the part, so applying a schema to a {@code getFields()} map parses without boxing
+ * or creating strings. Missing or unparseable values leave the target field unchanged unless
+ * the entry declares a fallback.
+ *
+ * @param <T> The part type the setters write into
+ */
+public final class FieldSchema<T> {
+    private static final byte NUMBER = 0;
+    private static final byte SI = 1;
+    private static final byte PERCENT = 2;
+    private static final byte BOOLEAN = 3;
+    private static final byte TEXT = 4;
+
+    @FunctionalInterface
+    public interface NumberSetter<T> {
+        void set(T target, double value);
+    }
+
+    @FunctionalInterface
+    public interface BooleanSetter<T> {
+        void set(T target, boolean value);
+    }
+
+    @FunctionalInterface
+    public interface TextSetter<T> {
+        void set(T target, String value);
+    }
+
+    private final String[] names;
+    private final byte[] kinds;
+    private final double[] fallbacks;
+    private final boolean[] hasFallback;
+    private final String[] textFallbacks;
+    private final Object[] setters;
+
+    private FieldSchema(Builder<T> builder) {
+        int size = builder.names.size();
+        names = builder.names.toArray(new String[size]);
+        kinds = new byte[size];
+        fallbacks = new double[size];
+        hasFallback = new boolean[size];
+        textFallbacks = builder.textFallbacks.toArray(new String[size]);
+        setters = builder.setters.toArray();
+        for (int i = 0; i < size; i++) {
+            kinds[i] = builder.kinds.get(i);
+            fallbacks[i] = builder.fallbacks.get(i);
+            hasFallback[i] = !Double.isNaN(fallbacks[i]);
+        }
+    }
+
+    /**
+     * Starts a new schema.
+     * @param <T> The part type the setters write into
+     * @return A new builder
+     */
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Parses every declared field from a module's field map into the target.
+     * @param target The part to write into
+     * @param fields The module's fields as returned by {@code Module.getFields()}
+     * @return The number of declared fields that were present in the map
+     */
+    @SuppressWarnings("unchecked")
+    public int apply(T target, Map<String, String> fields) {
+        int found = 0;
+        for (int i = 0; i < names.length; i++) {
+            String raw = fields.get(names[i]);
+            if (raw != null) {
+                found++;
+            }
+            switch (kinds[i]) {
+                case NUMBER:
+                case SI:
+                case PERCENT: {
+                    double value = kinds[i] == SI ? FieldParser.parseSi(raw, fallbacks[i])
+                        : kinds[i] == PERCENT ? FieldParser.parsePercent(raw, fallbacks[i])
+                        : FieldParser.parseNumber(raw, fallbacks[i]);
+                    if (hasFallback[i] || !Double.isNaN(value)) {
+                        ((NumberSetter<T>) setters[i]).set(target, value);
+                    }
+                    break;
+                }
+                case BOOLEAN: {
+                    if (raw != null) {
+                        // Unrecognized text maps to the fallback, so parse twice only in that rare case
+                        boolean value = FieldParser.parseBoolean(raw, false);
+                        if (value || !FieldParser.parseBoolean(raw, true)) {
+                            ((BooleanSetter<T>) setters[i]).set(target, value);
+                        }
+                    } else if (hasFallback[i]) {
+                        ((BooleanSetter<T>) setters[i]).set(target, fallbacks[i] != 0.0);
+                    }
+                    break;
+                }
+                default: {
+                    String value = raw != null ? raw : textFallbacks[i];
+                    if (value != null) {
+                        ((TextSetter<T>) setters[i]).set(target, value);
+                    }
+                    break;
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Gets the number of declared fields.
+     * @return Field count
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Collects field declarations for a {@link FieldSchema}.
+     * @param <T> The part type the setters write into
+     */
+    public static final class Builder<T> {
+        private final List<String> names = new ArrayList<>();
+        private final List<Byte> kinds = new ArrayList<>();
+        private final List<Double> fallbacks = new ArrayList<>();
+        private final List<String> textFallbacks = new ArrayList<>();
+        private final List<Object> setters = new ArrayList<>();
+
+        private Builder() {}
+
+        private Builder<T> add(String name, byte kind, double fallback, String textFallback, Object setter) {
+            names.add(name);
+            kinds.add(kind);
+            fallbacks.add(fallback);
+            textFallbacks.add(textFallback);
+            setters.add(setter);
+            return this;
+        }
+
+        /**
+         * Declares a number with optional unit, e.g. "320s" or "1.5E+3". The unit is ignored,
+         * SI prefix included. Missing or unparseable values leave the field unchanged.
+         */
+        public Builder<T> number(String name, NumberSetter<T> setter) {
+            return add(name, NUMBER, Double.NaN, null, setter);
+        }
+
+        /**
+         * Declares a number that is set to {@code fallback} when missing or unparseable.
+         */
+        public Builder<T> number(String name, double fallback, NumberSetter<T> setter) {
+            return add(name, NUMBER, fallback, null, setter);
+        }
+
+        /**
+         * Declares a number whose unit may carry an SI multiplier, e.g. "215.0kN" or "2.1M",
+         * set to {@code fallback} when missing or unparseable.
+         */
+        public Builder<T> si(String name, double fallback, NumberSetter<T> setter) {
+            return add(name, SI, fallback, null, setter);
+        }
+
+        /**
+         * Declares a percentage, written as a fraction: "85%" and "85" both become 0.85.
+         */
+        public Builder<T> percent(String name, NumberSetter<T> setter) {
+            return add(name, PERCENT, Double.NaN, null, setter);
+        }
+
+        /**
+         * Declares a boolean such as True/False or On/Off.
+         * Missing or unrecognized values leave the field unchanged.
+         */
+        public Builder<T> bool(String name, BooleanSetter<T> setter) {
+            return add(name, BOOLEAN, Double.NaN, null, setter);
+        }
+
+        /**
+         * Declares a boolean that is set to {@code fallback} when missing.
+         */
+        public Builder<T> bool(String name, boolean fallback, BooleanSetter<T> setter) {
+            return add(name, BOOLEAN, fallback ? 1.0 : 0.0, null, setter);
+        }
+
+        /**
+         * Declares a text field that is set to {@code fallback} when missing.
+         */
+        public Builder<T> text(String name, String fallback, TextSetter<T> setter) {
+            return add(name, TEXT, Double.NaN, fallback, setter);
+        }
+
+        /**
+         * Compiles the declarations.
+         * @return The schema
+         */
+        public FieldSchema<T> build() {
+            return new FieldSchema<>(this);
+        }
+    }
+}
@@ -1,25 +1,60 @@
 package frc.robot.krpc.parts;
 
+import frc.robot.krpc.PartTree;
+import frc.robot.krpc.ResourceMonitor;
+import frc.robot.util.KSPResource;
 import krpc.client.services.SpaceCenter;
 
 public class FuelTankPart extends Part {
     private double fuelLevel;
     private double oxidizer;
+    private double monoPropellant;
+    private double fuelConsumptionRate;
+    private double timeToDepletion = Double.POSITIVE_INFINITY;
+
+    private ResourceMonitor resourceMonitor;
+    private int partIndex = PartTree.NONE;
 
     public FuelTankPart(String name, SpaceCenter.Part kspPart) {
         super(name, kspPart);
     }
 
+    /**
+     * Binds this tank to the streamed resource monitor. Until bound, all amounts read as 0.
+     * @param monitor The vessel's resource monitor
+     * @param partIndex This part's index in the cached part tree
+     */
+    public void bindResources(ResourceMonitor monitor, int partIndex) {
+        this.resourceMonitor = monitor;
+        this.partIndex = partIndex;
+    }
+
     @Override
     public void updateState() {
         try {
-            // Fuel levels might need to be accessed through vessel resources
             isActive = true; // Fuel tanks are always "active"
+            if (resourceMonitor == null || partIndex == PartTree.NONE) {
+                return;
+            }
+
+            // Amounts come from the monitor's streams, no RPC here
+            fuelLevel = resourceMonitor.getPartAmount(partIndex, KSPResource.LIQUID_FUEL);
+            oxidizer = resourceMonitor.getPartAmount(partIndex, KSPResource.OXIDIZER);
+            monoPropellant = resourceMonitor.getPartAmount(partIndex, KSPResource.MONO_PROPELLANT);
+            fuelConsumptionRate = resourceMonitor.getPartConsumptionRate(partIndex, KSPResource.LIQUID_FUEL);
+            double oxidizerRate = resourceMonitor.getPartConsumptionRate(partIndex, KSPResource.OXIDIZER);
+
+            double fuelTime = fuelConsumptionRate > 1e-9 ? fuelLevel / fuelConsumptionRate : Double.POSITIVE_INFINITY;
+            double oxidizerTime = oxidizerRate > 1e-9 ? oxidizer / oxidizerRate : Double.POSITIVE_INFINITY;
+            timeToDepletion = Math.min(fuelTime, oxidizerTime);
         } catch (Exception e) {
-            // Log error
+            System.out.println("Error updating fuel tank state: " + e.getMessage());
         }
     }
 
     public double getFuelLevel() { return fuelLevel; }
     public double getOxidizer() { return oxidizer; }
+    public double getMonoPropellant() { return monoPropellant; }
+    public double getFuelConsumptionRate() { return fuelConsumptionRate; }
+    public double getTimeToDepletion() { return timeToDepletion; }
 }
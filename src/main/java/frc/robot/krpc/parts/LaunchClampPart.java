@@ -5,7 +5,12 @@ import krpc.client.services.SpaceCenter;
 public class LaunchClampPart extends Part {
     private static final String LAUNCH_CLAMP_MODULE = "LaunchClamp";
     private static final String GENERATOR_MODULE = "ModuleGenerator";
-    
+
+    private static final FieldSchema<LaunchClampPart> GENERATOR_FIELDS = FieldSchema.<LaunchClampPart>builder()
+        .percent("Efficiency", (part, value) -> part.efficiency = value)
+        .bool("Generator", (part, value) -> part.generatorActive = value)
+        .build();
+
     private boolean isReleased;
     private double efficiency;
     private boolean generatorActive;
@@ -17,8 +22,10 @@ public class LaunchClampPart extends Part {
     @Override
     public void updateState() {
         try {
-            efficiency = Double.parseDouble(getFieldValue(GENERATOR_MODULE, "Efficiency"));
-            generatorActive = Boolean.parseBoolean(getFieldValue(GENERATOR_MODULE, "Generator"));
+            SpaceCenter.Module generatorModule = getModule(GENERATOR_MODULE);
+            if (generatorModule != null) {
+                GENERATOR_FIELDS.apply(this, generatorModule.getFields());
+            }
             isActive = !isReleased && generatorActive;
         } catch (Exception e) {
             // Log error
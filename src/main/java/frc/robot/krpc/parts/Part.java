@@ -1,12 +1,18 @@
 package frc.robot.krpc.parts;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import krpc.client.Connection;
 import krpc.client.RPCException;
+import krpc.client.RemoteObject;
+import krpc.client.Stream;
+import krpc.client.StreamException;
 import krpc.client.services.SpaceCenter;
 
 public abstract class Part {
@@ -14,6 +20,8 @@ public abstract class Part {
     protected final SpaceCenter.Part kspPart;
     protected final Map<String, SpaceCenter.Module> modules;
     protected boolean isActive;
+    protected PartBackend backend = PartBackend.MODULE_FIELDS;
+    private final List<Stream<?>> streams = new ArrayList<>();
 
     public Part(String name, SpaceCenter.Part kspPart) {
         this.name = name;
@@ -43,6 +51,104 @@ public abstract class Part {
     }
 
     public abstract void updateState();
+
+    /**
+     * Switches this part to a backend. The typed backend resolves the part's typed kRPC object
+     * and opens its streams; if that fails or the part has no typed object, the part stays on
+     * {@link PartBackend#MODULE_FIELDS}.
+     * @param requested The backend to use
+     * @param connection The kRPC connection used to open streams
+     * @return The backend actually in use
+     */
+    public PartBackend useBackend(PartBackend requested, Connection connection) {
+        unbindStreams();
+        backend = PartBackend.MODULE_FIELDS;
+        if (requested == PartBackend.TYPED && connection != null) {
+            try {
+                if (bindTypedStreams(connection)) {
+                    backend = PartBackend.TYPED;
+                }
+            } catch (Exception e) {
+                System.out.println("Typed backend unavailable for " + name + ": " + e.getMessage());
+                unbindStreams();
+            }
+        }
+        return backend;
+    }
+
+    /**
+     * Resolves the typed kRPC object of this part and opens its streams with {@link #openStream}.
+     * @param connection The kRPC connection
+     * @return true if the part supports the typed backend
+     */
+    protected boolean bindTypedStreams(Connection connection) throws RPCException, StreamException {
+        return false;
+    }
+
+    /**
+     * Opens and starts a stream owned by this part. Removed again by {@link #unbindStreams()}.
+     */
+    protected <T> Stream<T> openStream(Connection connection, RemoteObject instance, String method, Object... args)
+            throws RPCException, StreamException {
+        Stream<T> stream = connection.addStream(instance, method, args);
+        streams.add(stream);
+        stream.start();
+        return stream;
+    }
+
+    /**
+     * Removes every stream opened by this part.
+     */
+    public void unbindStreams() {
+        for (Stream<?> stream : streams) {
+            try {
+                stream.remove();
+            } catch (Exception e) {
+                // Stream already gone with its vessel
+            }
+        }
+        streams.clear();
+    }
+
+    public PartBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Reads a numeric stream, returning {@code fallback} if it is missing or failed.
+     */
+    protected static double readNumber(Stream<? extends Number> stream, double fallback) {
+        if (stream == null) {
+            return fallback;
+        }
+        try {
+            return stream.get().doubleValue();
+        } catch (Exception e) {
+            return fallback;
+        }
+    }
+
+    /**
+     * Reads a boolean stream, returning {@code fallback} if it is missing or failed.
+     */
+    protected static boolean readBoolean(Stream<Boolean> stream, boolean fallback) {
+        return readValue(stream, fallback);
+    }
+
+    /**
+     * Reads any stream, returning {@code fallback} if it is missing, failed or has no value yet.
+     */
+    protected static <T> T readValue(Stream<T> stream, T fallback) {
+        if (stream == null) {
+            return fallback;
+        }
+        try {
+            T value = stream.get();
+            return value != null ? value : fallback;
+        } catch (Exception e) {
+            return fallback;
+        }
+    }
     
     public String getName() {
         return name;
@@ -66,16 +172,8 @@ public abstract class Part {
     }
 
     protected double parseDoubleOrZero(String value) {
-        try {
-            if (value == null) return 0.0;
-            // Remove any 'k' suffix and multiply by 1000
-            if (value.endsWith("k")) {
-                return Double.parseDouble(value.substring(0, value.length() - 1)) * 1000;
-            }
-            return Double.parseDouble(value);
-        } catch (NumberFormatException e) {
-            return 0.0;
-        }
+        // Keeps unit suffixes ("320s", "1.5E+3") from turning into 0
+        return FieldParser.parseNumber(value, 0.0);
     }
 
     protected SpaceCenter.Module getModule(String moduleName) {
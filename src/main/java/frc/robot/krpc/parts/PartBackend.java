@@ -0,0 +1,15 @@
+package frc.robot.krpc.parts;
+
+/**
+ * How a {@link Part} reads and controls its KSP part.
+ */
+public enum PartBackend {
+    /** Reads module fields by name and triggers events by their display strings. */
+    MODULE_FIELDS,
+
+    /**
+     * Uses kRPC's typed part objects (Engine, Decoupler, Fairing, ...) and streams their
+     * properties. Parts without a typed object fall back to {@link #MODULE_FIELDS}.
+     */
+    TYPED
+}
@@ -1,19 +1,31 @@
 package frc.robot.krpc.parts;
 
-import java.util.List;
-import java.util.Map;
-
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.krpc.VesselSubsystem;
+import krpc.client.Connection;
+import krpc.client.RPCException;
+import krpc.client.Stream;
+import krpc.client.StreamException;
 import krpc.client.services.SpaceCenter;
 
 public class ProbeCorePart extends Part {
     private static final String COMMAND_MODULE = "ModuleCommand";
     private static final String SAS_MODULE = "ModuleSAS";
     private static final String TRANSMITTER_MODULE = "ModuleDataTransmitter";
-    
+
+    private static final FieldSchema<ProbeCorePart> COMMAND_FIELDS = FieldSchema.<ProbeCorePart>builder()
+        .text("Command State", "Unknown", (part, value) -> part.commandState = value)
+        .bool("Hibernation", false, (part, value) -> part.isHibernating = value)
+        .number("Comm Signal", 0.0, (part, value) -> part.commSignal = value) // "NA" reads as 0
+        .bool("Hibernate in Warp", false, (part, value) -> part.hibernateInWarp = value)
+        .build();
+
+    private static final FieldSchema<ProbeCorePart> TRANSMITTER_FIELDS = FieldSchema.<ProbeCorePart>builder()
+        .text("Antenna State", "Unknown", (part, value) -> part.antennaState = value)
+        .si("Antenna Rating", 0.0, (part, value) -> part.antennaRating = value)
+        .build();
     
     private String commandState;
     private boolean isHibernating;
@@ -24,10 +36,27 @@ public class ProbeCorePart extends Part {
     private double antennaRating;
     private boolean hibernateInWarp;
 
+    // Typed backend. Hibernation has no typed API and stays on the command module.
+    private Stream<Boolean> sasStream;
+    private Stream<SpaceCenter.SASMode> sasModeStream;
+    private Stream<Boolean> reactionWheelStream;
+
     public ProbeCorePart(String name, SpaceCenter.Part kspPart) {
         super(name, kspPart);
     }
 
+    @Override
+    protected boolean bindTypedStreams(Connection connection) throws RPCException, StreamException {
+        SpaceCenter.Control control = kspPart.getVessel().getControl();
+        sasStream = openStream(connection, control, "getSAS");
+        sasModeStream = openStream(connection, control, "getSASMode");
+        SpaceCenter.ReactionWheel reactionWheel = kspPart.getReactionWheel();
+        if (reactionWheel != null) {
+            reactionWheelStream = openStream(connection, reactionWheel, "getActive");
+        }
+        return true;
+    }
+
     /**
      * Enables or disables hibernation mode.
      * @param hibernate true to hibernate, false to wake
@@ -117,23 +146,28 @@ public class ProbeCorePart extends Part {
     @Override
     public void updateState() {
         try {
+            // Hibernation, comms and antenna have no typed API and always come from the modules
             SpaceCenter.Module commandModule = modules.get(COMMAND_MODULE);
             if (commandModule != null) {
-                Map<String, String> fields = commandModule.getFields();
-                commandState = fields.getOrDefault("Command State", "Unknown");
-                isHibernating = Boolean.parseBoolean(fields.getOrDefault("Hibernation", "False"));
-                commSignal = fields.getOrDefault("Comm Signal", "NA").equals("NA") ? 0.0 : parseDoubleOrZero(fields.getOrDefault("Comm Signal", "0"));
-                hibernateInWarp = Boolean.parseBoolean(fields.getOrDefault("Hibernate in Warp", "False"));
+                COMMAND_FIELDS.apply(this, commandModule.getFields());
             }
 
             SpaceCenter.Module transmitterModule = modules.get(TRANSMITTER_MODULE);
             if (transmitterModule != null) {
-                Map<String, String> fields = transmitterModule.getFields();
-                antennaState = fields.getOrDefault("Antenna State", "Unknown");
-                antennaRating = parseDoubleOrZero(fields.get("Antenna Rating").replace("k", "000"));
+                TRANSMITTER_FIELDS.apply(this, transmitterModule.getFields());
+            }
+
+            boolean wheelActive = true;
+            if (backend == PartBackend.TYPED) {
+                sasEnabled = readBoolean(sasStream, sasEnabled);
+                SpaceCenter.SASMode mode = readValue(sasModeStream, null);
+                if (mode != null) {
+                    sasMode = mode.name();
+                }
+                wheelActive = readBoolean(reactionWheelStream, true);
             }
 
-            isActive = "Operational".equals(commandState) && !isHibernating;
+            isActive = "Operational".equals(commandState) && !isHibernating && wheelActive;
         } catch (Exception e) {
             System.out.println("Error updating probe core state: " + e.getMessage());
         }
@@ -219,7 +253,7 @@ public class ProbeCorePart extends Part {
             SASMode currentMode = SASMode.valueOf(getSASMode());
             SASMode[] modes = SASMode.values();
             int nextIndex = (currentMode.ordinal() + 1) % modes.length;
-            setSASMode(modes[nextIndex]);
+            setLocalSASMode(modes[nextIndex]);
             updateState();
         });
     }
@@ -234,7 +268,7 @@ public class ProbeCorePart extends Part {
                 setHibernation(false);
             }
             setSAS(true);
-            setSASMode(SASMode.STABILITY_ASSIST);
+            setLocalSASMode(SASMode.STABILITY_ASSIST);
             updateState();
         });
     }
@@ -287,7 +321,7 @@ public class ProbeCorePart extends Part {
                 setHibernation(false);
             }
             setSAS(true);
-            setSASMode(SASMode.MANEUVER);
+            setLocalSASMode(SASMode.MANEUVER);
             updateState();
         });
     }
@@ -298,7 +332,7 @@ public class ProbeCorePart extends Part {
                 setHibernation(false);
             }
             setSAS(true);
-            setSASMode(SASMode.TARGET);
+            setLocalSASMode(SASMode.TARGET);
             updateState();
         });
     }
@@ -306,7 +340,7 @@ public class ProbeCorePart extends Part {
     public Command killRotation() {
         return new InstantCommand(() -> {
             setSAS(true);
-            setSASMode(SASMode.STABILITY_ASSIST);
+            setLocalSASMode(SASMode.STABILITY_ASSIST);
             try {
                 kspPart.getVessel().getControl().setRCS(true);
             } catch (Exception e) {
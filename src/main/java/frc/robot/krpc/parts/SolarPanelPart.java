@@ -1,20 +1,46 @@
 package frc.robot.krpc.parts;
 
-import java.util.Map;
-
+import krpc.client.Connection;
+import krpc.client.RPCException;
+import krpc.client.Stream;
+import krpc.client.StreamException;
 import krpc.client.services.SpaceCenter;
 
 public class SolarPanelPart extends Part {
     private static final String SOLAR_PANEL_MODULE = "ModuleDeployableSolarPanel";
-    
+
+    private static final FieldSchema<SolarPanelPart> PANEL_FIELDS = FieldSchema.<SolarPanelPart>builder()
+        .number("Energy Flow", 0.0, (part, value) -> part.energyFlow = value)
+        .text("Status", "Unknown", (part, value) -> part.status = value)
+        .percent("Sun Exposure", (part, value) -> part.sunExposure = value)
+        .build();
+
     private double energyFlow;
     private String status;
     private double sunExposure;
 
+    // Typed backend
+    private SpaceCenter.SolarPanel solarPanel;
+    private Stream<Float> energyFlowStream;
+    private Stream<Float> sunExposureStream;
+    private Stream<SpaceCenter.SolarPanelState> stateStream;
+
     public SolarPanelPart(String name, SpaceCenter.Part kspPart) {
         super(name, kspPart);
     }
 
+    @Override
+    protected boolean bindTypedStreams(Connection connection) throws RPCException, StreamException {
+        solarPanel = kspPart.getSolarPanel();
+        if (solarPanel == null) {
+            return false;
+        }
+        energyFlowStream = openStream(connection, solarPanel, "getEnergyFlow");
+        sunExposureStream = openStream(connection, solarPanel, "getSunExposure");
+        stateStream = openStream(connection, solarPanel, "getState");
+        return true;
+    }
+
     /**
      * Deploys the solar panel.
      * @return true if deployment was successful, false otherwise
@@ -22,6 +48,12 @@ public class SolarPanelPart extends Part {
     public boolean deploy() {
         try {
             System.out.println("Attempting to deploy solar panel: " + name);
+
+            if (backend == PartBackend.TYPED) {
+                solarPanel.setDeployed(true);
+                isActive = true;
+                return true;
+            }
             
             SpaceCenter.Module panelModule = modules.get(SOLAR_PANEL_MODULE);
             if (panelModule == null) {
@@ -51,6 +83,12 @@ public class SolarPanelPart extends Part {
      */
     public boolean retract() {
         try {
+            if (backend == PartBackend.TYPED) {
+                solarPanel.setDeployed(false);
+                isActive = false;
+                return true;
+            }
+
             SpaceCenter.Module panelModule = modules.get(SOLAR_PANEL_MODULE);
             if (panelModule == null) {
                 return false;
@@ -68,13 +106,20 @@ public class SolarPanelPart extends Part {
     @Override
     public void updateState() {
         try {
+            if (backend == PartBackend.TYPED) {
+                energyFlow = readNumber(energyFlowStream, 0.0);
+                sunExposure = readNumber(sunExposureStream, 0.0);
+                SpaceCenter.SolarPanelState state = readValue(stateStream, null);
+                // Same status text as the module field, so isActive means the same on both backends
+                status = state == SpaceCenter.SolarPanelState.EXTENDED ? "Extended"
+                    : state != null ? state.name() : "Unknown";
+                isActive = state == SpaceCenter.SolarPanelState.EXTENDED;
+                return;
+            }
+
             SpaceCenter.Module panelModule = modules.get(SOLAR_PANEL_MODULE);
             if (panelModule != null) {
-                Map<String, String> fields = panelModule.getFields();
-                
-                energyFlow = parseDoubleOrZero(fields.get("Energy Flow"));
-                status = fields.getOrDefault("Status", "Unknown");
-                sunExposure = parseDoubleOrZero(fields.get("Sun Exposure"));
+                PANEL_FIELDS.apply(this, panelModule.getFields());
                 isActive = "Extended".equals(status);
 
                 if (isActive) {
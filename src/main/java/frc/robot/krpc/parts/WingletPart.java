@@ -4,7 +4,16 @@ import krpc.client.services.SpaceCenter;
 
 public class WingletPart extends Part {
     private static final String CONTROL_SURFACE_MODULE = "ModuleControlSurface";
-    
+
+    private static final FieldSchema<WingletPart> CONTROL_SURFACE_FIELDS = FieldSchema.<WingletPart>builder()
+        .number("Authority Limiter", (part, value) -> part.authority = value)
+        .number("Deploy Angle", (part, value) -> part.deployAngle = value)
+        .bool("Deploy", (part, value) -> part.isDeployed = value)
+        .number("Pitch", (part, value) -> part.pitch = value)
+        .number("Roll", (part, value) -> part.roll = value)
+        .number("Yaw", (part, value) -> part.yaw = value)
+        .build();
+
     private double authority;
     private double deployAngle;
     private boolean isDeployed;
@@ -19,12 +28,11 @@ public class WingletPart extends Part {
     @Override
     public void updateState() {
         try {
-            authority = Double.parseDouble(getFieldValue(CONTROL_SURFACE_MODULE, "Authority Limiter"));
-            deployAngle = Double.parseDouble(getFieldValue(CONTROL_SURFACE_MODULE, "Deploy Angle"));
-            isDeployed = Boolean.parseBoolean(getFieldValue(CONTROL_SURFACE_MODULE, "Deploy"));
-            pitch = Double.parseDouble(getFieldValue(CONTROL_SURFACE_MODULE, "Pitch"));
-            roll = Double.parseDouble(getFieldValue(CONTROL_SURFACE_MODULE, "Roll"));
-            yaw = Double.parseDouble(getFieldValue(CONTROL_SURFACE_MODULE, "Yaw"));
+            // One getFields() call instead of one per field
+            SpaceCenter.Module controlSurfaceModule = getModule(CONTROL_SURFACE_MODULE);
+            if (controlSurfaceModule != null) {
+                CONTROL_SURFACE_FIELDS.apply(this, controlSurfaceModule.getFields());
+            }
             isActive = isDeployed;
         } catch (Exception e) {
             // Log error
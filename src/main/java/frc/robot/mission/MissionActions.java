@@ -0,0 +1,25 @@
+// Copyright (c) 2024 : FRC 2106 : The Junkyard Dogs
+// https://github.com/WindingMotor
+// https://www.team2106.org
+
+// Use of this source code is governed by an MIT-style
+// license that can be found in the LICENSE file at
+// the root directory of this project.
+
+package frc.robot.mission;
+
+/**
+ * Turns the actions named in a mission file into runnables when the mission is compiled, so
+ * firing a transition never looks anything up.
+ */
+@FunctionalInterface
+public interface MissionActions {
+    /**
+     * Resolves one action.
+     * @param verb The action name, lower case
+     * @param args The words after the verb
+     * @return The action to run when the transition fires
+     * @throws IllegalArgumentException If the verb is unknown or the arguments are invalid
+     */
+    Runnable resolve(String verb, String[] args);
+}
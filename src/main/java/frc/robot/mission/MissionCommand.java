@@ -0,0 +1,90 @@
+// Copyright (c) 2024 : FRC 2106 : The Junkyard Dogs
+// https://github.com/WindingMotor
+// https://www.team2106.org
+
+// Use of this source code is governed by an MIT-style
+// license that can be found in the LICENSE file at
+// the root directory of this project.
+
+package frc.robot.mission;
+
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.control.ControlLoopExecutor;
+import frc.robot.control.TelemetrySnapshot;
+
+/**
+ * Runs a {@link MissionTable}.
+ *
+ * <p>Every tick fills one telemetry snapshot and one signal vector, evaluates the current
+ * state's transitions against them and fires at most one transition. The command requires no
+ * subsystem, so commands the mission starts can require them. It finishes when it reaches a
+ * state with no transitions out.
+ */
+public class MissionCommand extends Command {
+    private final MissionTable table;
+    private final ControlLoopExecutor controlLoop;
+    private final TelemetrySnapshot snapshot = new TelemetrySnapshot();
+    private final double[] signals = new double[TelemetrySignal.count()];
+
+    private int state;
+    private double missionStart;
+    private double stateEntered;
+
+    /**
+     * Creates a command that runs a mission.
+     * @param table The compiled mission
+     * @param controlLoop Supplies the telemetry snapshot
+     */
+    public MissionCommand(MissionTable table, ControlLoopExecutor controlLoop) {
+        this.table = table;
+        this.controlLoop = controlLoop;
+    }
+
+    @Override
+    public void initialize() {
+        state = table.getInitialState();
+        missionStart = Timer.getFPGATimestamp();
+        stateEntered = missionStart;
+        System.out.println("Mission " + table.getName() + " started in " + table.getStateName(state)
+            + " (" + table.getStateCount() + " states, " + table.getTransitionCount() + " transitions, "
+            + table.getConditionCount() + " conditions)");
+    }
+
+    @Override
+    public void execute() {
+        if (!controlLoop.sample(snapshot)) {
+            return;
+        }
+        double now = Timer.getFPGATimestamp();
+        TelemetrySignal.sample(snapshot, now - stateEntered, now - missionStart, signals);
+
+        int transition = table.evaluate(state, signals);
+        if (transition >= 0) {
+            int next = table.getTarget(transition);
+            System.out.println("Mission " + table.getName() + ": " + table.getStateName(state)
+                + " -> " + table.getStateName(next) + " (line " + table.getLine(transition) + ")");
+            table.runActions(transition);
+            state = next;
+            stateEntered = now;
+        }
+        SmartDashboard.putString("Mission State", table.getStateName(state));
+    }
+
+    @Override
+    public boolean isFinished() {
+        return table.isTerminal(state);
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        System.out.println("Mission " + table.getName() + (interrupted ? " interrupted in " : " finished in ")
+            + table.getStateName(state));
+    }
+
+    /** @return The name of the current state */
+    public String getStateName() {
+        return table.getStateName(state);
+    }
+}
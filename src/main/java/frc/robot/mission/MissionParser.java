@@ -0,0 +1,265 @@
+// Copyright (c) 2024 : FRC 2106 : The Junkyard Dogs
+// https://github.com/WindingMotor
+// https://www.team2106.org
+
+// Use of this source code is governed by an MIT-style
+// license that can be found in the LICENSE file at
+// the root directory of this project.
+
+package frc.robot.mission;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import edu.wpi.first.wpilibj.Filesystem;
+import frc.robot.krpc.parts.FieldParser;
+
+/**
+ * Compiles a mission file into a {@link MissionTable}.
+ *
+ * <p>The format is line based. Blank lines and text after {@code #} are ignored.
+ * <pre>
+ * initial PRELAUNCH
+ * PRELAUNCH -> ASCENT when always do activate ENGINE_first, throttle 1
+ * ASCENT -> COAST when altitude > 70k and vertical_speed > 0 do throttle 0
+ * * -> SAFE when vertical_speed < -100 do shutdown ENGINE_first
+ * </pre>
+ * A transition names its source and target state, one or more conditions joined by
+ * {@code and} (or {@code always}), and optionally a comma separated list of actions. A condition
+ * compares a {@link TelemetrySignal} with {@code <}, {@code <=}, {@code >} or {@code >=}
+ * against a number, which may use a k/M suffix. A source of {@code *} adds the transition to
+ * every state ahead of the state's own transitions. States are declared by use; a state with
+ * no transitions out ends the mission.
+ */
+public final class MissionParser {
+    private static final String ANY_STATE = "*";
+
+    private MissionParser() {}
+
+    /**
+     * Loads and compiles a mission from the deploy directory.
+     * @param fileName Path relative to the deploy directory
+     * @param actions Resolves action names
+     * @return The compiled mission
+     * @throws IOException If the file cannot be read
+     * @throws IllegalArgumentException If the file is invalid; the message names the line
+     */
+    public static MissionTable load(String fileName, MissionActions actions) throws IOException {
+        File file = new File(Filesystem.getDeployDirectory(), fileName);
+        return parse(file.getName(), Files.readAllLines(file.toPath()), actions);
+    }
+
+    /**
+     * Compiles a mission.
+     * @param name Name used in log messages
+     * @param lines The mission file's lines
+     * @param actions Resolves action names
+     * @return The compiled mission
+     * @throws IllegalArgumentException If the mission is invalid; the message names the line
+     */
+    public static MissionTable parse(String name, List<String> lines, MissionActions actions) {
+        Map<String, Integer> states = new LinkedHashMap<>();
+        List<Transition> transitions = new ArrayList<>();
+        String initial = null;
+
+        for (int i = 0; i < lines.size(); i++) {
+            int lineNumber = i + 1;
+            String line = lines.get(i);
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            try {
+                if (line.startsWith("initial ")) {
+                    initial = line.substring("initial ".length()).trim();
+                    stateId(states, initial);
+                } else {
+                    Transition transition = parseTransition(line, lineNumber, actions);
+                    if (!ANY_STATE.equals(transition.from)) {
+                        stateId(states, transition.from);
+                    }
+                    stateId(states, transition.to);
+                    transitions.add(transition);
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(name + " line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        if (initial == null) {
+            throw new IllegalArgumentException(name + ": no initial state");
+        }
+        return compile(name, states, initial, transitions);
+    }
+
+    private static int stateId(Map<String, Integer> states, String state) {
+        if (state.isEmpty() || state.equals(ANY_STATE)) {
+            throw new IllegalArgumentException("invalid state name '" + state + "'");
+        }
+        return states.computeIfAbsent(state, key -> states.size());
+    }
+
+    private static Transition parseTransition(String line, int lineNumber, MissionActions actions) {
+        int arrow = line.indexOf("->");
+        int when = line.indexOf(" when ");
+        if (arrow < 0 || when < arrow) {
+            throw new IllegalArgumentException("expected '<from> -> <to> when <conditions>'");
+        }
+        Transition transition = new Transition();
+        transition.line = lineNumber;
+        transition.from = line.substring(0, arrow).trim();
+        transition.to = line.substring(arrow + 2, when).trim();
+
+        String rest = line.substring(when + " when ".length());
+        int doIndex = rest.indexOf(" do ");
+        String conditions = doIndex >= 0 ? rest.substring(0, doIndex) : rest;
+        if (!conditions.trim().equalsIgnoreCase("always")) {
+            for (String condition : conditions.split("\\s+and\\s+")) {
+                parseCondition(condition.trim(), transition);
+            }
+        }
+        if (doIndex >= 0) {
+            for (String action : rest.substring(doIndex + " do ".length()).split(",")) {
+                String[] words = action.trim().split("\\s+");
+                if (words[0].isEmpty()) {
+                    throw new IllegalArgumentException("empty action");
+                }
+                String[] args = new String[words.length - 1];
+                System.arraycopy(words, 1, args, 0, args.length);
+                transition.actions.add(actions.resolve(words[0].toLowerCase(Locale.ROOT), args));
+                transition.actionText.add(action.trim());
+            }
+        }
+        return transition;
+    }
+
+    private static void parseCondition(String condition, Transition transition) {
+        String[] words = condition.split("\\s+");
+        if (words.length != 3) {
+            throw new IllegalArgumentException("expected '<signal> <op> <number>' in '" + condition + "'");
+        }
+        TelemetrySignal signal;
+        try {
+            signal = TelemetrySignal.valueOf(words[0].toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown signal '" + words[0] + "'");
+        }
+        int operator;
+        switch (words[1]) {
+            case "<": operator = MissionTable.LESS; break;
+            case "<=": operator = MissionTable.LESS_EQUAL; break;
+            case ">": operator = MissionTable.GREATER; break;
+            case ">=": operator = MissionTable.GREATER_EQUAL; break;
+            default: throw new IllegalArgumentException("unknown operator '" + words[1] + "'");
+        }
+        double threshold = FieldParser.parseSi(words[2], Double.NaN);
+        if (Double.isNaN(threshold)) {
+            throw new IllegalArgumentException("invalid number '" + words[2] + "'");
+        }
+        transition.signals.add(signal.ordinal());
+        transition.operators.add(operator);
+        transition.thresholds.add(threshold);
+    }
+
+    private static MissionTable compile(String name, Map<String, Integer> states, String initial,
+                                        List<Transition> transitions) {
+        int stateCount = states.size();
+        String[] stateNames = states.keySet().toArray(new String[0]);
+
+        // Group by source state; wildcard transitions go first in every state
+        List<List<Transition>> byState = new ArrayList<>();
+        for (int s = 0; s < stateCount; s++) {
+            byState.add(new ArrayList<>());
+        }
+        for (Transition transition : transitions) {
+            if (ANY_STATE.equals(transition.from)) {
+                for (int s = 0; s < stateCount; s++) {
+                    // A wildcard never loops a state back into itself
+                    if (!stateNames[s].equals(transition.to)) {
+                        byState.get(s).add(transition);
+                    }
+                }
+            }
+        }
+        for (Transition transition : transitions) {
+            if (!ANY_STATE.equals(transition.from)) {
+                byState.get(states.get(transition.from)).add(transition);
+            }
+        }
+
+        int transitionCount = 0;
+        int conditionCount = 0;
+        int actionCount = 0;
+        for (List<Transition> list : byState) {
+            for (Transition transition : list) {
+                transitionCount++;
+                conditionCount += transition.signals.size();
+                actionCount += transition.actions.size();
+            }
+        }
+
+        int[] stateFirst = new int[stateCount + 1];
+        int[] target = new int[transitionCount];
+        int[] conditionFirst = new int[transitionCount + 1];
+        int[] actionFirst = new int[transitionCount + 1];
+        int[] line = new int[transitionCount];
+        int[] conditionSignal = new int[conditionCount];
+        int[] conditionOperator = new int[conditionCount];
+        double[] conditionThreshold = new double[conditionCount];
+        Runnable[] actions = new Runnable[actionCount];
+        String[] actionText = new String[actionCount];
+
+        int t = 0;
+        int c = 0;
+        int a = 0;
+        for (int s = 0; s < stateCount; s++) {
+            stateFirst[s] = t;
+            for (Transition transition : byState.get(s)) {
+                target[t] = states.get(transition.to);
+                line[t] = transition.line;
+                conditionFirst[t] = c;
+                actionFirst[t] = a;
+                for (int i = 0; i < transition.signals.size(); i++, c++) {
+                    conditionSignal[c] = transition.signals.get(i);
+                    conditionOperator[c] = transition.operators.get(i);
+                    conditionThreshold[c] = transition.thresholds.get(i);
+                }
+                for (int i = 0; i < transition.actions.size(); i++, a++) {
+                    actions[a] = transition.actions.get(i);
+                    actionText[a] = transition.actionText.get(i);
+                }
+                t++;
+            }
+        }
+        stateFirst[stateCount] = t;
+        conditionFirst[t] = c;
+        actionFirst[t] = a;
+
+        return new MissionTable(name, stateNames, states.get(initial), stateFirst, target,
+            conditionFirst, actionFirst, line, conditionSignal, conditionOperator, conditionThreshold,
+            actions, actionText);
+    }
+
+    /**
+     * One transition as parsed, before it is flattened into the table.
+     */
+    private static final class Transition {
+        String from;
+        String to;
+        int line;
+        final List<Integer> signals = new ArrayList<>();
+        final List<Integer> operators = new ArrayList<>();
+        final List<Double> thresholds = new ArrayList<>();
+        final List<Runnable> actions = new ArrayList<>();
+        final List<String> actionText = new ArrayList<>();
+    }
+}
@@ -0,0 +1,118 @@
+// Copyright (c) 2024 : FRC 2106 : The Junkyard Dogs
+// https://github.com/WindingMotor
+// https://www.team2106.org
+
+// Use of this source code is governed by an MIT-style
+// license that can be found in the LICENSE file at
+// the root directory of this project.
+
+package frc.robot.mission;
+
+/**
+ * A mission compiled to a flat state/transition table.
+ *
+ * <p>Transitions are stored grouped by source state, in file order, and a state's transitions
+ * are the range {@code stateFirst[s]} to {@code stateFirst[s + 1]}. Each transition owns a
+ * contiguous range of conditions and of actions. Conditions are three parallel primitive arrays
+ * (signal, operator, threshold), so evaluating a state is one pass over arrays with no
+ * allocation or virtual calls. Built by {@link MissionParser}.
+ */
+public final class MissionTable {
+    static final int LESS = 0;
+    static final int LESS_EQUAL = 1;
+    static final int GREATER = 2;
+    static final int GREATER_EQUAL = 3;
+
+    private final String name;
+    private final String[] stateNames;
+    private final int initialState;
+
+    private final int[] stateFirst;
+    private final int[] target;
+    private final int[] conditionFirst;
+    private final int[] actionFirst;
+    private final int[] line;
+
+    private final int[] conditionSignal;
+    private final int[] conditionOperator;
+    private final double[] conditionThreshold;
+
+    private final Runnable[] actions;
+    private final String[] actionText;
+
+    MissionTable(String name, String[] stateNames, int initialState,
+                 int[] stateFirst, int[] target, int[] conditionFirst, int[] actionFirst, int[] line,
+                 int[] conditionSignal, int[] conditionOperator, double[] conditionThreshold,
+                 Runnable[] actions, String[] actionText) {
+        this.name = name;
+        this.stateNames = stateNames;
+        this.initialState = initialState;
+        this.stateFirst = stateFirst;
+        this.target = target;
+        this.conditionFirst = conditionFirst;
+        this.actionFirst = actionFirst;
+        this.line = line;
+        this.conditionSignal = conditionSignal;
+        this.conditionOperator = conditionOperator;
+        this.conditionThreshold = conditionThreshold;
+        this.actions = actions;
+        this.actionText = actionText;
+    }
+
+    /**
+     * Finds the first transition out of a state whose conditions all hold.
+     * @param state The current state
+     * @param signals Signal vector indexed by {@link TelemetrySignal} ordinal
+     * @return The transition index, or -1 if none fires
+     */
+    public int evaluate(int state, double[] signals) {
+        for (int t = stateFirst[state], end = stateFirst[state + 1]; t < end; t++) {
+            boolean pass = true;
+            for (int c = conditionFirst[t], cEnd = conditionFirst[t + 1]; c < cEnd; c++) {
+                double value = signals[conditionSignal[c]];
+                double threshold = conditionThreshold[c];
+                switch (conditionOperator[c]) {
+                    case LESS: pass = value < threshold; break;
+                    case LESS_EQUAL: pass = value <= threshold; break;
+                    case GREATER: pass = value > threshold; break;
+                    default: pass = value >= threshold; break;
+                }
+                if (!pass) {
+                    break;
+                }
+            }
+            if (pass) {
+                return t;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Runs a transition's actions in order. A failing action is reported and the rest still run.
+     * @param transition The transition index
+     */
+    public void runActions(int transition) {
+        for (int a = actionFirst[transition], end = actionFirst[transition + 1]; a < end; a++) {
+            try {
+                actions[a].run();
+            } catch (Exception e) {
+                System.out.println("Mission " + name + ": action '" + actionText[a]
+                    + "' failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /** @return The state a transition leads to */
+    public int getTarget(int transition) { return target[transition]; }
+    /** @return The mission file line a transition was declared on */
+    public int getLine(int transition) { return line[transition]; }
+    /** @return True if a state has no way out, which ends the mission */
+    public boolean isTerminal(int state) { return stateFirst[state] == stateFirst[state + 1]; }
+    public int getInitialState() { return initialState; }
+    public String getStateName(int state) { return stateNames[state]; }
+    public int getStateCount() { return stateNames.length; }
+    public int getTransitionCount() { return target.length; }
+    public int getConditionCount() { return conditionSignal.length; }
+    public String getName() { return name; }
+}
@@ -0,0 +1,164 @@
+// Copyright (c) 2024 : FRC 2106 : The Junkyard Dogs
+// https://github.com/WindingMotor
+// https://www.team2106.org
+
+// Use of this source code is governed by an MIT-style
+// license that can be found in the LICENSE file at
+// the root directory of this project.
+
+package frc.robot.mission;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.krpc.VesselSubsystem;
+import frc.robot.krpc.parts.DecouplerPart;
+import frc.robot.krpc.parts.EnginePart;
+import frc.robot.krpc.parts.FairingPart;
+import frc.robot.krpc.parts.FieldParser;
+import frc.robot.krpc.parts.Part;
+import frc.robot.krpc.parts.ProbeCorePart;
+import frc.robot.subsystems.RocketSubsystem;
+
+/**
+ * The mission actions backed by tagged parts, the rocket subsystem and named commands.
+ *
+ * <p>Part tags are resolved when the mission is compiled, so a typo fails at startup rather
+ * than mid-flight.
+ * <ul>
+ *   <li>{@code activate TAG}, {@code shutdown TAG}, {@code engine_throttle TAG value} - engines</li>
+ *   <li>{@code decouple TAG} - decouplers, through the vessel subsystem</li>
+ *   <li>{@code deploy TAG} - fairings</li>
+ *   <li>{@code sas TAG on|off}, {@code sas_mode TAG MODE} - probe cores</li>
+ *   <li>{@code throttle value}, {@code stage} - the vessel</li>
+ *   <li>{@code start NAME}, {@code stop NAME} - schedule or cancel a registered command</li>
+ *   <li>{@code print text} - log a message</li>
+ * </ul>
+ */
+public class PartMissionActions implements MissionActions {
+    private final VesselSubsystem vesselSubsystem;
+    private final RocketSubsystem rocketSubsystem;
+    private final Map<String, Command> commands = new HashMap<>();
+
+    public PartMissionActions(VesselSubsystem vesselSubsystem, RocketSubsystem rocketSubsystem) {
+        this.vesselSubsystem = vesselSubsystem;
+        this.rocketSubsystem = rocketSubsystem;
+    }
+
+    /**
+     * Registers a command the mission can start and stop by name.
+     * @param name The name used in the mission file
+     * @param command The command
+     * @return This, for chaining
+     */
+    public PartMissionActions withCommand(String name, Command command) {
+        commands.put(name.toLowerCase(Locale.ROOT), command);
+        return this;
+    }
+
+    @Override
+    public Runnable resolve(String verb, String[] args) {
+        switch (verb) {
+            case "activate": {
+                EnginePart engine = part(args, 1, EnginePart.class);
+                return engine::activate;
+            }
+            case "shutdown": {
+                EnginePart engine = part(args, 1, EnginePart.class);
+                return engine::shutdown;
+            }
+            case "engine_throttle": {
+                EnginePart engine = part(args, 2, EnginePart.class);
+                double throttle = number(args[1]);
+                return () -> engine.setThrottle(throttle);
+            }
+            case "decouple": {
+                DecouplerPart decoupler = part(args, 1, DecouplerPart.class);
+                return () -> vesselSubsystem.decouple(decoupler);
+            }
+            case "deploy": {
+                FairingPart fairing = part(args, 1, FairingPart.class);
+                return fairing::deploy;
+            }
+            case "sas": {
+                ProbeCorePart core = part(args, 2, ProbeCorePart.class);
+                boolean enable = FieldParser.parseBoolean(args[1], false);
+                return () -> core.setSAS(enable);
+            }
+            case "sas_mode": {
+                ProbeCorePart core = part(args, 2, ProbeCorePart.class);
+                ProbeCorePart.SASMode mode;
+                try {
+                    mode = ProbeCorePart.SASMode.valueOf(args[1].toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("unknown SAS mode '" + args[1] + "'");
+                }
+                return () -> core.setLocalSASMode(mode);
+            }
+            case "throttle": {
+                expect(args, 1);
+                double throttle = number(args[0]);
+                return () -> rocketSubsystem.setThrottle(throttle);
+            }
+            case "stage":
+                expect(args, 0);
+                return rocketSubsystem::stage;
+            case "start": {
+                Command command = command(args);
+                return command::schedule;
+            }
+            case "stop": {
+                Command command = command(args);
+                return command::cancel;
+            }
+            case "print": {
+                String message = String.join(" ", args);
+                return () -> System.out.println(message);
+            }
+            default:
+                throw new IllegalArgumentException("unknown action '" + verb + "'");
+        }
+    }
+
+    private <T extends Part> T part(String[] args, int count, Class<T> type) {
+        expect(args, count);
+        List<Part> tagged = vesselSubsystem.getPartsByTag(args[0]);
+        if (tagged.isEmpty()) {
+            throw new IllegalArgumentException("no part tagged '" + args[0] + "'");
+        }
+        Part part = tagged.get(0);
+        if (!type.isInstance(part)) {
+            throw new IllegalArgumentException("part '" + args[0] + "' is not a " + type.getSimpleName());
+        }
+        return type.cast(part);
+    }
+
+    private Command command(String[] args) {
+        expect(args, 1);
+        Command command = commands.get(args[0].toLowerCase(Locale.ROOT));
+        if (command == null) {
+            throw new IllegalArgumentException("no command named '" + args[0] + "'");
+        }
+        return command;
+    }
+
+    private static double number(String text) {
+        // Throttles are fractions; "85%" is accepted as 0.85, a bare "1" is full throttle
+        double value = text.endsWith("%")
+            ? FieldParser.parsePercent(text, Double.NaN)
+            : FieldParser.parseNumber(text, Double.NaN);
+        if (Double.isNaN(value)) {
+            throw new IllegalArgumentException("invalid number '" + text + "'");
+        }
+        return value;
+    }
+
+    private static void expect(String[] args, int count) {
+        if (args.length != count) {
+            throw new IllegalArgumentException("expected " + count + " argument(s), got " + args.length);
+        }
+    }
+}
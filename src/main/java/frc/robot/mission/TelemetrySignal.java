@@ -0,0 +1,73 @@
+// Copyright (c) 2024 : FRC 2106 : The Junkyard Dogs
+// https://github.com/WindingMotor
+// https://www.team2106.org
+
+// Use of this source code is governed by an MIT-style
+// license that can be found in the LICENSE file at
+// the root directory of this project.
+
+package frc.robot.mission;
+
+import frc.robot.control.TelemetrySnapshot;
+
+/**
+ * The telemetry values mission conditions can test, named in mission files in lower case.
+ */
+public enum TelemetrySignal {
+    /** Altitude in meters, filtered when the estimator is valid */
+    ALTITUDE,
+    /** Vertical speed in m/s, positive up, filtered when the estimator is valid */
+    VERTICAL_SPEED,
+    /** Filtered vertical acceleration in m/s^2 */
+    VERTICAL_ACCELERATION,
+    /** Surface speed in m/s */
+    SURFACE_SPEED,
+    /** Orbital speed in m/s */
+    ORBITAL_SPEED,
+    /** Dynamic pressure in Pa */
+    DYNAMIC_PRESSURE,
+    /** Apoapsis altitude in meters */
+    APOAPSIS,
+    /** Thrust of the active engines at full throttle, in N */
+    AVAILABLE_THRUST,
+    /** Throttle between 0.0 and 1.0 */
+    THROTTLE,
+    /** Current stage number */
+    STAGE,
+    /** Seconds since the current state was entered */
+    STATE_TIME,
+    /** Seconds since the mission started */
+    MISSION_TIME;
+
+    private static final TelemetrySignal[] VALUES = values();
+
+    /** @return Number of signals, the length of a signal vector */
+    public static int count() {
+        return VALUES.length;
+    }
+
+    /**
+     * Fills a signal vector, indexed by ordinal, from a snapshot.
+     * @param snapshot The telemetry
+     * @param stateTime Seconds in the current state
+     * @param missionTime Seconds since the mission started
+     * @param out The vector to fill, at least {@link #count()} long
+     */
+    public static void sample(TelemetrySnapshot snapshot, double stateTime, double missionTime, double[] out) {
+        boolean filtered = snapshot.isEstimateValid();
+        out[ALTITUDE.ordinal()] = filtered ? snapshot.getEstimatedAltitude() : snapshot.getAltitude();
+        out[VERTICAL_SPEED.ordinal()] = filtered
+            ? snapshot.getEstimatedVerticalVelocity()
+            : snapshot.getVerticalVelocity();
+        out[VERTICAL_ACCELERATION.ordinal()] = snapshot.getVerticalAcceleration();
+        out[SURFACE_SPEED.ordinal()] = snapshot.getSurfaceSpeed();
+        out[ORBITAL_SPEED.ordinal()] = snapshot.getOrbitalSpeed();
+        out[DYNAMIC_PRESSURE.ordinal()] = snapshot.getDynamicPressure();
+        out[APOAPSIS.ordinal()] = snapshot.getApoapsis();
+        out[AVAILABLE_THRUST.ordinal()] = snapshot.getAvailableThrust();
+        out[THROTTLE.ordinal()] = snapshot.getThrottle();
+        out[STAGE.ordinal()] = snapshot.getStage();
+        out[STATE_TIME.ordinal()] = stateTime;
+        out[MISSION_TIME.ordinal()] = missionTime;
+    }
+}
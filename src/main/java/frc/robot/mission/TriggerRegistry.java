@@ -0,0 +1,281 @@
+// Copyright (c) 2024 : FRC 2106 : The Junkyard Dogs
+// https://github.com/WindingMotor
+// https://www.team2106.org
+
+// Use of this source code is governed by an MIT-style
+// license that can be found in the LICENSE file at
+// the root directory of this project.
+
+package frc.robot.mission;
+
+import java.util.Arrays;
+
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.event.EventLoop;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import edu.wpi.first.wpilibj2.command.button.Trigger;
+import frc.robot.control.ControlLoopExecutor;
+import frc.robot.control.TelemetrySnapshot;
+
+/**
+ * Telemetry threshold triggers evaluated by edge crossing instead of one lambda per condition.
+ *
+ * <p>A condition is (signal, comparison, threshold, hysteresis). An {@code ABOVE} condition
+ * turns true when the signal rises past the threshold and false when it falls below threshold
+ * minus hysteresis; {@code BELOW} is the mirror image. Each condition therefore contributes one
+ * edge that matters on the way up and one on the way down. Per signal, the up edges and the
+ * down edges are kept in sorted primitive arrays.
+ *
+ * <p>On a new sample, a signal that did not move costs one comparison. A signal that moved
+ * binary searches from its previous value and walks only the edges between the old and the new
+ * value, so the cost is O(log n + crossed edges) no matter how many conditions are registered.
+ * The registry polls once per robot loop on the scheduler's button loop, ahead of the
+ * {@link Trigger}s it hands out, which only read a boolean.
+ */
+public class TriggerRegistry {
+    /**
+     * Which side of the threshold makes a condition true.
+     */
+    public enum Comparison {
+        ABOVE,
+        BELOW
+    }
+
+    private static final int SIGNALS = TelemetrySignal.count();
+
+    private final ControlLoopExecutor controlLoop;
+    private final EventLoop eventLoop;
+    private final TelemetrySnapshot snapshot = new TelemetrySnapshot();
+    private final double[] signals = new double[SIGNALS];
+    private final double start = Timer.getFPGATimestamp();
+    private long lastArrival = Long.MIN_VALUE;
+
+    // Conditions, indexed by id
+    private int conditionCount;
+    private int[] conditionSignal = new int[16];
+    private boolean[] conditionAbove = new boolean[16];
+    private double[] conditionThreshold = new double[16];
+    private boolean[] active = new boolean[16];
+
+    // Edge index, one pair of sorted lists per signal
+    private final EdgeList[] upEdges = new EdgeList[SIGNALS];
+    private final EdgeList[] downEdges = new EdgeList[SIGNALS];
+    private final double[] previous = new double[SIGNALS];
+    private final boolean[] hasPrevious = new boolean[SIGNALS];
+
+    private long samples;
+    private long edgesFired;
+
+    /**
+     * Creates a registry polled on the command scheduler's default button loop.
+     * @param controlLoop Supplies the telemetry snapshot
+     */
+    public TriggerRegistry(ControlLoopExecutor controlLoop) {
+        this(controlLoop, CommandScheduler.getInstance().getDefaultButtonLoop());
+    }
+
+    /**
+     * Creates a registry polled on an event loop. The triggers it returns are bound to the same
+     * loop, after the registry's own poll.
+     * @param controlLoop Supplies the telemetry snapshot
+     * @param eventLoop The loop to poll on
+     */
+    public TriggerRegistry(ControlLoopExecutor controlLoop, EventLoop eventLoop) {
+        this.controlLoop = controlLoop;
+        this.eventLoop = eventLoop;
+        for (int s = 0; s < SIGNALS; s++) {
+            upEdges[s] = new EdgeList();
+            downEdges[s] = new EdgeList();
+        }
+        eventLoop.bind(this::poll);
+    }
+
+    /**
+     * Creates a trigger that is true while a signal is above a threshold.
+     * @param signal The signal to watch
+     * @param threshold Turns true above this value
+     * @param hysteresis Turns false again only below threshold minus this, 0 or more
+     * @return The trigger
+     */
+    public Trigger above(TelemetrySignal signal, double threshold, double hysteresis) {
+        return when(signal, Comparison.ABOVE, threshold, hysteresis);
+    }
+
+    /**
+     * Creates a trigger that is true while a signal is below a threshold.
+     * @param signal The signal to watch
+     * @param threshold Turns true below this value
+     * @param hysteresis Turns false again only above threshold plus this, 0 or more
+     * @return The trigger
+     */
+    public Trigger below(TelemetrySignal signal, double threshold, double hysteresis) {
+        return when(signal, Comparison.BELOW, threshold, hysteresis);
+    }
+
+    /**
+     * Registers a condition and creates a trigger for it.
+     * @param signal The signal to watch
+     * @param comparison Which side of the threshold is true
+     * @param threshold The threshold
+     * @param hysteresis Distance past the threshold needed to turn false again, 0 or more
+     * @return The trigger
+     */
+    public Trigger when(TelemetrySignal signal, Comparison comparison, double threshold, double hysteresis) {
+        if (!(hysteresis >= 0.0) || Double.isNaN(threshold)) {
+            throw new IllegalArgumentException("Invalid threshold " + threshold + " or hysteresis " + hysteresis);
+        }
+        int id = register(signal.ordinal(), comparison == Comparison.ABOVE, threshold, hysteresis);
+        return new Trigger(eventLoop, () -> active[id]);
+    }
+
+    private int register(int signal, boolean above, double threshold, double hysteresis) {
+        int id = conditionCount++;
+        if (id == conditionSignal.length) {
+            int capacity = id * 2;
+            conditionSignal = Arrays.copyOf(conditionSignal, capacity);
+            conditionAbove = Arrays.copyOf(conditionAbove, capacity);
+            conditionThreshold = Arrays.copyOf(conditionThreshold, capacity);
+            active = Arrays.copyOf(active, capacity);
+        }
+        conditionSignal[id] = signal;
+        conditionAbove[id] = above;
+        conditionThreshold[id] = threshold;
+
+        if (above) {
+            upEdges[signal].insert(threshold, id, true);
+            downEdges[signal].insert(threshold - hysteresis, id, false);
+        } else {
+            downEdges[signal].insert(threshold, id, true);
+            upEdges[signal].insert(threshold + hysteresis, id, false);
+        }
+        if (hasPrevious[signal]) {
+            active[id] = evaluate(id, previous[signal]);
+        }
+        return id;
+    }
+
+    private boolean evaluate(int id, double value) {
+        return conditionAbove[id] ? value > conditionThreshold[id] : value < conditionThreshold[id];
+    }
+
+    private void poll() {
+        if (conditionCount == 0 || !controlLoop.sample(snapshot)) {
+            return;
+        }
+        // Only a new server sample can move a signal
+        long arrival = snapshot.getArrivalNanos();
+        if (arrival == lastArrival) {
+            return;
+        }
+        lastArrival = arrival;
+        TelemetrySignal.sample(snapshot, 0.0, Timer.getFPGATimestamp() - start, signals);
+        update(signals);
+    }
+
+    /**
+     * Applies a new sample, firing the edges crossed since the previous one.
+     * @param values Signal vector indexed by {@link TelemetrySignal} ordinal
+     */
+    public void update(double[] values) {
+        samples++;
+        for (int s = 0; s < SIGNALS; s++) {
+            EdgeList up = upEdges[s];
+            if (up.size == 0) {
+                continue;
+            }
+            double value = values[s];
+            if (Double.isNaN(value)) {
+                continue;
+            }
+            if (!hasPrevious[s]) {
+                // First sample: evaluate this signal's conditions directly, once
+                for (int id = 0; id < conditionCount; id++) {
+                    if (conditionSignal[id] == s) {
+                        active[id] = evaluate(id, value);
+                    }
+                }
+                hasPrevious[s] = true;
+            } else {
+                double last = previous[s];
+                if (value > last) {
+                    // Up edges with last <= level < value
+                    for (int i = up.lowerBound(last); i < up.size && up.levels[i] < value; i++) {
+                        fire(up.codes[i]);
+                    }
+                } else if (value < last) {
+                    // Down edges with value < level <= last, nearest first
+                    EdgeList down = downEdges[s];
+                    for (int i = down.upperBound(last) - 1; i >= 0 && down.levels[i] > value; i--) {
+                        fire(down.codes[i]);
+                    }
+                }
+            }
+            previous[s] = value;
+        }
+    }
+
+    private void fire(int code) {
+        active[code >>> 1] = (code & 1) != 0;
+        edgesFired++;
+    }
+
+    /** @return Number of registered conditions */
+    public int getConditionCount() { return conditionCount; }
+    /** @return Number of samples applied */
+    public long getSamples() { return samples; }
+    /** @return Number of edges crossed so far */
+    public long getEdgesFired() { return edgesFired; }
+
+    /**
+     * Edge levels in ascending order, each with the condition it sets and the value it sets.
+     */
+    private static final class EdgeList {
+        double[] levels = new double[8];
+        // Condition id shifted left by one, low bit is the value the edge sets
+        int[] codes = new int[8];
+        int size;
+
+        void insert(double level, int id, boolean value) {
+            if (size == levels.length) {
+                levels = Arrays.copyOf(levels, size * 2);
+                codes = Arrays.copyOf(codes, size * 2);
+            }
+            int index = upperBound(level);
+            System.arraycopy(levels, index, levels, index + 1, size - index);
+            System.arraycopy(codes, index, codes, index + 1, size - index);
+            levels[index] = level;
+            codes[index] = (id << 1) | (value ? 1 : 0);
+            size++;
+        }
+
+        /** First index whose level is at least x. */
+        int lowerBound(double x) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (levels[mid] < x) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /** First index whose level is greater than x. */
+        int upperBound(double x) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (levels[mid] <= x) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
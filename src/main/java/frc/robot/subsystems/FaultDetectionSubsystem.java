@@ -0,0 +1,436 @@
+// Copyright (c) 2024 : FRC 2106 : The Junkyard Dogs
+// https://github.com/WindingMotor
+// https://www.team2106.org
+
+// Use of this source code is governed by an MIT-style
+// license that can be found in the LICENSE file at
+// the root directory of this project.
+
+package frc.robot.subsystems;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StringPublisher;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.control.AbortChannel;
+import frc.robot.control.ActuatorChannel;
+import frc.robot.control.ControlLaw;
+import frc.robot.control.ControlLoopExecutor;
+import frc.robot.control.TelemetrySnapshot;
+import frc.robot.krpc.KRPCWrapper;
+import frc.robot.krpc.VesselStreams;
+import frc.robot.krpc.VesselSubsystem;
+import frc.robot.krpc.parts.EnginePart;
+
+/**
+ * Detects engine-out and flameout from the per-engine thrust streams and responds to it.
+ *
+ * <p>Detection runs as a control law, so it checks every engine on every telemetry sample
+ * instead of waiting for the 100 ms part refresh. An engine is watched once it has reached its
+ * expected thrust; from then on, a sample with less than {@link #FAULT_FRACTION} of the thrust
+ * the commanded throttle should give is a fault. The commanded throttle is the lower of this
+ * sample's and the last one's, so a throttle step is never mistaken for a fault. Engines that
+ * were shut down on purpose are not watched.
+ *
+ * <p>Responses run on their own high-priority thread, which issues its RPCs directly rather
+ * than queueing them behind the timer or the actuator channel. Each engine has a configured
+ * {@link Response}; throttling up falls back to staging when no other engine is running, and
+ * staging is skipped if the vessel staged since the fault was seen. A flameout from fuel
+ * depletion is the normal end of a burn, and staging then belongs to the mission, so by default
+ * flameouts are only reported; see {@link #setRespondToFlameouts}.
+ *
+ * <p>Latency is measured from the local arrival of the sample that showed the fault: to its
+ * detection on the control loop, and to the response's last RPC returning.
+ */
+public class FaultDetectionSubsystem extends SubsystemBase implements AutoCloseable {
+    /** What to do when an engine loses thrust. */
+    public enum Response {
+        /** Report the fault only. */
+        NONE,
+        /** Activate the next stage. */
+        STAGE,
+        /** Raise the remaining engines to make up the lost thrust, or stage if none is left. */
+        THROTTLE_UP,
+        /** Run the abort sequence through the {@link AbortChannel}. */
+        ABORT
+    }
+
+    private static final double FAULT_FRACTION = 0.5;
+    private static final double LIT_FRACTION = 0.9;
+    // Below this throttle an engine's thrust is too small to judge
+    private static final double MIN_THROTTLE = 0.05;
+
+    /**
+     * Detection state of one engine. Written by the control loop thread, read by the responder.
+     */
+    private static final class Monitor {
+        private final EnginePart engine;
+        private volatile Response response;
+        private volatile boolean lit;
+        private volatile double fullThrust;
+        private volatile boolean faulted;
+
+        private Monitor(EnginePart engine, Response response) {
+            this.engine = engine;
+            this.response = response;
+        }
+    }
+
+    /**
+     * One detected fault, handed from the control loop to the response thread.
+     */
+    private static final class Fault {
+        private final Monitor monitor;
+        private final boolean flameout;
+        private final int stage;
+        private final double throttle;
+        private final long arrivalNanos;
+        private final long detectedNanos;
+
+        private Fault(Monitor monitor, boolean flameout, int stage, double throttle,
+                      long arrivalNanos, long detectedNanos) {
+            this.monitor = monitor;
+            this.flameout = flameout;
+            this.stage = stage;
+            this.throttle = throttle;
+            this.arrivalNanos = arrivalNanos;
+            this.detectedNanos = detectedNanos;
+        }
+    }
+
+    private final KRPCWrapper krpc;
+    private final RocketSubsystem rocketSubsystem;
+    private final VesselSubsystem vesselSubsystem;
+    private final AbortChannel abortChannel;
+    private final ControlLaw law = this::detect;
+    private final Map<EnginePart, Response> responses = new ConcurrentHashMap<>();
+    private volatile Response defaultResponse = Response.NONE;
+    private volatile boolean respondToFlameouts;
+    private volatile Monitor[] monitors = new Monitor[0];
+    private final Queue<Fault> faults = new ConcurrentLinkedQueue<>();
+    private final Thread responder;
+    private volatile boolean running = true;
+    private boolean enabled;
+
+    // Written by the control loop thread
+    private double lastThrottle;
+
+    // Latency, written by the control loop and response threads
+    private volatile long faultCount;
+    private volatile double detectionLatency;
+    private volatile double maxDetectionLatency;
+    private volatile double responseLatency;
+    private volatile String lastFault = "";
+
+    private final IntegerPublisher faultsPublisher;
+    private final IntegerPublisher enginesPublisher;
+    private final DoublePublisher detectionLatencyPublisher;
+    private final DoublePublisher maxDetectionLatencyPublisher;
+    private final DoublePublisher responseLatencyPublisher;
+    private final StringPublisher lastFaultPublisher;
+
+    /**
+     * Creates the subsystem and starts its response thread. Detection starts with {@link #enable()}.
+     * @param krpc The wrapper whose vessel control the responses act on
+     * @param rocketSubsystem Owns the control loop the detector runs on
+     * @param vesselSubsystem Supplies the engines to watch, refreshed every tick
+     * @param abortChannel Runs the abort sequence for the ABORT response, as the abort button does
+     */
+    public FaultDetectionSubsystem(KRPCWrapper krpc, RocketSubsystem rocketSubsystem,
+                                   VesselSubsystem vesselSubsystem, AbortChannel abortChannel) {
+        this.krpc = krpc;
+        this.rocketSubsystem = rocketSubsystem;
+        this.vesselSubsystem = vesselSubsystem;
+        this.abortChannel = abortChannel;
+
+        NetworkTable table = NetworkTableInstance.getDefault().getTable("Faults");
+        faultsPublisher = table.getIntegerTopic("Faults").publish();
+        enginesPublisher = table.getIntegerTopic("Engines Watched").publish();
+        detectionLatencyPublisher = table.getDoubleTopic("Detection Latency ms").publish();
+        maxDetectionLatencyPublisher = table.getDoubleTopic("Detection Latency Max ms").publish();
+        responseLatencyPublisher = table.getDoubleTopic("Response Latency ms").publish();
+        lastFaultPublisher = table.getStringTopic("Last Fault").publish();
+
+        responder = new Thread(this::respond, "FaultResponse");
+        responder.setDaemon(true);
+        responder.setPriority(Thread.MAX_PRIORITY);
+        responder.start();
+    }
+
+    /**
+     * Sets the response for one engine.
+     * @param engine The engine
+     * @param response What to do when it loses thrust
+     */
+    public void setResponse(EnginePart engine, Response response) {
+        responses.put(engine, response);
+        for (Monitor monitor : monitors) {
+            if (monitor.engine == engine) {
+                monitor.response = response;
+            }
+        }
+    }
+
+    /**
+     * Sets the response for engines without their own.
+     * @param response What to do when an engine loses thrust
+     */
+    public void setDefaultResponse(Response response) {
+        defaultResponse = response;
+        for (Monitor monitor : monitors) {
+            monitor.response = responses.getOrDefault(monitor.engine, response);
+        }
+    }
+
+    /**
+     * Sets whether fuel-depletion flameouts get the configured response, or are only reported.
+     * Leave off while a mission stages by part: its stage counter never moves, so staging here
+     * would fire the wrong stage and race the mission's own separation.
+     * @param respond True to respond to flameouts as to any other thrust loss
+     */
+    public void setRespondToFlameouts(boolean respond) {
+        respondToFlameouts = respond;
+    }
+
+    /**
+     * Starts watching the engines on the control loop.
+     */
+    public void enable() {
+        enabled = true;
+        refreshEngines();
+        rocketSubsystem.getControlLoop().arm(law);
+    }
+
+    /**
+     * Stops watching. Faults already detected are still responded to.
+     */
+    public void disable() {
+        enabled = false;
+        rocketSubsystem.getControlLoop().disarm(law);
+    }
+
+    @Override
+    public void periodic() {
+        if (enabled) {
+            refreshEngines();
+            // An abort disarms every law on the loop; detection stays on until disable()
+            ControlLoopExecutor controlLoop = rocketSubsystem.getControlLoop();
+            if (!controlLoop.isArmed(law)) {
+                controlLoop.arm(law);
+            }
+        }
+        faultsPublisher.set(faultCount);
+        enginesPublisher.set(monitors.length);
+        detectionLatencyPublisher.set(detectionLatency * 1000.0);
+        maxDetectionLatencyPublisher.set(maxDetectionLatency * 1000.0);
+        responseLatencyPublisher.set(responseLatency * 1000.0);
+        lastFaultPublisher.set(lastFault);
+    }
+
+    /**
+     * Rebuilds the monitor list when the engines change, keeping the state of engines still
+     * attached.
+     */
+    private void refreshEngines() {
+        List<EnginePart> engines = vesselSubsystem.getPartsOfType(EnginePart.class);
+        Monitor[] current = monitors;
+        if (engines.size() == current.length) {
+            boolean same = true;
+            for (Monitor monitor : current) {
+                if (!engines.contains(monitor.engine)) {
+                    same = false;
+                    break;
+                }
+            }
+            if (same) {
+                return;
+            }
+        }
+        Map<EnginePart, Monitor> previous = new IdentityHashMap<>();
+        for (Monitor monitor : current) {
+            previous.put(monitor.engine, monitor);
+        }
+        Monitor[] next = new Monitor[engines.size()];
+        for (int i = 0; i < next.length; i++) {
+            EnginePart engine = engines.get(i);
+            Monitor monitor = previous.get(engine);
+            next[i] = monitor != null
+                ? monitor
+                : new Monitor(engine, responses.getOrDefault(engine, defaultResponse));
+        }
+        monitors = next;
+    }
+
+    /**
+     * Checks every engine against the sample, run on the control loop thread.
+     */
+    private void detect(TelemetrySnapshot telemetry, ActuatorChannel actuators, double dt) {
+        double throttle = telemetry.getThrottle();
+        double commanded = Math.min(throttle, lastThrottle);
+        lastThrottle = throttle;
+
+        Monitor[] watched = monitors;
+        for (int i = 0; i < watched.length; i++) {
+            Monitor monitor = watched[i];
+            EnginePart engine = monitor.engine;
+            double thrust = engine.readThrust();
+            if (Double.isNaN(thrust)) {
+                continue;
+            }
+            if (!engine.readActive()) {
+                // Shut down on purpose, or never lit
+                monitor.lit = false;
+                monitor.faulted = false;
+                continue;
+            }
+            if (commanded < MIN_THROTTLE) {
+                continue;
+            }
+            double full = engine.readFullThrust();
+            if (full > 0.0 && !monitor.faulted) {
+                monitor.fullThrust = full;
+            }
+            double expected = monitor.fullThrust * commanded;
+            if (expected <= 0.0) {
+                continue;
+            }
+
+            if (thrust >= LIT_FRACTION * expected) {
+                monitor.lit = true;
+                if (monitor.faulted) {
+                    monitor.faulted = false;
+                    DriverStation.reportWarning("Engine recovered: " + engine.getName(), false);
+                }
+            } else if (monitor.lit && !monitor.faulted && thrust < FAULT_FRACTION * expected) {
+                monitor.faulted = true;
+                long now = System.nanoTime();
+                long arrival = telemetry.getArrivalNanos();
+                faults.add(new Fault(monitor, !engine.readHasFuel(), telemetry.getStage(),
+                    throttle, arrival, now));
+                LockSupport.unpark(responder);
+
+                double latency = Math.max(now - arrival, 0L) / 1e9;
+                detectionLatency = latency;
+                if (latency > maxDetectionLatency) {
+                    maxDetectionLatency = latency;
+                }
+                faultCount++;
+            }
+        }
+    }
+
+    private void respond() {
+        while (running) {
+            Fault fault = faults.poll();
+            if (fault == null) {
+                LockSupport.park(this);
+                continue;
+            }
+            String kind = fault.flameout ? "Flameout" : "Engine out";
+            Response response = fault.flameout && !respondToFlameouts ? Response.NONE : fault.monitor.response;
+            try {
+                response = execute(fault, response);
+            } catch (Exception e) {
+                DriverStation.reportError("Fault response failed: " + e.getMessage(), e.getStackTrace());
+            }
+            long done = System.nanoTime();
+            responseLatency = Math.max(done - fault.arrivalNanos, 0L) / 1e9;
+            lastFault = kind + ": " + fault.monitor.engine.getName() + " -> " + response;
+            DriverStation.reportWarning(String.format("%s, responded with %s: detected in %.1f ms, acted in %.1f ms",
+                lastFault, response, (fault.detectedNanos - fault.arrivalNanos) / 1e6,
+                responseLatency * 1000.0), false);
+        }
+    }
+
+    /**
+     * Carries out a response on the response thread.
+     * @return The response actually taken
+     */
+    private Response execute(Fault fault, Response response) throws Exception {
+        VesselStreams streams = krpc.getVesselStreams();
+        if (streams == null || response == Response.NONE) {
+            return Response.NONE;
+        }
+        switch (response) {
+            case THROTTLE_UP:
+                if (throttleUp(fault)) {
+                    return Response.THROTTLE_UP;
+                }
+                // Nothing left running to throttle up, fall through to staging
+            case STAGE:
+                if (streams.getCurrentStage() != fault.stage) {
+                    // Staged since the fault, by the mission or the driver
+                    return Response.NONE;
+                }
+                streams.getControl().activateNextStage();
+                return Response.STAGE;
+            case ABORT: {
+                // The part list is main thread only, so hand over the engines being watched
+                Monitor[] watched = monitors;
+                List<EnginePart> engines = new ArrayList<>(watched.length);
+                for (Monitor monitor : watched) {
+                    engines.add(monitor.engine);
+                }
+                abortChannel.trigger(engines);
+                return Response.ABORT;
+            }
+            default:
+                return Response.NONE;
+        }
+    }
+
+    /**
+     * Opens the thrust limiters of the engines still running and raises the throttle to make up
+     * the lost thrust.
+     * @return False if no other engine is running
+     */
+    private boolean throttleUp(Fault fault) {
+        double lost = fault.monitor.fullThrust;
+        double remaining = 0.0;
+        for (Monitor monitor : monitors) {
+            if (monitor == fault.monitor || monitor.faulted || !monitor.lit) {
+                continue;
+            }
+            monitor.engine.setThrustLimiter(1.0);
+            remaining += monitor.fullThrust;
+        }
+        if (remaining <= 0.0) {
+            return false;
+        }
+        double throttle = Math.min(fault.throttle * (remaining + lost) / remaining, 1.0);
+        rocketSubsystem.getControlLoop().getActuators().setThrottle(throttle);
+        return true;
+    }
+
+    public boolean isEnabled() { return enabled; }
+    public long getFaultCount() { return faultCount; }
+    /** @return Seconds from the faulting sample's arrival to its detection, for the last fault */
+    public double getDetectionLatency() { return detectionLatency; }
+    /** @return Seconds from the faulting sample's arrival to the response completing, for the last fault */
+    public double getResponseLatency() { return responseLatency; }
+
+    @Override
+    public void close() {
+        disable();
+        running = false;
+        LockSupport.unpark(responder);
+        faultsPublisher.close();
+        enginesPublisher.close();
+        detectionLatencyPublisher.close();
+        maxDetectionLatencyPublisher.close();
+        responseLatencyPublisher.close();
+        lastFaultPublisher.close();
+    }
+}
@@ -10,12 +10,22 @@ package frc.robot.subsystems;
 
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.control.ActuatorChannel;
+import frc.robot.control.ControlLoopExecutor;
+import frc.robot.control.VerticalStateEstimator;
 import frc.robot.krpc.KRPCWrapper;
+import frc.robot.krpc.VesselStreams;
+import frc.robot.mission.TriggerRegistry;
 import frc.robot.util.KSPPartType;
 
 public class RocketSubsystem extends SubsystemBase {
     private final KRPCWrapper krpc;
+    private final ActuatorChannel actuators;
+    private final VerticalStateEstimator estimator;
+    private final ControlLoopExecutor controlLoop;
+    private final TriggerRegistry triggers;
     private boolean isLaunched = false;
 
     /**
@@ -23,15 +33,32 @@ public class RocketSubsystem extends SubsystemBase {
      */
     public RocketSubsystem() {
         // Initialize KRPCWrapper with debugging enabled
-        krpc = new KRPCWrapper(false);
+        this(new KRPCWrapper(false));
+    }
+
+    /**
+     * Creates a new RocketSubsystem that shares an existing connection.
+     * @param krpc The wrapper to control the active vessel through
+     */
+    public RocketSubsystem(KRPCWrapper krpc) {
+        this.krpc = krpc;
+        actuators = new ActuatorChannel(
+            () -> {
+                VesselStreams streams = krpc.getVesselStreams();
+                return streams != null ? streams.getControl() : null;
+            },
+            () -> {
+                VesselStreams streams = krpc.getVesselStreams();
+                return streams != null ? streams.getAutoPilot() : null;
+            });
+        // Created before the control loop, so it steps before the loop wakes on the same sample
+        estimator = new VerticalStateEstimator(krpc);
+        controlLoop = new ControlLoopExecutor(krpc, actuators, estimator, ControlLoopExecutor.DEFAULT_PERIOD);
+        triggers = new TriggerRegistry(controlLoop);
     }
 
     @Override
     public void periodic() {
-
-        krpc.printVesselParts(true);
-
-        
         // Update SmartDashboard with telemetry data if streams are available
         if (krpc != null) {
             SmartDashboard.putNumber("AltitudeM", krpc.getAltitude());
@@ -46,6 +73,10 @@ public class RocketSubsystem extends SubsystemBase {
             SmartDashboard.putNumber("Velocity Y", velocityVector.getY());
             SmartDashboard.putNumber("Velocity Z", velocityVector.getZ());
 
+            estimator.publishTelemetry();
+            controlLoop.publishTelemetry();
+            actuators.publishTelemetry();
+
         } else {
             SmartDashboard.putString("KRPC Status", "Unavailable");
         }
@@ -67,9 +98,85 @@ public class RocketSubsystem extends SubsystemBase {
      * @param throttle Value between 0.0 and 1.0
      */
     public void setThrottle(double throttle) {
-        if (krpc != null) {
-            krpc.setThrottle(throttle);
-        }
+        // Goes through the actuator channel, so the caller never waits on the RPC
+        actuators.setThrottle(throttle);
+    }
+
+    /**
+     * Gets the high-rate control loop that runs armed control laws.
+     * @return The control loop executor
+     */
+    public ControlLoopExecutor getControlLoop() {
+        return controlLoop;
+    }
+
+    /**
+     * Engages or disengages the vessel's autopilot. The RPCs run on the wrapper's timer thread,
+     * so the caller never waits on them.
+     * @param engaged True to engage, false to disengage
+     */
+    public void setAutoPilotEngaged(boolean engaged) {
+        krpc.getTimer().schedule(() -> {
+            VesselStreams streams = krpc.getVesselStreams();
+            if (streams == null || streams.getAutoPilot() == null) {
+                return;
+            }
+            try {
+                if (engaged) {
+                    // SAS fights the autopilot, so turn it off first
+                    streams.getControl().setSAS(false);
+                    streams.getAutoPilot().engage();
+                } else {
+                    streams.getAutoPilot().disengage();
+                }
+            } catch (Exception e) {
+                DriverStation.reportError("Failed to set autopilot: " + e.getMessage(), e.getStackTrace());
+            }
+        }, 0);
+    }
+
+    /**
+     * Turns SAS on or off. The RPC runs on the wrapper's timer thread, so the caller never
+     * waits on it.
+     * @param enabled True to enable SAS
+     */
+    public void setSASEnabled(boolean enabled) {
+        krpc.getTimer().schedule(() -> {
+            VesselStreams streams = krpc.getVesselStreams();
+            if (streams == null) {
+                return;
+            }
+            try {
+                streams.getControl().setSAS(enabled);
+            } catch (Exception e) {
+                DriverStation.reportError("Failed to set SAS: " + e.getMessage(), e.getStackTrace());
+            }
+        }, 0);
+    }
+
+    /**
+     * Gets the registry for telemetry threshold triggers, e.g.
+     * {@code getTriggers().above(TelemetrySignal.ALTITUDE, 70000, 500).onTrue(...)}.
+     * @return The trigger registry
+     */
+    public TriggerRegistry getTriggers() {
+        return triggers;
+    }
+
+    /**
+     * Gets the vertical state estimator fed by the telemetry streams.
+     * @return The estimator
+     */
+    public VerticalStateEstimator getEstimator() {
+        return estimator;
+    }
+
+    /**
+     * Gets the filtered vertical speed, read from the estimator without an RPC.
+     * @return Vertical speed in m/s, positive up
+     */
+    public double getVerticalSpeed() {
+        return estimator.getVerticalSpeed();
     }
 
     /**
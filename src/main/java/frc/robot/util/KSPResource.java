@@ -0,0 +1,18 @@
+package frc.robot.util;
+
+public enum KSPResource {
+    LIQUID_FUEL("LiquidFuel"),
+    OXIDIZER("Oxidizer"),
+    MONO_PROPELLANT("MonoPropellant"),
+    ELECTRIC_CHARGE("ElectricCharge");
+
+    private final String resourceName;
+
+    KSPResource(String resourceName) {
+        this.resourceName = resourceName;
+    }
+
+    public String getResourceName() {
+        return resourceName;
+    }
+}
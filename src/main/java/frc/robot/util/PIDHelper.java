@@ -8,16 +8,49 @@
 
 package frc.robot.util;
 
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import java.util.EnumSet;
 
-public class PIDHelper {
+import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.networktables.DoubleEntry;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableEvent;
+import edu.wpi.first.networktables.NetworkTableInstance;
+
+/**
+ * Dashboard-tunable PID gains, setpoint and tolerances.
+ *
+ * <p>Values live under the same SmartDashboard keys as before ({@code <name>/kP}, ...), but are
+ * read through NT4 entries with value listeners. The fields only change when a value is edited,
+ * and every edit bumps {@link #getVersion()}, so commands can skip touching their controller
+ * until something actually changed.
+ */
+public class PIDHelper implements AutoCloseable {
     private final String name;
-    private double kP;
-    private double kI;
-    private double kD;
-    private double setpoint;
-    private double positionTolerance;
-    private double velocityTolerance;
+    private volatile double kP;
+    private volatile double kI;
+    private volatile double kD;
+    private volatile double setpoint;
+    private volatile double positionTolerance;
+    private volatile double velocityTolerance;
+
+    // Only written from the NT listener thread (or updateValues), read from anywhere
+    private volatile long version;
+
+    private final DoubleEntry[] entries;
+    private final int[] listenerHandles;
+    private final DoublePublisher errorPublisher;
+    private final DoublePublisher outputPublisher;
+
+    private static final int P = 0;
+    private static final int I = 1;
+    private static final int D = 2;
+    private static final int SETPOINT = 3;
+    private static final int POSITION_TOLERANCE = 4;
+    private static final int VELOCITY_TOLERANCE = 5;
+    private static final String[] KEYS = {
+        "kP", "kI", "kD", "Setpoint", "Position Tolerance", "Velocity Tolerance"
+    };
 
     /**
      * Creates a new PIDHelper with default values.
@@ -32,29 +65,96 @@ public class PIDHelper {
     public PIDHelper(String name, double defaultP, double defaultI, double defaultD,
                     double defaultSetpoint, double defaultPosTolerance, double defaultVelTolerance) {
         this.name = name;
-        
-        // Initialize SmartDashboard entries with default values
-        SmartDashboard.putNumber(name + "/kP", defaultP);
-        SmartDashboard.putNumber(name + "/kI", defaultI);
-        SmartDashboard.putNumber(name + "/kD", defaultD);
-        SmartDashboard.putNumber(name + "/Setpoint", defaultSetpoint);
-        SmartDashboard.putNumber(name + "/Position Tolerance", defaultPosTolerance);
-        SmartDashboard.putNumber(name + "/Velocity Tolerance", defaultVelTolerance);
-        
-        // Initialize local variables
-        updateValues();
+        double[] defaults = {
+            defaultP, defaultI, defaultD, defaultSetpoint, defaultPosTolerance, defaultVelTolerance
+        };
+
+        NetworkTableInstance instance = NetworkTableInstance.getDefault();
+        NetworkTable table = instance.getTable("SmartDashboard").getSubTable(name);
+
+        entries = new DoubleEntry[KEYS.length];
+        listenerHandles = new int[KEYS.length];
+        for (int i = 0; i < KEYS.length; i++) {
+            entries[i] = table.getDoubleTopic(KEYS[i]).getEntry(defaults[i]);
+            // Initialize SmartDashboard entries with default values
+            entries[i].set(defaults[i]);
+            store(i, defaults[i]);
+        }
+        for (int i = 0; i < KEYS.length; i++) {
+            int index = i;
+            listenerHandles[i] = instance.addListener(
+                entries[i],
+                EnumSet.of(NetworkTableEvent.Kind.kValueAll),
+                event -> {
+                    store(index, event.valueData.value.getDouble());
+                    version++;
+                });
+        }
+
+        errorPublisher = table.getDoubleTopic("Current Error").publish();
+        outputPublisher = table.getDoubleTopic("PID Output").publish();
+    }
+
+    private void store(int index, double value) {
+        switch (index) {
+            case P: kP = value; break;
+            case I: kI = value; break;
+            case D: kD = value; break;
+            case SETPOINT: setpoint = value; break;
+            case POSITION_TOLERANCE: positionTolerance = value; break;
+            default: velocityTolerance = value; break;
+        }
     }
 
     /**
-     * Updates all values from SmartDashboard.
+     * Re-reads all values from their entries. Not needed during normal operation, since the
+     * listeners keep the fields current; bumps the version only if something differed.
      */
     public void updateValues() {
-        kP = SmartDashboard.getNumber(name + "/kP", kP);
-        kI = SmartDashboard.getNumber(name + "/kI", kI);
-        kD = SmartDashboard.getNumber(name + "/kD", kD);
-        setpoint = SmartDashboard.getNumber(name + "/Setpoint", setpoint);
-        positionTolerance = SmartDashboard.getNumber(name + "/Position Tolerance", positionTolerance);
-        velocityTolerance = SmartDashboard.getNumber(name + "/Velocity Tolerance", velocityTolerance);
+        boolean changed = false;
+        double[] current = { kP, kI, kD, setpoint, positionTolerance, velocityTolerance };
+        for (int i = 0; i < KEYS.length; i++) {
+            double value = entries[i].get(current[i]);
+            if (value != current[i]) {
+                store(i, value);
+                changed = true;
+            }
+        }
+        if (changed) {
+            version++;
+        }
+    }
+
+    /**
+     * Applies the gains and tolerances to a controller if they changed since the caller last
+     * applied them. The setpoint is left to the caller.
+     * @param controller The controller to update
+     * @param appliedVersion The version returned by the previous call, or -1 to force
+     * @return The version now applied to the controller
+     */
+    public long applyIfChanged(PIDController controller, long appliedVersion) {
+        long current = version;
+        if (current != appliedVersion) {
+            controller.setPID(kP, kI, kD);
+            controller.setTolerance(positionTolerance, velocityTolerance);
+        }
+        return current;
+    }
+
+    /**
+     * Sets a controller's gains so that it computes as if its period were {@code dt}.
+     * PIDController integrates and differentiates over the fixed period it was built with; a
+     * control law whose cycles come once per server sample calls this every cycle with the
+     * measured interval, scaling I by {@code dt / period} and D by {@code period / dt}.
+     * @param controller The controller to update
+     * @param kP Proportional gain
+     * @param kI Integral gain, per second
+     * @param kD Derivative gain, in seconds
+     * @param dt Time since the previous cycle in seconds
+     */
+    public static void setGainsForCycle(PIDController controller, double kP, double kI, double kD, double dt) {
+        double ratio = dt > 0.0 ? dt / controller.getPeriod() : 1.0;
+        controller.setPID(kP, kI * ratio, kD / ratio);
     }
 
     /**
@@ -63,15 +163,32 @@ public class PIDHelper {
      * @param output The current PID output
      */
     public void publishTelemetry(double currentError, double output) {
-        SmartDashboard.putNumber(name + "/Current Error", currentError);
-        SmartDashboard.putNumber(name + "/PID Output", output);
+        errorPublisher.set(currentError);
+        outputPublisher.set(output);
+    }
+
+    /**
+     * Removes the value listeners and closes the entries.
+     */
+    @Override
+    public void close() {
+        NetworkTableInstance instance = NetworkTableInstance.getDefault();
+        for (int i = 0; i < KEYS.length; i++) {
+            instance.removeListener(listenerHandles[i]);
+            entries[i].close();
+        }
+        errorPublisher.close();
+        outputPublisher.close();
     }
 
     // Getters
+    public String getName() { return name; }
     public double getP() { return kP; }
     public double getI() { return kI; }
     public double getD() { return kD; }
     public double getSetpoint() { return setpoint; }
     public double getPositionTolerance() { return positionTolerance; }
     public double getVelocityTolerance() { return velocityTolerance; }
-}
\ No newline at end of file
+    /** @return Counter bumped on every edit of any value */
+    public long getVersion() { return version; }
+}
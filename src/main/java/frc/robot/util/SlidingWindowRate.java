@@ -0,0 +1,83 @@
+// Copyright (c) 2024 : FRC 2106 : The Junkyard Dogs
+// https://github.com/WindingMotor
+// https://www.team2106.org
+
+// Use of this source code is governed by an MIT-style
+// license that can be found in the LICENSE file at
+// the root directory of this project.
+
+package frc.robot.util;
+
+/**
+ * Estimates the rate of change of a sampled value over a sliding time window.
+ * Samples are kept in a fixed ring buffer, so adding samples never allocates.
+ */
+public class SlidingWindowRate {
+    private final double windowSeconds;
+    private final double[] times;
+    private final double[] values;
+    private int head;
+    private int count;
+
+    /**
+     * Creates a new rate estimator.
+     * @param windowSeconds Length of the window in seconds
+     * @param capacity Maximum number of samples kept in the window
+     */
+    public SlidingWindowRate(double windowSeconds, int capacity) {
+        this.windowSeconds = windowSeconds;
+        this.times = new double[capacity];
+        this.values = new double[capacity];
+    }
+
+    /**
+     * Adds a sample, dropping samples that have fallen out of the window.
+     * @param time Sample time in seconds
+     * @param value Sample value
+     */
+    public void add(double time, double value) {
+        int tail = (head + count) % times.length;
+        times[tail] = time;
+        values[tail] = value;
+        if (count < times.length) {
+            count++;
+        } else {
+            head = (head + 1) % times.length;
+        }
+        while (count > 2 && time - times[head] > windowSeconds) {
+            head = (head + 1) % times.length;
+            count--;
+        }
+    }
+
+    /**
+     * Gets the average rate of change over the window.
+     * @return Rate in value units per second, or 0.0 with fewer than two samples
+     */
+    public double getRate() {
+        if (count < 2) {
+            return 0.0;
+        }
+        int newest = (head + count - 1) % times.length;
+        double dt = times[newest] - times[head];
+        return dt > 0.0 ? (values[newest] - values[head]) / dt : 0.0;
+    }
+
+    /**
+     * Estimates the time until a decreasing value reaches zero at the current rate.
+     * @param amount The current amount
+     * @return Time in seconds, or positive infinity if the value is not decreasing
+     */
+    public double getTimeToDepletion(double amount) {
+        double consumption = -getRate();
+        return consumption > 1e-9 ? amount / consumption : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Clears all samples.
+     */
+    public void reset() {
+        head = 0;
+        count = 0;
+    }
+}